@@ -12,6 +12,8 @@ import java.util.logging.Logger;
 
 /**
  * Implements application lock. It allows only one instance of application.
+ * <p>
+ * The same lock is used to choose the instance writing shared data directory.
  * 
  * @version File version: $Revision: 998 $, $Date: 2009-05-16 08:53:21 +0700
  *          (Sat, 16 May 2009) $
@@ -37,6 +39,17 @@ public class ApplicationLock {
     this.file = new File(filename);
   }
 
+  /**
+   * Creates lock on given file.
+   *
+   * @param file
+   *          lock file
+   */
+  public ApplicationLock(File file) {
+    LOG.info("Checking lock file at: " + file);
+    this.file = file;
+  }
+
   /**
    * Try to receive lock
    * 
@@ -51,10 +64,12 @@ public class ApplicationLock {
         lock = channel.tryLock();
       } catch (OverlappingFileLockException e) {
         // File is already locked in this thread or virtual machine
-        return false;
+        lock = null;
       }
 
       if (lock == null) {
+        // don't keep the file open, it may be tried again later
+        randomAccessFile.close();
         return false;
       }
 
@@ -74,6 +89,7 @@ public class ApplicationLock {
     if (lock != null) {
       try {
         lock.release();
+        lock = null;
         randomAccessFile.close();
         file.delete();
 
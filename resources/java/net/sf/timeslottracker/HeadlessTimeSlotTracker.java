@@ -0,0 +1,255 @@
+package net.sf.timeslottracker;
+
+import java.awt.Cursor;
+import java.text.MessageFormat;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.MissingResourceException;
+import java.util.ResourceBundle;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.swing.ImageIcon;
+import javax.swing.JComponent;
+import javax.swing.JFrame;
+import javax.swing.JMenuItem;
+import javax.swing.JToolBar;
+
+import net.sf.timeslottracker.core.Action;
+import net.sf.timeslottracker.core.ActionListener;
+import net.sf.timeslottracker.core.Configuration;
+import net.sf.timeslottracker.core.TimeSlotTracker;
+import net.sf.timeslottracker.data.DataSource;
+import net.sf.timeslottracker.data.Task;
+import net.sf.timeslottracker.data.TimeSlot;
+import net.sf.timeslottracker.data.xml.XmlDataSource;
+import net.sf.timeslottracker.diagnostics.Diagnostics;
+import net.sf.timeslottracker.gui.LayoutManager;
+import net.sf.timeslottracker.gui.systemtray.TrayIconManager;
+import net.sf.timeslottracker.integrations.issuetracker.IssueTracker;
+import net.sf.timeslottracker.scheduler.SchedulerService;
+import net.sf.timeslottracker.worktime.WorkTimeService;
+
+/**
+ * TimeSlotTracker core without the gui, used by command line tools.
+ * <p>
+ * It loads configuration and data for reading only: there is no timing, no
+ * saving and events are not sent anywhere. The layout manager has no gui
+ * either, it only gives localized strings.
+ */
+public class HeadlessTimeSlotTracker implements TimeSlotTracker {
+
+  private static final Logger LOG = Logger
+      .getLogger("net.sf.timeslottracker");
+
+  /**
+   * Layout manager without any gui components.
+   */
+  private static class HeadlessLayoutManager extends LayoutManager {
+    public JComponent getGUIComponent() {
+      return null;
+    }
+
+    public JToolBar getToolBar() {
+      return null;
+    }
+
+    public List<JMenuItem> getMenuItems() {
+      return Collections.emptyList();
+    }
+
+    protected void initSubclass() {
+    }
+  }
+
+  private final Diagnostics diagnostics = new Diagnostics();
+
+  private final Configuration configuration;
+
+  private final LayoutManager layoutManager;
+
+  private Locale locale;
+
+  private ResourceBundle messages;
+
+  private DataSource dataSource;
+
+  public HeadlessTimeSlotTracker() {
+    locale = Locale.getDefault();
+    messages = ResourceBundle.getBundle("TimeSlotTracker", locale);
+    configuration = new Configuration(this);
+
+    String language = configuration.getString(Configuration.APP_LOCALE, "en");
+    locale = new Locale(language);
+    messages = ResourceBundle.getBundle("TimeSlotTracker", locale);
+
+    layoutManager = new HeadlessLayoutManager();
+    layoutManager.setTimeSlotTracker(this);
+  }
+
+  /**
+   * Creates the data source and loads data for reading only.
+   *
+   * @return <code>true</code> if data were loaded
+   */
+  public boolean loadData() throws Exception {
+    String dataSourceClass = configuration.getString(
+        Configuration.DATASOURCE_CLASS,
+        "net.sf.timeslottracker.data.xml.XmlDataSource");
+    dataSource = (DataSource) Class.forName(dataSourceClass)
+        .getDeclaredConstructor().newInstance();
+    dataSource.setTimeSlotTracker(this);
+    if (dataSource instanceof XmlDataSource) {
+      return ((XmlDataSource) dataSource).loadReadOnly();
+    }
+    return dataSource.reloadData();
+  }
+
+  public DataSource getDataSource() {
+    return dataSource;
+  }
+
+  public Locale getLocale() {
+    return locale;
+  }
+
+  public String getString(String key) {
+    try {
+      return messages.getString(key);
+    } catch (MissingResourceException e) {
+      errorLog(e);
+      return null;
+    }
+  }
+
+  public String getString(String key, Object[] args) {
+    String msgToFormat = getString(key);
+    if (msgToFormat == null) {
+      return null;
+    }
+    try {
+      return new MessageFormat(msgToFormat, locale).format(args);
+    } catch (IllegalArgumentException e) {
+      errorLog(e);
+      return "Cannot format message: " + e.getMessage();
+    }
+  }
+
+  public LayoutManager getLayoutManager() {
+    return layoutManager;
+  }
+
+  public void debugLog(String message) {
+    LOG.fine(message);
+  }
+
+  public void errorLog(String message) {
+    LOG.severe(message);
+  }
+
+  public void errorLog(Exception exception) {
+    LOG.log(Level.SEVERE, exception.toString(), exception);
+  }
+
+  public ImageIcon getIcon(String iconPath) {
+    return null;
+  }
+
+  public Configuration getConfiguration() {
+    return configuration;
+  }
+
+  public void setCursor(Cursor cursor) {
+  }
+
+  public void setCursorWait() {
+  }
+
+  public void setCursorDefault() {
+  }
+
+  public void setActiveTimeSlot(TimeSlot timeslot) {
+  }
+
+  public TimeSlot getActiveTimeSlot() {
+    return null;
+  }
+
+  public boolean startTiming() {
+    return false;
+  }
+
+  public boolean startTiming(String description) {
+    return false;
+  }
+
+  public boolean restartTiming(String description) {
+    return false;
+  }
+
+  public void pauseTiming() {
+  }
+
+  public void stopTiming() {
+  }
+
+  public void addActionListener(ActionListener listener) {
+  }
+
+  public void addActionListener(ActionListener listener, String selector) {
+  }
+
+  public void fireDataLoaded() {
+  }
+
+  public void fireTaskChanged(Task changedTask) {
+  }
+
+  public void fireAction(String actionCode) {
+  }
+
+  public void fireAction(Action action) {
+  }
+
+  public JFrame getRootFrame() {
+    return null;
+  }
+
+  public void quit() {
+  }
+
+  public IssueTracker getIssueTracker() {
+    return null;
+  }
+
+  public WorkTimeService getWorkTimeService() {
+    return null;
+  }
+
+  public TrayIconManager getTrayIconService() {
+    return null;
+  }
+
+  public SchedulerService getScheduler() {
+    return null;
+  }
+
+  public Diagnostics getDiagnostics() {
+    return diagnostics;
+  }
+
+  public void setClosing(boolean closing) {
+  }
+
+  public boolean isClosing() {
+    // like while closing, errors are only logged and not shown in dialogs
+    return true;
+  }
+
+  public boolean checkWritable() {
+    // data are loaded read-only to generate reports
+    return false;
+  }
+
+}
@@ -7,12 +7,10 @@ import java.awt.TrayIcon;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
 import java.io.File;
-import java.io.IOException;
 import java.security.KeyManagementException;
 import java.security.NoSuchAlgorithmException;
 import java.text.MessageFormat;
 import java.text.SimpleDateFormat;
-import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Collection;
 import java.util.Date;
@@ -23,6 +21,8 @@ import java.util.Map;
 import java.util.MissingResourceException;
 import java.util.ResourceBundle;
 import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.logging.FileHandler;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -46,6 +46,7 @@ import net.sf.timeslottracker.data.Task;
 import net.sf.timeslottracker.data.TaskChangedListener;
 import net.sf.timeslottracker.data.TimeSlot;
 import net.sf.timeslottracker.data.TimeSlotChangedListener;
+import net.sf.timeslottracker.diagnostics.Diagnostics;
 import net.sf.timeslottracker.gui.IconManagerImpI;
 import net.sf.timeslottracker.gui.LayoutManager;
 import net.sf.timeslottracker.gui.TimeSlotFilterListener;
@@ -54,6 +55,8 @@ import net.sf.timeslottracker.gui.TimeSlotRestartDialog;
 import net.sf.timeslottracker.gui.TimeSlotsInterface;
 import net.sf.timeslottracker.gui.dateperiod.DatePeriod;
 import net.sf.timeslottracker.gui.lookandfeel.LookAndFeelManagerImpl;
+import net.sf.timeslottracker.gui.reports.ReportTemplates;
+import net.sf.timeslottracker.gui.reports.ReportsHelper;
 import net.sf.timeslottracker.gui.systemtray.TipOfTheDayService;
 import net.sf.timeslottracker.gui.systemtray.TrayIconManager;
 import net.sf.timeslottracker.gui.systemtray.TrayIconManagerImp;
@@ -61,6 +64,8 @@ import net.sf.timeslottracker.idledetector.UserIdleDetector;
 import net.sf.timeslottracker.integrations.issuetracker.IssueTracker;
 import net.sf.timeslottracker.integrations.issuetracker.jira.JiraTracker;
 import net.sf.timeslottracker.monitoring.ScreenshotMonitoringTask;
+import net.sf.timeslottracker.scheduler.SchedulerService;
+import net.sf.timeslottracker.scheduler.SchedulerServiceImpl;
 import net.sf.timeslottracker.updateversion.VersionManager;
 import net.sf.timeslottracker.utils.SSLUtils;
 import net.sf.timeslottracker.utils.StringUtils;
@@ -89,6 +94,9 @@ public class Starter extends JFrame implements TimeSlotTracker {
 
   private static final ApplicationLock applicationLock = new ApplicationLock();
 
+  /** default dispatch time (ms) the EDT watchdog reports as a stall */
+  private static final int DEFAULT_EDT_STALL_THRESHOLD = 500;
+
   /** Contains an active timeslot, if any. **/
   private TimeSlot activeTimeSlot;
 
@@ -97,13 +105,13 @@ public class Starter extends JFrame implements TimeSlotTracker {
    */
   private ResourceBundle messages;
 
-  private final List dataLoadedListeners = new ArrayList();
-  private final List taskChangedListeners = new ArrayList();
+  private final List dataLoadedListeners = new CopyOnWriteArrayList();
+  private final List taskChangedListeners = new CopyOnWriteArrayList();
   /**
    * a default queue for listeners. Key -> actionCode, Value - Collection of
    * listeners.
    */
-  private final Map actionListeners = new java.util.HashMap();
+  private final Map actionListeners = new ConcurrentHashMap();
 
   private TimeoutTimer autoSaveTimer;
 
@@ -116,7 +124,17 @@ public class Starter extends JFrame implements TimeSlotTracker {
   /** closing program state */
   private boolean closing;
 
+  /** startup state: application lock taken, data read, startup finished */
+  private volatile boolean locked;
+  private volatile boolean dataLoaded;
+  private boolean started;
+
+  /** data loaded event fired during startup, before all listeners were added */
+  private boolean dataLoadedPending;
+
   // services
+  private final SchedulerService scheduler = new SchedulerServiceImpl();
+  private final Diagnostics diagnostics = new Diagnostics();
   private IssueTracker jiraTracker;
   private WorkTimeService workTimeService;
   private TrayIconManager trayIconService;
@@ -145,79 +163,123 @@ public class Starter extends JFrame implements TimeSlotTracker {
         new Object[] { locale });
     debugLog(msg);
 
-    // setting look'n'feel
-    new LookAndFeelManagerImpl(this);
+    // independent stages are run concurrently, stages with Swing components
+    // one by one in event dispatch thread, data loaded event is fired when
+    // all of them are done
+    StartupPipeline startup = new StartupPipeline("Startup");
 
-    // create work time service
-    try {
-      workTimeService = new WorkTimeServiceImpl(this);
-    } catch (IOException e1) {
-      errorLog(e1);
-      return;
-    }
+    // setting look'n'feel, before any component is created
+    startup.addSwingStage("lookAndFeel", () -> new LookAndFeelManagerImpl(
+        this));
 
-    // create datasource and layout
-    try {
+    // create work time service (holidays.properties) used by the days view,
+    // startup is aborted when it can't be read
+    startup.addStage("workTime",
+        () -> workTimeService = new WorkTimeServiceImpl(this));
+
+    startup.addStage("icons", () -> {
       iconManager = new IconManagerImpI();
+      iconManager.preload();
+    });
+
+    // shared data directory is locked by data source, which becomes read-only
+    // when another instance writes it
+    startup.addStage("lock", () -> locked = configuration.getBoolean(
+        Configuration.DATASOURCE_SHARED, false) || applicationLock.tryLock());
 
+    startup.addStage("dataSource", () -> {
       String dataSourceClass = configuration.getString(
           Configuration.DATASOURCE_CLASS,
           "net.sf.timeslottracker.data.xml.XmlDataSource");
-      dataSource = (DataSource) Class.forName(dataSourceClass).newInstance();
+      dataSource = (DataSource) Class.forName(dataSourceClass)
+          .getDeclaredConstructor().newInstance();
       dataSource.setTimeSlotTracker(this);
+    });
 
+    // create layout (data parsing needs only the layout instance, not its
+    // gui)
+    startup.addSwingStage("layoutManager", () -> {
       String layoutClass = configuration.getString(
           Configuration.LAYOUTMANAGER_CLASS,
           "net.sf.timeslottracker.gui.layouts.classic.ClassicLayout");
-      layoutManager = (LayoutManager) Class.forName(layoutClass).newInstance();
-
-      layoutManager.init(this);
-    } catch (Exception e) {
-      errorLog(e);
-      return;
-    }
-
-    // create jira tracker
-    jiraTracker = new JiraTracker(this);
+      layoutManager = (LayoutManager) Class.forName(layoutClass)
+          .getDeclaredConstructor().newInstance();
+      layoutManager.setTimeSlotTracker(this);
+    }, "lookAndFeel");
+
+    startup.addStage("data", () -> {
+      if (locked) {
+        dataLoaded = reloadData();
+      }
+    }, "lock", "dataSource", "layoutManager");
 
-    Container contentPane = getContentPane();
-    contentPane.setLayout(new BorderLayout());
-    contentPane.add(layoutManager.getGUIComponent());
+    startup.addSwingStage("layout", () -> layoutManager.init(this),
+        "layoutManager", "icons", "workTime");
 
-    if (layoutManager.getMenuBar() != null) {
-      setJMenuBar(layoutManager.getMenuBar());
-    }
-    if (layoutManager.getToolBar() != null) {
-      contentPane.add(layoutManager.getToolBar(), BorderLayout.NORTH);
-    }
+    startup.addSwingStage("frame", () -> {
+      Container contentPane = getContentPane();
+      contentPane.setLayout(new BorderLayout());
+      contentPane.add(layoutManager.getGUIComponent());
 
-    setDefaultCloseOperation(WindowConstants.DO_NOTHING_ON_CLOSE);
-    addWindowListener(new WindowCloser());
+      if (layoutManager.getMenuBar() != null) {
+        setJMenuBar(layoutManager.getMenuBar());
+      }
+      if (layoutManager.getToolBar() != null) {
+        contentPane.add(layoutManager.getToolBar(), BorderLayout.NORTH);
+      }
 
-    // sets window size and location
-    setResizable(true);
-    SwingUtils.setWidthHeight(this, 900, 600);
-    SwingUtils.setLocation(this);
+      setDefaultCloseOperation(WindowConstants.DO_NOTHING_ON_CLOSE);
+      addWindowListener(new WindowCloser());
 
-    // sets title props
-    setIconImage(getIcon("title.icon").getImage());
+      // sets window size and location
+      setResizable(true);
+      SwingUtils.setWidthHeight(this, 900, 600);
+      SwingUtils.setLocation(this);
 
-    // setup check new version manager
-    VersionManager versionManager = new VersionManager(this);
-    versionManager.installUpdater();
+      // sets title props
+      setIconImage(getIcon("title.icon").getImage());
+    }, "layout");
 
     // create and init tray icon service
-    trayIconService = new TrayIconManagerImp(this);
-    trayIconService.init();
+    startup.addSwingStage("trayIcon", () -> {
+      trayIconService = new TrayIconManagerImp(this);
+      trayIconService.init();
+    }, "layout");
+
+    // setup check new version manager, it may wait for network
+    startup.addBackgroundStage("versionCheck", () -> {
+      VersionManager versionManager = new VersionManager(this);
+      versionManager.installUpdater();
+    }, "trayIcon");
+
+    // compile report stylesheets, so the first report doesn't wait for it
+    startup.addBackgroundStage("reportTemplates", () -> ReportTemplates
+        .getInstance().warmUp(ReportsHelper.getReports(),
+            configuration.getString(Configuration.DATASOURCE_DIRECTORY, ".")
+                + File.separator), "frame");
+
+    // index timeslot descriptions, so the first timeslot dialog doesn't wait
+    // for it
+    startup.addBackgroundStage("descriptionIndex", () -> layoutManager
+        .getDescriptionIndex(), "data", "layout");
 
     // setup thread for frame title updater
-    installTitleUpdater();
+    startup.addSwingStage("titleUpdater", () -> installTitleUpdater(),
+        "trayIcon");
 
     // setup the monitoring timer
-    installMonitoringTimer();
+    startup.addSwingStage("monitoring", () -> installMonitoringTimer(),
+        "layout");
+
+    if (!startup.run()) {
+      return;
+    }
 
     validate();
     addShutdownHook();
+    installEdtWatchdog();
+    installDataFollower();
+    installJournalFlusher();
     layoutManager.postInit();
 
     userIdleDetector = new UserIdleDetector(this);
@@ -229,6 +291,16 @@ public class Starter extends JFrame implements TimeSlotTracker {
     } catch (Exception e) {
       errorLog(e);
     }
+
+    // notify listeners about data read during startup
+    boolean fireLoaded;
+    synchronized (this) {
+      started = true;
+      fireLoaded = dataLoadedPending;
+    }
+    if (fireLoaded) {
+      fireDataLoaded();
+    }
   }
 
   private void installMonitoringTimer() {
@@ -260,8 +332,10 @@ public class Starter extends JFrame implements TimeSlotTracker {
         return;
       }
 
-      if (monitorTimer != null) {
-        monitorTimer.stop();
+      if (monitorTimer != null && monitorTimer.setTimeout(delaySeconds)) {
+        LOG.info("Monitoring thread rescheduled with timeout (minutes): "
+            + delayMinutes);
+        return;
       }
 
       monitorTimer = new TimeoutTimer(this, "monitorTimer",
@@ -362,7 +436,9 @@ public class Starter extends JFrame implements TimeSlotTracker {
     Runtime.getRuntime().addShutdownHook(new Thread() {
       public void run() {
         setClosing(true);
+        scheduler.shutdown();
         saveApplicationData(false);
+        diagnostics.logReport();
       }
     });
   }
@@ -375,7 +451,8 @@ public class Starter extends JFrame implements TimeSlotTracker {
     }
   }
 
-  public void addActionListener(ActionListener listener, String selector) {
+  public synchronized void addActionListener(ActionListener listener,
+      String selector) {
     Collection listeners = (Collection) actionListeners.get(selector);
     if (listeners == null) {
       listeners = new Vector();
@@ -456,6 +533,10 @@ public class Starter extends JFrame implements TimeSlotTracker {
     String version = configuration.getVersionString();
     titleFormat = titleFormat.replaceAll("%version", String.valueOf(version));
 
+    if (dataSource.isReadOnly()) {
+      titleFormat += getString("starter.title.readOnly");
+    }
+
     return titleFormat + additionalTitleSuffix;
   }
 
@@ -560,18 +641,18 @@ public class Starter extends JFrame implements TimeSlotTracker {
     LOG.info("Starting TimeSlotTrackerApplication");
 
     Starter starter = new Starter();
-    starter.setVisible(true);
 
-    if (!applicationLock.tryLock()) {
+    if (!starter.locked) {
       JOptionPane.showMessageDialog(starter,
           starter.getString("starter.only-one-instance.exception.msg"),
           starter.getString("alert.error.title"), JOptionPane.ERROR_MESSAGE);
       System.exit(1);
     }
 
-    if (!starter.reloadData()) {
+    if (!starter.dataLoaded) {
       System.exit(1);
     }
+    starter.setVisible(true);
 
     new TipOfTheDayService(starter);
     starter.setCursor(CURSOR_DEFAULT);
@@ -595,10 +676,81 @@ public class Starter extends JFrame implements TimeSlotTracker {
     }
   }
 
-  public IssueTracker getIssueTracker() {
+  /**
+   * Returns issue tracker, it's created when it is used for the first time.
+   */
+  public synchronized IssueTracker getIssueTracker() {
+    if (jiraTracker == null) {
+      jiraTracker = new JiraTracker(this);
+    }
     return jiraTracker;
   }
 
+  public SchedulerService getScheduler() {
+    return scheduler;
+  }
+
+  public Diagnostics getDiagnostics() {
+    return diagnostics;
+  }
+
+  /**
+   * Read-only instance periodically applies changes saved by the writing one
+   * and takes over writing when it exits.
+   */
+  private void installDataFollower() {
+    if (!dataSource.isReadOnly()) {
+      return;
+    }
+    final String name = "dataSource.follower";
+    int interval = configuration.getInteger(
+        Configuration.DATASOURCE_SHARED_INTERVAL, 5);
+    scheduler.scheduleRepeatedly(name, new Runnable() {
+      public void run() {
+        try {
+          // journal and data file are read here, only applied in EDT
+          Runnable changes = dataSource.followChanges();
+          if (changes != null) {
+            SwingUtilities.invokeAndWait(changes);
+          }
+        } catch (Exception e) {
+          errorLog(e);
+        }
+        if (!dataSource.isReadOnly()) {
+          scheduler.cancel(name);
+        }
+      }
+    }, interval, -1, false);
+  }
+
+  /**
+   * Writes changes for read-only instances in shared data directory, so they
+   * don't wait for the next save. A read-only instance can take over writing,
+   * so it's installed in all of them.
+   */
+  private void installJournalFlusher() {
+    if (!configuration.getBoolean(Configuration.DATASOURCE_SHARED, false)) {
+      return;
+    }
+    int interval = configuration.getInteger(
+        Configuration.DATASOURCE_SHARED_INTERVAL, 5);
+    scheduler.scheduleRepeatedly("dataSource.journal", new Runnable() {
+      public void run() {
+        dataSource.flushChanges();
+      }
+    }, interval, -1, false);
+  }
+
+  private void installEdtWatchdog() {
+    Configuration configuration = getConfiguration();
+    if (configuration.getBoolean(Configuration.DIAGNOSTICS_EDT_WATCHDOG_ENABLED,
+        false)) {
+      diagnostics.startWatchdog(configuration.getInteger(
+          Configuration.DIAGNOSTICS_EDT_WATCHDOG_THRESHOLD,
+          DEFAULT_EDT_STALL_THRESHOLD));
+    }
+  }
+
   @Override
   public WorkTimeService getWorkTimeService() {
     return workTimeService;
@@ -618,7 +770,7 @@ public class Starter extends JFrame implements TimeSlotTracker {
     SwingUtils.saveWidthHeight(this);
     SwingUtils.saveLocation(this);
 
-    if (dataSource != null) {
+    if (dataSource != null && !dataSource.isReadOnly()) {
       if (!dataSource.saveAll() && askOnFail) {
         String errorTitle = getString("starter.WindowCloser.error.title");
         String errorMsg = getString("starter.WindowCloser.error.msg");
@@ -712,6 +864,10 @@ public class Starter extends JFrame implements TimeSlotTracker {
   }
 
   public boolean startTiming(String description, Date startTime) {
+    if (!checkWritable()) {
+      return false;
+    }
+
     // skip if selected root node
     Task selectedTask = layoutManager.getTimeSlotsInterface().getSelectedTask();
     if (selectedTask == dataSource.getRoot()) {
@@ -860,6 +1016,9 @@ public class Starter extends JFrame implements TimeSlotTracker {
 
   public void pauseTiming() {
     LOG.info("PauseTiming");
+    if (!checkWritable()) {
+      return;
+    }
     // check if there is an active any other timeslot now
     TimeSlot previousTimeslot = getActiveTimeSlot();
     if (previousTimeslot == null) {
@@ -888,6 +1047,9 @@ public class Starter extends JFrame implements TimeSlotTracker {
 
   public void stopTiming() {
     LOG.info("StopTiming");
+    if (!checkWritable()) {
+      return;
+    }
     // check if there is an active any other timeslot now
     TimeSlot previousTimeslot = getActiveTimeSlot();
     if (previousTimeslot == null) {
@@ -915,6 +1077,12 @@ public class Starter extends JFrame implements TimeSlotTracker {
   }
 
   public void fireDataLoaded() {
+    synchronized (this) {
+      if (!started) {
+        dataLoadedPending = true;
+        return;
+      }
+    }
     LOG.entering(this.getClass().getName(), "fireDataLoaded");
     try {
       final Action action = new Action(DataSource.DATA_LOADED, dataSource, null);
@@ -926,7 +1094,7 @@ public class Starter extends JFrame implements TimeSlotTracker {
           Iterator listeners = dataLoadedListeners.iterator();
           while (listeners.hasNext()) {
             ActionListener listener = (ActionListener) listeners.next();
-            listener.actionPerformed(action);
+            diagnostics.invoke(listener, action);
           }
         }
       };
@@ -947,7 +1115,7 @@ public class Starter extends JFrame implements TimeSlotTracker {
     Iterator listeners = taskChangedListeners.iterator();
     while (listeners.hasNext()) {
       ActionListener listener = (ActionListener) listeners.next();
-      listener.actionPerformed(action);
+      diagnostics.invoke(listener, action);
     }
   }
 
@@ -965,7 +1133,7 @@ public class Starter extends JFrame implements TimeSlotTracker {
     Iterator listeners = listenersCollection.iterator();
     while (listeners.hasNext()) {
       ActionListener listener = (ActionListener) listeners.next();
-      listener.actionPerformed(action);
+      diagnostics.invoke(listener, action);
     }
   }
 
@@ -990,9 +1158,21 @@ public class Starter extends JFrame implements TimeSlotTracker {
     return closing;
   }
 
+  public boolean checkWritable() {
+    if (dataSource == null || !dataSource.isReadOnly()) {
+      return true;
+    }
+    JOptionPane.showMessageDialog(this, getString("starter.readOnly.msg"),
+        getString("starter.readOnly.title"), JOptionPane.WARNING_MESSAGE);
+    return false;
+  }
+
   @Override
   public boolean restartTiming(String description) {
     LOG.info("RestartTiming");
+    if (!checkWritable()) {
+      return false;
+    }
 
     Boolean showDialogToSetCustomTime = configuration.getBoolean(
         Configuration.CONFIRMATION_SHOW_DIALOG_FOR_CUSTOM_RESTART_TIME, false);
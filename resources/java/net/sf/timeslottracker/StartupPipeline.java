@@ -0,0 +1,219 @@
+package net.sf.timeslottracker;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.swing.SwingUtilities;
+
+/**
+ * Runs application initialization as a graph of stages.
+ * <p>
+ * Every stage names stages it depends on and is started as soon as all of
+ * them are done, so independent stages run concurrently. A stage is skipped
+ * when any of its dependencies failed. Time spent in every stage is written to
+ * the log.
+ * <p>
+ * Stages can only depend on stages added before them, so the graph can't
+ * contain cycles.
+ * <p>
+ * Stages working with Swing components are run in the event dispatch thread,
+ * one by one. The pipeline itself has to be run in another thread.
+ */
+public class StartupPipeline {
+
+  private static final Logger LOG = Logger.getLogger(StartupPipeline.class
+      .getName());
+
+  /**
+   * Work done by one stage.
+   */
+  public interface StageTask {
+    void run() throws Exception;
+  }
+
+  private final String name;
+
+  private final Map<String, Stage> stages = new LinkedHashMap<String, Stage>();
+
+  private long startTime;
+
+  public StartupPipeline(String name) {
+    this.name = name;
+  }
+
+  /**
+   * Adds a stage. {@link #run()} waits until it is done.
+   *
+   * @param stageName
+   *          unique name of stage
+   * @param task
+   *          work to do
+   * @param dependsOn
+   *          names of (already added) stages which have to be done first
+   */
+  public StartupPipeline addStage(String stageName, StageTask task,
+      String... dependsOn) {
+    return add(new Stage(stageName, task, dependsOn, false, false));
+  }
+
+  /**
+   * Adds a stage run in the event dispatch thread, e.g. creating components.
+   *
+   * @see #addStage(String, StageTask, String...)
+   */
+  public StartupPipeline addSwingStage(String stageName, StageTask task,
+      String... dependsOn) {
+    return add(new Stage(stageName, task, dependsOn, false, true));
+  }
+
+  /**
+   * Adds a stage {@link #run()} doesn't wait for, e.g. checking for a new
+   * version over network.
+   *
+   * @see #addStage(String, StageTask, String...)
+   */
+  public StartupPipeline addBackgroundStage(String stageName, StageTask task,
+      String... dependsOn) {
+    return add(new Stage(stageName, task, dependsOn, true, false));
+  }
+
+  private StartupPipeline add(Stage stage) {
+    if (stages.containsKey(stage.name)) {
+      throw new IllegalArgumentException("Duplicated stage: " + stage.name);
+    }
+    for (String dependency : stage.dependsOn) {
+      if (!stages.containsKey(dependency)) {
+        throw new IllegalArgumentException("Stage " + stage.name
+            + " depends on unknown stage: " + dependency);
+      }
+    }
+    stages.put(stage.name, stage);
+    return this;
+  }
+
+  /**
+   * Starts all stages and waits for all but background ones.
+   *
+   * @return <code>false</code> if any of waited stages failed or was skipped
+   */
+  public boolean run() {
+    startTime = System.currentTimeMillis();
+    int threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+    final ExecutorService executor = Executors.newFixedThreadPool(threads,
+        new StageThreadFactory());
+
+    List<CompletableFuture<Void>> all = new ArrayList<CompletableFuture<Void>>();
+    List<CompletableFuture<Void>> waited = new ArrayList<CompletableFuture<Void>>();
+    for (final Stage stage : stages.values()) {
+      CompletableFuture<?>[] dependencies = new CompletableFuture<?>[stage.dependsOn.length];
+      for (int i = 0; i < dependencies.length; i++) {
+        dependencies[i] = stages.get(stage.dependsOn[i]).future;
+      }
+      stage.future = CompletableFuture.allOf(dependencies).whenComplete(
+          (result, error) -> {
+            if (error != null) {
+              LOG.warning(name + " stage \"" + stage.name
+                  + "\" skipped, a stage it depends on failed");
+            }
+          }).thenRunAsync(() -> stage.execute(), executor);
+      all.add(stage.future);
+      if (!stage.background) {
+        waited.add(stage.future);
+      }
+    }
+    CompletableFuture.allOf(all.toArray(new CompletableFuture<?>[all.size()]))
+        .whenComplete((result, error) -> executor.shutdown());
+
+    boolean success = true;
+    for (CompletableFuture<Void> future : waited) {
+      try {
+        future.join();
+      } catch (CompletionException e) {
+        success = false;
+      }
+    }
+    LOG.info(name + " finished in " + elapsed() + " ms"
+        + (success ? "" : " with errors"));
+    return success;
+  }
+
+  private long elapsed() {
+    return System.currentTimeMillis() - startTime;
+  }
+
+  private class Stage {
+    private final String name;
+    private final StageTask task;
+    private final String[] dependsOn;
+    private final boolean background;
+    private final boolean swing;
+    private CompletableFuture<Void> future;
+
+    private Stage(String name, StageTask task, String[] dependsOn,
+        boolean background, boolean swing) {
+      this.name = name;
+      this.task = task;
+      this.dependsOn = dependsOn;
+      this.background = background;
+      this.swing = swing;
+    }
+
+    private void execute() {
+      long started = elapsed();
+      try {
+        if (swing) {
+          runInEventDispatchThread();
+        } else {
+          task.run();
+        }
+      } catch (Exception e) {
+        LOG.log(Level.SEVERE, StartupPipeline.this.name + " stage \"" + name
+            + "\" failed", e);
+        throw new CompletionException(e);
+      } finally {
+        LOG.info(StartupPipeline.this.name + " stage \"" + name + "\" took "
+            + (elapsed() - started) + " ms (started at +" + started + " ms, "
+            + (swing ? "event dispatch thread" : Thread.currentThread()
+                .getName()) + ")");
+      }
+    }
+
+    private void runInEventDispatchThread() throws Exception {
+      final Exception[] failure = new Exception[1];
+      SwingUtilities.invokeAndWait(new Runnable() {
+        public void run() {
+          try {
+            task.run();
+          } catch (Exception e) {
+            failure[0] = e;
+          }
+        }
+      });
+      if (failure[0] != null) {
+        throw failure[0];
+      }
+    }
+  }
+
+  private class StageThreadFactory implements ThreadFactory {
+    private final AtomicInteger number = new AtomicInteger();
+
+    public Thread newThread(Runnable runnable) {
+      Thread thread = new Thread(runnable, name + " "
+          + number.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
+
+}
@@ -46,6 +46,8 @@ public class Configuration {
   public static final String DATASOURCE_DIRECTORY_CURRENT_FOLDER = "dataSource.data.directory.currentFolder";
   public static final String DATASOURCE_AUTOSAVE_TIMEOUT = "dataSource.autoSave.timeout.seconds";
   public static final String DATASOURCE_CLASS = "app.dataSource.class";
+  public static final String DATASOURCE_SHARED = "dataSource.shared";
+  public static final String DATASOURCE_SHARED_INTERVAL = "dataSource.shared.interval.seconds";
 
   public static final String CONFIRMATION_PREVIOUS_TIMESLOT_EXISTS = "app.confirmation.previousTimeSlotExists";
   public static final String CONFIRMATION_SHOW_TASK_HAS_JUST_STARTED_MESSAGE = "tray.icon.show.task.has.just.started.message";
@@ -123,6 +125,9 @@ public class Configuration {
   public static final String USER_IDLE_DETECTOR_ENABLED = "user.idle.detector.enabled";
   public static final String USER_IDLE_DETECTOR_TIMEOUT = "user.idle.detector.timeout";
 
+  public static final String DIAGNOSTICS_EDT_WATCHDOG_ENABLED = "diagnostics.edt.watchdog.enabled";
+  public static final String DIAGNOSTICS_EDT_WATCHDOG_THRESHOLD = "diagnostics.edt.watchdog.threshold";
+
   private String configurationFileName;
 
   private Properties properties;
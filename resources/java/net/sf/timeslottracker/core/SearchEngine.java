@@ -1,9 +1,10 @@
 package net.sf.timeslottracker.core;
 
-import java.util.Collection;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import net.sf.timeslottracker.data.Task;
 import net.sf.timeslottracker.data.TimeSlot;
+import net.sf.timeslottracker.search.SearchResult;
 
 /**
  * Defines interface for search engine.
@@ -34,18 +35,45 @@ public interface SearchEngine {
   public void createIndex(Task root);
 
   /**
-   * Do search in tasks and returns collection of Task and TimeSlots matching
-   * query
+   * Do search in tasks and returns Task and TimeSlots matching query.
+   * <p/>
+   * After searching the event {@link #SEARCHING_FINISHED} with the result is
+   * sent.
    * 
    * @param query
-   *          query entered by user
-   * @return collection (<b>never null</b>) with {@link Task} and
+   *          query entered by user, it can contain date and duration
+   *          filters (see {@link net.sf.timeslottracker.search.SearchQuery})
+   * @return result (<b>never null</b>) with documents of {@link Task} and
    *         {@link net.sf.timeslottracker.data.TimeSlot} which matches user
-   *         query.
+   *         query and their counts per month and task.
    * @throws TimeSlotTrackerException
    *           when index was not yet created.
    */
-  public Collection doSearch(String query) throws TimeSlotTrackerException;
+  public SearchResult doSearch(String query) throws TimeSlotTrackerException;
+
+  /**
+   * Do search in the task and its subtasks.
+   * 
+   * @param query
+   *          query entered by user
+   * @param within
+   *          task to search in, <code>null</code> to search in all tasks
+   * @see #doSearch(String)
+   */
+  public SearchResult doSearch(String query, Task within)
+      throws TimeSlotTrackerException;
+
+  /**
+   * Searches while user types. The event {@link #SEARCHING_FINISHED} is not
+   * sent.
+   * 
+   * @param cancelled
+   *          checked while collecting hits, when it is set the search stops
+   * @return result or <code>null</code> when the search was cancelled
+   * @see #doSearch(String, Task)
+   */
+  public SearchResult liveSearch(String query, Task within,
+      AtomicBoolean cancelled) throws TimeSlotTrackerException;
 
   /**
    * Updates information about task in index (not subtasks).
@@ -12,6 +12,8 @@ import net.sf.timeslottracker.data.TimeSlot;
 import net.sf.timeslottracker.gui.LayoutManager;
 import net.sf.timeslottracker.gui.systemtray.TrayIconManager;
 import net.sf.timeslottracker.integrations.issuetracker.IssueTracker;
+import net.sf.timeslottracker.diagnostics.Diagnostics;
+import net.sf.timeslottracker.scheduler.SchedulerService;
 import net.sf.timeslottracker.worktime.WorkTimeService;
 
 /**
@@ -299,6 +301,17 @@ public interface TimeSlotTracker {
    */
   TrayIconManager getTrayIconService();
 
+  /**
+   * @return scheduler service shared by all timers
+   */
+  SchedulerService getScheduler();
+
+  /**
+   * @return diagnostics collecting listener latencies and event dispatch
+   *         thread stalls
+   */
+  Diagnostics getDiagnostics();
+
   /**
    * Indicates that the application is closing by shutdown hook, so you cannot
    * display any messages.
@@ -317,4 +330,13 @@ public interface TimeSlotTracker {
    */
   boolean isClosing();
 
+  /**
+   * Checks if data can be changed. Data of a read-only data source (shared
+   * data directory written by another instance) can't be, the user is told
+   * so.
+   * 
+   * @return <code>false</code> if data mustn't be changed
+   */
+  boolean checkWritable();
+
 }
@@ -1,10 +1,16 @@
 package net.sf.timeslottracker.core;
 
+import net.sf.timeslottracker.scheduler.ScheduledTask;
+import net.sf.timeslottracker.scheduler.SchedulerService;
+
 /**
  * An object to execute some task after given time.
  * <p>
  * It can fire an action only once, after some time, or this action can be
  * invoked every x seconds.
+ * <p>
+ * It is a thin facade over {@link SchedulerService}, so timers do not have
+ * their own threads. Repeated timers are aligned to minute boundaries.
  * 
  * File version: $Revision: 820 $, $Date: 2009-05-16 08:53:21 +0700 (Sat, 16 May
  * 2009) $ Last change: $Author: cnitsa $
@@ -17,15 +23,15 @@ public class TimeoutTimer {
 
   final private ActionListener listener;
 
-  final private long timeout;
+  private long timeout;
 
   final private long count;
 
   /** An action which will be fired in listener when timeout occurs */
   final private Action action;
 
-  /** a Thread object used as a timer **/
-  final private Thread timer;
+  /** a task scheduled in scheduler service **/
+  final private ScheduledTask task;
 
   /** A message used when timeout is interrupted */
   final private String interruptedMsg;
@@ -72,18 +78,16 @@ public class TimeoutTimer {
     this.count = count;
 
     Object args[] = { this.timerName };
-    String name = timerName;
+    String name;
     if (count == 1) {
       name = timeSlotTracker.getString("timeoutTimer.timeoutOnce.thread.name",
           args);
-      timer = new TimeoutOnce();
     } else {
       name = timeSlotTracker.getString(
           "timeoutTimer.timeoutRepeatedly.thread.name", args);
-      timer = new TimeoutRepeatedly();
     }
 
-    action = new Action(name, timer, null);
+    action = new Action(name, this, null);
     Object[] msgArgs = { name };
     interruptedMsg = timeSlotTracker.getString(
         "timeoutTimer.InterruptedException", msgArgs);
@@ -93,8 +97,19 @@ public class TimeoutTimer {
     Object[] firedArgs = { timerName };
     firedMsg = timeSlotTracker.getString("timeoutTimer.fired.debug", firedArgs);
 
-    timer.setName(name);
-    timer.start();
+    Runnable fire = new Runnable() {
+      public void run() {
+        TimeoutTimer.this.timeSlotTracker.debugLog(firedMsg);
+        TimeoutTimer.this.listener.actionPerformed(action);
+      }
+    };
+    SchedulerService scheduler = timeSlotTracker.getScheduler();
+    if (count == 1) {
+      task = scheduler.scheduleOnce(name, fire, timeout);
+    } else {
+      task = scheduler.scheduleRepeatedly(name, fire, timeout, count, true);
+    }
+    timeSlotTracker.debugLog(startedMsg);
   }
 
   public long getTimeout() {
@@ -102,54 +117,30 @@ public class TimeoutTimer {
   }
 
   /**
-   * Stops this timer.
-   */
-  public void stop() {
-    if (timer == null) {
-      return;
-    }
-    timer.interrupt();
-  }
-
-  /**
-   * Implementing once running timer. After some time it will simply finish
-   * work.
-   * <p>
-   * It simply fires the action after <code>timeout</code> (seconds) expired.
+   * Changes timeout of a repeated timer without creating a new one.
+   * 
+   * @param timeout
+   *          a new timeout in seconds
+   * @return <code>false</code> if timer is not active any more
    */
-  private class TimeoutOnce extends Thread {
-    public void run() {
-      timeSlotTracker.debugLog(startedMsg);
-      try {
-        sleep(timeout * 1000);
-        timeSlotTracker.debugLog(firedMsg);
-        listener.actionPerformed(action);
-      } catch (InterruptedException e) {
-        timeSlotTracker.debugLog(interruptedMsg);
-      }
+  public boolean setTimeout(long timeout) {
+    if (task.isDone()
+        || !timeSlotTracker.getScheduler().reschedule(task.getName(), timeout)) {
+      return false;
     }
+    this.timeout = timeout;
+    return true;
   }
 
   /**
-   * Implementation of repeatedly timeouts.
-   * <p>
-   * It simply repeats firing the action every <code>timeout</code> seconds.
+   * Stops this timer.
    */
-  private class TimeoutRepeatedly extends Thread {
-    public void run() {
-      timeSlotTracker.debugLog(startedMsg);
-      try {
-        long counter = 0;
-        while (count == -1 || counter < count) {
-          sleep(timeout * 1000);
-          timeSlotTracker.debugLog(firedMsg);
-          listener.actionPerformed(action);
-          counter++;
-        }
-      } catch (InterruptedException e) {
-        timeSlotTracker.debugLog(interruptedMsg);
-      }
+  public void stop() {
+    if (task.isDone()) {
+      return;
     }
+    task.cancel();
+    timeSlotTracker.debugLog(interruptedMsg);
   }
 
 }
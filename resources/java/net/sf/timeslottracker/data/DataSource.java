@@ -48,6 +48,12 @@ public interface DataSource {
   /** Event name to fire when the data are loaded */
   String DATA_LOADED = "datasource.DATA_LOADED";
 
+  /**
+   * Event name to fire when a task was moved to another parent or deleted (the
+   * task is the parameter)
+   */
+  String TASK_MOVED = "datasource.TASK_MOVED";
+
   /**
    * Returns a panel with a configuration screen to put it into a tab in
    * configuration window.
@@ -108,6 +114,41 @@ public interface DataSource {
    */
   boolean saveAll(boolean popupErrors);
 
+  /**
+   * @return directory with data files (ending with file separator), search
+   *         index is stored there too; <code>null</code> if data are not
+   *         stored in files
+   */
+  String getDataDirectory();
+
+  /**
+   * Checks if data source is read-only. It happens when data directory is
+   * shared and another instance writes it. Read-only data source doesn't save
+   * anything.
+   */
+  boolean isReadOnly();
+
+  /**
+   * Reads changes saved by the writing instance since the last call. When the
+   * writing instance has exited, the data source takes over writing and is no
+   * longer read-only once the returned work is done.
+   * <p>
+   * It's called out of the event dispatch thread and doesn't change data in
+   * memory, the returned work does it and has to be run in the event dispatch
+   * thread.
+   * 
+   * @return work applying changes, <code>null</code> if there are none
+   */
+  Runnable followChanges();
+
+  /**
+   * Writes changes made since the last call where read-only instances read
+   * them, without saving the whole data. It's called shortly after changes,
+   * out of the event dispatch thread, and does nothing when data directory
+   * isn't shared or the data source is read-only.
+   */
+  void flushChanges();
+
   /**
    * Sets root - a main task with all other below them.
    */
@@ -0,0 +1,81 @@
+package net.sf.timeslottracker.data;
+
+import java.util.Calendar;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Generations of timeslot data by calendar month.
+ * <p>
+ * The generation of a month changes whenever a timeslot started in that month
+ * is added, removed or changed, and the generation of all months changes when
+ * data are loaded again or attribute types are changed. Anything computed from
+ * timeslots of a month (e.g. cached report data) is valid as long as the month
+ * has the same generation as when it was computed.
+ */
+public class MonthGenerations {
+
+  private static final MonthGenerations INSTANCE = new MonthGenerations();
+
+  private final Calendar calendar = Calendar.getInstance();
+
+  /** last generations of changed months, by month numbers */
+  private final Map<Integer, Long> generations = new HashMap<Integer, Long>();
+
+  /** generation of all months, set when data are loaded */
+  private long loaded;
+
+  private long counter;
+
+  /**
+   * Creates generations not changed by data, the application uses
+   * {@link #getInstance()}.
+   */
+  public MonthGenerations() {
+  }
+
+  public static MonthGenerations getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * @return month number of the date, counted from year 0
+   */
+  public synchronized int getMonth(Date date) {
+    calendar.setTime(date);
+    return calendar.get(Calendar.YEAR) * 12 + calendar.get(Calendar.MONTH);
+  }
+
+  /**
+   * @return current generation of the month
+   * @see #getMonth(Date)
+   */
+  public synchronized long getGeneration(int month) {
+    Long generation = generations.get(month);
+    return generation == null ? loaded : Math.max(loaded, generation);
+  }
+
+  /**
+   * Tells a timeslot started at given date has been changed.
+   *
+   * @param start
+   *          start of the timeslot, nothing is changed if it's
+   *          <code>null</code>
+   */
+  public synchronized void changed(Date start) {
+    if (start != null) {
+      generations.put(getMonth(start), ++counter);
+    }
+  }
+
+  /**
+   * Tells all data have been changed (e.g. loaded again or attribute types
+   * changed).
+   */
+  public synchronized void changedAll() {
+    generations.clear();
+    loaded = ++counter;
+  }
+
+}
@@ -1,20 +1,147 @@
 package net.sf.timeslottracker.data;
 
-import java.io.PrintWriter;
+import java.text.ParsePosition;
+import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
 
 import net.sf.timeslottracker.utils.TimeUtils;
 
+import org.xml.sax.ContentHandler;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.AttributesImpl;
+
 public class ProjectSummaryByDay {
 
-  private ArrayList<ProjectSummaryTimeSlot> psTimeslots = new ArrayList<ProjectSummaryTimeSlot>();
+  private static final long DAY = 24 * 60 * 60 * 1000;
+
+  /**
+   * Project number, project task (both case insensitive) and day of a summary
+   * timeslot.
+   */
+  private static final class Key {
+    private final String projectNumber;
+    private final String projectTask;
+    private final long day;
+
+    private Key(String projectNumber, String projectTask, long day) {
+      this.projectNumber = foldCase(projectNumber);
+      this.projectTask = foldCase(projectTask);
+      this.day = day;
+    }
+
+    /**
+     * @return the string with characters compared as by
+     *         {@link String#compareToIgnoreCase(String)}
+     */
+    private static String foldCase(String value) {
+      char[] chars = value.toCharArray();
+      for (int i = 0; i < chars.length; i++) {
+        chars[i] = Character.toLowerCase(Character.toUpperCase(chars[i]));
+      }
+      return new String(chars);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof Key)) {
+        return false;
+      }
+      Key key = (Key) obj;
+      return day == key.day && projectNumber.equals(key.projectNumber)
+          && projectTask.equals(key.projectTask);
+    }
+
+    @Override
+    public int hashCode() {
+      return (projectNumber.hashCode() * 31 + projectTask.hashCode()) * 31
+          + (int) (day ^ (day >>> 32));
+    }
+  }
+
+  /**
+   * Summary timeslots by project task and day, every one keeps task id and
+   * names of the first added timeslot.
+   */
+  private final Map<Key, ProjectSummaryTimeSlot> psTimeslots = new HashMap<Key, ProjectSummaryTimeSlot>();
+  private final TimeZone timeZone = TimeZone.getDefault();
+  private final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd");
   private long duration = 0;
   private String startDate = "";
   private String stopDate = "";
 
+  /**
+   * Adds a summary timeslot of a day given as "yyyy-MM-dd".
+   */
   public void add(ProjectSummaryTimeSlot psts) {
-    psTimeslots.add(psts);
+    Date date = dateFormat.parse(psts.getDateString(), new ParsePosition(0));
+    if (date == null) {
+      throw new IllegalArgumentException("Not a date: "
+          + psts.getDateString());
+    }
+    Key key = new Key(psts.getProjectNumber(), psts.getProjectTask(),
+        getDay(date));
+    ProjectSummaryTimeSlot added = psTimeslots.get(key);
+    if (added == null) {
+      psTimeslots.put(key, psts);
+    } else {
+      added.setDuration(added.getDuration() + psts.getDuration());
+    }
+    duration += psts.getDuration();
+  }
+
+  /**
+   * Adds time of a timeslot to the summary of its project task and day.
+   *
+   * @param start
+   *          start of the timeslot
+   * @param duration
+   *          in milliseconds
+   */
+  public void add(Object taskId, String projectNumber, String projectTask,
+      Date start, long duration) {
+    Key key = new Key(projectNumber, projectTask, getDay(start));
+    ProjectSummaryTimeSlot psts = psTimeslots.get(key);
+    if (psts == null) {
+      // date is formatted only once a day
+      psTimeslots.put(key, new ProjectSummaryTimeSlot(taskId, projectNumber,
+          projectTask, dateFormat.format(start), duration));
+    } else {
+      psts.setDuration(psts.getDuration() + duration);
+    }
+    this.duration += duration;
+  }
+
+  /**
+   * @return number of the local day since the epoch
+   */
+  private long getDay(Date date) {
+    long time = date.getTime();
+    return Math.floorDiv(time + timeZone.getOffset(time), DAY);
+  }
+
+  /**
+   * Adds timeslots of another summary after timeslots of this one.
+   */
+  public void merge(ProjectSummaryByDay other) {
+    for (Map.Entry<Key, ProjectSummaryTimeSlot> entry : other.psTimeslots
+        .entrySet()) {
+      ProjectSummaryTimeSlot psts = psTimeslots.get(entry.getKey());
+      if (psts == null) {
+        ProjectSummaryTimeSlot added = entry.getValue();
+        psTimeslots.put(entry.getKey(), new ProjectSummaryTimeSlot(added
+            .getTaskId(), added.getProjectNumber(), added.getProjectTask(),
+            added.getDateString(), added.getDuration()));
+      } else {
+        psts.setDuration(psts.getDuration() + entry.getValue().getDuration());
+      }
+    }
+    duration += other.duration;
   }
 
   public void setStartDate(String startDate) {
@@ -25,64 +152,75 @@ public class ProjectSummaryByDay {
     this.stopDate = stopDate;
   }
 
-  public void toXml(PrintWriter write) {
-
-    Collections.sort(psTimeslots, new ProjectSummaryTimeSlotComparable());
-    sum();
-
-    write.println("<ProjectSummaryByDay " + " startDate=\"" + startDate + "\""
-        + " stopDate=\"" + stopDate + "\"" + " totalHours=\""
-        + TimeUtils.getDurationInDecimalHours(duration) + "\">");
-
-    tasksToXml(write);
-    for (ProjectSummaryTimeSlot t : psTimeslots)
-      write.println(t.toXML());
-    write.println("</ProjectSummaryByDay>");
+  /**
+   * Sends the summary as <code>ProjectSummaryByDay</code> element to the
+   * handler.
+   */
+  public void toXml(ContentHandler handler) throws SAXException {
+    List<ProjectSummaryTimeSlot> timeslots = sorted();
+
+    AttributesImpl attributes = new AttributesImpl();
+    addAttribute(attributes, "startDate", startDate);
+    addAttribute(attributes, "stopDate", stopDate);
+    addAttribute(attributes, "totalHours", TimeUtils
+        .getDurationInDecimalHours(duration));
+    handler.startElement("", "ProjectSummaryByDay", "ProjectSummaryByDay",
+        attributes);
+
+    tasksToXml(handler, timeslots);
+    for (ProjectSummaryTimeSlot t : timeslots) {
+      attributes.clear();
+      addAttribute(attributes, "taskId", "_" + t.getTaskId());
+      addAttribute(attributes, "projectNumber", t.getProjectNumber());
+      addAttribute(attributes, "projectTask", t.getProjectTask());
+      addAttribute(attributes, "date", t.getDateString());
+      addAttribute(attributes, "duration", t.getDurationInDecimalHours());
+      handler.startElement("", "SummaryTimeSlot", "SummaryTimeSlot",
+          attributes);
+      handler.endElement("", "SummaryTimeSlot", "SummaryTimeSlot");
+    }
+    handler.endElement("", "ProjectSummaryByDay", "ProjectSummaryByDay");
   }
 
-  public void sum() {
-    ArrayList<ProjectSummaryTimeSlot> timeslots = new ArrayList<ProjectSummaryTimeSlot>();
-    ProjectSummaryTimeSlot previous = null;
-    ProjectSummaryTimeSlot current = null;
-
-    for (ProjectSummaryTimeSlot t : psTimeslots) {
-      current = t;
-      duration += current.getDuration();
-      if (current.isSameProjectTaskByDay(previous)) {
-        previous.setDuration(previous.getDuration() + current.getDuration());
-      } else {
-        if (previous != null) {
-          timeslots.add(previous);
-        }
-        previous = current;
-      }
-    }
-    if (previous != null) {
-      timeslots.add(previous);
-    }
+  /**
+   * @return summary timeslots sorted by project number, project task and day
+   */
+  private List<ProjectSummaryTimeSlot> sorted() {
+    List<ProjectSummaryTimeSlot> timeslots = new ArrayList<ProjectSummaryTimeSlot>(
+        psTimeslots.values());
+    Collections.sort(timeslots, new ProjectSummaryTimeSlotComparable());
+    return timeslots;
+  }
 
-    psTimeslots = timeslots;
+  public void tasksToXml(ContentHandler handler) throws SAXException {
+    tasksToXml(handler, sorted());
   }
 
-  public void tasksToXml(PrintWriter writer) {
-    writer.println("<SummaryTasks>");
+  private void tasksToXml(ContentHandler handler,
+      List<ProjectSummaryTimeSlot> timeslots) throws SAXException {
+    AttributesImpl attributes = new AttributesImpl();
+    handler.startElement("", "SummaryTasks", "SummaryTasks", attributes);
     ProjectSummaryTimeSlot previous = null;
     ProjectSummaryTimeSlot current = null;
 
-    for (ProjectSummaryTimeSlot t : psTimeslots) {
+    for (ProjectSummaryTimeSlot t : timeslots) {
       current = t;
-      if (previous == null) {
-        writer.println("<SummaryTask taskId=\"_" + current.getTaskId() + "\""
-            + " projectNumber=\"" + current.getProjectNumber() + "\""
-            + " projectTask=\"" + current.getProjectTask() + "\"/>");
-      } else if (!current.isSameProjectTask(previous)) {
-        writer.println("<SummaryTask taskId=\"_" + current.getTaskId() + "\""
-            + " projectNumber=\"" + current.getProjectNumber() + "\""
-            + " projectTask=\"" + current.getProjectTask() + "\"/>");
+      if (previous == null || !current.isSameProjectTask(previous)) {
+        attributes.clear();
+        addAttribute(attributes, "taskId", "_" + current.getTaskId());
+        addAttribute(attributes, "projectNumber", current.getProjectNumber());
+        addAttribute(attributes, "projectTask", current.getProjectTask());
+        handler.startElement("", "SummaryTask", "SummaryTask", attributes);
+        handler.endElement("", "SummaryTask", "SummaryTask");
       }
       previous = current;
     }
-    writer.println("</SummaryTasks>");
+    handler.endElement("", "SummaryTasks", "SummaryTasks");
+  }
+
+  private static void addAttribute(AttributesImpl attributes, String name,
+      String value) {
+    attributes.addAttribute("", name, name, "CDATA", value);
   }
 
 }
@@ -21,11 +21,13 @@ import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.parsers.SAXParser;
 import javax.xml.parsers.SAXParserFactory;
 
+import net.sf.timeslottracker.ApplicationLock;
 import net.sf.timeslottracker.core.*;
 import net.sf.timeslottracker.data.Attribute;
 import net.sf.timeslottracker.data.AttributeType;
 import net.sf.timeslottracker.data.DataSource;
 import net.sf.timeslottracker.data.DataSourceException;
+import net.sf.timeslottracker.data.MonthGenerations;
 import net.sf.timeslottracker.data.Task;
 import net.sf.timeslottracker.data.TimeSlot;
 import net.sf.timeslottracker.data.common.AttributeTypeManagerImpl;
@@ -62,6 +64,12 @@ public class XmlDataSource implements DataSource {
   /** Stores the filename for file with data */
   private static final String TST_XML_FILENAME = "timeslottracker.xml";
 
+  /** Journal of changes followed by read-only instances */
+  private static final String TST_JOURNAL_FILENAME = "timeslottracker.journal";
+
+  /** Lock file owned by instance writing shared data directory */
+  private static final String TST_LOCK_FILENAME = "timeslottracker.lock";
+
   /**
    * Flag - was error while loading xml file. Default: false (no errors) Use it
    * for avoid save. We can't save xml after bad reading (otherwise xml file
@@ -112,6 +120,39 @@ public class XmlDataSource implements DataSource {
 
   private String backupDataFileDirectory;
 
+  /** journal of changes, used only when data directory is shared */
+  private XmlJournal journal;
+
+  /** lock of shared data directory */
+  private ApplicationLock dataLock;
+
+  /**
+   * Read-only instance doesn't save data, it only follows changes saved by
+   * the writing one.
+   */
+  private volatile boolean readOnly;
+
+  /** active timeslot read from data file */
+  private TimeSlot activeTimeSlot;
+
+  public XmlDataSource() {
+  }
+
+  /**
+   * Creates an empty data source reading the same data file read-only, used to
+   * parse it out of the event dispatch thread. It has neither journal nor
+   * lock.
+   */
+  private XmlDataSource(XmlDataSource source) {
+    this.timeSlotTracker = source.timeSlotTracker;
+    this.configuration = source.configuration;
+    this.dataFileDirectory = source.dataFileDirectory;
+    this.dataFilePathName = source.dataFilePathName;
+    this.dtdFilePathName = source.dtdFilePathName;
+    this.backupDataFileDirectory = source.backupDataFileDirectory;
+    this.readOnly = true;
+  }
+
   public void setTimeSlotTracker(TimeSlotTracker timeSlotTracker) {
     this.timeSlotTracker = timeSlotTracker;
     init(timeSlotTracker);
@@ -127,6 +168,147 @@ public class XmlDataSource implements DataSource {
     this.dataFilePathName = dataFileDirectory + XmlDataSource.TST_XML_FILENAME;
     this.dtdFilePathName = getDTDFileName(dataFileDirectory);
     this.backupDataFileDirectory = getBackupDataFileDirectory(dataFileDirectory);
+
+    if (configuration.getBoolean(Configuration.DATASOURCE_SHARED, false)) {
+      journal = new XmlJournal(this, timeSlotTracker, dataFileDirectory
+          + TST_JOURNAL_FILENAME);
+      dataLock = new ApplicationLock(new File(dataFileDirectory
+          + TST_LOCK_FILENAME));
+      readOnly = !dataLock.tryLock();
+      logger.info("Shared data directory, opened "
+          + (readOnly ? "read-only" : "for writing"));
+    }
+  }
+
+  public String getDataDirectory() {
+    return dataFileDirectory;
+  }
+
+  public boolean isReadOnly() {
+    return readOnly;
+  }
+
+  /**
+   * Releases lock of shared data directory, so a read-only instance takes
+   * over writing.
+   */
+  void releaseLock() {
+    if (dataLock != null) {
+      dataLock.releaseLock();
+    }
+  }
+
+  /**
+   * Takes over writing when the writing instance exited, otherwise reads
+   * changes it has saved since the last call. Data file and journal are read
+   * here, data in memory are changed only by the returned work.
+   */
+  public Runnable followChanges() {
+    if (!readOnly) {
+      return null;
+    }
+
+    if (dataLock.tryLock()) {
+      logger.info("Writing instance exited, taking over shared data directory");
+      return loadData(true);
+    }
+
+    final XmlJournal.Changes changes;
+    try {
+      changes = journal.read();
+    } catch (IOException e) {
+      timeSlotTracker.errorLog(e);
+      return null;
+    }
+    if (changes.isReload()) {
+      logger.info("Journal can't be followed, reloading data");
+      return loadData(false);
+    }
+    if (changes.isEmpty()) {
+      return null;
+    }
+
+    return new Runnable() {
+      public void run() {
+        synchronized (XmlDataSource.this) {
+          journal.apply(changes);
+        }
+        if (changes.isStructureChanged()) {
+          timeSlotTracker.fireDataLoaded();
+        } else {
+          for (Task task : changes.getChangedTasks()) {
+            timeSlotTracker.fireTaskChanged(task);
+          }
+        }
+      }
+    };
+  }
+
+  /**
+   * Parses data file into a new data source.
+   * 
+   * @param takeOver
+   *          the writing instance exited and its lock is ours
+   * @return work replacing data in memory with parsed ones,
+   *         <code>null</code> if data file can't be read
+   */
+  private Runnable loadData(final boolean takeOver) {
+    try {
+      if (takeOver) {
+        // the writer could exit in the middle of a save, xml file is the
+        // master
+        XmlSave xmlSave = new XmlSave(this, dataFilePathName, dtdDirectory,
+            timeSlotTracker);
+        xmlSave.check();
+
+        backup(Configuration.BACKUP_ON_STARTUP);
+      } else {
+        // changes saved while parsing are applied again from the journal
+        journal.attach();
+        waitForDataFile();
+      }
+    } catch (IOException ex) {
+      timeSlotTracker.errorLog(ex);
+    } catch (InterruptedException ex) {
+      logger.warning(ex.toString());
+    }
+
+    final XmlDataSource loaded = new XmlDataSource(this);
+    loaded.parseDataFile(false);
+    if (loaded.tasks == null) {
+      if (takeOver) {
+        // it's tried again next time
+        dataLock.releaseLock();
+      }
+      return null;
+    }
+
+    return new Runnable() {
+      public void run() {
+        synchronized (XmlDataSource.this) {
+          root = loaded.root;
+          tasks = loaded.tasks;
+          tasksById.clear();
+          tasksById.putAll(loaded.tasksById);
+          favourites.clear();
+          favourites.addAll(loaded.favourites);
+          taskIdSequence.update(loaded.taskIdSequence.getNextId());
+          timeslotIdSequence.update(loaded.timeslotIdSequence.getNextId());
+          dataReadError = false;
+        }
+        timeSlotTracker.setActiveTimeSlot(loaded.activeTimeSlot);
+
+        if (takeOver) {
+          readOnly = false;
+          try {
+            journal.startGeneration();
+          } catch (IOException e) {
+            timeSlotTracker.errorLog(e);
+          }
+        }
+        timeSlotTracker.fireDataLoaded();
+      }
+    };
   }
 
   @Override
@@ -170,6 +352,7 @@ public class XmlDataSource implements DataSource {
   @Override
   public void saveAttributeTypes(Collection<AttributeType> records) {
     AttributeTypeManagerImpl.getInstance().update(records);
+    MonthGenerations.getInstance().changedAll();
   }
 
   public Collection<AttributeType> getAttributeTypes() {
@@ -245,88 +428,41 @@ public class XmlDataSource implements DataSource {
     String msg = timeSlotTracker.getString(
         "datasource.xml.method.moveTask.debug", msgArgs);
     logger.fine(msg);
+
+    // a new task is not moved
+    if (oldParent != null && oldParent != newParent) {
+      timeSlotTracker.fireAction(new Action(TASK_MOVED, this, task));
+    }
   }
 
   public boolean reloadData() {
     try {
       timeSlotTracker.setCursorWait();
 
-      // restore xml file after broken save if need
-      XmlSave xmlSave = new XmlSave(this, dataFilePathName, dtdDirectory,
-          timeSlotTracker);
-      xmlSave.check();
-
-      backup(Configuration.BACKUP_ON_STARTUP);
+      if (readOnly) {
+        // changes saved while parsing are applied again from the journal
+        journal.attach();
+        waitForDataFile();
+      } else {
+        // restore xml file after broken save if need
+        XmlSave xmlSave = new XmlSave(this, dataFilePathName, dtdDirectory,
+            timeSlotTracker);
+        xmlSave.check();
+
+        backup(Configuration.BACKUP_ON_STARTUP);
+      }
 
       Runnable runnable = new Runnable() {
         public void run() {
           Thread.yield();
-          SAXParser saxParser;
-          try {
-            synchronized (XmlDataSource.this) {
-              tasks.clear();
-              favourites.clear();
-              SAXParserFactory saxFactory = SAXParserFactory.newInstance();
-              saxFactory.setValidating(true);
-              saxParser = saxFactory.newSAXParser();
-              XmlParser parser = new XmlParser(timeSlotTracker,
-                  XmlDataSource.this);
-
-              // check if a file exists. If not - make an initial copy from jar
-              // archive
-              File xmlFile = new File(dataFilePathName);
-              if (!xmlFile.exists() || xmlFile.length() == 0) {
-                copyTemplateSource(xmlFile);
-              }
-
-              // always copy dtd because of new version
-              copyTemplateSource(new File(dtdFilePathName));
-
-              Object[] loadingArgs = { dataFilePathName };
-              String loadingMsg = timeSlotTracker.getString(
-                  "datasource.xml.reload.filename", loadingArgs);
-              logger.info(loadingMsg);
-
-              saxParser.parse(xmlFile, parser);
-              favourites.addAll(parser.getFavourites());
-              timeSlotTracker.fireDataLoaded();
-            }
-          } catch (ParserConfigurationException e) {
-            String errorMsg = timeSlotTracker
-                .getString("datasource.xml.ParserConfigurationException");
-            timeSlotTracker.errorLog(errorMsg);
-            timeSlotTracker.errorLog(e);
-            tasks = null;
-          } catch (IOException e) {
-            String errorMsg = timeSlotTracker
-                .getString("datasource.xml.IOException");
-            timeSlotTracker.errorLog(errorMsg);
-            timeSlotTracker.errorLog(e);
-            tasks = null;
-          } catch (IllegalArgumentException e) {
-            String errorMsg = timeSlotTracker
-                .getString("datasource.xml.IllegalArgumentException");
-            timeSlotTracker.errorLog(errorMsg);
-            timeSlotTracker.errorLog(e);
-            tasks = null;
-          } catch (SAXException e) {
-            String errorMsg = timeSlotTracker
-                .getString("datasource.xml.SAXException");
-            timeSlotTracker.errorLog(errorMsg);
-            timeSlotTracker.errorLog(e);
-            tasks = null;
-          } catch (Throwable e) {
-            e.printStackTrace();
-            logger.warning(e.toString());
-            timeSlotTracker.errorLog(e.toString());
-            tasks = null;
-          }
+          parseDataFile(true);
         }
-
       };
       Thread reloadThread = new Thread(runnable);
       reloadThread.start();
       reloadThread.join();
+    } catch (IOException ex) {
+      timeSlotTracker.errorLog(ex);
     } catch (InterruptedException ex) {
       logger.warning(ex.toString());
     } finally {
@@ -335,9 +471,121 @@ public class XmlDataSource implements DataSource {
 
     dataReadError = (tasks == null);
 
+    if (journal != null && !readOnly && !dataReadError) {
+      try {
+        journal.startGeneration();
+      } catch (IOException e) {
+        timeSlotTracker.errorLog(e);
+      }
+    }
+
+    return !dataReadError;
+  }
+
+  /**
+   * Loads data file to read it only, e.g. to generate reports without the gui.
+   * <p>
+   * Data file is neither restored nor backed up and data can't be saved, so it
+   * can be loaded while another instance writes it.
+   */
+  public boolean loadReadOnly() {
+    if (dataLock != null) {
+      dataLock.releaseLock();
+    }
+    readOnly = true;
+    parseDataFile(true);
+    dataReadError = (tasks == null);
     return !dataReadError;
   }
 
+  /**
+   * Parses data file into tasks, which are <code>null</code> when it fails.
+   * 
+   * @param dataLoaded
+   *          set active timeslot and fire data loaded
+   */
+  private void parseDataFile(boolean dataLoaded) {
+    SAXParser saxParser;
+    try {
+      synchronized (this) {
+        tasks.clear();
+        favourites.clear();
+        MonthGenerations.getInstance().changedAll();
+        SAXParserFactory saxFactory = SAXParserFactory.newInstance();
+        saxFactory.setValidating(true);
+        saxParser = saxFactory.newSAXParser();
+        XmlParser parser = new XmlParser(timeSlotTracker, this);
+
+        // check if a file exists. If not - make an initial copy from jar
+        // archive
+        File xmlFile = new File(dataFilePathName);
+        if (!readOnly && (!xmlFile.exists() || xmlFile.length() == 0)) {
+          copyTemplateSource(xmlFile);
+        }
+
+        // always copy dtd because of new version (the writer does it
+        // in shared data directory)
+        File dtdFile = new File(dtdFilePathName);
+        if (!readOnly || !dtdFile.exists()) {
+          copyTemplateSource(dtdFile);
+        }
+
+        Object[] loadingArgs = { dataFilePathName };
+        String loadingMsg = timeSlotTracker.getString(
+            "datasource.xml.reload.filename", loadingArgs);
+        logger.info(loadingMsg);
+
+        saxParser.parse(xmlFile, parser);
+        favourites.addAll(parser.getFavourites());
+        activeTimeSlot = parser.getActiveTimeSlot();
+        if (dataLoaded) {
+          timeSlotTracker.setActiveTimeSlot(activeTimeSlot);
+          timeSlotTracker.fireDataLoaded();
+        }
+      }
+    } catch (ParserConfigurationException e) {
+      String errorMsg = timeSlotTracker
+          .getString("datasource.xml.ParserConfigurationException");
+      timeSlotTracker.errorLog(errorMsg);
+      timeSlotTracker.errorLog(e);
+      tasks = null;
+    } catch (IOException e) {
+      String errorMsg = timeSlotTracker
+          .getString("datasource.xml.IOException");
+      timeSlotTracker.errorLog(errorMsg);
+      timeSlotTracker.errorLog(e);
+      tasks = null;
+    } catch (IllegalArgumentException e) {
+      String errorMsg = timeSlotTracker
+          .getString("datasource.xml.IllegalArgumentException");
+      timeSlotTracker.errorLog(errorMsg);
+      timeSlotTracker.errorLog(e);
+      tasks = null;
+    } catch (SAXException e) {
+      String errorMsg = timeSlotTracker
+          .getString("datasource.xml.SAXException");
+      timeSlotTracker.errorLog(errorMsg);
+      timeSlotTracker.errorLog(e);
+      tasks = null;
+    } catch (Throwable e) {
+      e.printStackTrace();
+      logger.warning(e.toString());
+      timeSlotTracker.errorLog(e.toString());
+      tasks = null;
+    }
+  }
+
+  /**
+   * The writer replaces data file by deleting and renaming, so a reader can
+   * find it missing for a moment.
+   */
+  private void waitForDataFile() throws InterruptedException {
+    File xmlFile = new File(dataFilePathName);
+    for (int i = 0; i < 20 && !xmlFile.exists(); i++) {
+      Thread.sleep(50);
+    }
+  }
+
   private String getBackupDataFileDirectory(String dataFileDirectory) {
     String backupDirectory = configuration.getString(
         Configuration.BACKUP_DIRECTORY, null);
@@ -428,7 +676,7 @@ public class XmlDataSource implements DataSource {
 
   @Override
   public synchronized boolean saveAll(boolean popupErrors) {
-    if (dataReadError) {
+    if (dataReadError || readOnly) {
       return false;
     }
 
@@ -442,6 +690,7 @@ public class XmlDataSource implements DataSource {
       XmlSave xmlSave = new XmlSave(this, dataFilePathName, dtdDirectory,
           timeSlotTracker);
       xmlSave.saveAll();
+      appendJournal();
 
 			timeSlotTracker.fireAction(new DataSaveAction(this));
       
@@ -455,6 +704,30 @@ public class XmlDataSource implements DataSource {
     }
   }
 
+  public synchronized void flushChanges() {
+    if (journal == null || readOnly || dataReadError) {
+      return;
+    }
+    try {
+      journal.flush();
+    } catch (IOException e) {
+      // changes are appended again when data are saved
+      timeSlotTracker.errorLog(e);
+    }
+  }
+
+  private void appendJournal() {
+    if (journal == null) {
+      return;
+    }
+    try {
+      journal.append();
+    } catch (IOException e) {
+      // data are saved, readers will catch up with the next generation
+      timeSlotTracker.errorLog(e);
+    }
+  }
+
   private void procesException(TimeSlotTrackerException e, boolean popupErrors) {
     if (timeSlotTracker.isClosing()) {
       return;
@@ -0,0 +1,741 @@
+package net.sf.timeslottracker.data.xml;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+import net.sf.timeslottracker.core.TimeSlotTracker;
+import net.sf.timeslottracker.data.Attribute;
+import net.sf.timeslottracker.data.AttributeType;
+import net.sf.timeslottracker.data.DataSource;
+import net.sf.timeslottracker.data.Task;
+import net.sf.timeslottracker.data.TimeSlot;
+import net.sf.timeslottracker.data.common.AttributeTypeManagerImpl;
+import net.sf.timeslottracker.gui.FavouritesInterface;
+import net.sf.timeslottracker.gui.LayoutManager;
+import net.sf.timeslottracker.utils.StringUtils;
+
+/**
+ * Journal of changes saved by the instance writing a shared data directory.
+ * <p>
+ * The writer compares fingerprints of tasks and timeslots with the ones
+ * written last time and appends only changed records closed by a
+ * <code>commit</code> line. It does it shortly after changes are made, and
+ * after every save of the xml file it adds a <code>saved</code> line: batches
+ * before it are in the xml file. Read-only instances remember their position
+ * in the journal and apply new complete batches to data in memory, so they
+ * don't have to parse the whole xml file again. An instance reading the xml
+ * file starts after the last <code>saved</code> line.
+ * <p>
+ * The first line holds a generation of journal. The writer starts a new
+ * generation (and so an empty journal) when it starts, when attribute types
+ * are changed and when the journal grows too big. A reader seeing another
+ * generation reloads the xml file.
+ * <p>
+ * Every record is one line with tab separated fields:
+ *
+ * <pre>
+ * task       id parentId position hidden name description (type value)*
+ * slot       id taskId start stop description (type value)*
+ * deleteslot id
+ * delete     id
+ * active     [taskId timeslotId]
+ * favourites taskId*
+ * saved
+ * </pre>
+ */
+class XmlJournal {
+
+  private static final Logger LOG = Logger
+      .getLogger("net.sf.timeslottracker.data.xml");
+
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+
+  /** journal size when the writer starts a new generation */
+  private static final long MAX_SIZE = 4 * 1024 * 1024;
+
+  private static final String GENERATION = "generation";
+  private static final String TASK = "task";
+  private static final String SLOT = "slot";
+  private static final String DELETE_SLOT = "deleteslot";
+  private static final String DELETE = "delete";
+  private static final String ACTIVE = "active";
+  private static final String FAVOURITES = "favourites";
+  private static final String COMMIT = "commit";
+  private static final String SAVED = "saved";
+
+  /**
+   * Changes read from the journal.
+   */
+  static class Changes {
+    private boolean reload;
+    private boolean structureChanged;
+    private final Set<Task> changedTasks = new LinkedHashSet<Task>();
+    private final List<String[]> records = new ArrayList<String[]>();
+    /** journal position after the read records */
+    private long end;
+
+    /**
+     * @return <code>true</code> if journal can't be applied and the xml file
+     *         has to be read again
+     */
+    boolean isReload() {
+      return reload;
+    }
+
+    /**
+     * @return <code>true</code> if applied records added, removed, moved or
+     *         renamed tasks
+     */
+    boolean isStructureChanged() {
+      return structureChanged;
+    }
+
+    /**
+     * @return tasks with timeslots or attributes changed by applied records
+     */
+    Set<Task> getChangedTasks() {
+      return changedTasks;
+    }
+
+    /**
+     * @return <code>true</code> if there is nothing to apply
+     */
+    boolean isEmpty() {
+      return !reload && records.isEmpty();
+    }
+  }
+
+  private final DataSource dataSource;
+
+  private final TimeSlotTracker timeSlotTracker;
+
+  private final File file;
+
+  // writer state: fingerprints of last written records
+  private final Map<Object, Long> taskPrints = new HashMap<Object, Long>();
+  private final Map<Object, Long> slotPrints = new HashMap<Object, Long>();
+  private String activeRecord;
+  private String favouritesRecord;
+  private long attributeTypesPrint;
+  /** batches were appended since the xml file was saved */
+  private boolean unsaved;
+
+  // reader state
+  private String generation;
+  private long position;
+  private Map<Object, TimeSlot> slotsById;
+  /** applied record didn't fit to data in memory */
+  private boolean broken;
+
+  XmlJournal(DataSource dataSource, TimeSlotTracker timeSlotTracker,
+      String fileName) {
+    this.dataSource = dataSource;
+    this.timeSlotTracker = timeSlotTracker;
+    this.file = new File(fileName);
+  }
+
+  /**
+   * Starts a new generation with empty journal. Current data are taken as
+   * already written.
+   */
+  void startGeneration() throws IOException {
+    taskPrints.clear();
+    slotPrints.clear();
+    collect(null);
+    attributeTypesPrint = attributeTypesPrint();
+
+    generation = UUID.randomUUID().toString();
+    writeLines(false, GENERATION + '\t' + generation);
+    unsaved = false;
+    LOG.info("Journal generation " + generation + " started in " + file);
+  }
+
+  /**
+   * Appends records for data changed since the last call and marks all
+   * batches as saved. It's called when the xml file has been saved.
+   */
+  void append() throws IOException {
+    if (attributeTypesPrint != attributeTypesPrint()) {
+      // readers have to read attribute types from the xml file
+      startGeneration();
+      return;
+    }
+
+    List<String> records = batch();
+    if (records.isEmpty() && !unsaved) {
+      return;
+    }
+    records.add(SAVED);
+    writeLines(true, records.toArray(new String[records.size()]));
+    unsaved = false;
+
+    if (file.length() > MAX_SIZE) {
+      startGeneration();
+    }
+  }
+
+  /**
+   * Appends records for data changed since the last call, before the xml file
+   * is saved, so readers see changes soon. A new generation is started only
+   * by {@link #append()}, as readers read the xml file then.
+   */
+  void flush() throws IOException {
+    if (attributeTypesPrint != attributeTypesPrint()) {
+      return;
+    }
+
+    List<String> records = batch();
+    if (records.isEmpty()) {
+      return;
+    }
+    writeLines(true, records.toArray(new String[records.size()]));
+    unsaved = true;
+  }
+
+  /**
+   * @return records for data changed since the last call closed by commit, or
+   *         empty list if nothing has changed
+   */
+  private List<String> batch() {
+    List<String> records = new ArrayList<String>();
+    collect(records);
+    if (!records.isEmpty()) {
+      records.add(COMMIT);
+    }
+    return records;
+  }
+
+  private void writeLines(boolean append, String... lines) throws IOException {
+    StringBuilder text = new StringBuilder();
+    for (String line : lines) {
+      text.append(line).append('\n');
+    }
+    // one write, so readers never see a part of a batch without its commit
+    OutputStream output = new FileOutputStream(file, append);
+    try {
+      output.write(text.toString().getBytes(UTF8));
+    } finally {
+      output.close();
+    }
+  }
+
+  /**
+   * Walks all data, updates fingerprints and adds records of changed ones to
+   * given list (if not <code>null</code>).
+   */
+  private void collect(List<String> records) {
+    Set<Object> tasks = new HashSet<Object>();
+    Set<Object> slots = new HashSet<Object>();
+    Task root = dataSource.getRoot();
+    if (root != null) {
+      collect(root, 0, records, tasks, slots);
+    }
+
+    removeMissing(slotPrints, slots, DELETE_SLOT, records);
+    removeMissing(taskPrints, tasks, DELETE, records);
+
+    String active = activeRecord();
+    if (!active.equals(activeRecord) && records != null) {
+      records.add(active);
+    }
+    activeRecord = active;
+
+    String favourites = favouritesRecord();
+    if (!favourites.equals(favouritesRecord) && records != null) {
+      records.add(favourites);
+    }
+    favouritesRecord = favourites;
+  }
+
+  private void collect(Task task, int position, List<String> records,
+      Set<Object> tasks, Set<Object> slots) {
+    Task parent = task.getParentTask();
+    StringBuilder record = new StringBuilder(TASK);
+    field(record, task.getId());
+    field(record, parent == null ? null : parent.getId());
+    field(record, position);
+    field(record, task.isHidden());
+    field(record, task.getName());
+    field(record, task.getDescription());
+    attributes(record, task.getAttributes());
+    check(taskPrints, task.getId(), record.toString(), records);
+    tasks.add(task.getId());
+
+    Collection<TimeSlot> timeslots = task.getTimeslots();
+    if (timeslots != null) {
+      for (TimeSlot timeslot : new ArrayList<TimeSlot>(timeslots)) {
+        record.setLength(0);
+        record.append(SLOT);
+        field(record, timeslot.getId());
+        field(record, task.getId());
+        field(record, time(timeslot.getStartDate()));
+        field(record, time(timeslot.getStopDate()));
+        field(record, timeslot.getDescription());
+        attributes(record, timeslot.getAttributes());
+        check(slotPrints, timeslot.getId(), record.toString(), records);
+        slots.add(timeslot.getId());
+      }
+    }
+
+    Collection<Task> children = dataSource.getChildren(task);
+    if (children != null) {
+      int index = 0;
+      for (Task child : new ArrayList<Task>(children)) {
+        collect(child, index++, records, tasks, slots);
+      }
+    }
+  }
+
+  private static void check(Map<Object, Long> prints, Object id,
+      String record, List<String> records) {
+    Long print = StringUtils.fingerprint(record);
+    Long previous = prints.put(id, print);
+    if (!print.equals(previous) && records != null) {
+      records.add(record);
+    }
+  }
+
+  private static void removeMissing(Map<Object, Long> prints,
+      Set<Object> existing, String recordType, List<String> records) {
+    Iterator<Object> ids = prints.keySet().iterator();
+    while (ids.hasNext()) {
+      Object id = ids.next();
+      if (!existing.contains(id)) {
+        ids.remove();
+        if (records != null) {
+          records.add(recordType + '\t' + id);
+        }
+      }
+    }
+  }
+
+  private String activeRecord() {
+    StringBuilder record = new StringBuilder(ACTIVE);
+    TimeSlot active = timeSlotTracker.getActiveTimeSlot();
+    if (active != null && active.getTask() != null) {
+      field(record, active.getTask().getId());
+      field(record, active.getId());
+    }
+    return record.toString();
+  }
+
+  private String favouritesRecord() {
+    StringBuilder record = new StringBuilder(FAVOURITES);
+    LayoutManager layoutManager = timeSlotTracker.getLayoutManager();
+    FavouritesInterface favourites = layoutManager == null ? null
+        : layoutManager.getFavouritesInterface();
+    if (favourites != null && favourites.getFavourites() != null) {
+      for (Task task : favourites.getFavourites()) {
+        field(record, task.getId());
+      }
+    }
+    return record.toString();
+  }
+
+  private long attributeTypesPrint() {
+    StringBuilder types = new StringBuilder();
+    Collection<AttributeType> attributeTypes = dataSource.getAttributeTypes();
+    if (attributeTypes != null) {
+      for (AttributeType type : attributeTypes) {
+        types.append(type.getName()).append('\t')
+            .append(type.getCategory().getClass().getName()).append('\t')
+            .append(type.getDefault()).append('\n');
+      }
+    }
+    return StringUtils.fingerprint(types.toString());
+  }
+
+  /**
+   * Remembers the position after the last batch in the xml file. It has to be
+   * called before the xml file is read, so batches appended but not saved yet
+   * and changes saved meanwhile are applied again (records are idempotent)
+   * rather than lost.
+   */
+  void attach() throws IOException {
+    slotsById = null;
+    broken = false;
+    generation = readGeneration();
+    position = savedPosition();
+  }
+
+  /**
+   * @return position after the last <code>saved</code> line, or after the
+   *         generation when the xml file hasn't been saved in it yet
+   */
+  private long savedPosition() throws IOException {
+    if (!file.exists()) {
+      return 0;
+    }
+    String text = read(0);
+    int end = text.lastIndexOf('\n' + SAVED + '\n');
+    if (end >= 0) {
+      end += SAVED.length() + 2;
+    } else {
+      end = text.indexOf('\n') + 1;
+    }
+    return text.substring(0, end).getBytes(UTF8).length;
+  }
+
+  /**
+   * Reads complete batches appended since the last applied ones. Data in
+   * memory aren't touched, so it can run out of the event dispatch thread.
+   */
+  Changes read() throws IOException {
+    Changes changes = new Changes();
+
+    String currentGeneration = readGeneration();
+    if (currentGeneration == null) {
+      return changes; // no writer yet or it is just starting a generation
+    }
+    if (broken || !currentGeneration.equals(generation)
+        || file.length() < position) {
+      changes.reload = true;
+      return changes;
+    }
+
+    String text = read(position);
+    int consumed = 0;
+    List<String[]> batch = new ArrayList<String[]>();
+    int lineStart = 0;
+    int lineEnd;
+    while ((lineEnd = text.indexOf('\n', lineStart)) >= 0) {
+      String[] fields = split(text.substring(lineStart, lineEnd));
+      lineStart = lineEnd + 1;
+      if (COMMIT.equals(fields[0])) {
+        changes.records.addAll(batch);
+        batch.clear();
+        consumed = lineStart;
+      } else if (SAVED.equals(fields[0])) {
+        consumed = lineStart;
+      } else {
+        batch.add(fields);
+      }
+    }
+    // uncommitted batch stays for the next call
+    changes.end = position + text.substring(0, consumed).getBytes(UTF8).length;
+    return changes;
+  }
+
+  /**
+   * Applies records read by {@link #read()} to data in memory. When a record
+   * doesn't fit, the rest is skipped and the next read asks for a reload.
+   */
+  void apply(Changes changes) {
+    for (String[] record : changes.records) {
+      if (!apply(record, changes)) {
+        broken = true;
+        return;
+      }
+    }
+    position = changes.end;
+  }
+
+  private String readGeneration() throws IOException {
+    if (!file.exists()) {
+      return null;
+    }
+    RandomAccessFile input = new RandomAccessFile(file, "r");
+    try {
+      String line = input.readLine();
+      if (line == null || !line.startsWith(GENERATION + '\t')) {
+        return null;
+      }
+      return line.substring(GENERATION.length() + 1);
+    } finally {
+      input.close();
+    }
+  }
+
+  private String read(long from) throws IOException {
+    RandomAccessFile input = new RandomAccessFile(file, "r");
+    try {
+      long length = input.length() - from;
+      if (length <= 0) {
+        return "";
+      }
+      byte[] bytes = new byte[(int) length];
+      input.seek(from);
+      input.readFully(bytes);
+      return new String(bytes, UTF8);
+    } finally {
+      input.close();
+    }
+  }
+
+  /**
+   * Applies one record.
+   *
+   * @return <code>false</code> if the record doesn't fit to data in memory
+   */
+  private boolean apply(String[] record, Changes changes) {
+    String type = record[0];
+    if (TASK.equals(type)) {
+      return applyTask(record, changes);
+    } else if (SLOT.equals(type)) {
+      return applySlot(record, changes);
+    } else if (DELETE_SLOT.equals(type)) {
+      TimeSlot timeslot = getSlotsById().remove(id(record[1]));
+      if (timeslot != null && timeslot.getTask() != null) {
+        changes.changedTasks.add(timeslot.getTask());
+        timeslot.getTask().deleteTimeslot(timeslot);
+      }
+    } else if (DELETE.equals(type)) {
+      Task task = dataSource.getTask(id(record[1]));
+      if (task != null && task.getParentTask() != null) {
+        dataSource.moveTask(task, null);
+        changes.structureChanged = true;
+      }
+    } else if (ACTIVE.equals(type)) {
+      TimeSlot active = null;
+      if (record.length > 2) {
+        active = getSlotsById().get(id(record[2]));
+      }
+      timeSlotTracker.setActiveTimeSlot(active);
+    } else if (FAVOURITES.equals(type)) {
+      Collection<Task> favourites = dataSource.getFavourites();
+      favourites.clear();
+      for (int i = 1; i < record.length; i++) {
+        Task task = dataSource.getTask(id(record[i]));
+        if (task != null) {
+          favourites.add(task);
+        }
+      }
+      changes.structureChanged = true;
+    }
+    return true;
+  }
+
+  private boolean applyTask(String[] record, Changes changes) {
+    Integer id = id(record[1]);
+    Integer parentId = id(record[2]);
+    int position = Integer.parseInt(record[3]);
+    boolean hidden = Boolean.parseBoolean(record[4]);
+    String name = text(record[5]);
+    String description = text(record[6]);
+    Collection<Attribute> attributes = attributes(record, 7);
+    if (attributes == null) {
+      return false;
+    }
+
+    Task task = dataSource.getTask(id);
+    Task parent = parentId == null ? null : dataSource.getTask(parentId);
+    if (parentId != null && parent == null) {
+      return false;
+    }
+
+    if (task == null || (task.getParentTask() == null && parent != null)) {
+      // new task (or a deleted one brought back)
+      task = dataSource.createTask(parent, id, name, description, hidden);
+      changes.structureChanged = true;
+    } else {
+      if (!equal(task.getName(), name) || task.isHidden() != hidden) {
+        changes.structureChanged = true;
+      }
+      task.setName(name);
+      task.setDescription(description);
+      task.setHidden(hidden);
+      if (task.getParentTask() != parent) {
+        dataSource.moveTask(task, parent);
+        changes.structureChanged = true;
+      }
+    }
+
+    if (parent != null) {
+      List<Task> siblings = new ArrayList<Task>(dataSource.getChildren(parent));
+      int index = Math.min(position, siblings.size() - 1);
+      if (siblings.indexOf(task) != index) {
+        dataSource.moveTask(task, index);
+        changes.structureChanged = true;
+      }
+    }
+
+    for (Attribute attribute : task.getAttributes()) {
+      attribute.unregister();
+    }
+    task.setAttributes(attributes);
+    changes.changedTasks.add(task);
+    return true;
+  }
+
+  private boolean applySlot(String[] record, Changes changes) {
+    Integer id = id(record[1]);
+    Task task = dataSource.getTask(id(record[2]));
+    Date start = date(record[3]);
+    Date stop = date(record[4]);
+    String description = text(record[5]);
+    Collection<Attribute> attributes = attributes(record, 6);
+    if (task == null || attributes == null) {
+      return false;
+    }
+
+    TimeSlot timeslot = getSlotsById().get(id);
+    if (timeslot == null) {
+      timeslot = dataSource.createTimeSlot(task, id, start, stop, description);
+      getSlotsById().put(id, timeslot);
+    } else {
+      Task previousTask = timeslot.getTask();
+      if (previousTask != task) {
+        if (previousTask != null) {
+          previousTask.deleteTimeslot(timeslot);
+          changes.changedTasks.add(previousTask);
+        }
+        task.addTimeslot(timeslot);
+      }
+      timeslot.setStartDate(start);
+      timeslot.setStopDate(stop);
+      timeslot.setDescription(description);
+      for (Attribute attribute : timeslot.getAttributes()) {
+        attribute.unregister();
+      }
+    }
+    timeslot.setAttributes(attributes);
+    changes.changedTasks.add(task);
+    return true;
+  }
+
+  private Map<Object, TimeSlot> getSlotsById() {
+    if (slotsById == null) {
+      slotsById = new HashMap<Object, TimeSlot>();
+      Task root = dataSource.getRoot();
+      if (root != null) {
+        indexSlots(root);
+      }
+    }
+    return slotsById;
+  }
+
+  private void indexSlots(Task task) {
+    Collection<TimeSlot> timeslots = task.getTimeslots();
+    if (timeslots != null) {
+      for (TimeSlot timeslot : timeslots) {
+        slotsById.put(timeslot.getId(), timeslot);
+      }
+    }
+    Collection<Task> children = dataSource.getChildren(task);
+    if (children != null) {
+      for (Task child : children) {
+        indexSlots(child);
+      }
+    }
+  }
+
+  /**
+   * @return attributes stored in record from given field, <code>null</code>
+   *         if any attribute type is unknown
+   */
+  private static Collection<Attribute> attributes(String[] record, int from) {
+    Collection<Attribute> attributes = new ArrayList<Attribute>();
+    for (int i = from; i + 1 < record.length; i += 2) {
+      AttributeType type = AttributeTypeManagerImpl.getInstance().get(
+          text(record[i]));
+      if (type == null) {
+        return null;
+      }
+      Attribute attribute = new Attribute(type);
+      attribute.set(text(record[i + 1]));
+      attributes.add(attribute);
+    }
+    return attributes;
+  }
+
+  private static void attributes(StringBuilder record,
+      Collection<Attribute> attributes) {
+    if (attributes == null) {
+      return;
+    }
+    for (Attribute attribute : attributes) {
+      field(record, attribute.getAttributeType().getName());
+      field(record, attribute.get() == null ? "" : attribute.get().toString());
+    }
+  }
+
+  private static Long time(Date date) {
+    return date == null ? null : date.getTime();
+  }
+
+  private static Date date(String field) {
+    return field.length() == 0 ? null : new Date(Long.parseLong(field));
+  }
+
+  private static Integer id(String field) {
+    return field.length() == 0 ? null : Integer.valueOf(field);
+  }
+
+  private static String text(String field) {
+    return field.length() == 0 ? null : field;
+  }
+
+  private static boolean equal(Object first, Object second) {
+    return first == null ? second == null : first.equals(second);
+  }
+
+  /**
+   * Appends tab and escaped value (empty for <code>null</code>).
+   */
+  static void field(StringBuilder record, Object value) {
+    record.append('\t');
+    if (value == null) {
+      return;
+    }
+    String text = value.toString();
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      switch (c) {
+      case '\\':
+        record.append("\\\\");
+        break;
+      case '\t':
+        record.append("\\t");
+        break;
+      case '\n':
+        record.append("\\n");
+        break;
+      case '\r':
+        record.append("\\r");
+        break;
+      default:
+        record.append(c);
+      }
+    }
+  }
+
+  /**
+   * Splits a record into unescaped fields.
+   */
+  static String[] split(String line) {
+    List<String> fields = new ArrayList<String>();
+    StringBuilder field = new StringBuilder();
+    for (int i = 0; i < line.length(); i++) {
+      char c = line.charAt(i);
+      if (c == '\t') {
+        fields.add(field.toString());
+        field.setLength(0);
+      } else if (c == '\\' && i + 1 < line.length()) {
+        char next = line.charAt(++i);
+        field.append(next == 't' ? '\t' : next == 'n' ? '\n'
+            : next == 'r' ? '\r' : next);
+      } else {
+        field.append(c);
+      }
+    }
+    fields.add(field.toString());
+    return fields.toArray(new String[fields.size()]);
+  }
+
+}
@@ -45,6 +45,9 @@ class XmlParser extends DefaultHandler {
   /** holds a favourite list **/
   private Collection<Task> favourites = new Vector<Task>();
 
+  /** Holds active timeslot **/
+  private TimeSlot activeTimeSlot;
+
   /** Holds last created attribute **/
   private Attribute lastAttribute;
 
@@ -274,7 +277,7 @@ class XmlParser extends DefaultHandler {
         // timeslotId,
         // should use
         TimeSlot timeslot = (TimeSlot) timeslots.get(index);
-        timeSlotTracker.setActiveTimeSlot(timeslot);
+        activeTimeSlot = timeslot;
       } catch (NumberFormatException e) {
         Object[] args = { timeslotIndex };
         String errorMsg = timeSlotTracker.getString(
@@ -296,4 +299,8 @@ class XmlParser extends DefaultHandler {
     return favourites;
   }
 
+  TimeSlot getActiveTimeSlot() {
+    return activeTimeSlot;
+  }
+
 }
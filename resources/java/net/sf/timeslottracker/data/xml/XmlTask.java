@@ -11,6 +11,7 @@ import java.util.logging.Logger;
 import net.sf.timeslottracker.core.TimeSlotTracker;
 import net.sf.timeslottracker.data.Attribute;
 import net.sf.timeslottracker.data.DataSource;
+import net.sf.timeslottracker.data.MonthGenerations;
 import net.sf.timeslottracker.data.Task;
 import net.sf.timeslottracker.data.TimeSlot;
 
@@ -133,11 +134,13 @@ public class XmlTask implements Task {
     timeslots.add(timeslot);
     timeslot.setTask(this);
     sortTimeSlots();
+    MonthGenerations.getInstance().changed(timeslot.getStartDate());
   }
 
   public void deleteTimeslot(TimeSlot timeslot) {
     timeslots.remove(timeslot);
     timeslot.setTask(null);
+    MonthGenerations.getInstance().changed(timeslot.getStartDate());
   }
 
   public Collection<TimeSlot> getTimeslots() {
@@ -8,6 +8,7 @@ import java.util.Vector;
 
 import net.sf.timeslottracker.core.TimeSlotTracker;
 import net.sf.timeslottracker.data.Attribute;
+import net.sf.timeslottracker.data.MonthGenerations;
 import net.sf.timeslottracker.data.Task;
 import net.sf.timeslottracker.data.TimeSlot;
 import net.sf.timeslottracker.utils.TimeUtils;
@@ -61,7 +62,9 @@ public class XmlTimeSlot implements TimeSlot {
   }
 
   public void setStartDate(Date date) {
+    MonthGenerations.getInstance().changed(start);
     this.start = TimeUtils.roundDate(date);
+    MonthGenerations.getInstance().changed(start);
 
     /*
      * additionally, when this timeslot already belongs to some task, it should
@@ -79,6 +82,7 @@ public class XmlTimeSlot implements TimeSlot {
 
   public void setStopDate(Date date) {
     this.stop = TimeUtils.roundDate(date);
+    MonthGenerations.getInstance().changed(start);
   }
 
   public long getTime() {
@@ -101,6 +105,7 @@ public class XmlTimeSlot implements TimeSlot {
 
   public void setDescription(String description) {
     this.description = description;
+    MonthGenerations.getInstance().changed(start);
   }
 
   public void setTask(Task task) {
@@ -118,6 +123,7 @@ public class XmlTimeSlot implements TimeSlot {
   public void setAttributes(Collection<Attribute> attributes) {
     this.attributes.clear();
     this.attributes.addAll(attributes);
+    MonthGenerations.getInstance().changed(start);
   }
 
   public boolean hasAttributes() {
@@ -0,0 +1,132 @@
+package net.sf.timeslottracker.diagnostics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Logger;
+
+import net.sf.timeslottracker.core.Action;
+import net.sf.timeslottracker.core.ActionListener;
+
+/**
+ * Collects diagnostic information about application responsiveness.
+ * <p>
+ * Every listener invocation dispatched by the application core and the layout
+ * goes through {@link #invoke(ActionListener, Action)}, which keeps latency
+ * histogram per listener class. Optionally an {@link EdtWatchdog} reports
+ * stalls of the event dispatch thread. Other services can add their own
+ * sections to the report with {@link #addProvider(Provider)}.
+ */
+public class Diagnostics {
+
+  private static final Logger LOG = Logger
+      .getLogger("net.sf.timeslottracker.diagnostics");
+
+  /**
+   * Adds its own section to the diagnostics report.
+   */
+  public interface Provider {
+    void appendReport(StringBuilder report);
+  }
+
+  private final ConcurrentHashMap<String, LatencyHistogram> listenerLatencies = new ConcurrentHashMap<String, LatencyHistogram>();
+
+  private final List<Provider> providers = new CopyOnWriteArrayList<Provider>();
+
+  private EdtWatchdog watchdog;
+
+  /**
+   * Starts event dispatch thread watchdog.
+   *
+   * @param thresholdMillis
+   *          dispatch time in milliseconds considered as a stall
+   */
+  public synchronized void startWatchdog(long thresholdMillis) {
+    if (watchdog == null) {
+      watchdog = new EdtWatchdog(thresholdMillis);
+      watchdog.start();
+    }
+  }
+
+  public void addProvider(Provider provider) {
+    providers.add(provider);
+  }
+
+  /**
+   * Invokes a listener and records how long it took.
+   */
+  public void invoke(ActionListener listener, Action action) {
+    long start = System.nanoTime();
+    try {
+      listener.actionPerformed(action);
+    } finally {
+      getListenerLatency(listener).record(System.nanoTime() - start);
+    }
+  }
+
+  private LatencyHistogram getListenerLatency(ActionListener listener) {
+    String name = listener.getClass().getName();
+    LatencyHistogram histogram = listenerLatencies.get(name);
+    if (histogram == null) {
+      histogram = new LatencyHistogram();
+      LatencyHistogram previous = listenerLatencies.putIfAbsent(name,
+          histogram);
+      if (previous != null) {
+        histogram = previous;
+      }
+    }
+    return histogram;
+  }
+
+  /**
+   * @return text report with all collected statistics
+   */
+  public String getReport() {
+    StringBuilder report = new StringBuilder();
+
+    synchronized (this) {
+      if (watchdog != null) {
+        report.append("Event dispatch thread\n");
+        report.append("  stalls: ").append(watchdog.getStallCount())
+            .append('\n');
+        report.append("  dispatch: ").append(watchdog.getDispatchLatency())
+            .append("\n\n");
+      }
+    }
+
+    // the most expensive listeners first
+    List<Map.Entry<String, LatencyHistogram>> entries = new ArrayList<Map.Entry<String, LatencyHistogram>>(
+        listenerLatencies.entrySet());
+    Collections.sort(entries,
+        new Comparator<Map.Entry<String, LatencyHistogram>>() {
+          public int compare(Map.Entry<String, LatencyHistogram> first,
+              Map.Entry<String, LatencyHistogram> second) {
+            return Long.compare(second.getValue().getTotalMicros(), first
+                .getValue().getTotalMicros());
+          }
+        });
+    report.append("Listeners\n");
+    for (Map.Entry<String, LatencyHistogram> entry : entries) {
+      report.append("  ").append(entry.getKey()).append(": ")
+          .append(entry.getValue()).append('\n');
+    }
+
+    for (Provider provider : providers) {
+      report.append('\n');
+      provider.appendReport(report);
+    }
+    return report.toString();
+  }
+
+  /**
+   * Writes report to the log.
+   */
+  public void logReport() {
+    LOG.info("Diagnostics:\n" + getReport());
+  }
+
+}
@@ -0,0 +1,135 @@
+package net.sf.timeslottracker.diagnostics;
+
+import java.awt.AWTEvent;
+import java.awt.EventQueue;
+import java.awt.Toolkit;
+import java.util.logging.Logger;
+
+/**
+ * Detects stalls of the event dispatch thread.
+ * <p>
+ * It replaces the system event queue with one remembering which event is
+ * being dispatched and since when. A daemon thread checks it periodically
+ * and when one dispatch takes longer than the threshold, it logs the event
+ * and the stack of event dispatch thread (once per stalled event). Durations
+ * of all dispatches are kept in a histogram.
+ */
+public class EdtWatchdog {
+
+  private static final Logger LOG = Logger
+      .getLogger("net.sf.timeslottracker.diagnostics");
+
+  private final long thresholdNanos;
+
+  private final LatencyHistogram dispatchLatency = new LatencyHistogram();
+
+  private volatile long stallCount;
+
+  /** event being dispatched now, null if event dispatch thread is idle */
+  private volatile AWTEvent currentEvent;
+
+  private volatile long dispatchStart;
+
+  private volatile Thread dispatchThread;
+
+  private volatile boolean running;
+
+  /**
+   * @param thresholdMillis
+   *          dispatch time in milliseconds considered as a stall
+   */
+  public EdtWatchdog(long thresholdMillis) {
+    this.thresholdNanos = thresholdMillis * 1000000;
+  }
+
+  /**
+   * Installs monitoring event queue and starts checking thread.
+   */
+  public void start() {
+    if (running) {
+      return;
+    }
+    running = true;
+    Toolkit.getDefaultToolkit().getSystemEventQueue()
+        .push(new MonitoringEventQueue());
+
+    Thread checker = new Thread(new Runnable() {
+      public void run() {
+        check();
+      }
+    }, "EDT watchdog");
+    checker.setDaemon(true);
+    checker.start();
+    LOG.info("EDT watchdog started with threshold (ms): " + thresholdNanos
+        / 1000000);
+  }
+
+  /**
+   * Stops checking thread. Monitoring event queue stays installed but only
+   * collects dispatch times.
+   */
+  public void stop() {
+    running = false;
+  }
+
+  public LatencyHistogram getDispatchLatency() {
+    return dispatchLatency;
+  }
+
+  public long getStallCount() {
+    return stallCount;
+  }
+
+  private void check() {
+    long sleepMillis = Math.max(10, thresholdNanos / 1000000 / 2);
+    AWTEvent reported = null;
+    while (running) {
+      try {
+        Thread.sleep(sleepMillis);
+      } catch (InterruptedException e) {
+        return;
+      }
+      AWTEvent event = currentEvent;
+      long start = dispatchStart;
+      Thread thread = dispatchThread;
+      if (event == null || event == reported || thread == null) {
+        continue;
+      }
+      long stalled = System.nanoTime() - start;
+      if (stalled < thresholdNanos) {
+        continue;
+      }
+      reported = event;
+      stallCount++;
+      StringBuilder message = new StringBuilder();
+      message.append("EDT stalled for ").append(stalled / 1000000)
+          .append(" ms dispatching ").append(event).append('\n');
+      for (StackTraceElement element : thread.getStackTrace()) {
+        message.append("\tat ").append(element).append('\n');
+      }
+      LOG.warning(message.toString());
+    }
+  }
+
+  private class MonitoringEventQueue extends EventQueue {
+    @Override
+    protected void dispatchEvent(AWTEvent event) {
+      // nested dispatch (modal dialogs): the outer event is watched again
+      // after it, but its stall is counted from the end of the nested one
+      AWTEvent outerEvent = currentEvent;
+
+      dispatchThread = Thread.currentThread();
+      long start = System.nanoTime();
+      dispatchStart = start;
+      currentEvent = event;
+      try {
+        super.dispatchEvent(event);
+      } finally {
+        dispatchLatency.record(System.nanoTime() - start);
+        dispatchStart = System.nanoTime();
+        currentEvent = outerEvent;
+      }
+    }
+  }
+
+}
@@ -0,0 +1,99 @@
+package net.sf.timeslottracker.diagnostics;
+
+/**
+ * Histogram of latencies with power of two buckets.
+ * <p>
+ * Bucket <code>i</code> counts latencies from <code>2^i</code> (inclusive) to
+ * <code>2^(i+1)</code> (exclusive) microseconds, the first one also shorter
+ * ones. Percentiles are returned as upper bound of bucket they fall in, which
+ * is precise enough to see where time goes.
+ */
+public class LatencyHistogram {
+
+  private static final int BUCKETS = 32;
+
+  private final long[] buckets = new long[BUCKETS];
+
+  private long count;
+
+  private long totalNanos;
+
+  private long maxNanos;
+
+  /**
+   * Records one latency.
+   *
+   * @param nanos
+   *          latency in nanoseconds
+   */
+  public synchronized void record(long nanos) {
+    long micros = Math.max(0, nanos / 1000);
+    int bucket = micros == 0 ? 0 : 63 - Long.numberOfLeadingZeros(micros);
+    buckets[Math.min(bucket, BUCKETS - 1)]++;
+    count++;
+    totalNanos += nanos;
+    maxNanos = Math.max(maxNanos, nanos);
+  }
+
+  public synchronized long getCount() {
+    return count;
+  }
+
+  /**
+   * @return sum of all latencies in microseconds
+   */
+  public synchronized long getTotalMicros() {
+    return totalNanos / 1000;
+  }
+
+  /**
+   * @return longest latency in microseconds
+   */
+  public synchronized long getMaxMicros() {
+    return maxNanos / 1000;
+  }
+
+  /**
+   * @return average latency in microseconds
+   */
+  public synchronized long getMeanMicros() {
+    return count == 0 ? 0 : totalNanos / count / 1000;
+  }
+
+  /**
+   * Returns upper bound (in microseconds) of latencies for given percentile.
+   *
+   * @param percentile
+   *          percentile from 0 to 100
+   */
+  public synchronized long getPercentileMicros(double percentile) {
+    if (count == 0) {
+      return 0;
+    }
+    long wanted = (long) Math.ceil(count * percentile / 100);
+    long seen = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      seen += buckets[i];
+      if (seen >= wanted && buckets[i] > 0) {
+        return Math.min(1L << (i + 1), getMaxMicros());
+      }
+    }
+    return getMaxMicros();
+  }
+
+  @Override
+  public synchronized String toString() {
+    return "count=" + count + ", total=" + format(getTotalMicros()) + ", mean="
+        + format(getMeanMicros()) + ", p50<=" + format(getPercentileMicros(50))
+        + ", p95<=" + format(getPercentileMicros(95)) + ", p99<="
+        + format(getPercentileMicros(99)) + ", max=" + format(getMaxMicros());
+  }
+
+  /**
+   * Formats microseconds as milliseconds with one decimal place.
+   */
+  static String format(long micros) {
+    return (micros / 1000) + "." + (micros % 1000 / 100) + "ms";
+  }
+
+}
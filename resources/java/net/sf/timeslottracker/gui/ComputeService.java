@@ -0,0 +1,225 @@
+package net.sf.timeslottracker.gui;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.swing.SwingUtilities;
+
+import net.sf.timeslottracker.core.TimeSlotTracker;
+
+/**
+ * Computes data shown by gui components outside of the event dispatch thread.
+ * <p>
+ * A component submits a {@link Computation} under a key. It is computed in a
+ * background pool and its result is delivered back on the event dispatch
+ * thread. Submitting a new computation with the same key supersedes the
+ * previous one: it is cancelled if not started yet, otherwise its result is
+ * dropped. So when the user clicks quickly through tasks only the last
+ * selection is shown.
+ * <p>
+ * Data model is changed in the event dispatch thread and it isn't locked
+ * while computing, so a computation mustn't walk its collections (tasks,
+ * timeslots). A component copies what the computation reads before
+ * submitting it. A failed computation is reported to the error log, the
+ * component keeps the last value and a next update computes it again.
+ */
+public class ComputeService {
+
+  private static final Logger LOG = Logger
+      .getLogger("net.sf.timeslottracker.gui");
+
+  /**
+   * Computation of data for a gui component.
+   *
+   * @param <T>
+   *          type of computed result
+   */
+  public abstract static class Computation<T> {
+
+    /** service this computation has been submitted to */
+    private ComputeService service;
+
+    /**
+     * Computes result. It is called in background thread, so it mustn't touch
+     * any gui components.
+     */
+    protected abstract T compute() throws Exception;
+
+    /**
+     * Shows computed result. It is called in event dispatch thread and only if
+     * the computation was not superseded meanwhile.
+     */
+    protected abstract void done(T result);
+
+    /**
+     * Called in event dispatch thread when computation starts (
+     * <code>true</code>) and when the last submitted computation for the key
+     * finishes (<code>false</code>). Components can show a busy indicator
+     * here.
+     */
+    protected void busy(boolean busy) {
+    }
+
+    /**
+     * Called in event dispatch thread when computation failed, after the busy
+     * state is cleared. Reports the exception to the error log by default.
+     */
+    protected void failed(Exception exception) {
+      service.report(exception);
+    }
+  }
+
+  private final LayoutManager layoutManager;
+
+  private final ExecutorService executor;
+
+  /** Last submitted requests by key */
+  private final Map<Object, Request<?>> requests = new HashMap<Object, Request<?>>();
+
+  public ComputeService(LayoutManager layoutManager) {
+    this.layoutManager = layoutManager;
+    executor = Executors.newFixedThreadPool(2, new ComputeThreadFactory());
+  }
+
+  /**
+   * Submits a computation. A previous computation with the same key is
+   * superseded.
+   *
+   * @param key
+   *          key of computation, usually constant owned by a component
+   * @param computation
+   *          computation to run
+   */
+  public <T> void submit(Object key, Computation<T> computation) {
+    computation.service = this;
+    final Request<T> request = new Request<T>(key, computation);
+    synchronized (this) {
+      Request<?> previous = requests.put(key, request);
+      if (previous != null) {
+        previous.future.cancel(false);
+      }
+      request.future = executor.submit(request);
+    }
+    invokeOnEDT(new Runnable() {
+      public void run() {
+        if (isCurrent(request)) {
+          request.computation.busy(true);
+        }
+      }
+    });
+  }
+
+  /**
+   * Cancels computation with given key, its result will be dropped.
+   */
+  public void cancel(Object key) {
+    final Request<?> request;
+    synchronized (this) {
+      request = requests.remove(key);
+      if (request == null) {
+        return;
+      }
+      request.future.cancel(false);
+    }
+    invokeOnEDT(new Runnable() {
+      public void run() {
+        request.computation.busy(false);
+      }
+    });
+  }
+
+  private synchronized boolean isCurrent(Request<?> request) {
+    return requests.get(request.key) == request;
+  }
+
+  private synchronized boolean finish(Request<?> request) {
+    if (requests.get(request.key) != request) {
+      return false;
+    }
+    requests.remove(request.key);
+    return true;
+  }
+
+  private void report(Exception exception) {
+    TimeSlotTracker timeSlotTracker = layoutManager.getTimeSlotTracker();
+    if (timeSlotTracker == null) {
+      LOG.log(Level.WARNING, "Computation failed", exception);
+    } else {
+      timeSlotTracker.errorLog(exception);
+    }
+  }
+
+  private static void invokeOnEDT(Runnable runnable) {
+    if (SwingUtilities.isEventDispatchThread()) {
+      runnable.run();
+    } else {
+      SwingUtilities.invokeLater(runnable);
+    }
+  }
+
+  private class Request<T> implements Runnable {
+    private final Object key;
+    private final Computation<T> computation;
+    private Future<?> future;
+
+    private Request(Object key, Computation<T> computation) {
+      this.key = key;
+      this.computation = computation;
+    }
+
+    public void run() {
+      if (!isCurrent(this)) {
+        return; // superseded before started
+      }
+
+      T result = null;
+      Exception error = null;
+      try {
+        result = computation.compute();
+      } catch (Exception e) {
+        error = e;
+      }
+
+      final T computed = result;
+      final Exception exception = error;
+      SwingUtilities.invokeLater(new Runnable() {
+        public void run() {
+          if (!finish(Request.this)) {
+            return; // superseded while computing, result is stale
+          }
+          try {
+            computation.busy(false);
+            if (exception == null) {
+              computation.done(computed);
+            }
+          } catch (RuntimeException e) {
+            computation.failed(e);
+            return;
+          }
+          if (exception != null) {
+            computation.failed(exception);
+          }
+        }
+      });
+    }
+  }
+
+  private static class ComputeThreadFactory implements ThreadFactory {
+    private final AtomicInteger number = new AtomicInteger();
+
+    public Thread newThread(Runnable runnable) {
+      Thread thread = new Thread(runnable, "Compute " + number.incrementAndGet());
+      thread.setDaemon(true);
+      thread.setPriority(Thread.NORM_PRIORITY - 1);
+      return thread;
+    }
+  }
+
+}
@@ -0,0 +1,367 @@
+package net.sf.timeslottracker.gui;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import net.sf.timeslottracker.core.Action;
+import net.sf.timeslottracker.core.Configuration;
+import net.sf.timeslottracker.core.TimeSlotTracker;
+import net.sf.timeslottracker.data.DataLoadedListener;
+import net.sf.timeslottracker.data.DataSource;
+import net.sf.timeslottracker.data.Task;
+import net.sf.timeslottracker.data.TaskChangedListener;
+import net.sf.timeslottracker.data.TimeSlot;
+import net.sf.timeslottracker.data.TimeSlotChangedListener;
+import net.sf.timeslottracker.utils.StringUtils;
+import net.sf.timeslottracker.utils.TaskIterator;
+
+/**
+ * Prefix index of timeslot descriptions of all tasks used to suggest
+ * descriptions while typing.
+ * <p>
+ * Descriptions are kept in a trie (case insensitive). Every trie node caches
+ * the best descriptions below it, so suggestions for a prefix cost only a walk
+ * along the prefix. A description is ranked by its uses, the recent ones weight
+ * more: a use weights twice as much as a use {@link #HALF_LIFE} older. As
+ * weights grow with time instead of decaying, ranking of stored descriptions
+ * never changes by itself and cached nodes stay valid.
+ * <p>
+ * The index is built by a startup stage and again when data are loaded, a task
+ * is indexed again when it or its timeslot changes.
+ */
+public class DescriptionIndex {
+
+  /** age (in milliseconds) after which a use weights a half */
+  static final long HALF_LIFE = 30L * 24 * 60 * 60 * 1000;
+
+  /**
+   * A description with its weight.
+   */
+  private static class Entry {
+    private String text;
+    private double weight;
+    private int uses;
+  }
+
+  private static class Node {
+    private final Map<Character, Node> children = new HashMap<Character, Node>(
+        4);
+    /** description ending in this node */
+    private Entry entry;
+    /** the best entries in the subtree, null when it has to be recomputed */
+    private List<Entry> best = new ArrayList<Entry>(1);
+  }
+
+  /**
+   * Use of a description by a timeslot.
+   */
+  private static class Use {
+    private final String text;
+    private final long time;
+
+    private Use(String text, long time) {
+      this.text = text;
+      this.time = time;
+    }
+
+    private boolean sameAs(Use use) {
+      return time == use.time && text.equals(use.text);
+    }
+  }
+
+  /**
+   * Indexed timeslots of a task.
+   */
+  private static class TaskUses {
+    private final Map<Object, Use> uses = new LinkedHashMap<Object, Use>();
+    /** the last different descriptions, the most recent first */
+    private final List<String> history = new ArrayList<String>();
+  }
+
+  private static final Comparator<Entry> BY_WEIGHT = new Comparator<Entry>() {
+    public int compare(Entry first, Entry second) {
+      return Double.compare(second.weight, first.weight);
+    }
+  };
+
+  private final int top;
+
+  /** time when weight of a use is 1 */
+  private final long base;
+
+  private final Node root = new Node();
+
+  private final Map<String, Entry> entries = new HashMap<String, Entry>();
+
+  /** indexed timeslots by task id */
+  private final Map<Object, TaskUses> tasks = new HashMap<Object, TaskUses>();
+
+  /**
+   * Creates index of all descriptions and keeps it up to date.
+   */
+  public DescriptionIndex(LayoutManager layoutManager) {
+    this(layoutManager.getTimeSlotTracker().getConfiguration().getInteger(
+        Configuration.TIMESLOT_MAX_DESCRIPTION_HISTORY, 25).intValue(), System
+        .currentTimeMillis());
+    final TimeSlotTracker tst = layoutManager.getTimeSlotTracker();
+    tst.addActionListener(new DataLoadedListener() {
+      public void actionPerformed(Action action) {
+        build(((DataSource) action.getSource()).getRoot());
+      }
+    });
+    tst.addActionListener(new TaskChangedListener() {
+      public void actionPerformed(Action action) {
+        setTask((Task) action.getParam());
+      }
+    });
+    layoutManager.addActionListener(new TimeSlotChangedListener() {
+      public void actionPerformed(Action action) {
+        TimeSlot timeSlot = (TimeSlot) action.getParam();
+        if (timeSlot != null) {
+          setTask(timeSlot.getTask());
+        }
+      }
+    });
+    if (tst.getDataSource() != null) {
+      build(tst.getDataSource().getRoot());
+    }
+  }
+
+  DescriptionIndex(int top, long base) {
+    this.top = Math.max(1, top);
+    this.base = base;
+  }
+
+  /**
+   * Indexes all tasks again. Only changed timeslots and tasks which are not in
+   * the tree anymore update the index, so building it again with the same
+   * data is cheap.
+   */
+  public synchronized void build(Task rootTask) {
+    Set<Object> removed = new HashSet<Object>(tasks.keySet());
+    if (rootTask != null) {
+      Iterator<Task> iterator = new TaskIterator(rootTask);
+      while (iterator.hasNext()) {
+        Task task = iterator.next();
+        removed.remove(task.getId());
+        setTask(task);
+      }
+    }
+    for (Object id : removed) {
+      for (Use use : tasks.remove(id).uses.values()) {
+        remove(use.text, use.time);
+      }
+    }
+  }
+
+  /**
+   * Indexes changed timeslots of the task.
+   */
+  public synchronized void setTask(Task task) {
+    if (task == null || task.getId() == null) {
+      return;
+    }
+    TaskUses current = new TaskUses();
+    List<Use> uses = new ArrayList<Use>();
+    Collection<TimeSlot> timeSlots = task.getTimeslots();
+    if (timeSlots != null) {
+      for (TimeSlot timeSlot : timeSlots) {
+        String text = StringUtils.trim(timeSlot.getDescription());
+        if (StringUtils.isBlank(text)) {
+          continue;
+        }
+        Date start = timeSlot.getStartDate();
+        Use use = new Use(text, start == null ? base : start.getTime());
+        current.uses.put(timeSlot.getId() == null ? timeSlot : timeSlot
+            .getId(), use);
+        uses.add(use);
+      }
+    }
+    for (int i = uses.size() - 1; i >= 0 && current.history.size() < top; i--) {
+      if (!current.history.contains(uses.get(i).text)) {
+        current.history.add(uses.get(i).text);
+      }
+    }
+
+    TaskUses previous = tasks.put(task.getId(), current);
+    if (previous != null) {
+      for (Map.Entry<Object, Use> use : previous.uses.entrySet()) {
+        Use changed = current.uses.get(use.getKey());
+        if (changed == null || !changed.sameAs(use.getValue())) {
+          remove(use.getValue().text, use.getValue().time);
+        }
+      }
+    }
+    for (Map.Entry<Object, Use> use : current.uses.entrySet()) {
+      Use old = previous == null ? null : previous.uses.get(use.getKey());
+      if (old == null || !old.sameAs(use.getValue())) {
+        add(use.getValue().text, use.getValue().time);
+      }
+    }
+  }
+
+  /**
+   * @return the last different descriptions of the task's timeslots, the most
+   *         recent first
+   */
+  public synchronized List<String> getTaskHistory(Task task, int max) {
+    TaskUses uses = task == null ? null : tasks.get(task.getId());
+    if (uses == null) {
+      return new ArrayList<String>();
+    }
+    return new ArrayList<String>(uses.history.subList(0, Math.min(max,
+        uses.history.size())));
+  }
+
+  /**
+   * Suggests descriptions starting with the prefix: descriptions of the task
+   * first, then the best ones of all tasks.
+   *
+   * @param prefix
+   *          typed text
+   * @param task
+   *          current task, may be null
+   * @param max
+   *          max number of suggestions
+   */
+  public synchronized List<String> suggest(String prefix, Task task, int max) {
+    String key = prefix.toLowerCase();
+    List<String> suggestions = new ArrayList<String>();
+    for (String text : getTaskHistory(task, max)) {
+      if (text.toLowerCase().startsWith(key)) {
+        suggestions.add(text);
+      }
+    }
+    for (String text : complete(prefix, max)) {
+      if (suggestions.size() >= max) {
+        break;
+      }
+      if (!suggestions.contains(text)) {
+        suggestions.add(text);
+      }
+    }
+    return suggestions;
+  }
+
+  /**
+   * @return the best descriptions starting with the prefix
+   */
+  synchronized List<String> complete(String prefix, int max) {
+    Node node = root;
+    String key = prefix.toLowerCase();
+    for (int i = 0; i < key.length() && node != null; i++) {
+      node = node.children.get(key.charAt(i));
+    }
+    List<String> texts = new ArrayList<String>();
+    if (node == null) {
+      return texts;
+    }
+    for (Entry entry : best(node)) {
+      if (texts.size() >= max) {
+        break;
+      }
+      texts.add(entry.text);
+    }
+    return texts;
+  }
+
+  synchronized void add(String text, long time) {
+    String key = text.toLowerCase();
+    Entry entry = entries.get(key);
+    List<Node> path = path(key, true);
+    if (entry == null) {
+      entry = new Entry();
+      entries.put(key, entry);
+      path.get(path.size() - 1).entry = entry;
+    }
+    entry.text = text;
+    entry.weight += weight(time);
+    entry.uses++;
+    for (Node node : path) {
+      if (node.best == null) {
+        continue;
+      }
+      if (!node.best.contains(entry)) {
+        node.best.add(entry);
+      }
+      Collections.sort(node.best, BY_WEIGHT);
+      if (node.best.size() > top) {
+        node.best.remove(top);
+      }
+    }
+  }
+
+  synchronized void remove(String text, long time) {
+    String key = text.toLowerCase();
+    Entry entry = entries.get(key);
+    if (entry == null) {
+      return;
+    }
+    entry.weight -= weight(time);
+    entry.uses--;
+    List<Node> path = path(key, false);
+    if (entry.uses <= 0) {
+      entries.remove(key);
+      path.get(path.size() - 1).entry = null;
+    }
+    // entry fell down, another one may take its place
+    for (Node node : path) {
+      if (node.best != null && node.best.contains(entry)) {
+        node.best = null;
+      }
+    }
+  }
+
+  private List<Node> path(String key, boolean create) {
+    List<Node> path = new ArrayList<Node>(key.length() + 1);
+    Node node = root;
+    path.add(node);
+    for (int i = 0; i < key.length(); i++) {
+      Node child = node.children.get(key.charAt(i));
+      if (child == null) {
+        if (!create) {
+          break;
+        }
+        child = new Node();
+        node.children.put(key.charAt(i), child);
+      }
+      node = child;
+      path.add(node);
+    }
+    return path;
+  }
+
+  /**
+   * @return the best entries of the node, computed again when needed
+   */
+  private List<Entry> best(Node node) {
+    if (node.best == null) {
+      List<Entry> best = new ArrayList<Entry>();
+      if (node.entry != null) {
+        best.add(node.entry);
+      }
+      for (Node child : node.children.values()) {
+        best.addAll(best(child));
+      }
+      Collections.sort(best, BY_WEIGHT);
+      node.best = new ArrayList<Entry>(best.subList(0, Math.min(top, best
+          .size())));
+    }
+    return node.best;
+  }
+
+  private double weight(long time) {
+    return Math.pow(2, (double) (time - base) / HALF_LIFE);
+  }
+
+}
@@ -1,35 +1,39 @@
 package net.sf.timeslottracker.gui;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
 import java.util.Vector;
 
 import javax.swing.DefaultComboBoxModel;
 import javax.swing.JComboBox;
+import javax.swing.SwingUtilities;
 import javax.swing.text.JTextComponent;
 
 import net.sf.timeslottracker.core.Configuration;
 import net.sf.timeslottracker.data.Task;
-import net.sf.timeslottracker.data.TimeSlot;
 import net.sf.timeslottracker.utils.StringUtils;
 
 /**
  * Combo box for entering timeslot's description with some last descriptions
- * from active task (history)
+ * from active task (history). While typing it suggests descriptions of all
+ * tasks from {@link DescriptionIndex}, the active task's ones first.
  *
  * File version: $Revision: 1204 $, $Date: 2009-05-16 08:53:21 +0700 (Sat, 16
  * May 2009) $ Last change: $Author: cnitsa $
  */
 @SuppressWarnings("serial")
-public class DescriptionInputComboBox extends JComboBox {
+public class DescriptionInputComboBox extends JComboBox<String> {
   /**
    * max elements for description history in comboBox
    */
   private final int max_description_history;
 
+  private final DescriptionIndex descriptionIndex;
+
+  private Task task;
+
+  /** history or suggestions for the task */
+  private DefaultComboBoxModel<String> model;
+
   public DescriptionInputComboBox(LayoutManager layoutManager, boolean readonly) {
     this(layoutManager, readonly, layoutManager.getTimeSlotsInterface()
         .getSelectedTask());
@@ -41,6 +45,7 @@ public class DescriptionInputComboBox extends JComboBox {
         .getConfiguration();
     this.max_description_history = configuration.getInteger(
         Configuration.TIMESLOT_MAX_DESCRIPTION_HISTORY, 25).intValue();
+    this.descriptionIndex = layoutManager.getDescriptionIndex();
 
     setEditable(!readonly);
     setActiveTask(task, true);
@@ -79,53 +84,63 @@ public class DescriptionInputComboBox extends JComboBox {
    *          true - select description text, false - overwise
    */
   public void setActiveTask(Task task, boolean selectText) {
-    setModel(new DefaultComboBoxModel(getHistory(task)));
+    this.task = task;
+    model = new DefaultComboBoxModel<String>(getHistory(task));
+    setModel(model);
     if (selectText) {
       getEditor().selectAll();
     }
   }
 
   /**
-   * Selects description with autocomplete
+   * Selects description with autocomplete.
+   * <p>
+   * Called from key listener, so suggestions are shown after the typed key
+   * gets to the editor.
    */
   public void selectByDescription() {
+    SwingUtilities.invokeLater(new Runnable() {
+      public void run() {
+        suggest();
+      }
+    });
+  }
+
+  private void suggest() {
     String description = getDescription();
-    if (!this.isPopupVisible()) {
+    if (StringUtils.isBlank(description) || description.length() < 2
+        || getModel() != model) {
       return;
     }
-
-    if (StringUtils.isBlank(description) || description.length() < 2) {
+    List<String> suggestions = descriptionIndex.suggest(description, task,
+        max_description_history);
+    if (suggestions.isEmpty()) {
       return;
     }
 
-    for (int i = 0; i <= getModel().getSize(); i++) {
-      Object elementAt = getModel().getElementAt(i);
-      if (elementAt == null) {
-        continue;
-      }
-      String s = elementAt.toString();
-      if (StringUtils.isBlank(s)) {
-        continue;
-      }
-      if (s.startsWith(description)) {
-        getModel().setSelectedItem(elementAt);
-        getEditor().setItem(description);
-        JTextComponent editorComponent = (JTextComponent) getEditor().getEditorComponent();
-        if (!description.equals(getModel().getSelectedItem().toString())) {
-          editorComponent.setCaretPosition(description.length());
-        }
-      }
+    // text as typed, including trailing spaces
+    String typed = getEditor().getItem().toString();
+    model.removeAllElements();
+    for (String suggestion : suggestions) {
+      model.addElement(suggestion);
+    }
+    getEditor().setItem(typed);
+    JTextComponent editorComponent = (JTextComponent) getEditor()
+        .getEditorComponent();
+    editorComponent.setCaretPosition(typed.length());
+    if (isShowing()) {
+      // popup fits new suggestions
+      hidePopup();
+      showPopup();
     }
   }
 
   private Vector<String> getHistory(Task actualTask) {
-    Vector<String> history = new Vector<>();
+    Vector<String> history = new Vector<String>();
 
-    List<TimeSlot> timeSlots = new ArrayList<TimeSlot>(
-        actualTask.getTimeslots());
-    for (int i = timeSlots.size() - 1; i >= Math.max(0, timeSlots.size()
-        - max_description_history); i--) {
-      add(timeSlots.get(i).getDescription(), history);
+    for (String description : descriptionIndex.getTaskHistory(actualTask,
+        max_description_history)) {
+      add(description, history);
     }
 
     String description = actualTask.getDescription();
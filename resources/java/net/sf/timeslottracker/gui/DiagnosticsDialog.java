@@ -0,0 +1,41 @@
+package net.sf.timeslottracker.gui;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Font;
+
+import javax.swing.JScrollPane;
+import javax.swing.JTextArea;
+
+/**
+ * Dialog showing diagnostics report: latencies of listeners, event dispatch
+ * thread stalls and statistics of other services.
+ */
+@SuppressWarnings("serial")
+public class DiagnosticsDialog extends AbstractSimplePanelDialog {
+
+  public DiagnosticsDialog(LayoutManager layoutManager) {
+    super(layoutManager, layoutManager.getCoreString("diagnosticsDialog.title"));
+  }
+
+  @Override
+  protected void fillDialogPanel(DialogPanel panel) {
+    Color background = getContentPane().getBackground();
+
+    String report = getLayoutManager().getTimeSlotTracker().getDiagnostics()
+        .getReport();
+    JTextArea textArea = textArea(report, background, false, false);
+    textArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, textArea.getFont()
+        .getSize()));
+
+    JScrollPane scrollPane = new JScrollPane(textArea);
+    scrollPane.setPreferredSize(new Dimension(700, 400));
+    panel.addRow(scrollPane);
+  }
+
+  @Override
+  protected void beforeShow() {
+    setResizable(true);
+  }
+
+}
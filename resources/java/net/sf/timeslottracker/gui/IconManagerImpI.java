@@ -1,9 +1,9 @@
 package net.sf.timeslottracker.gui;
 
 import java.io.IOException;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.swing.ImageIcon;
 
@@ -17,7 +17,7 @@ import javax.swing.ImageIcon;
 public class IconManagerImpI {
 
   private final Properties properties;
-  private final Map<String, ImageIcon> name2icon = new HashMap<String, ImageIcon>();
+  private final Map<String, ImageIcon> name2icon = new ConcurrentHashMap<String, ImageIcon>();
 
   public IconManagerImpI() throws IOException {
     properties = new Properties();
@@ -25,6 +25,15 @@ public class IconManagerImpI {
         .getResourceAsStream("/icons.properties"));
   }
 
+  /**
+   * Loads all icons, so they are ready before the gui is built.
+   */
+  public void preload() {
+    for (Object iconName : properties.keySet()) {
+      getIcon((String) iconName);
+    }
+  }
+
   /**
    * Return icon object for given icon name
    * 
@@ -87,9 +87,33 @@ public abstract class LayoutManager {
    */
   private ResourceBundle messages;
 
+  /** computes data for gui components in background */
+  private final ComputeService computeService = new ComputeService(this);
+
+  /** descriptions of all timeslots, created by a startup stage */
+  private DescriptionIndex descriptionIndex;
+
   protected LayoutManager() {
   }
 
+  /**
+   * @return service to compute data for gui components outside of the event
+   *         dispatch thread
+   */
+  public ComputeService getComputeService() {
+    return computeService;
+  }
+
+  /**
+   * @return index of timeslot descriptions used for suggestions
+   */
+  public synchronized DescriptionIndex getDescriptionIndex() {
+    if (descriptionIndex == null) {
+      descriptionIndex = new DescriptionIndex(this);
+    }
+    return descriptionIndex;
+  }
+
   /**
    * adds a specific action Listener. We can add some listener for a task-change
    * on a tasks tree or to listen to if a record change or something like that
@@ -377,7 +401,7 @@ public abstract class LayoutManager {
     }
 
     for (ActionListener actionListener : list) {
-      actionListener.actionPerformed(action);
+      timeSlotTracker.getDiagnostics().invoke(actionListener, action);
     }
   }
 
@@ -408,9 +432,12 @@ public abstract class LayoutManager {
   }
 
   /**
-   * Binds with a TimeSlotTracker core object
+   * Binds with a TimeSlotTracker core object.
+   * <p>
+   * It is called by {@link #init(TimeSlotTracker)}, but can be called before
+   * to use localized strings while the gui is not built yet.
    */
-  private void setTimeSlotTracker(TimeSlotTracker timeSlotTracker) {
+  public void setTimeSlotTracker(TimeSlotTracker timeSlotTracker) {
     this.timeSlotTracker = timeSlotTracker;
   }
 }
@@ -39,6 +39,9 @@ public class ImportFromCSVAction extends AbstractAction {
    * java.awt.event.ActionListener#actionPerformed(java.awt.event.ActionEvent)
    */
   public void actionPerformed(ActionEvent e) {
+    if (!layoutManager.getTimeSlotTracker().checkWritable()) {
+      return;
+    }
     final ImportFromCSVDialog dialog = new ImportFromCSVDialog(layoutManager);
     dialog.activate();
     if (dialog.isCanceled()) {
@@ -36,6 +36,9 @@ public class RemoveDataAction extends AbstractAction {
 
   @Override
   public void actionPerformed(ActionEvent e) {
+    if (!layoutManager.getTimeSlotTracker().checkWritable()) {
+      return;
+    }
     DataSource dataSource = layoutManager.getTimeSlotTracker().getDataSource();
     final Task root = dataSource.getRoot();
 
@@ -23,6 +23,9 @@ public class SaveDataAction extends AbstractAction {
 
   @Override
   public void actionPerformed(ActionEvent e) {
+    if (!layoutManager.getTimeSlotTracker().checkWritable()) {
+      return;
+    }
     layoutManager.getTimeSlotTracker().getDataSource().saveAll(true);
   }
 
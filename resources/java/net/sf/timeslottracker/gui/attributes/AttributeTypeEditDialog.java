@@ -17,6 +17,7 @@ import javax.swing.KeyStroke;
 
 import net.sf.timeslottracker.data.AttributeCategory;
 import net.sf.timeslottracker.data.AttributeType;
+import net.sf.timeslottracker.data.MonthGenerations;
 import net.sf.timeslottracker.gui.DialogPanel;
 import net.sf.timeslottracker.gui.LayoutManager;
 
@@ -224,6 +225,8 @@ public class AttributeTypeEditDialog extends JDialog {
       attributeType.setShowInTaskInfo(showInTaskInfo.isSelected());
       attributeType.setShowInTimeSlots(showInTimeSlots.isSelected());
       attributeType.setAutoAddToTimeSlots(autoAddToTimeSlots.isSelected());
+      // names and hiding of attributes are in cached report data
+      MonthGenerations.getInstance().changedAll();
       dispose();
     }
   }
@@ -102,6 +102,9 @@ public class AttributeTypesWindow extends JDialog {
    * Adds new attribute type.
    */
   void add() {
+    if (!layoutManager.getTimeSlotTracker().checkWritable()) {
+      return;
+    }
     AttributeTypeEditDialog dialog = new AttributeTypeEditDialog(layoutManager,
         null, false);
     AttributeType attributeType = dialog.getAttributeType();
@@ -118,6 +121,9 @@ public class AttributeTypesWindow extends JDialog {
    * Edits selected attribute type
    */
   void edit() {
+    if (!layoutManager.getTimeSlotTracker().checkWritable()) {
+      return;
+    }
     int rowNumber = table.getSelectedRow();
     if (rowNumber < 0) {
       return;
@@ -140,6 +146,9 @@ public class AttributeTypesWindow extends JDialog {
    * Removes selected attribute type
    */
   void remove() {
+    if (!layoutManager.getTimeSlotTracker().checkWritable()) {
+      return;
+    }
     int rowNumber = table.getSelectedRow();
     if (rowNumber < 0) {
       return;
@@ -177,6 +186,9 @@ public class AttributeTypesWindow extends JDialog {
    * Saves changes into timeSlotTracker structures
    */
   void saveChanges() {
+    if (!layoutManager.getTimeSlotTracker().checkWritable()) {
+      return;
+    }
     dataSource.saveAttributeTypes(tableModel.getRows());
     closeWindow();
   }
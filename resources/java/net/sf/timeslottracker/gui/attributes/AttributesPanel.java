@@ -161,6 +161,10 @@ public class AttributesPanel extends JPanel implements EditingWindow {
   }
 
   public void add() {
+    if (saveImmediately
+        && !layoutManager.getTimeSlotTracker().checkWritable()) {
+      return;
+    }
     AttributeEditDialog dialog = new AttributeEditDialog(layoutManager, null,
         true, false, false);
     Attribute attribute = dialog.getAttribute();
@@ -172,6 +176,10 @@ public class AttributesPanel extends JPanel implements EditingWindow {
   }
 
   public void edit() {
+    if (saveImmediately
+        && !layoutManager.getTimeSlotTracker().checkWritable()) {
+      return;
+    }
     int rowNumber = table.getSelectedRow();
     if (rowNumber < 0) {
       return;
@@ -189,6 +197,10 @@ public class AttributesPanel extends JPanel implements EditingWindow {
   }
 
   public void remove() {
+    if (saveImmediately
+        && !layoutManager.getTimeSlotTracker().checkWritable()) {
+      return;
+    }
     int rowNumber = table.getSelectedRow();
     if (rowNumber < 0) {
       return;
@@ -40,6 +40,9 @@ public class TaskHandler {
    * @return flag of successful operation
    */
   public boolean moveData(Transferable t, Task targetTask, int newNodeIndex) {
+    if (!timeSlotTracker.checkWritable()) {
+      return false;
+    }
     if (!t.isDataFlavorSupported(DataFlavors.TASK)) {
       return false;
     }
@@ -90,6 +93,9 @@ public class TaskHandler {
    */
   public Task copyData(Transferable t, Task targetTask, int newNodeIndex,
       boolean copyWithChildren) {
+    if (!timeSlotTracker.checkWritable()) {
+      return null;
+    }
     if (!t.isDataFlavorSupported(DataFlavors.TASK)) {
       return null;
     }
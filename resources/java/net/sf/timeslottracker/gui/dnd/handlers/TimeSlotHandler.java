@@ -62,6 +62,9 @@ public class TimeSlotHandler {
    * @return true - successful finishing, false - otherwise
    */
   public boolean importData(Transferable t, Task targetTask) {
+    if (!getTimeSlotTracker().checkWritable()) {
+      return false;
+    }
     if (!canImport(t.getTransferDataFlavors())) {
       return false;
     }
@@ -13,6 +13,7 @@ import javax.swing.JMenuItem;
 import javax.swing.JOptionPane;
 
 import net.sf.timeslottracker.gui.AboutDialog;
+import net.sf.timeslottracker.gui.DiagnosticsDialog;
 import net.sf.timeslottracker.gui.FileContentDialog;
 import net.sf.timeslottracker.gui.LayoutManager;
 import net.sf.timeslottracker.gui.NewVersionDialog;
@@ -225,6 +226,15 @@ public class MainMenuBar extends JMenuBar {
       }
     });
 
+    JMenuItem diagnosticsItem = new JMenuItem(
+        layoutManager.getString("menuBar.item.Help.Diagnostics"));
+    diagnosticsItem.setMnemonic(java.awt.event.KeyEvent.VK_D);
+    diagnosticsItem.addActionListener(new ActionListener() {
+      public void actionPerformed(ActionEvent ae) {
+        new DiagnosticsDialog(layoutManager).activate();
+      }
+    });
+
     JMenuItem aboutItem = new JMenuItem(
         layoutManager.getString("menuBar.item.Help.About"));
     aboutItem.setMnemonic(java.awt.event.KeyEvent.VK_A);
@@ -240,6 +250,7 @@ public class MainMenuBar extends JMenuBar {
     helpMenu.add(issuesItem);
     helpMenu.addSeparator();
     helpMenu.add(updateItem);
+    helpMenu.add(diagnosticsItem);
     helpMenu.addSeparator();
     helpMenu.add(aboutItem);
 
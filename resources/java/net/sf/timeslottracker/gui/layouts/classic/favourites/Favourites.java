@@ -170,11 +170,17 @@ public class Favourites extends JPanel implements FavouritesInterface,
   }
 
   public void add(Task task) {
+    if (!layoutManager.getTimeSlotTracker().checkWritable()) {
+      return;
+    }
     listModel.addElement(task);
     layoutManager.getTimeSlotTracker().fireTaskChanged(task);
   }
 
   public void remove(Task task) {
+    if (!layoutManager.getTimeSlotTracker().checkWritable()) {
+      return;
+    }
     listModel.removeElement(task);
     layoutManager.getTimeSlotTracker().fireTaskChanged(task);
   }
@@ -208,6 +208,9 @@ public class FavouritesPopupMenu extends JPopupMenu {
     }
 
     public void actionPerformed(ActionEvent e) {
+      if (!layoutManager.getTimeSlotTracker().checkWritable()) {
+        return;
+      }
       int selectedIndex = favouritesList.getSelectedIndex();
       if (selectedIndex <= 0) {
         return;
@@ -227,6 +230,9 @@ public class FavouritesPopupMenu extends JPopupMenu {
     }
 
     public void actionPerformed(ActionEvent e) {
+      if (!layoutManager.getTimeSlotTracker().checkWritable()) {
+        return;
+      }
       int selectedIndex = favouritesList.getSelectedIndex();
       DefaultListModel favouritesListModel = (DefaultListModel) favouritesList
           .getModel();
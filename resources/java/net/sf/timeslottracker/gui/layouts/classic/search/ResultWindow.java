@@ -6,15 +6,20 @@ import java.awt.Component;
 import java.awt.GridBagConstraints;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.awt.event.AdjustmentEvent;
+import java.awt.event.AdjustmentListener;
 import java.awt.event.KeyAdapter;
 import java.awt.event.KeyEvent;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
-import java.util.ArrayList;
+import java.util.Map;
 
 import javax.swing.JComponent;
+import javax.swing.JComboBox;
 import javax.swing.JDialog;
 import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JScrollBar;
 import javax.swing.JScrollPane;
 import javax.swing.JTable;
 import javax.swing.KeyStroke;
@@ -27,31 +32,37 @@ import net.sf.timeslottracker.core.TimeSlotTracker;
 import net.sf.timeslottracker.data.DataSource;
 import net.sf.timeslottracker.data.Task;
 import net.sf.timeslottracker.data.TimeSlot;
+import net.sf.timeslottracker.gui.ComputeService;
 import net.sf.timeslottracker.gui.DialogPanel;
 import net.sf.timeslottracker.gui.LayoutManager;
 import net.sf.timeslottracker.gui.TextAreaRenderer;
+import net.sf.timeslottracker.search.SearchResult;
 
 import org.apache.lucene.document.Document;
 
 /**
- * Shown after a search process. Contains found results.
+ * Shown after a search process. Contains found results, which can be narrowed
+ * to a month, a task or a value of list of values attribute.
  * 
  * @author User: zgibek Date: 2008-09-02 Time: 23:39:05 $Id: ResultWindow.java
  *         800 2009-05-16 01:53:21Z cnitsa $
  */
 public class ResultWindow extends JDialog {
   private LayoutManager layoutManager;
-  private final ArrayList rows;
+  private final SearchResult result;
   private TimeSlotTracker timeSlotTracker;
   private DialogPanel dialog;
   private ResultsTableModel tableModel;
   private JTable table;
+  private JComboBox<Facet> monthFacet;
+  private JComboBox<Facet> taskFacet;
+  private JComboBox<Facet> attributeFacet;
 
-  public ResultWindow(LayoutManager layoutManager, ArrayList rows) {
+  public ResultWindow(LayoutManager layoutManager, SearchResult result) {
     super(layoutManager.getTimeSlotTracker().getRootFrame(), layoutManager
         .getString("search.resultWindow.title"), true);
     this.layoutManager = layoutManager;
-    this.rows = rows;
+    this.result = result;
     this.timeSlotTracker = layoutManager.getTimeSlotTracker();
     createWindow();
     pack();
@@ -77,13 +88,29 @@ public class ResultWindow extends JDialog {
     dialog.setBackground(background);
     getContentPane().add(dialog, BorderLayout.CENTER);
 
-    dialog.addRow(layoutManager.getString("search.resultWindow.topRow"));
+    dialog.addRow(layoutManager.getString("search.resultWindow.topRow") + " "
+        + result.getTotalHits());
+    createFacets();
     createTable();
-    dialog.fillToEnd(new JScrollPane(table));
+    JScrollPane scrollPane = new JScrollPane(table);
+    // next page is loaded when the last loaded rows are shown
+    scrollPane.getVerticalScrollBar().addAdjustmentListener(
+        new AdjustmentListener() {
+          public void adjustmentValueChanged(AdjustmentEvent e) {
+            JScrollBar scrollBar = (JScrollBar) e.getAdjustable();
+            if (!e.getValueIsAdjusting()
+                && scrollBar.getValue() + scrollBar.getVisibleAmount() >= scrollBar
+                    .getMaximum()
+                    - table.getRowHeight() * 5) {
+              tableModel.loadMore();
+            }
+          }
+        });
+    dialog.fillToEnd(scrollPane);
   }
 
   private void createTable() {
-    tableModel = new ResultsTableModel(this, layoutManager, rows);
+    tableModel = new ResultsTableModel(this, layoutManager, result);
     table = new JTable();
     table.setAutoCreateColumnsFromModel(false);
     table.setAutoResizeMode(JTable.AUTO_RESIZE_OFF);
@@ -102,6 +129,104 @@ public class ResultWindow extends JDialog {
     table.addKeyListener(new KeyListener());
   }
 
+  private void createFacets() {
+    String all = layoutManager.getString("search.resultWindow.facet.all");
+    monthFacet = new JComboBox<Facet>();
+    monthFacet.addItem(new Facet(null, all));
+    for (Map.Entry<String, Integer> month : result.getMonthCounts()
+        .entrySet()) {
+      String key = month.getKey();
+      monthFacet.addItem(new Facet(key, key.substring(0, 4) + "-"
+          + key.substring(4) + " (" + month.getValue() + ")"));
+    }
+    taskFacet = new JComboBox<Facet>();
+    taskFacet.addItem(new Facet(null, all));
+    for (Map.Entry<String, Integer> task : result.getTaskCounts().entrySet()) {
+      taskFacet.addItem(new Facet(task.getKey(), result.getTaskName(task
+          .getKey())
+          + " (" + task.getValue() + ")"));
+    }
+    attributeFacet = new JComboBox<Facet>();
+    attributeFacet.addItem(new Facet(null, all));
+    for (Map.Entry<String, Map<String, Integer>> type : result
+        .getAttributeCounts().entrySet()) {
+      for (Map.Entry<String, Integer> value : type.getValue().entrySet()) {
+        attributeFacet.addItem(new Facet(type.getKey(), value.getKey(), type
+            .getKey()
+            + ": " + value.getKey() + " (" + value.getValue() + ")"));
+      }
+    }
+    ActionListener narrowAction = new ActionListener() {
+      public void actionPerformed(ActionEvent e) {
+        narrow();
+      }
+    };
+    monthFacet.addActionListener(narrowAction);
+    taskFacet.addActionListener(narrowAction);
+    attributeFacet.addActionListener(narrowAction);
+
+    JPanel facets = new JPanel();
+    facets.add(new JLabel(layoutManager
+        .getString("search.resultWindow.facet.month")));
+    facets.add(monthFacet);
+    facets.add(new JLabel(layoutManager
+        .getString("search.resultWindow.facet.task")));
+    facets.add(taskFacet);
+    if (attributeFacet.getItemCount() > 1) {
+      facets.add(new JLabel(layoutManager
+          .getString("search.resultWindow.facet.attribute")));
+      facets.add(attributeFacet);
+    }
+    dialog.addRow(facets);
+  }
+
+  /**
+   * Shows only found documents matching selected month, task and attribute
+   * value.
+   */
+  private void narrow() {
+    final String month = ((Facet) monthFacet.getSelectedItem()).value;
+    final String taskId = ((Facet) taskFacet.getSelectedItem()).value;
+    final Facet attribute = (Facet) attributeFacet.getSelectedItem();
+    layoutManager.getComputeService().submit(this,
+        new ComputeService.Computation<SearchResult>() {
+          @Override
+          protected SearchResult compute() {
+            return result.narrow(month, taskId, attribute.type,
+                attribute.value);
+          }
+
+          @Override
+          protected void done(SearchResult narrowed) {
+            tableModel.setResult(narrowed);
+          }
+        });
+  }
+
+  /**
+   * Item of facet combo box.
+   */
+  private static class Facet {
+    /** attribute type name, only for attribute facet */
+    private final String type;
+    private final String value;
+    private final String label;
+
+    private Facet(String value, String label) {
+      this(null, value, label);
+    }
+
+    private Facet(String type, String value, String label) {
+      this.type = type;
+      this.value = value;
+      this.label = label;
+    }
+
+    public String toString() {
+      return label;
+    }
+  }
+
   private class KeyListener extends KeyAdapter {
     public void keyPressed(KeyEvent event) {
       int keyCode = event.getKeyCode();
@@ -125,13 +250,19 @@ public class ResultWindow extends JDialog {
     //System.out.println("Selected row: " + row);
     //System.out.println("tableModel.getValueAt(row, 1) = "
         //+ tableModel.getValueAt(row, 1));
-    Document doc = tableModel.getDocument(row);
+    showDocument(layoutManager, tableModel.getDocument(row));
+  }
+
+  /**
+   * Selects task (and optionally timeslot) of the found document.
+   */
+  static void showDocument(LayoutManager layoutManager, Document doc) {
     if (doc == null) {
       return;
     }
     String task_id = doc.get("task_id");
     String timeslot_id = doc.get("timeslot_id");
-    DataSource ds = timeSlotTracker.getDataSource();
+    DataSource ds = layoutManager.getTimeSlotTracker().getDataSource();
     try {
       Task task = ds.getTask(Integer.valueOf(task_id));
       layoutManager.getTasksInterface().selectTask(task);
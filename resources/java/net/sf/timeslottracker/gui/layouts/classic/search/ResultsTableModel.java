@@ -1,18 +1,22 @@
 package net.sf.timeslottracker.gui.layouts.classic.search;
 
-import java.util.ArrayList;
+import java.util.List;
 
 import javax.swing.JLabel;
 import javax.swing.table.AbstractTableModel;
 
 import net.sf.timeslottracker.gui.Column;
+import net.sf.timeslottracker.gui.ComputeService;
 import net.sf.timeslottracker.gui.LayoutManager;
+import net.sf.timeslottracker.search.SearchResult;
 
 import org.apache.lucene.document.Document;
-import org.apache.lucene.document.Field;
 
 /**
  * Table model for search result list.
+ * <p/>
+ * Shows loaded documents of the result, next ones are loaded on demand with
+ * {@link #loadMore()} in background.
  * 
  * @author User: zgibek Date: 2008-09-03 Time: 00:00:34 $Id:
  *         ResultsTableModel.java 800 2009-05-16 01:53:21Z cnitsa $
@@ -22,30 +26,63 @@ public class ResultsTableModel extends AbstractTableModel {
   private Column[] columns;
   private final ResultWindow resultWindow;
   private final LayoutManager layoutManager;
-  private ArrayList rows;
+  private SearchResult result;
+  private List<Document> rows;
+  /** a page is being loaded */
+  private boolean loading;
 
   public ResultsTableModel(ResultWindow resultWindow,
-      LayoutManager layoutManager, ArrayList rows) {
+      LayoutManager layoutManager, SearchResult result) {
     this.resultWindow = resultWindow;
     this.layoutManager = layoutManager;
-    this.rows = rows;
-    localizeRows();
+    this.result = result;
+    this.rows = result.getDocuments();
     setColumns();
   }
 
   /**
-   * Translate strings in results to localized versions.
+   * Shows another (narrowed) result.
    */
-  private void localizeRows() {
-    if (rows != null) {
-      for (Object o : rows) {
-        Document d = (Document) o;
-        String localizedString = layoutManager
-            .getString("search.resultWindow.type." + d.get("type"));
-        Field type = d.getField("type");
-        type.setValue(localizedString);
-      }
+  public void setResult(SearchResult result) {
+    layoutManager.getComputeService().cancel(this);
+    loading = false;
+    this.result = result;
+    this.rows = result.getDocuments();
+    fireTableDataChanged();
+  }
+
+  /**
+   * Loads next page of the result, if there is any.
+   */
+  public void loadMore() {
+    if (loading || !result.hasMore()) {
+      return;
     }
+    loading = true;
+    final SearchResult loaded = result;
+    layoutManager.getComputeService().submit(this,
+        new ComputeService.Computation<List<Document>>() {
+          @Override
+          protected List<Document> compute() {
+            return loaded.readMore();
+          }
+
+          @Override
+          protected void done(List<Document> page) {
+            loading = false;
+            int first = rows.size();
+            loaded.addPage(page);
+            if (!page.isEmpty()) {
+              fireTableRowsInserted(first, rows.size() - 1);
+            }
+          }
+
+          @Override
+          protected void failed(Exception exception) {
+            loading = false;
+            super.failed(exception);
+          }
+        });
   }
 
   private void setColumns() {
@@ -81,7 +118,8 @@ public class ResultsTableModel extends AbstractTableModel {
     Document doc = getDocument(rowIndex);
     switch (columnIndex) {
     case 0:
-      return doc.get("type");
+      return layoutManager.getString("search.resultWindow.type."
+          + doc.get("type"));
     case 1:
       return doc.get("task_name");
     case 2:
@@ -107,7 +145,7 @@ public class ResultsTableModel extends AbstractTableModel {
     if (rowIndex < 0 || rowIndex >= getRowCount()) {
       return null;
     }
-    return (Document) rows.get(rowIndex);
+    return rows.get(rowIndex);
   }
 
   public String getColumnName(int columnNo) {
@@ -2,44 +2,84 @@ package net.sf.timeslottracker.gui.layouts.classic.search;
 
 import java.awt.BorderLayout;
 import java.awt.Dimension;
+import java.awt.event.ActionEvent;
 import java.awt.event.KeyAdapter;
 import java.awt.event.KeyEvent;
-import java.util.ArrayList;
-import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import javax.swing.JCheckBox;
 import javax.swing.JLabel;
+import javax.swing.JMenuItem;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
+import javax.swing.JPopupMenu;
 import javax.swing.JProgressBar;
 import javax.swing.JTextField;
 import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 
 import net.sf.timeslottracker.core.Action;
 import net.sf.timeslottracker.core.ActionListener;
 import net.sf.timeslottracker.core.SearchEngine;
 import net.sf.timeslottracker.core.TimeSlotTracker;
-import net.sf.timeslottracker.core.TimeSlotTrackerException;
 import net.sf.timeslottracker.data.DataLoadedListener;
 import net.sf.timeslottracker.data.DataSource;
 import net.sf.timeslottracker.data.Task;
 import net.sf.timeslottracker.data.TaskChangedListener;
 import net.sf.timeslottracker.data.TimeSlot;
 import net.sf.timeslottracker.data.TimeSlotChangedListener;
+import net.sf.timeslottracker.gui.ComputeService;
 import net.sf.timeslottracker.gui.LayoutManager;
 import net.sf.timeslottracker.search.LuceneSearch;
+import net.sf.timeslottracker.search.SearchResult;
 import net.sf.timeslottracker.utils.StringUtils;
 
+import org.apache.lucene.document.Document;
+
 /**
  * Used to query the database and to shows the results.
+ * <p/>
+ * While user types, the best found documents are shown in a popup. The index
+ * is searched when user stops typing for {@link #LIVE_SEARCH_DELAY}, a
+ * search still running is cancelled by a next one. When user only adds
+ * letters to a word, the shown result is refined in memory.
  * 
  * @author User: zgibek Date: 2008-08-30 Time: 18:40:01 $Id: SearchPanel.java
  *         800 2009-05-16 01:53:21Z cnitsa $
  */
 public class SearchPanel extends JPanel {
+  /** delay (in milliseconds) after the last keystroke before live search */
+  private static final int LIVE_SEARCH_DELAY = 200;
+
+  /** max number of documents shown in live search popup */
+  private static final int LIVE_ROWS = 8;
+
+  /** max length of document content shown in live search popup */
+  private static final int LIVE_CONTENT_LENGTH = 60;
+
+  private static final String LIVE_SEARCH = "search.live";
+
+  private static final String SEARCH = "search";
+
   private JTextField searchField = new JTextField();
 
   private JProgressBar progressBar = new JProgressBar();
 
+  private JCheckBox withinSelected = new JCheckBox();
+
+  private JPopupMenu livePopup = new JPopupMenu();
+
+  private Timer liveTimer;
+
+  /** result shown in live search popup */
+  private SearchResult liveResult;
+
+  /** cancels the running live search */
+  private AtomicBoolean liveCancelled = new AtomicBoolean();
+
   private SearchEngine engine;
 
   private TimeSlotTracker tst;
@@ -55,6 +95,7 @@ public class SearchPanel extends JPanel {
     tst.addActionListener(new FoundAction(), SearchEngine.SEARCHING_FINISHED);
     tst.addActionListener(new DataLoadedAction());
     tst.addActionListener(new TaskChangedAction());
+    tst.addActionListener(new TaskMovedAction(), DataSource.TASK_MOVED);
     layoutManager.addActionListener(new TimeSlotChangedAction());
     createGui();
   }
@@ -79,39 +120,185 @@ public class SearchPanel extends JPanel {
     add(progressBar, BorderLayout.CENTER);
 
     searchField.setEnabled(false);
+    searchField.setToolTipText(layoutManager
+        .getString("taskstree.search.tooltip"));
     searchField.addKeyListener(new KeyAdapter() {
       @Override
       public void keyReleased(KeyEvent e) {
         String text = searchField.getText();
         if (e.getKeyCode() == KeyEvent.VK_ENTER && !StringUtils.isBlank(text)) {
-          try {
-            e.consume();
-            searchField.setEnabled(false);
-            // because we accept the use of ":" not as a keyword description we
-            // have to escape it
-            StringBuffer textBuffer = new StringBuffer(text);
-            int start = 0;
-            while (textBuffer.indexOf(":", start) >= 0) {
-              int i = textBuffer.indexOf(":", start);
-              textBuffer.insert(i, '\\');
-              start = i + 2;
-            }
-            text = textBuffer.toString();
-            //System.out.println("Searching for [" + text + "]");
-            engine.doSearch(text);
-          } catch (TimeSlotTrackerException e1) {
-            e1.printStackTrace();
-            searchField.setEnabled(true);
-          }
+          e.consume();
+          stopLiveSearch();
+          startSearch(text);
         }
       }
     });
 
-    Dimension preferredSize = new Dimension(220, 22);
+    withinSelected.setText(layoutManager.getString("taskstree.search.within"));
+    withinSelected.setToolTipText(layoutManager
+        .getString("taskstree.search.within.tooltip"));
+    withinSelected.setFocusable(false);
+    withinSelected.addActionListener(new java.awt.event.ActionListener() {
+      public void actionPerformed(ActionEvent e) {
+        liveResult = null;
+        textChanged();
+      }
+    });
+    add(withinSelected, BorderLayout.EAST);
+
+    searchField.getDocument().addDocumentListener(new DocumentListener() {
+      public void insertUpdate(DocumentEvent e) {
+        textChanged();
+      }
+
+      public void removeUpdate(DocumentEvent e) {
+        textChanged();
+      }
+
+      public void changedUpdate(DocumentEvent e) {
+      }
+    });
+    liveTimer = new Timer(LIVE_SEARCH_DELAY,
+        new java.awt.event.ActionListener() {
+          public void actionPerformed(ActionEvent e) {
+            startLiveSearch();
+          }
+        });
+    liveTimer.setRepeats(false);
+    // typing continues in the search field
+    livePopup.setFocusable(false);
+
+    Dimension preferredSize = new Dimension(300, 22);
     setPreferredSize(preferredSize);
     setMaximumSize(preferredSize);
   }
 
+  private Task getWithin() {
+    if (!withinSelected.isSelected()) {
+      return null;
+    }
+    return layoutManager.getTasksInterface().getSelected();
+  }
+
+  /**
+   * Refines the shown result or searches again after a delay.
+   */
+  private void textChanged() {
+    String text = searchField.getText();
+    if (!searchField.isEnabled() || StringUtils.isBlank(text)) {
+      stopLiveSearch();
+      return;
+    }
+    SearchResult refined = liveResult == null ? null : liveResult.refine(
+        text, getWithin());
+    if (refined != null) {
+      liveTimer.stop();
+      cancelLiveSearch();
+      showLiveResult(refined);
+    } else {
+      liveTimer.restart();
+    }
+  }
+
+  private void startLiveSearch() {
+    final String text = searchField.getText();
+    final Task within = getWithin();
+    liveCancelled.set(true);
+    final AtomicBoolean cancelled = new AtomicBoolean();
+    liveCancelled = cancelled;
+    layoutManager.getComputeService().submit(LIVE_SEARCH,
+        new ComputeService.Computation<SearchResult>() {
+          @Override
+          protected SearchResult compute() throws Exception {
+            return engine.liveSearch(text, within, cancelled);
+          }
+
+          @Override
+          protected void done(SearchResult result) {
+            if (result != null && searchField.isEnabled()) {
+              showLiveResult(result);
+            }
+          }
+        });
+  }
+
+  /**
+   * Searches in background, the result is shown by {@link FoundAction}.
+   */
+  private void startSearch(final String text) {
+    final Task within = getWithin();
+    searchField.setEnabled(false);
+    layoutManager.getComputeService().submit(SEARCH,
+        new ComputeService.Computation<SearchResult>() {
+          @Override
+          protected SearchResult compute() throws Exception {
+            return engine.doSearch(text, within);
+          }
+
+          @Override
+          protected void done(SearchResult result) {
+            searchField.setEnabled(true);
+            searchField.transferFocus();
+          }
+
+          @Override
+          protected void failed(Exception exception) {
+            searchField.setEnabled(true);
+            super.failed(exception);
+          }
+        });
+  }
+
+  private void cancelLiveSearch() {
+    liveCancelled.set(true);
+    layoutManager.getComputeService().cancel(LIVE_SEARCH);
+  }
+
+  private void stopLiveSearch() {
+    liveTimer.stop();
+    cancelLiveSearch();
+    liveResult = null;
+    livePopup.setVisible(false);
+  }
+
+  private void showLiveResult(SearchResult result) {
+    liveResult = result;
+    livePopup.removeAll();
+    List<Document> documents = result.getDocuments();
+    for (int i = 0; i < Math.min(LIVE_ROWS, documents.size()); i++) {
+      final Document document = documents.get(i);
+      JMenuItem item = new JMenuItem(getLiveLabel(document));
+      item.addActionListener(new java.awt.event.ActionListener() {
+        public void actionPerformed(ActionEvent e) {
+          stopLiveSearch();
+          ResultWindow.showDocument(layoutManager, document);
+        }
+      });
+      livePopup.add(item);
+    }
+    JMenuItem total = new JMenuItem(layoutManager.getString(
+        "taskstree.search.live.total", result.getTotalHits()));
+    total.setEnabled(false);
+    livePopup.add(total);
+    if (livePopup.isVisible()) {
+      livePopup.pack();
+    } else if (searchField.isShowing()) {
+      livePopup.show(searchField, 0, searchField.getHeight());
+    }
+  }
+
+  private String getLiveLabel(Document document) {
+    String label = document.get("task_name");
+    String content = document.get("contents");
+    if (!"task".equals(document.get("type")) && content != null) {
+      if (content.length() > LIVE_CONTENT_LENGTH) {
+        content = content.substring(0, LIVE_CONTENT_LENGTH) + "...";
+      }
+      label += ": " + content;
+    }
+    return label;
+  }
+
   private class IndexCreatedAction implements ActionListener {
     public void actionPerformed(Action action) {
       //System.out.println(action.toString());
@@ -148,26 +335,25 @@ public class SearchPanel extends JPanel {
   private class FoundAction implements DataLoadedListener {
     public void actionPerformed(Action action) {
       if (action == null || action.getParam() == null
-          || !(action.getParam() instanceof Collection)) {
-        tst.errorLog("FoundAction triggered, but there is no collection in parm.");
+          || !(action.getParam() instanceof SearchResult)) {
+        tst.errorLog("FoundAction triggered, but there is no result in parm.");
         return;
       }
-      ArrayList found = (ArrayList) action.getParam();
-      if (found.isEmpty()) {
-        SwingUtilities.invokeLater(new Runnable() {
-          public void run() {
+      final SearchResult found = (SearchResult) action.getParam();
+      // fired in the search thread
+      SwingUtilities.invokeLater(new Runnable() {
+        public void run() {
+          if (found.isEmpty()) {
             String title = layoutManager.getString("search.nothingFound.title");
             String msg = layoutManager.getString("search.nothingFound.msg");
             JOptionPane.showMessageDialog(SearchPanel.this, msg, title,
                 JOptionPane.WARNING_MESSAGE);
+          } else {
+            // show window with results
+            new ResultWindow(layoutManager, found);
           }
-        });
-      } else {
-        // show window with results
-        ResultWindow resultWindow = new ResultWindow(layoutManager, found);
-      }
-      searchField.setEnabled(true);
-      searchField.transferFocus();
+        }
+      });
     }
   }
 
@@ -181,6 +367,16 @@ public class SearchPanel extends JPanel {
     }
   }
 
+  /**
+   * Listener to action fired when a task was moved or deleted, its subtasks
+   * are updated with it
+   */
+  private class TaskMovedAction implements ActionListener {
+    public void actionPerformed(Action action) {
+      engine.update((Task) action.getParam());
+    }
+  }
+
   /**
    * Listener to action fired when a timeslot was changed
    */
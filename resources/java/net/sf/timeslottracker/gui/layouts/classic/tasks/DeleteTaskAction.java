@@ -38,6 +38,9 @@ class DeleteTaskAction extends AbstractAction {
   }
 
   public void actionPerformed(ActionEvent e) {
+    if (!layoutManager.getTimeSlotTracker().checkWritable()) {
+      return;
+    }
     TreePath selectedPath = tree.getSelectionPath();
     if (selectedPath == null) {
       return;
@@ -4,8 +4,11 @@ import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.KeyAdapter;
 import java.awt.event.KeyEvent;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.GregorianCalendar;
+import java.util.Iterator;
+import java.util.List;
 
 import javax.swing.*;
 
@@ -16,7 +19,9 @@ import net.sf.timeslottracker.core.TimeSlotTracker;
 import net.sf.timeslottracker.core.TimeoutTimer;
 import net.sf.timeslottracker.data.Task;
 import net.sf.timeslottracker.data.TaskChangedListener;
+import net.sf.timeslottracker.data.TimeSlot;
 import net.sf.timeslottracker.data.TimeSlotChangedListener;
+import net.sf.timeslottracker.gui.ComputeService;
 import net.sf.timeslottracker.gui.DialogPanel;
 import net.sf.timeslottracker.gui.LayoutManager;
 import net.sf.timeslottracker.gui.TaskInfoInterface;
@@ -27,6 +32,7 @@ import net.sf.timeslottracker.gui.attributes.AttributesPanel.AttributesPanelList
 import net.sf.timeslottracker.gui.dateperiod.DatePeriod;
 import net.sf.timeslottracker.gui.listeners.TaskSelectionChangeListener;
 import net.sf.timeslottracker.utils.StringUtils;
+import net.sf.timeslottracker.utils.TaskIterator;
 
 /**
  * A module for timeslottracker to present selected task data.
@@ -52,6 +58,9 @@ public class TaskInfo extends JTabbedPane implements TaskInfoInterface {
 
   static final String ACTION_UPDATE_TIMERS = "taskInfo.timePanel.updateTimers";
 
+  /** key of times computation in compute service */
+  private static final String TIMES_COMPUTATION = "taskInfo.times";
+
   public LayoutManager layoutManager;
 
   private final TimeSlotTracker timeSlotTracker;
@@ -160,6 +169,10 @@ public class TaskInfo extends JTabbedPane implements TaskInfoInterface {
     if (desctiption.equals(actualTask.getDescription())) {
       return;
     }
+    if (!timeSlotTracker.checkWritable()) {
+      taskDescriptionArea.setText(actualTask.getDescription());
+      return;
+    }
     actualTask.setDescription(desctiption);
     System.out.println("saved");
     timeSlotTracker.fireTaskChanged(actualTask);
@@ -195,13 +208,52 @@ public class TaskInfo extends JTabbedPane implements TaskInfoInterface {
   }
 
   private void updateTimes() {
-    if (actualTask == null) {
+    final Task task = actualTask;
+    ComputeService computeService = layoutManager.getComputeService();
+    if (task == null) {
+      computeService.cancel(TIMES_COMPUTATION);
       timeThisTask.clear();
       timeIncludingSubtasks.clear();
-    } else {
-      timeThisTask.setTimes(getTimes(false));
-      timeIncludingSubtasks.setTimes(getTimes(true));
+      return;
+    }
+
+    // periods and timeslots are read here, as data are changed in this
+    // thread, times are summed in background
+    final Date[] periodsThisTask = getPeriods(false);
+    final Date[] periodsIncludingSubtasks = getPeriods(true);
+    final List<TimeSlot> taskTimeslots = new ArrayList<TimeSlot>();
+    final List<TimeSlot> subtreeTimeslots = new ArrayList<TimeSlot>();
+    Iterator<Task> tasks = new TaskIterator(task);
+    while (tasks.hasNext()) {
+      Task subtask = tasks.next();
+      if (subtask.getTimeslots() == null) {
+        continue;
+      }
+      if (subtask == task) {
+        taskTimeslots.addAll(subtask.getTimeslots());
+      }
+      subtreeTimeslots.addAll(subtask.getTimeslots());
     }
+    computeService.submit(TIMES_COMPUTATION,
+        new ComputeService.Computation<String[][]>() {
+          @Override
+          protected String[][] compute() {
+            return new String[][] { getTimes(taskTimeslots, periodsThisTask),
+                getTimes(subtreeTimeslots, periodsIncludingSubtasks) };
+          }
+
+          @Override
+          protected void done(String[][] times) {
+            timeThisTask.setTimes(times[0]);
+            timeIncludingSubtasks.setTimes(times[1]);
+          }
+
+          @Override
+          protected void busy(boolean busy) {
+            timeThisTask.setBusy(busy);
+            timeIncludingSubtasks.setBusy(busy);
+          }
+        });
   }
 
   private void updateAttributes() {
@@ -212,8 +264,12 @@ public class TaskInfo extends JTabbedPane implements TaskInfoInterface {
     }
   }
 
-  private String[] getTimes(boolean includeSubtasks) {
-    String[] times = new String[4];
+  /**
+   * Returns periods (start and stop date pairs) to count times for: all time,
+   * selected day, week and month.
+   */
+  private Date[] getPeriods(boolean includeSubtasks) {
+    Date[] periods = new Date[8];
     Date selectedDay;
     Date selectedWeek;
     Date selectedMonth;
@@ -241,10 +297,10 @@ public class TaskInfo extends JTabbedPane implements TaskInfoInterface {
     calendar.add(GregorianCalendar.DAY_OF_MONTH, 1);
     Date stopDate = calendar.getTime();
 
-    times[0] = layoutManager.formatDuration(actualTask.getTime(includeSubtasks,
-        getStartDate(null), getStopDate(null))); // null - means all time
-    times[1] = layoutManager.formatDuration(actualTask.getTime(includeSubtasks,
-        getStartDate(startDate), getStopDate(stopDate)));
+    periods[0] = getStartDate(null); // null - means all time
+    periods[1] = getStopDate(null);
+    periods[2] = getStartDate(startDate);
+    periods[3] = getStopDate(stopDate);
 
     if (selectedWeek != null) {
       aktDay.setTime(selectedWeek);
@@ -262,8 +318,8 @@ public class TaskInfo extends JTabbedPane implements TaskInfoInterface {
     startDate = calendar.getTime();
     calendar.add(GregorianCalendar.DAY_OF_MONTH, 7);
     stopDate = calendar.getTime();
-    times[2] = layoutManager.formatDuration(actualTask.getTime(includeSubtasks,
-        getStartDate(startDate), getStopDate(stopDate)));
+    periods[4] = getStartDate(startDate);
+    periods[5] = getStopDate(stopDate);
 
     if (selectedMonth != null) {
       aktDay.setTime(selectedMonth);
@@ -273,9 +329,29 @@ public class TaskInfo extends JTabbedPane implements TaskInfoInterface {
     startDate = calendar.getTime();
     calendar.add(GregorianCalendar.MONTH, 1);
     stopDate = calendar.getTime();
-    times[3] = layoutManager.formatDuration(actualTask.getTime(includeSubtasks,
-        getStartDate(startDate), getStopDate(stopDate)));
+    periods[6] = getStartDate(startDate);
+    periods[7] = getStopDate(stopDate);
 
+    return periods;
+  }
+
+  /**
+   * Counts task's times in given periods. It doesn't touch any gui component,
+   * so it can be called in background.
+   */
+  private String[] getTimes(List<TimeSlot> timeslots, Date[] periods) {
+    String[] times = new String[periods.length / 2];
+    for (int i = 0; i < times.length; i++) {
+      long time = 0;
+      for (TimeSlot timeslot : timeslots) {
+        Long timeslotTime = timeslot.getTimeAsLong(periods[2 * i],
+            periods[2 * i + 1]);
+        if (timeslotTime != null) {
+          time += timeslotTime.longValue();
+        }
+      }
+      times[i] = layoutManager.formatDuration(time);
+    }
     return times;
   }
 
@@ -182,6 +182,17 @@ class TaskInfoTimePanel extends JPanel {
     return selectedMonth;
   }
 
+  /**
+   * Shows (or hides) that times are being computed. Last values stay visible,
+   * just greyed.
+   */
+  void setBusy(boolean busy) {
+    allValue.setEnabled(!busy);
+    dayValue.setEnabled(!busy);
+    weekValue.setEnabled(!busy);
+    monthValue.setEnabled(!busy);
+  }
+
   void clear() {
     allValue.setText("");
     dayValue.setText("");
@@ -80,6 +80,9 @@ class TaskTreeTransferHandler extends TransferHandler {
   }
 
   public boolean importData(JComponent comp, final Transferable t) {
+    if (!layoutManager.getTimeSlotTracker().checkWritable()) {
+      return false;
+    }
     copyWithChildren = false; // by default do not copy children
 
     final TaskTreeNode targetTaskNode = (TaskTreeNode) tasksTree.tree
@@ -338,6 +338,9 @@ public class TasksTree extends JPanel implements TasksInterface,
   }
 
   public void addTaskFromIssueTracker() {
+    if (!layoutManager.getTimeSlotTracker().checkWritable()) {
+      return;
+    }
     Issue issue;
     try {
 
@@ -457,6 +460,9 @@ public class TasksTree extends JPanel implements TasksInterface,
   }
 
   public void add(String taskName, Collection<Attribute> attributes) {
+    if (!layoutManager.getTimeSlotTracker().checkWritable()) {
+      return;
+    }
     TaskTreeNode selectedTaskNode = getSelectedTask();
 
     Task parentTask = null;
@@ -479,6 +485,9 @@ public class TasksTree extends JPanel implements TasksInterface,
 
   @Override
   public void addWoDialog(String name, Collection<Attribute> attributes) {
+    if (!layoutManager.getTimeSlotTracker().checkWritable()) {
+      return;
+    }
     TaskTreeNode selectedTaskNode = getSelectedTask();
 
     Task parentTask = null;
@@ -512,6 +521,9 @@ public class TasksTree extends JPanel implements TasksInterface,
   }
 
   public void editSelected() {
+    if (!layoutManager.getTimeSlotTracker().checkWritable()) {
+      return;
+    }
     TaskTreeNode selectedTaskNode = getSelectedTask();
     if (selectedTaskNode == null) {
       return;
@@ -530,6 +542,9 @@ public class TasksTree extends JPanel implements TasksInterface,
    * Creates a sibling task ("clone").
    */
   public void cloneSelected() {
+    if (!layoutManager.getTimeSlotTracker().checkWritable()) {
+      return;
+    }
     TaskTreeNode selectedTaskNode = getSelectedTask();
     if (selectedTaskNode == null) {
       return;
@@ -654,6 +669,9 @@ public class TasksTree extends JPanel implements TasksInterface,
    * Hide/unhide selected task in tree
    */
   public void hideSelectedTask() {
+    if (!layoutManager.getTimeSlotTracker().checkWritable()) {
+      return;
+    }
     TaskTreeNode selectedTaskNode = getSelectedTask();
     if (selectedTaskNode == null) {
       return;
@@ -816,6 +834,9 @@ public class TasksTree extends JPanel implements TasksInterface,
   }
 
   protected void moveSelectedTaskUp(TaskTreeNode selectedTaskNode) {
+    if (!layoutManager.getTimeSlotTracker().checkWritable()) {
+      return;
+    }
     Task selectedTask = selectedTaskNode.getTask();
     TaskTreeNode parentNode = (TaskTreeNode) selectedTaskNode.getParent();
     if (parentNode == null) {
@@ -836,6 +857,9 @@ public class TasksTree extends JPanel implements TasksInterface,
   }
 
   protected void moveSelectedTaskDown(TaskTreeNode selectedTaskNode) {
+    if (!layoutManager.getTimeSlotTracker().checkWritable()) {
+      return;
+    }
     Task selectedTask = selectedTaskNode.getTask();
     TaskTreeNode parentNode = (TaskTreeNode) selectedTaskNode.getParent();
     if (parentNode == null) {
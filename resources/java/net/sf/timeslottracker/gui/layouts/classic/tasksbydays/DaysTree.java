@@ -37,6 +37,7 @@ import net.sf.timeslottracker.data.TimeSlot;
 import net.sf.timeslottracker.filters.FilterUtils;
 import net.sf.timeslottracker.filters.TimeSlotStartedInPeriod;
 import net.sf.timeslottracker.filters.TreeNodeFilter;
+import net.sf.timeslottracker.gui.ComputeService;
 import net.sf.timeslottracker.gui.DialogPanel;
 import net.sf.timeslottracker.gui.LayoutManager;
 import net.sf.timeslottracker.gui.TasksByDaysInterface;
@@ -72,8 +73,16 @@ public class DaysTree extends JPanel implements TasksByDaysInterface,
 
   private final LayoutManager layoutManager;
 
-  // year, month, week, day
-  private final Map<Date, Map<Date, Map<String, Map<Date, List<Task>>>>> records = new HashMap<Date, Map<Date, Map<String, Map<Date, List<Task>>>>>();
+  /** key of tree computation in compute service */
+  private static final String TREE_COMPUTATION = "daysTree.tree";
+
+  /**
+   * Tasks grouped by year, month, week and day.
+   */
+  private static class Records extends
+      HashMap<Date, Map<Date, Map<String, Map<Date, List<Task>>>>> {
+    private static final long serialVersionUID = 1L;
+  }
 
   private DaysTreeNode root;
 
@@ -125,7 +134,6 @@ public class DaysTree extends JPanel implements TasksByDaysInterface,
   @Override
   public void activate() {
     reloadTree();
-    selectCurrent(Period.DAY);
     combobox.setSelectedIndex(1);
   }
 
@@ -137,7 +145,6 @@ public class DaysTree extends JPanel implements TasksByDaysInterface,
 
       public void actionPerformed(ActionEvent ae) {
         reloadTree();
-        selectCurrent(Period.DAY);
       }
     });
 
@@ -151,7 +158,7 @@ public class DaysTree extends JPanel implements TasksByDaysInterface,
     refresh();
   }
 
-  private void addChildrenNodes(DaysTreeNode root) {
+  private void addChildrenNodes(Records records, DaysTreeNode root) {
     Date now = new Date();
 
     for (Date year : new TreeSet<Date>(records.keySet())) {
@@ -234,7 +241,7 @@ public class DaysTree extends JPanel implements TasksByDaysInterface,
     }
   }
 
-  private void addTimeSlot(TimeSlot timeSlot) {
+  private void addTimeSlot(Records records, TimeSlot timeSlot) {
     Date date = timeSlot.getStartDate();
     if (date == null) {
       return; // skipping timeSlots with null start time
@@ -300,7 +307,7 @@ public class DaysTree extends JPanel implements TasksByDaysInterface,
         TreeSelectionModel.SINGLE_TREE_SELECTION);
   }
 
-  private void fillRecords(Task parent) {
+  private void collectTimeSlots(List<TimeSlot> timeslots, Task parent) {
     Collection<Task> childrenCollection = dataSource.getChildren(parent);
     if (childrenCollection == null) {
       return;
@@ -309,11 +316,9 @@ public class DaysTree extends JPanel implements TasksByDaysInterface,
     Iterator<Task> children = childrenCollection.iterator();
     while (children.hasNext()) {
       Task child = children.next();
-      for (TimeSlot timeslot : child.getTimeslots()) {
-        addTimeSlot(timeslot);
-      }
+      timeslots.addAll(child.getTimeslots());
 
-      fillRecords(child);
+      collectTimeSlots(timeslots, child);
     }
   }
 
@@ -380,15 +385,37 @@ public class DaysTree extends JPanel implements TasksByDaysInterface,
           JOptionPane.WARNING_MESSAGE);
       return;
     }
-    root = new StringNode(layoutManager.getString("daystree.rootnode.name"));
-    fillRecords(dataSource.getRoot());
-    addChildrenNodes(root);
+    final String rootName = layoutManager.getString("daystree.rootnode.name");
+
+    // timeslots are collected here, as data are changed in this thread, tree
+    // is built in background, the old one is shown meanwhile
+    final List<TimeSlot> timeslots = new ArrayList<TimeSlot>();
+    collectTimeSlots(timeslots, dataSource.getRoot());
+    layoutManager.getComputeService().submit(TREE_COMPUTATION,
+        new ComputeService.Computation<DaysTreeNode>() {
+          @Override
+          protected DaysTreeNode compute() {
+            Records records = new Records();
+            DaysTreeNode newRoot = new StringNode(rootName);
+            for (TimeSlot timeslot : timeslots) {
+              addTimeSlot(records, timeslot);
+            }
+            addChildrenNodes(records, newRoot);
+            return newRoot;
+          }
 
-    SwingUtilities.invokeLater(new Runnable() {
-      public void run() {
-        tree.setModel(new DefaultTreeModel(root));
-      }
-    });
+          @Override
+          protected void done(DaysTreeNode newRoot) {
+            root = newRoot;
+            tree.setModel(new DefaultTreeModel(root));
+            selectCurrent(Period.DAY);
+          }
+
+          @Override
+          protected void busy(boolean busy) {
+            tree.setEnabled(!busy);
+          }
+        });
   }
 
   private void selectCurrent(Period period) {
@@ -251,6 +251,9 @@ public class Timeslots extends JPanel implements TimeSlotsInterface,
   }
 
   public void edit(TimeSlot timeslot) {
+    if (!layoutManager.getTimeSlotTracker().checkWritable()) {
+      return;
+    }
     if (currentMode != Mode.Task) {
       return;
     }
@@ -288,6 +291,9 @@ public class Timeslots extends JPanel implements TimeSlotsInterface,
    * @see net.sf.timeslottracker.gui.TimeSlotsInterface#splitSelected()
    */
   public TimeSlot splitSelected() {
+    if (!layoutManager.getTimeSlotTracker().checkWritable()) {
+      return null;
+    }
     int rowSelected = table.getSelectedRow();
     if (rowSelected < 0 || table.getSelectedRowCount() != 1) {
       return null;
@@ -416,6 +416,9 @@ public class TimeslotsTablePopupMenu extends JPopupMenu {
     }
 
     public void actionPerformed(ActionEvent e) {
+      if (!layoutManager.getTimeSlotTracker().checkWritable()) {
+        return;
+      }
       TimeSlotEditDialog dialog = new TimeSlotEditDialog(layoutManager, null,
           false);
       TimeSlot timeslot = dialog.getTimeslot();
@@ -434,6 +437,9 @@ public class TimeslotsTablePopupMenu extends JPopupMenu {
     }
 
     public void actionPerformed(ActionEvent e) {
+      if (!layoutManager.getTimeSlotTracker().checkWritable()) {
+        return;
+      }
       if (timeslotsTable.getSelectedRowCount() > 1) {
         return; // no posibility to clone more then one task at time
       }
@@ -463,6 +469,9 @@ public class TimeslotsTablePopupMenu extends JPopupMenu {
     }
 
     public void actionPerformed(ActionEvent e) {
+      if (!layoutManager.getTimeSlotTracker().checkWritable()) {
+        return;
+      }
       int selectedRow = timeslotsTable.getSelectedRow();
       if (selectedRow < 0 || timeslotsTable.getSelectedRowCount() != 1) {
         return;
@@ -1,10 +1,15 @@
 package net.sf.timeslottracker.gui.layouts.classic.today;
 
+import java.awt.Cursor;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.InputEvent;
 import java.awt.event.KeyAdapter;
 import java.awt.event.KeyEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -143,6 +148,28 @@ public class TodayDialog extends AbstractSimplePanelDialog {
     });
 
     panel.addRow(new JScrollPane(table));
+
+    // shown rows stay visible while today's timeslots are being loaded
+    final PropertyChangeListener busyListener = new PropertyChangeListener() {
+      @Override
+      public void propertyChange(PropertyChangeEvent evt) {
+        showBusy(tableModel.isBusy());
+      }
+    };
+    tableModel.addPropertyChangeListener(busyListener);
+    addWindowListener(new WindowAdapter() {
+      @Override
+      public void windowClosed(WindowEvent e) {
+        tableModel.removePropertyChangeListener(busyListener);
+      }
+    });
+    showBusy(tableModel.isBusy());
+  }
+
+  private void showBusy(boolean busy) {
+    table.setEnabled(!busy);
+    table.setCursor(busy ? Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR)
+        : null);
   }
 
   private void start(TimeSlotValue timeSlotValue) {
@@ -2,6 +2,7 @@ package net.sf.timeslottracker.gui.layouts.classic.today;
 
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 
 import net.sf.timeslottracker.core.Action;
 import net.sf.timeslottracker.data.DataSource;
@@ -11,6 +12,7 @@ import net.sf.timeslottracker.data.TimeSlot;
 import net.sf.timeslottracker.data.TimeSlotChangedListener;
 import net.sf.timeslottracker.filters.FilterUtils;
 import net.sf.timeslottracker.filters.TimeSlotStartedInPeriod;
+import net.sf.timeslottracker.gui.ComputeService;
 import net.sf.timeslottracker.gui.LayoutManager;
 import net.sf.timeslottracker.gui.TodayInterface;
 import net.sf.timeslottracker.gui.taskmodel.TaskModel;
@@ -28,6 +30,9 @@ import net.sf.timeslottracker.utils.TaskIterator;
  */
 public class TodayImpl implements TodayInterface {
 
+  /** key of table computation in compute service */
+  private static final String TABLE_COMPUTATION = "today.table";
+
   private final TodayTableController dailyTableController;
 
   private final TodayTableModel dailyTableModel;
@@ -36,6 +41,9 @@ public class TodayImpl implements TodayInterface {
 
   private final LayoutManager layoutManager;
 
+  /** today's timeslots have been loaded into the table model */
+  private boolean tableLoaded;
+
   public TodayImpl(LayoutManager layoutManager) {
     this.layoutManager = layoutManager;
     this.dailyTableController = createTableController();
@@ -70,6 +78,9 @@ public class TodayImpl implements TodayInterface {
   }
 
   public void show() {
+    if (!tableLoaded) {
+      loadTable();
+    }
     new TodayDialog(layoutManager, dailyTableController, dailyTableModel,
         dailyTaskModel).activate();
   }
@@ -99,6 +110,11 @@ public class TodayImpl implements TodayInterface {
         layoutManager.getTimeSlotTracker().stopTiming();
       }
 
+      @Override
+      public boolean canUpdate() {
+        return layoutManager.getTimeSlotTracker().checkWritable();
+      }
+
       @Override
       public void update(TimeSlotValue value) {
         DataSource dataSource = getDataSource();
@@ -130,25 +146,60 @@ public class TodayImpl implements TodayInterface {
     };
   }
 
+  /**
+   * Creates an empty model and fills it in background, the whole tasks tree
+   * has to be walked through to find today's timeslots.
+   */
   private TodayTableModel createTableModel() {
-    TimeSlotStartedInPeriod timeSlotByDateFilter = getFilter();
+    TodayTableModel model = new TodayTableModel(
+        new ArrayList<TimeSlotValue>(), dailyTableController, layoutManager);
+    loadTable(model);
+    return model;
+  }
 
-    ArrayList<TimeSlot> timeslots = new ArrayList<TimeSlot>();
+  private void loadTable() {
+    loadTable(dailyTableModel);
+  }
 
+  /**
+   * Adds today's timeslots to the model in background. The model is busy
+   * meanwhile, when it fails the timeslots are loaded again when the dialog is
+   * shown next time.
+   */
+  private void loadTable(final TodayTableModel model) {
+    final TimeSlotStartedInPeriod timeSlotByDateFilter = getFilter();
+
+    // timeslots are collected here, as data are changed in this thread, and
+    // filtered in background
+    final List<TimeSlot> timeSlots = new ArrayList<TimeSlot>();
     TaskIterator taskIterator = new TaskIterator(getDataSource().getRoot());
     while (taskIterator.hasNext()) {
-      Task task = taskIterator.next();
-      timeslots.addAll(FilterUtils.filter(task.getTimeslots(),
-          timeSlotByDateFilter));
+      timeSlots.addAll(taskIterator.next().getTimeslots());
     }
 
-    ArrayList<TimeSlotValue> timeSlotValues = new ArrayList<TimeSlotValue>();
-    for (TimeSlot timeSlot : timeslots) {
-      timeSlotValues.add(createValue(timeSlot));
-    }
+    layoutManager.getComputeService().submit(TABLE_COMPUTATION,
+        new ComputeService.Computation<List<TimeSlotValue>>() {
+          @Override
+          protected List<TimeSlotValue> compute() {
+            ArrayList<TimeSlotValue> timeSlotValues = new ArrayList<TimeSlotValue>();
+            for (TimeSlot timeSlot : FilterUtils.filter(timeSlots,
+                timeSlotByDateFilter)) {
+              timeSlotValues.add(createValue(timeSlot));
+            }
+            return timeSlotValues;
+          }
 
-    return new TodayTableModel(timeSlotValues, dailyTableController,
-        layoutManager);
+          @Override
+          protected void done(List<TimeSlotValue> timeSlotValues) {
+            model.addAll(timeSlotValues);
+            tableLoaded = true;
+          }
+
+          @Override
+          protected void busy(boolean busy) {
+            model.setBusy(busy);
+          }
+        });
   }
 
   private TimeSlotStartedInPeriod getFilter() {
@@ -23,6 +23,13 @@ public interface TodayTableController {
    */
   boolean start(TimeSlotValue timeSlotValue);
 
+  /**
+   * Checks if timeslots can be updated
+   * 
+   * @return false - data can't be changed (user was told so)
+   */
+  boolean canUpdate();
+
   /**
    * Update timeslot with given time slot value
    * 
@@ -1,8 +1,13 @@
 package net.sf.timeslottracker.gui.layouts.classic.today;
 
+import java.beans.PropertyChangeListener;
+import java.beans.PropertyChangeSupport;
 import java.util.Calendar;
+import java.util.Collection;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import javax.swing.table.AbstractTableModel;
 
@@ -32,6 +37,12 @@ class TodayTableModel extends AbstractTableModel {
 
   private final List<TimeSlotValue> timeslotValues;
 
+  private final PropertyChangeSupport changeSupport = new PropertyChangeSupport(
+      this);
+
+  /** timeslot values are being loaded */
+  private boolean busy;
+
   public TodayTableModel(List<TimeSlotValue> timeslotvalues,
       TodayTableController controller, LayoutManager layoutManager) {
     this.timeslotValues = timeslotvalues;
@@ -115,6 +126,10 @@ class TodayTableModel extends AbstractTableModel {
 
   @Override
   public void setValueAt(Object value, int rowIndex, int columnIndex) {
+    if (!controller.canUpdate()) {
+      return;
+    }
+
     TimeSlotValue timeSlotValue;
     try {
       timeSlotValue = getTimeSlotValue(rowIndex).clone();
@@ -203,6 +218,49 @@ class TodayTableModel extends AbstractTableModel {
     }
   }
 
+  /**
+   * Adds values of timeslots not shown yet. Values already in model are kept,
+   * they could be updated meanwhile.
+   */
+  public void addAll(Collection<TimeSlotValue> values) {
+    Set<Object> shown = new HashSet<Object>();
+    for (TimeSlotValue value : timeslotValues) {
+      shown.add(value.getTimeSlotId());
+    }
+    int firstRow = timeslotValues.size();
+    for (TimeSlotValue value : values) {
+      if (shown.add(value.getTimeSlotId())) {
+        timeslotValues.add(value);
+      }
+    }
+    int lastRow = timeslotValues.size() - 1;
+    if (lastRow >= firstRow) {
+      fireTableRowsInserted(firstRow, lastRow);
+    }
+  }
+
+  public boolean isBusy() {
+    return busy;
+  }
+
+  /**
+   * Tells the timeslot values are being loaded (or loading finished). Shown
+   * values stay in the model meanwhile. Fires "busy" property change.
+   */
+  public void setBusy(boolean busy) {
+    boolean old = this.busy;
+    this.busy = busy;
+    changeSupport.firePropertyChange("busy", old, busy);
+  }
+
+  public void addPropertyChangeListener(PropertyChangeListener listener) {
+    changeSupport.addPropertyChangeListener(listener);
+  }
+
+  public void removePropertyChangeListener(PropertyChangeListener listener) {
+    changeSupport.removePropertyChangeListener(listener);
+  }
+
   private int indexOf(Object timeSlotId) {
     for (TimeSlotValue value : timeslotValues) {
       if (timeSlotId.equals(value.getTimeSlotId())) {
@@ -7,6 +7,7 @@ import java.io.FileOutputStream;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.io.UnsupportedEncodingException;
+import java.net.URL;
 import java.util.Collection;
 
 import javax.swing.JComponent;
@@ -14,11 +15,15 @@ import javax.xml.transform.Result;
 import javax.xml.transform.Source;
 import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerException;
+import javax.xml.transform.sax.SAXSource;
 import javax.xml.transform.stream.StreamResult;
+import javax.xml.transform.stream.StreamSource;
 
 import net.sf.timeslottracker.gui.LayoutManager;
 import net.sf.timeslottracker.gui.reports.filters.EncodingFilter;
 import net.sf.timeslottracker.gui.reports.filters.Filter;
+import net.sf.timeslottracker.gui.reports.text.ReportData;
+import net.sf.timeslottracker.gui.reports.text.TextReportWriter;
 
 /**
  * An abstract class every report have to extend.
@@ -80,6 +85,23 @@ public abstract class AbstractReport {
    */
   public abstract Source getXsltSource(String dataDirectory);
 
+  /**
+   * Returns a xslt source of a stylesheet from the jar file.
+   * <p>
+   * The source is identified by url of the stylesheet, so it is compiled only
+   * once (see {@link ReportTemplates}).
+   *
+   * @param filename
+   *          path of the stylesheet in the jar file, e.g. "/xslt/detail.xml"
+   */
+  protected Source getXsltResource(String filename) {
+    URL url = AbstractReport.class.getResource(filename);
+    if (url == null) {
+      throw new IllegalArgumentException("Missing stylesheet: " + filename);
+    }
+    return new StreamSource(url.toExternalForm());
+  }
+
   /**
    * Puts an extra configurations into configuration window. It also returns a
    * collection of filters to check if a task or timeslot should be included
@@ -95,6 +117,18 @@ public abstract class AbstractReport {
     return null;
   }
 
+  /**
+   * Returns a writer producing the report directly from report data, without
+   * the xslt transformation. Its output has to be the same as of the xslt
+   * source.
+   *
+   * @return <code>null</code> (default value) if the report is transformed by
+   *         its xslt source
+   */
+  protected TextReportWriter getTextWriter() {
+    return null;
+  }
+
   public void transform(File resultFile, Source xmlSource, Transformer trans) throws Exception {
     String encoding = (String) trans
         .getParameter(EncodingFilter.PARAMETER_REPORT_OUTPUT_ENCODING);
@@ -106,8 +140,19 @@ public abstract class AbstractReport {
     try {
       printWriter = new PrintWriter(new BufferedWriter(
           new OutputStreamWriter(new FileOutputStream(resultFile), encoding)));
-      Result result = new StreamResult(printWriter);
-      trans.transform(xmlSource, result);
+      TextReportWriter textWriter = getTextWriter();
+      if (textWriter != null && xmlSource instanceof SAXSource
+          && ((SAXSource) xmlSource).getXMLReader() != null) {
+        // transformer only holds parameters set by filters
+        SAXSource saxSource = (SAXSource) xmlSource;
+        ReportData data = new ReportData();
+        saxSource.getXMLReader().setContentHandler(data);
+        saxSource.getXMLReader().parse(saxSource.getInputSource());
+        textWriter.write(data, trans, printWriter);
+      } else {
+        Result result = new StreamResult(printWriter);
+        trans.transform(xmlSource, result);
+      }
     } finally {
       if (printWriter != null) {
         printWriter.close();
@@ -0,0 +1,553 @@
+package net.sf.timeslottracker.gui.reports;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Constructor;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+
+import javax.xml.transform.Source;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.sax.SAXSource;
+import javax.xml.transform.stream.StreamSource;
+
+import net.sf.timeslottracker.HeadlessTimeSlotTracker;
+import net.sf.timeslottracker.core.Configuration;
+import net.sf.timeslottracker.core.TimeSlotTracker;
+import net.sf.timeslottracker.data.DataSource;
+import net.sf.timeslottracker.data.Task;
+import net.sf.timeslottracker.data.TimeSlot;
+import net.sf.timeslottracker.filters.TaskInPeriodFilter;
+import net.sf.timeslottracker.filters.TimeSlotIncludedInPeriod;
+import net.sf.timeslottracker.gui.DialogPanel;
+import net.sf.timeslottracker.gui.LayoutManager;
+import net.sf.timeslottracker.gui.dateperiod.DatePeriod;
+import net.sf.timeslottracker.gui.dateperiod.DatePeriod.PeriodType;
+import net.sf.timeslottracker.gui.reports.filters.DateColumnLookFilter;
+import net.sf.timeslottracker.gui.reports.filters.DateFilter;
+import net.sf.timeslottracker.gui.reports.filters.EncodingFilter;
+import net.sf.timeslottracker.gui.reports.filters.FieldSeparatorFilter;
+import net.sf.timeslottracker.gui.reports.filters.Filter;
+import net.sf.timeslottracker.gui.reports.filters.IncludeColumnNamesFilter;
+import net.sf.timeslottracker.gui.reports.filters.ReportTitleFilter;
+import net.sf.timeslottracker.gui.reports.filters.TimeFormatFilter;
+
+import org.xml.sax.InputSource;
+
+/**
+ * Generates reports from the command line, without the gui.
+ * <p>
+ * Data are loaded once (read-only, so the gui can run meanwhile) and every
+ * stylesheet is compiled once, so many reports are generated quickly in one
+ * run. Reports are described by properties files given as arguments:
+ *
+ * <pre>
+ * report=DetailReport
+ * period=USER_PERIOD
+ * from=2010-03-01
+ * to=2010-03-31
+ * john.root=12
+ * john.output=reports/john.html
+ * mary.root=15
+ * mary.output=reports/mary.html
+ * </pre>
+ *
+ * A key with a prefix (e.g. <code>john.</code>) belongs to the report of that
+ * name, keys without it are defaults of all reports in the file. Keys are:
+ * <ul>
+ * <li><code>report</code> - report class (its simple name for built-in
+ * reports) or a xslt file of a custom report</li>
+ * <li><code>version</code> - version given to reports with more of them, e.g.
+ * <code>WITH_DESCRIPTION</code> for <code>TimesheetTableReport</code></li>
+ * <li><code>output</code> - result file</li>
+ * <li><code>period</code> - one of {@link PeriodType} names, default is
+ * <code>USER_PERIOD</code> when <code>from</code> and <code>to</code> are set,
+ * otherwise <code>ALL</code></li>
+ * <li><code>from</code>, <code>to</code> - user period (yyyy-MM-dd)</li>
+ * <li><code>root</code> - id of the task to report with its subtasks</li>
+ * <li><code>title</code>, <code>encoding</code>, <code>separator</code>,
+ * <code>includeNames</code> (yes/no), <code>timeFormat</code> (hh:mm/decimal),
+ * <code>dateColumnLook</code> - values of report filters</li>
+ * <li><code>param.</code><i>name</i> - any other xslt parameter</li>
+ * </ul>
+ * The data directory is given by
+ * <code>-Dtst.directory=...</code> like for the application.
+ */
+public class BatchReports {
+
+  static final String REPORT = "report";
+
+  static final String VERSION = "version";
+
+  static final String OUTPUT = "output";
+
+  static final String PERIOD = "period";
+
+  static final String FROM = "from";
+
+  static final String TO = "to";
+
+  static final String ROOT = "root";
+
+  static final String TITLE = "title";
+
+  static final String ENCODING = "encoding";
+
+  static final String SEPARATOR = "separator";
+
+  static final String INCLUDE_NAMES = "includeNames";
+
+  static final String TIME_FORMAT = "timeFormat";
+
+  static final String DATE_COLUMN_LOOK = "dateColumnLook";
+
+  static final String PARAMETER_PREFIX = "param.";
+
+  private static final Set<String> KEYS = new HashSet<String>();
+  static {
+    Collections.addAll(KEYS, REPORT, VERSION, OUTPUT, PERIOD, FROM, TO, ROOT,
+        TITLE, ENCODING, SEPARATOR, INCLUDE_NAMES, TIME_FORMAT,
+        DATE_COLUMN_LOOK);
+  }
+
+  private static final String USAGE = "Usage: java -Djava.awt.headless=true"
+      + " [-Dtst.directory=<data directory>] "
+      + BatchReports.class.getName() + " <reports.properties>...";
+
+  /**
+   * One report to generate.
+   */
+  static class Job {
+    private final String name;
+    private final Properties values;
+
+    Job(String name, Properties values) {
+      this.name = name;
+      this.values = values;
+    }
+
+    String getName() {
+      return name;
+    }
+
+    /**
+     * @return value of the key, the default one when the report hasn't its own
+     */
+    String get(String key) {
+      String value = values.getProperty(key);
+      return value == null || value.trim().length() == 0 ? null : value.trim();
+    }
+
+    /**
+     * @return xslt parameters given directly, by name
+     */
+    Map<String, String> getParameters() {
+      Map<String, String> parameters = new TreeMap<String, String>();
+      for (String key : values.stringPropertyNames()) {
+        if (key.startsWith(PARAMETER_PREFIX)) {
+          parameters.put(key.substring(PARAMETER_PREFIX.length()),
+              values.getProperty(key));
+        }
+      }
+      return parameters;
+    }
+  }
+
+  /**
+   * Filter and transformer parameters of a job, the same as set by report
+   * filters in the configuration window.
+   */
+  private class JobFilter implements Filter {
+    private final Job job;
+    private final DatePeriod datePeriod;
+    private final Set<Task> validTasks;
+    private TaskInPeriodFilter taskFilter;
+    private TimeSlotIncludedInPeriod timeSlotFilter;
+
+    private JobFilter(Job job, DatePeriod datePeriod, Set<Task> validTasks) {
+      this.job = job;
+      this.datePeriod = datePeriod;
+      this.validTasks = validTasks;
+      if (!datePeriod.isNoFiltering()) {
+        taskFilter = new TaskInPeriodFilter(datePeriod.getStartPeriod(),
+            datePeriod.getEndPeriod());
+        timeSlotFilter = new TimeSlotIncludedInPeriod(timeSlotTracker,
+            datePeriod.getStartPeriod(), datePeriod.getEndPeriod());
+      }
+    }
+
+    public void update(DialogPanel panel) {
+    }
+
+    public void setReportConfiguration(ReportConfiguration reportConfiguration) {
+    }
+
+    public void setReportContext(ReportContext reportContext) {
+    }
+
+    public void beforeStart() {
+    }
+
+    public void beforeStart(Transformer transformer) {
+      if (!datePeriod.isNoFiltering()) {
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd",
+            timeSlotTracker.getLocale());
+        Calendar calendar = Calendar.getInstance(timeSlotTracker.getLocale());
+        transformer.setParameter(DateFilter.PARAMETER_REPORT_START_DATE,
+            dateFormat.format(datePeriod.getStartPeriod()));
+        calendar.setTime(datePeriod.getStartPeriod());
+        transformer.setParameter(DateFilter.PARAMETER_REPORT_START_DAY_OF_YEAR,
+            Integer.valueOf(calendar.get(Calendar.DAY_OF_YEAR)));
+        transformer.setParameter(DateFilter.PARAMETER_REPORT_STOP_DATE,
+            dateFormat.format(datePeriod.getEndPeriod()));
+        calendar.setTime(datePeriod.getEndPeriod());
+        transformer.setParameter(DateFilter.PARAMETER_REPORT_STOP_DAY_OF_YEAR,
+            Integer.valueOf(calendar.get(Calendar.DAY_OF_YEAR)));
+      }
+
+      setParameter(transformer, ReportTitleFilter.PARAMETER_REPORT_TITLE,
+          job.get(TITLE), null);
+      setParameter(transformer,
+          EncodingFilter.PARAMETER_REPORT_OUTPUT_ENCODING, job.get(ENCODING),
+          "UTF-8");
+      setParameter(transformer,
+          FieldSeparatorFilter.PARAMETER_REPORT_COLUMN_SEPARATOR, job
+              .get(SEPARATOR), null);
+      setParameter(transformer,
+          IncludeColumnNamesFilter.PARAMETER_REPORT_INCLUDE_NAMES, job
+              .get(INCLUDE_NAMES), "yes");
+      setParameter(transformer,
+          TimeFormatFilter.PARAMETER_REPORT_TIME_FORMAT_FILTER, job
+              .get(TIME_FORMAT), "hh:mm");
+      setParameter(transformer,
+          DateColumnLookFilter.PARAMETER_REPORT_DATE_COLUMN_LOOK, job
+              .get(DATE_COLUMN_LOOK), "yyyy-MM-dd/dayOfWeekName");
+
+      for (Map.Entry<String, String> parameter : job.getParameters()
+          .entrySet()) {
+        transformer.setParameter(parameter.getKey(), parameter.getValue());
+      }
+    }
+
+    private void setParameter(Transformer transformer, String name,
+        String value, String defaultValue) {
+      if (value == null) {
+        value = defaultValue;
+      }
+      if (value != null) {
+        transformer.setParameter(name, value);
+      }
+    }
+
+    public boolean matches(Task task) {
+      if (validTasks != null && !validTasks.contains(task)) {
+        return false;
+      }
+      return taskFilter == null || taskFilter.accept(task);
+    }
+
+    public boolean matches(TimeSlot timeSlot) {
+      return timeSlotFilter == null || timeSlotFilter.accept(timeSlot);
+    }
+  }
+
+  /**
+   * Report of a custom xslt file.
+   */
+  private class XsltFileReport extends AbstractReport {
+    private final File file;
+
+    private XsltFileReport(File file) {
+      super(timeSlotTracker.getLayoutManager());
+      this.file = file;
+    }
+
+    public String getTitle() {
+      return file.getName();
+    }
+
+    public ReportType getType() {
+      return ReportType.USER;
+    }
+
+    public Source getXsltSource(String dataDirectory) {
+      return new StreamSource(file);
+    }
+  }
+
+  private final TimeSlotTracker timeSlotTracker;
+
+  private final DataSource dataSource;
+
+  private final String dataPath;
+
+  /** reports by <code>report</code> and <code>version</code> values */
+  private final Map<String, AbstractReport> reports = new HashMap<String, AbstractReport>();
+
+  /** directories where css file was copied to */
+  private final Set<File> cssDirectories = new HashSet<File>();
+
+  public BatchReports(TimeSlotTracker timeSlotTracker) {
+    this.timeSlotTracker = timeSlotTracker;
+    this.dataSource = timeSlotTracker.getDataSource();
+    String dataDirectory = timeSlotTracker.getConfiguration().getString(
+        Configuration.DATASOURCE_DIRECTORY, ".");
+    this.dataPath = dataDirectory + System.getProperty("file.separator");
+  }
+
+  public static void main(String[] args) throws Exception {
+    if (args.length == 0) {
+      System.err.println(USAGE);
+      System.exit(1);
+    }
+    System.setProperty("java.awt.headless", "true");
+
+    List<Job> jobs = new ArrayList<Job>();
+    for (String filename : args) {
+      Properties properties = new Properties();
+      InputStream input = new FileInputStream(filename);
+      try {
+        properties.load(input);
+      } finally {
+        input.close();
+      }
+      jobs.addAll(readJobs(properties));
+    }
+
+    HeadlessTimeSlotTracker timeSlotTracker = new HeadlessTimeSlotTracker();
+    if (!timeSlotTracker.loadData()) {
+      System.err.println("Data can't be loaded");
+      System.exit(2);
+    }
+    int failed = new BatchReports(timeSlotTracker).run(jobs);
+    System.exit(failed == 0 ? 0 : 3);
+  }
+
+  /**
+   * Reads reports to generate, sorted by name.
+   */
+  static List<Job> readJobs(Properties properties) {
+    Properties defaults = new Properties();
+    Map<String, Properties> named = new TreeMap<String, Properties>();
+    for (String key : properties.stringPropertyNames()) {
+      String value = properties.getProperty(key);
+      int dot = key.indexOf('.');
+      if (KEYS.contains(key) || key.startsWith(PARAMETER_PREFIX) || dot < 0) {
+        defaults.setProperty(key, value);
+        continue;
+      }
+      String name = key.substring(0, dot);
+      Properties values = named.get(name);
+      if (values == null) {
+        values = new Properties(defaults);
+        named.put(name, values);
+      }
+      values.setProperty(key.substring(dot + 1), value);
+    }
+
+    List<Job> jobs = new ArrayList<Job>();
+    if (named.isEmpty()) {
+      jobs.add(new Job("", defaults));
+    }
+    for (Map.Entry<String, Properties> entry : named.entrySet()) {
+      jobs.add(new Job(entry.getKey(), entry.getValue()));
+    }
+    return jobs;
+  }
+
+  /**
+   * Generates reports, a failed one doesn't stop others.
+   *
+   * @return number of failed reports
+   */
+  public int run(List<Job> jobs) {
+    int failed = 0;
+    long started = System.nanoTime();
+    for (Job job : jobs) {
+      long jobStarted = System.nanoTime();
+      try {
+        File resultFile = run(job);
+        System.out.println(job.getName() + ": " + resultFile + " ("
+            + (System.nanoTime() - jobStarted) / 1000000 + " ms)");
+      } catch (Exception e) {
+        failed++;
+        System.err.println(job.getName() + ": " + e);
+        timeSlotTracker.errorLog(e);
+      }
+    }
+    long elapsed = Math.max(1, (System.nanoTime() - started) / 1000000);
+    int generated = jobs.size() - failed;
+    System.out.println(String.format(
+        "%d reports in %d ms (%.1f reports/s), %d failed", generated, elapsed,
+        generated * 1000.0 / elapsed, failed));
+    return failed;
+  }
+
+  private File run(Job job) throws Exception {
+    String output = job.get(OUTPUT);
+    if (output == null) {
+      throw new IllegalArgumentException("Missing " + OUTPUT);
+    }
+    File resultFile = new File(output);
+    AbstractReport report = getReport(job);
+
+    DatePeriod datePeriod = getDatePeriod(job);
+    Date startPeriod = null;
+    Date endPeriod = null;
+    if (!datePeriod.isNoFiltering()) {
+      startPeriod = datePeriod.getStartPeriod();
+      endPeriod = datePeriod.getEndPeriod();
+    }
+    List<Filter> filters = new ArrayList<Filter>();
+    filters.add(new JobFilter(job, datePeriod, getValidTasks(job)));
+
+    ReportDataReader dataReader = new ReportDataReader(timeSlotTracker,
+        dataSource, filters, startPeriod, endPeriod);
+    dataReader.setFilteredByPeriod(startPeriod != null);
+    if (startPeriod != null) {
+      dataReader.setMonthCache(ReportMonthCache.getInstance());
+    }
+    Source xmlSource = new SAXSource(dataReader, new InputSource());
+    Transformer trans = ReportTemplates.getInstance().getTemplates(
+        report.getXsltSource(dataPath)).newTransformer();
+    for (Filter filter : filters) {
+      filter.beforeStart(trans);
+    }
+    report.transform(resultFile, xmlSource, trans);
+
+    // copy css for html reports
+    String method = trans.getOutputProperties().getProperty("method");
+    if (method != null && method.equalsIgnoreCase("html")) {
+      copyCssFile(resultFile.getAbsoluteFile().getParentFile());
+    }
+    return resultFile;
+  }
+
+  /**
+   * @return report of the job, created once for all jobs using it
+   */
+  private AbstractReport getReport(Job job) throws Exception {
+    String name = job.get(REPORT);
+    if (name == null) {
+      throw new IllegalArgumentException("Missing " + REPORT);
+    }
+    String version = job.get(VERSION);
+    String key = version == null ? name : name + ":" + version;
+    AbstractReport report = reports.get(key);
+    if (report == null) {
+      report = createReport(name, version);
+      reports.put(key, report);
+    }
+    return report;
+  }
+
+  @SuppressWarnings( { "unchecked", "rawtypes" })
+  private AbstractReport createReport(String name, String version)
+      throws Exception {
+    File file = new File(name);
+    if (file.isFile()) {
+      return new XsltFileReport(file);
+    }
+
+    String className = name.indexOf('.') < 0 ? AbstractReport.class
+        .getPackage().getName()
+        + "." + name : name;
+    Class<?> reportClass = Class.forName(className);
+    LayoutManager layoutManager = timeSlotTracker.getLayoutManager();
+    if (version == null) {
+      return (AbstractReport) reportClass.getConstructor(LayoutManager.class)
+          .newInstance(layoutManager);
+    }
+    for (Constructor<?> constructor : reportClass.getConstructors()) {
+      Class<?>[] types = constructor.getParameterTypes();
+      if (types.length == 2 && types[0] == LayoutManager.class
+          && types[1].isEnum()) {
+        return (AbstractReport) constructor.newInstance(layoutManager, Enum
+            .valueOf((Class<Enum>) types[1], version));
+      }
+    }
+    throw new IllegalArgumentException(name + " has no versions");
+  }
+
+  private DatePeriod getDatePeriod(Job job) throws ParseException {
+    int firstDayOfWeek = timeSlotTracker.getConfiguration().getInteger(
+        Configuration.WEEK_FIRST_DAY, Calendar.MONDAY);
+    DatePeriod datePeriod = new DatePeriod(firstDayOfWeek);
+
+    SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd",
+        timeSlotTracker.getLocale());
+    Date from = job.get(FROM) == null ? null : dateFormat.parse(job.get(FROM));
+    Date to = job.get(TO) == null ? null : dateFormat.parse(job.get(TO));
+    String period = job.get(PERIOD);
+    if (period != null) {
+      datePeriod.setPeriodType(PeriodType.valueOf(period.toUpperCase()));
+    } else if (from != null && to != null) {
+      datePeriod.setPeriodType(PeriodType.USER_PERIOD);
+    }
+    datePeriod.setUserPeriod(from, to);
+    return datePeriod;
+  }
+
+  /**
+   * @return the root task with all its subtasks, <code>null</code> if all
+   *         tasks are reported
+   */
+  private Set<Task> getValidTasks(Job job) {
+    String root = job.get(ROOT);
+    if (root == null) {
+      return null;
+    }
+    // xml data source has numeric ids
+    Task rootTask = dataSource.getTask(root);
+    if (rootTask == null && root.matches("\\d+")) {
+      rootTask = dataSource.getTask(Integer.valueOf(root));
+    }
+    if (rootTask == null) {
+      throw new IllegalArgumentException("No task with id " + root);
+    }
+    Set<Task> validTasks = new HashSet<Task>();
+    addValidTasks(rootTask, validTasks);
+    return validTasks;
+  }
+
+  private void addValidTasks(Task task, Set<Task> validTasks) {
+    validTasks.add(task);
+    Collection<Task> children = dataSource.getChildren(task);
+    if (children != null) {
+      for (Task child : children) {
+        addValidTasks(child, validTasks);
+      }
+    }
+  }
+
+  private void copyCssFile(File directory) throws IOException {
+    if (!cssDirectories.add(directory)) {
+      return;
+    }
+    InputStream source = BatchReports.class
+        .getResourceAsStream("/xslt/report.css");
+    try {
+      Files.copy(source, new File(directory, "report.css").toPath(),
+          StandardCopyOption.REPLACE_EXISTING);
+    } finally {
+      source.close();
+    }
+  }
+
+}
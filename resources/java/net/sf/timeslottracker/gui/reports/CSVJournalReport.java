@@ -1,17 +1,17 @@
 package net.sf.timeslottracker.gui.reports;
 
-import java.io.InputStream;
 import java.util.Collection;
 import java.util.Vector;
 
 import javax.xml.transform.Source;
-import javax.xml.transform.stream.StreamSource;
 
 import net.sf.timeslottracker.gui.LayoutManager;
 import net.sf.timeslottracker.gui.reports.filters.EncodingFilter;
 import net.sf.timeslottracker.gui.reports.filters.FieldSeparatorFilter;
 import net.sf.timeslottracker.gui.reports.filters.Filter;
 import net.sf.timeslottracker.gui.reports.filters.IncludeColumnNamesFilter;
+import net.sf.timeslottracker.gui.reports.text.CSVJournalWriter;
+import net.sf.timeslottracker.gui.reports.text.TextReportWriter;
 
 /**
  * CSV report returing data in a summary as a coma separated value.
@@ -61,8 +61,11 @@ public class CSVJournalReport extends AbstractReport {
 
   public Source getXsltSource(String dataDirectory) {
     String filename = "/xslt/csv_journal.xml";
-    InputStream stream = CSVJournalReport.class.getResourceAsStream(filename);
-    return new StreamSource(stream);
+    return getXsltResource(filename);
+  }
+
+  protected TextReportWriter getTextWriter() {
+    return new CSVJournalWriter();
   }
 
 }
@@ -1,11 +1,9 @@
 package net.sf.timeslottracker.gui.reports;
 
-import java.io.InputStream;
 import java.util.Collection;
 import java.util.Vector;
 
 import javax.xml.transform.Source;
-import javax.xml.transform.stream.StreamSource;
 
 import net.sf.timeslottracker.gui.LayoutManager;
 import net.sf.timeslottracker.gui.reports.filters.EncodingFilter;
@@ -13,6 +11,8 @@ import net.sf.timeslottracker.gui.reports.filters.FieldSeparatorFilter;
 import net.sf.timeslottracker.gui.reports.filters.Filter;
 import net.sf.timeslottracker.gui.reports.filters.IncludeColumnNamesFilter;
 import net.sf.timeslottracker.gui.reports.filters.TimeFormatFilter;
+import net.sf.timeslottracker.gui.reports.text.CSVWriter;
+import net.sf.timeslottracker.gui.reports.text.TextReportWriter;
 
 /**
  * CSV report returing data in a summary as a coma separated value.
@@ -63,8 +63,11 @@ public class CSVReport extends AbstractReport {
 
   public Source getXsltSource(String dataDirectory) {
     String filename = "/xslt/csv.xml";
-    InputStream stream = CSVReport.class.getResourceAsStream(filename);
-    return new StreamSource(stream);
+    return getXsltResource(filename);
+  }
+
+  protected TextReportWriter getTextWriter() {
+    return new CSVWriter();
   }
 
 }
@@ -1,11 +1,9 @@
 package net.sf.timeslottracker.gui.reports;
 
-import java.io.InputStream;
 import java.util.Collection;
 import java.util.Vector;
 
 import javax.xml.transform.Source;
-import javax.xml.transform.stream.StreamSource;
 
 import net.sf.timeslottracker.gui.LayoutManager;
 import net.sf.timeslottracker.gui.reports.filters.DateColumnLookFilter;
@@ -14,6 +12,8 @@ import net.sf.timeslottracker.gui.reports.filters.FieldSeparatorFilter;
 import net.sf.timeslottracker.gui.reports.filters.Filter;
 import net.sf.timeslottracker.gui.reports.filters.IncludeColumnNamesFilter;
 import net.sf.timeslottracker.gui.reports.filters.TimeFormatFilter;
+import net.sf.timeslottracker.gui.reports.text.CSVTimesheetTableWriter;
+import net.sf.timeslottracker.gui.reports.text.TextReportWriter;
 
 /**
  * Timesheet report printed as a table in CSV format.
@@ -54,7 +54,10 @@ public class CSVTimesheetTableReport extends AbstractReport {
 
   public Source getXsltSource(String dataDirectory) {
     String filename = "/xslt/csv_timesheet_table.xml";
-    InputStream stream = DetailReport.class.getResourceAsStream(filename);
-    return new StreamSource(stream);
+    return getXsltResource(filename);
+  }
+
+  protected TextReportWriter getTextWriter() {
+    return new CSVTimesheetTableWriter();
   }
 }
@@ -1,9 +1,7 @@
 package net.sf.timeslottracker.gui.reports;
 
-import java.io.InputStream;
 
 import javax.xml.transform.Source;
-import javax.xml.transform.stream.StreamSource;
 
 import net.sf.timeslottracker.gui.LayoutManager;
 
@@ -34,8 +32,7 @@ public class DetailReport extends AbstractReport {
 
   public Source getXsltSource(String dataDirectory) {
     String filename = "/xslt/detail.xml";
-    InputStream stream = DetailReport.class.getResourceAsStream(filename);
-    return new StreamSource(stream);
+    return getXsltResource(filename);
   }
 
 }
@@ -3,8 +3,6 @@ package net.sf.timeslottracker.gui.reports;
 import net.sf.timeslottracker.gui.LayoutManager;
 
 import javax.xml.transform.Source;
-import javax.xml.transform.stream.StreamSource;
-import java.io.InputStream;
 
 /**
  * Project tasks report returning all data, but without the timeslots
@@ -33,8 +31,7 @@ public class ProjectTasksReport extends AbstractReport {
 
   public Source getXsltSource(String dataDirectory) {
     String filename = "/xslt/project_tasks_timesheet_table.xml";
-    InputStream stream = ProjectTasksReport.class.getResourceAsStream(filename);
-    return new StreamSource(stream);
+    return getXsltResource(filename);
   }
 
 }
@@ -0,0 +1,1167 @@
+package net.sf.timeslottracker.gui.reports;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.text.DateFormatSymbols;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.MissingResourceException;
+import java.util.RandomAccess;
+import java.util.ResourceBundle;
+import java.util.TimeZone;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.TransformerConfigurationException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.sax.SAXTransformerFactory;
+import javax.xml.transform.sax.TransformerHandler;
+import javax.xml.transform.stream.StreamResult;
+
+import net.sf.timeslottracker.core.Configuration;
+import net.sf.timeslottracker.core.TimeSlotTracker;
+import net.sf.timeslottracker.data.Attribute;
+import net.sf.timeslottracker.data.AttributeCategory;
+import net.sf.timeslottracker.data.AttributeType;
+import net.sf.timeslottracker.data.DataSource;
+import net.sf.timeslottracker.data.MonthGenerations;
+import net.sf.timeslottracker.data.ProjectSummaryByDay;
+import net.sf.timeslottracker.data.Task;
+import net.sf.timeslottracker.data.TimeSlot;
+import net.sf.timeslottracker.gui.reports.filters.DateFilter;
+import net.sf.timeslottracker.gui.reports.filters.Filter;
+import net.sf.timeslottracker.utils.TimeUtils;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.DTDHandler;
+import org.xml.sax.EntityResolver;
+import org.xml.sax.ErrorHandler;
+import org.xml.sax.InputSource;
+import org.xml.sax.Locator;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.ext.LexicalHandler;
+import org.xml.sax.helpers.AttributesImpl;
+
+/**
+ * Produces report data as SAX events.
+ * <p/>
+ * It's used as a reader of a <code>SAXSource</code>, so the transformer gets
+ * report data while they are extracted from tasks, without writing and parsing
+ * an intermediate xml file. When {@link #setXmlFile(File)} is set the same
+ * events are written to the file too.
+ * <p/>
+ * The produced document is <code>TimeSlotTracker_Report</code> with a
+ * dictionary of report strings, a day by day loop of the report period, a
+ * project summary by day and filtered tasks with their timeslots.
+ */
+public class ReportDataReader implements XMLReader {
+
+  private static final Attributes NO_ATTRIBUTES = new AttributesImpl();
+
+  /** margin of the report period covering rounding of times by filters */
+  private static final long PERIOD_MARGIN = 60 * 1000;
+
+  private final TimeSlotTracker timeSlotTracker;
+
+  private final DataSource dataSource;
+
+  private final Collection<Filter> filters;
+
+  /** starting date of report period, null if not filtered */
+  private final Date startPeriod;
+
+  /** ending date of report period, null if not filtered */
+  private final Date endPeriod;
+
+  /** beginning of the first day of report period, with a margin */
+  private final long periodBegin;
+
+  /** ending of the last day of report period, with a margin */
+  private final long periodEnd;
+
+  /** filters hide tasks and timeslots without activity in report period */
+  private boolean filteredByPeriod;
+
+  /** cache of timeslots in closed months, null if not used */
+  private ReportMonthCache monthCache;
+
+  /** generations of months telling if cached ones are valid */
+  private MonthGenerations monthGenerations = MonthGenerations.getInstance();
+
+  /** context of cached months, see {@link #getCacheContext()} */
+  private String cacheContext;
+
+  /** beginning of the month the report is run in, months before are closed */
+  private long openPeriodBegin;
+
+  private final Calendar calendar;
+
+  private final DateFormatSymbols dateFormatSymbols;
+
+  private final SimpleDateFormat dateFormater;
+
+  private ContentHandler contentHandler;
+
+  private ErrorHandler errorHandler;
+
+  private DTDHandler dtdHandler;
+
+  private EntityResolver entityResolver;
+
+  private final Map<String, Boolean> features = new HashMap<String, Boolean>();
+
+  private final Map<String, Object> properties = new HashMap<String, Object>();
+
+  /** file to write produced xml to, null if not wanted */
+  private File xmlFile;
+
+  /** handler receiving events while parsing */
+  private ContentHandler out;
+
+  private ProjectSummaryByDay projectSummaryByDay;
+
+  /** time the report is run, rounded as timeslot durations are */
+  private long now;
+
+  /** top-level subtrees exported in parallel, by their tasks */
+  private Map<Task, Future<Fragment>> fragments = Collections.emptyMap();
+
+  /** activity of task subtrees, null if report period isn't set */
+  private TaskActivity activity;
+
+  /** project attributes of tasks by their ids */
+  private final Map<Object, ProjectAttributes> projectAttributes = new HashMap<Object, ProjectAttributes>();
+
+  /**
+   * @param filters
+   *          filters checking if a task or timeslot is included
+   * @param startPeriod
+   *          starting date of report period, null if not filtered
+   * @param endPeriod
+   *          ending date of report period, null if not filtered
+   */
+  public ReportDataReader(TimeSlotTracker timeSlotTracker,
+      DataSource dataSource, Collection<Filter> filters, Date startPeriod,
+      Date endPeriod) {
+    this.timeSlotTracker = timeSlotTracker;
+    this.dataSource = dataSource;
+    this.filters = filters;
+    this.startPeriod = startPeriod;
+    this.endPeriod = endPeriod;
+    if (startPeriod != null && endPeriod != null) {
+      periodBegin = TimeUtils.dayStart(startPeriod) - PERIOD_MARGIN;
+      periodEnd = TimeUtils.dayEnd(endPeriod) + PERIOD_MARGIN;
+    } else {
+      periodBegin = Long.MIN_VALUE;
+      periodEnd = Long.MAX_VALUE;
+    }
+    Locale locale = timeSlotTracker.getLocale();
+    calendar = Calendar.getInstance(locale);
+    dateFormatSymbols = new DateFormatSymbols(locale);
+    dateFormater = new SimpleDateFormat("yyyy-MM-dd", locale);
+  }
+
+  /**
+   * Sets a file the produced xml is saved to (it's written while report is
+   * transformed).
+   */
+  public void setXmlFile(File xmlFile) {
+    this.xmlFile = xmlFile;
+  }
+
+  /**
+   * Tells filters hide tasks without any timeslot in report period and
+   * timeslots outside of it, as {@link DateFilter} does. Subtrees and
+   * timeslots outside of the period are then skipped without being checked
+   * by filters.
+   */
+  public void setFilteredByPeriod(boolean filteredByPeriod) {
+    this.filteredByPeriod = filteredByPeriod;
+  }
+
+  /**
+   * Sets a cache of timeslots in closed months. It's used only when filters
+   * hide timeslots by report period alone (see
+   * {@link #setFilteredByPeriod(boolean)}), timeslots of a month in the
+   * period are then exported the same by every report.
+   *
+   * @param monthCache
+   *          a cache, <code>null</code> if months aren't cached
+   */
+  public void setMonthCache(ReportMonthCache monthCache) {
+    this.monthCache = monthCache;
+  }
+
+  /**
+   * Sets generations of months checked for cached months, by default the ones
+   * changed by application data.
+   */
+  public void setMonthGenerations(MonthGenerations monthGenerations) {
+    this.monthGenerations = monthGenerations;
+  }
+
+  public void parse(InputSource input) throws IOException, SAXException {
+    OutputStream xmlStream = null;
+    try {
+      out = contentHandler;
+      if (xmlFile != null) {
+        xmlStream = new BufferedOutputStream(new FileOutputStream(xmlFile));
+        out = new TeeHandler(contentHandler, createFileHandler(xmlStream));
+      }
+      produce();
+    } finally {
+      out = null;
+      if (xmlStream != null) {
+        xmlStream.close();
+      }
+    }
+  }
+
+  public void parse(String systemId) throws IOException, SAXException {
+    parse(new InputSource(systemId));
+  }
+
+  private TransformerHandler createFileHandler(OutputStream stream)
+      throws SAXException {
+    try {
+      SAXTransformerFactory factory = (SAXTransformerFactory) TransformerFactory
+          .newInstance();
+      TransformerHandler handler = factory.newTransformerHandler();
+      handler.getTransformer().setOutputProperty(OutputKeys.ENCODING, "UTF-8");
+      handler.getTransformer().setOutputProperty(OutputKeys.INDENT, "yes");
+      handler.getTransformer().setOutputProperty(
+          "{http://xml.apache.org/xslt}indent-amount", "2");
+      handler.setResult(new StreamResult(stream));
+      return handler;
+    } catch (TransformerConfigurationException e) {
+      throw new SAXException(e);
+    }
+  }
+
+  private void produce() throws SAXException {
+    now = TimeUtils.roundTime(System.currentTimeMillis());
+    Task root = dataSource.getRoot();
+    if (startPeriod != null && endPeriod != null) {
+      activity = new TaskActivity(dataSource, root, now, timeSlotTracker
+          .getActiveTimeSlot());
+    }
+    cacheContext = getCacheContext();
+    openPeriodBegin = TimeUtils.getMonthBegin(new Date(now)).getTimeInMillis();
+    fragments = exportFragments(root);
+    try {
+      out.startDocument();
+      if (out instanceof TeeHandler) {
+        ((TeeHandler) out).comment(" Generated: " + new Date() + " ");
+      }
+      start("TimeSlotTracker_Report");
+      exportReportStrings();
+      exportPeriodLoop();
+
+      projectSummaryByDay = new ProjectSummaryByDay();
+      if (startPeriod != null && endPeriod != null) {
+        projectSummaryByDay.setStartDate((new SimpleDateFormat("yyyy-MM-dd"))
+            .format(startPeriod));
+        projectSummaryByDay.setStopDate((new SimpleDateFormat("yyyy-MM-dd"))
+            .format(endPeriod));
+      }
+      if (fragments.isEmpty()) {
+        exportTasksByDayLoop(root);
+      } else {
+        // root task first, then subtrees in tree order
+        collectProjectTimeSlots(root);
+        for (Future<Fragment> fragment : fragments.values()) {
+          projectSummaryByDay.merge(getFragment(fragment).projectSummary);
+        }
+      }
+      projectSummaryByDay.toXml(out);
+      exportTask(root);
+      end("TimeSlotTracker_Report");
+      out.endDocument();
+    } finally {
+      for (Future<Fragment> fragment : fragments.values()) {
+        fragment.cancel(true);
+      }
+      fragments = Collections.emptyMap();
+      activity = null;
+      projectAttributes.clear();
+    }
+  }
+
+  /**
+   * Starts exporting every top-level subtree in a fork-join pool (skipped
+   * subtrees are left out).
+   *
+   * @return exported fragments by top-level task, in tree order. Empty when
+   *         there is only one subtree.
+   */
+  private Map<Task, Future<Fragment>> exportFragments(Task root) {
+    Collection<Task> children = dataSource.getChildren(root);
+    if (children == null) {
+      return Collections.emptyMap();
+    }
+    List<Task> exported = new ArrayList<Task>();
+    for (Task child : children) {
+      if (!isSkipped(child)) {
+        exported.add(child);
+      }
+    }
+    if (exported.size() < 2) {
+      return Collections.emptyMap();
+    }
+    Map<Task, Future<Fragment>> result = new LinkedHashMap<Task, Future<Fragment>>();
+    for (final Task child : exported) {
+      result.put(child, ForkJoinPool.commonPool().submit(
+          new Callable<Fragment>() {
+            public Fragment call() throws SAXException {
+              return exportFragment(child);
+            }
+          }));
+    }
+    return result;
+  }
+
+  /**
+   * Exports one top-level subtree into a buffer. It's called in a worker
+   * thread, so it uses own reader not to share its calendar and formatters.
+   */
+  private Fragment exportFragment(Task task) throws SAXException {
+    ReportDataReader worker = new ReportDataReader(timeSlotTracker,
+        dataSource, filters, startPeriod, endPeriod);
+    worker.now = now;
+    worker.activity = activity;
+    worker.filteredByPeriod = filteredByPeriod;
+    worker.monthCache = monthCache;
+    worker.monthGenerations = monthGenerations;
+    worker.cacheContext = cacheContext;
+    worker.openPeriodBegin = openPeriodBegin;
+    Fragment fragment = new Fragment();
+    worker.out = fragment.events;
+    worker.projectSummaryByDay = fragment.projectSummary;
+    worker.exportTasksByDayLoop(task);
+    fragment.durations = worker.exportTask(task);
+    return fragment;
+  }
+
+  private static Fragment getFragment(Future<Fragment> fragment)
+      throws SAXException {
+    try {
+      return fragment.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new SAXException(e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof SAXException) {
+        throw (SAXException) cause;
+      }
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new SAXException(e);
+    }
+  }
+
+  private void start(String name) throws SAXException {
+    out.startElement("", name, name, NO_ATTRIBUTES);
+  }
+
+  private void start(String name, String attribute, String value)
+      throws SAXException {
+    AttributesImpl attributes = new AttributesImpl();
+    attributes.addAttribute("", attribute, attribute, "CDATA", value);
+    out.startElement("", name, name, attributes);
+  }
+
+  private void end(String name) throws SAXException {
+    out.endElement("", name, name);
+  }
+
+  /**
+   * Exports one tag with a text value.
+   *
+   * @param value
+   *          a value for this tag. A <code>null</code> value is changed to an
+   *          empty string.
+   */
+  private void exportTag(String tagName, String value) throws SAXException {
+    start(tagName);
+    if (value != null && value.length() > 0) {
+      out.characters(value.toCharArray(), 0, value.length());
+    }
+    end(tagName);
+  }
+
+  private void exportTag(String tagName, long value) throws SAXException {
+    exportTag(tagName, String.valueOf(value));
+  }
+
+  /** Checks if given task should be incluede into the ouput. */
+  private boolean checkFilters(Task task) {
+    for (Filter filter : filters) {
+      if (!filter.matches(task)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private boolean checkFilters(TimeSlot timeSlot) {
+    for (Filter filter : filters) {
+      if (!filter.matches(timeSlot)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Durations of a task subtree, counted while the subtree is exported.
+   */
+  private static class Durations {
+    /** milliseconds in filtered timeslots of exported tasks */
+    private long filtered;
+
+    /** milliseconds in all timeslots */
+    private long all;
+  }
+
+  /**
+   * Project attributes of a task.
+   */
+  private static class ProjectAttributes {
+    /** the task has both project number and project task attributes */
+    private boolean summary;
+
+    /** project number of the task or its parent, null if not resolved yet */
+    private String projectNumber;
+
+    /** project task of the task or its parent, null if not resolved yet */
+    private String projectTask;
+  }
+
+  /**
+   * Top-level subtree exported by a worker: its events, durations and
+   * project timeslots.
+   */
+  private static class Fragment {
+    private final SaxBuffer events = new SaxBuffer();
+    private final ProjectSummaryByDay projectSummary = new ProjectSummaryByDay();
+    private Durations durations;
+  }
+
+  /**
+   * Exports one task with its subtasks.
+   * <p/>
+   * Durations of the task are counted in one pass with its subtree, so the
+   * tree is walked only once.
+   *
+   * @return durations of this task and its subtasks.
+   */
+  private Durations exportTask(Task task) throws SAXException {
+    if (isSkipped(task)) {
+      // neither the task nor its subtasks are shown
+      Durations durations = new Durations();
+      durations.all = getActivity(task).milliseconds;
+      return durations;
+    }
+    boolean showTask = checkFilters(task);
+
+    if (showTask) {
+      start("task", "taskId", "_" + task.getId());
+      exportTag("name", task.getName());
+      exportTag("description", task.getDescription());
+      exportAttributes(task.getAttributes());
+    }
+    Durations durations = exportTimeSlots(task, showTask);
+    long milliseconds = durations.filtered;
+    long allMilliseconds = durations.all;
+
+    // check children
+    Collection<Task> children = dataSource.getChildren(task);
+    if (children != null) {
+      for (Task child : children) {
+        Future<Fragment> fragment = fragments.get(child);
+        Durations childDurations;
+        if (fragment == null) {
+          childDurations = exportTask(child);
+        } else {
+          Fragment exported = getFragment(fragment);
+          exported.events.replay(out);
+          childDurations = exported.durations;
+        }
+        durations.filtered += childDurations.filtered;
+        durations.all += childDurations.all;
+      }
+    }
+
+    if (showTask) {
+      // duration mast be printed at the end because of the need of counting the
+      // duration in subtasks
+      exportDuration("duration", milliseconds, durations.filtered);
+      exportDuration("durationAll", allMilliseconds, durations.all);
+      end("task");
+    }
+    return durations;
+  }
+
+  /**
+   * Exports tag <code>tagName</code> with subtags describing a duration period.
+   *
+   * @param tagName
+   *          a name for a tag, e.g. "duration"
+   * @param milliseconds
+   *          milliseconds in this duration
+   * @param millisecondsWithSubtasks
+   *          if greater or equal then zero then it is also included in this
+   *          duration tag.
+   */
+  private void exportDuration(String tagName, long milliseconds,
+      long millisecondsWithSubtasks) throws SAXException {
+    start(tagName);
+    exportTag("seconds", milliseconds / 1000);
+    exportTag("duration", TimeUtils.formatDuration(timeSlotTracker,
+        milliseconds));
+    exportTag("secondsWithChildren", millisecondsWithSubtasks / 1000);
+    exportTag("durationWithChildren", TimeUtils.formatDuration(
+        timeSlotTracker, millisecondsWithSubtasks));
+    end(tagName);
+  }
+
+  /**
+   * Exports timeslots of the task.
+   *
+   * @param show
+   *          <code>false</code> if the task isn't exported, its timeslots are
+   *          only counted
+   * @return durations of only the task's own timeslots
+   */
+  private Durations exportTimeSlots(Task parentTask, boolean show)
+      throws SAXException {
+    Durations durations = new Durations();
+    Collection<TimeSlot> timeslots = parentTask.getTimeslots();
+    if (timeslots == null) {
+      return durations;
+    }
+    TaskActivity.Activity taskActivity = getActivity(parentTask);
+    if (taskActivity != null) {
+      durations.all = taskActivity.ownMilliseconds;
+      if (show) {
+        durations.filtered = exportTimeSlotsInPeriod(parentTask, timeslots,
+            taskActivity);
+      }
+      return durations;
+    }
+    for (TimeSlot timeslot : timeslots) {
+      // the same as timeslot.getTime()
+      Date start = timeslot.getStartDate();
+      if (start != null) {
+        long duration = stopTime(timeslot) - start.getTime();
+        durations.all += Math.max(0, duration);
+      }
+      if (show) {
+        durations.filtered += exportTimeSlot(timeslot);
+      }
+    }
+    return durations;
+  }
+
+  /**
+   * Exports timeslots of a task which may be in report period, the others
+   * would be hidden by filters.
+   * <p/>
+   * Timeslots sorted by their starts are searched for the first one which
+   * may end in the period and they are skipped after the period. They are
+   * exported month by month, so closed months can be replayed from the month
+   * cache.
+   *
+   * @return milliseconds in exported timeslots
+   */
+  private long exportTimeSlotsInPeriod(Task task,
+      Collection<TimeSlot> timeslots, TaskActivity.Activity taskActivity)
+      throws SAXException {
+    TimeSlot activeTimeSlot = timeSlotTracker.getActiveTimeSlot();
+    long milliseconds = 0;
+    if (!taskActivity.sorted || !(timeslots instanceof List)
+        || !(timeslots instanceof RandomAccess)) {
+      for (TimeSlot timeslot : timeslots) {
+        milliseconds += exportTimeSlotInPeriod(timeslot, activeTimeSlot);
+      }
+      return milliseconds;
+    }
+
+    List<TimeSlot> list = (List<TimeSlot>) timeslots;
+    // no timeslot started before can end in the period
+    int index = firstStartedFrom(list, 0, periodBegin - taskActivity.longest);
+    while (index < list.size()) {
+      Date start = list.get(index).getStartDate();
+      if (start == null || start.getTime() > periodEnd) {
+        break;
+      }
+      long monthEnd = TimeUtils.getMonthEnd(start).getTimeInMillis();
+      int next = firstStartedFrom(list, index, monthEnd + 1);
+      List<TimeSlot> month = list.subList(index, next);
+      if (isCachedMonth(start, monthEnd)) {
+        milliseconds += exportMonth(task, month, start, monthEnd,
+            activeTimeSlot);
+      } else {
+        for (TimeSlot timeslot : month) {
+          milliseconds += exportTimeSlotInPeriod(timeslot, activeTimeSlot);
+        }
+      }
+      index = next;
+    }
+    return milliseconds;
+  }
+
+  /**
+   * Exports the timeslot if it may be in report period.
+   *
+   * @return milliseconds in exported timeslot
+   */
+  private long exportTimeSlotInPeriod(TimeSlot timeslot,
+      TimeSlot activeTimeSlot) throws SAXException {
+    Date start = timeslot.getStartDate();
+    if (start != null && start.getTime() > periodEnd) {
+      return 0;
+    }
+    Date stop = timeslot.getStopDate();
+    if (stop != null && stop.getTime() < periodBegin
+        && !timeslot.equals(activeTimeSlot)) {
+      return 0;
+    }
+    return exportTimeSlot(timeslot);
+  }
+
+  /**
+   * @return <code>true</code> if the month of given start is closed and it's
+   *         in report period as a whole, so its timeslots are cached
+   */
+  private boolean isCachedMonth(Date start, long monthEnd) {
+    return monthCache != null && monthEnd < openPeriodBegin
+        && monthEnd <= endPeriod.getTime()
+        && TimeUtils.getMonthBegin(start).getTimeInMillis() >= startPeriod
+            .getTime();
+  }
+
+  /**
+   * Exports timeslots of a task started in a closed month, replaying them
+   * from the month cache when they haven't been changed since cached.
+   * <p/>
+   * They are cached only when all of them are stopped in the month, as they
+   * are then exported the same by every report covering the month.
+   *
+   * @return milliseconds in exported timeslots
+   */
+  private long exportMonth(Task task, List<TimeSlot> timeslots, Date start,
+      long monthEnd, TimeSlot activeTimeSlot) throws SAXException {
+    int month = monthGenerations.getMonth(start);
+    long generation = monthGenerations.getGeneration(month);
+    ReportMonthCache.Entry entry = monthCache.get(cacheContext, task.getId(),
+        month, generation);
+    if (entry != null && entry.count == timeslots.size()) {
+      entry.events.replay(out);
+      return entry.milliseconds;
+    }
+
+    boolean cacheable = true;
+    for (TimeSlot timeslot : timeslots) {
+      Date stop = timeslot.getStopDate();
+      cacheable &= stop != null && stop.getTime() <= monthEnd
+          && !timeslot.equals(activeTimeSlot);
+    }
+    if (!cacheable) {
+      long milliseconds = 0;
+      for (TimeSlot timeslot : timeslots) {
+        milliseconds += exportTimeSlotInPeriod(timeslot, activeTimeSlot);
+      }
+      return milliseconds;
+    }
+
+    SaxBuffer events = new SaxBuffer();
+    ContentHandler handler = out;
+    long milliseconds = 0;
+    out = events;
+    try {
+      for (TimeSlot timeslot : timeslots) {
+        milliseconds += exportTimeSlot(timeslot);
+      }
+    } finally {
+      out = handler;
+    }
+    events.replay(out);
+    monthCache.put(cacheContext, task.getId(), month, new ReportMonthCache.Entry(
+        generation, timeslots.size(), milliseconds, events));
+    return milliseconds;
+  }
+
+  /**
+   * @return index of the first timeslot started from given time (searched
+   *         from given index), the size of the list if there isn't any
+   */
+  private static int firstStartedFrom(List<TimeSlot> timeslots, int from,
+      long time) {
+    int low = from;
+    int high = timeslots.size();
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      Date start = timeslots.get(middle).getStartDate();
+      if (start != null && start.getTime() < time) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * @return things report data are formatted by, to identify cached months
+   */
+  private String getCacheContext() {
+    StringBuilder context = new StringBuilder();
+    context.append(timeSlotTracker.getLocale()).append('|').append(
+        TimeZone.getDefault().getID());
+    Configuration configuration = timeSlotTracker.getConfiguration();
+    if (configuration != null) {
+      context.append('|').append(
+          configuration.getString(Configuration.TIME_DURATION_FORMAT, null));
+      context.append('|').append(
+          configuration.getInteger(Configuration.HOURS_PER_WORKING_DAY, null));
+    }
+    return context.toString();
+  }
+
+  /**
+   * @return activity of the task when subtrees and timeslots outside of
+   *         report period are skipped, otherwise <code>null</code>
+   */
+  private TaskActivity.Activity getActivity(Task task) {
+    if (!filteredByPeriod || activity == null) {
+      return null;
+    }
+    return activity.get(task);
+  }
+
+  /**
+   * @return <code>true</code> if the task subtree hasn't any activity in
+   *         report period, so filters would hide all its tasks
+   */
+  private boolean isSkipped(Task task) {
+    TaskActivity.Activity taskActivity = getActivity(task);
+    return taskActivity != null
+        && taskActivity.isInactive(periodBegin, periodEnd);
+  }
+
+  /**
+   * @return stop time of the timeslot, the time the report is run when it
+   *         isn't stopped yet
+   */
+  private long stopTime(TimeSlot timeslot) {
+    Date stop = timeslot.getStopDate();
+    return stop == null ? now : stop.getTime();
+  }
+
+  private long exportTimeSlot(TimeSlot timeslot) throws SAXException {
+    if (!checkFilters(timeslot)) {
+      return 0;
+    }
+
+    start("timeslot");
+    Date startDate = timeslot.getStartDate();
+    Date stopDate = timeslot.getStopDate();
+    if (stopDate == null
+        || timeslot.equals(timeSlotTracker.getActiveTimeSlot())) {
+      stopDate = new Date(now);
+    }
+
+    // if timeslot started BEFORE report starting date get report starting date
+    if (startPeriod != null && startDate != null
+        && startPeriod.after(startDate)) {
+      startDate = startPeriod;
+    }
+
+    // if timeslot stopped AFTER report stopping date get report stop date
+    if (endPeriod != null && endPeriod.before(stopDate)) {
+      stopDate = endPeriod;
+    }
+
+    if (startDate != null) {
+      exportTagDate("startDate", startDate);
+    }
+    exportTagDate("stopDate", stopDate);
+
+    // duration, the same as timeslot.getTime(startDate, stopDate)
+    long milliseconds = 0;
+    if (startDate != null) {
+      long start = Math.max(timeslot.getStartDate().getTime(), TimeUtils
+          .roundTime(startDate.getTime()));
+      long stop = Math.min(stopTime(timeslot), TimeUtils.roundTime(stopDate
+          .getTime()));
+      milliseconds = Math.max(0, stop - start);
+    }
+    exportDuration("duration", milliseconds, -1);
+
+    exportTag("description", timeslot.getDescription());
+    exportAttributes(timeslot.getAttributes());
+    end("timeslot");
+    return milliseconds;
+  }
+
+  private void exportTagDate(String tagName, Date date) throws SAXException {
+    if (date == null) {
+      return;
+    }
+    start(tagName);
+    start("datetime");
+
+    calendar.setTime(date);
+    exportTag("date", dateFormater.format(date));
+    exportTag("year", calendar.get(Calendar.YEAR));
+    int month = calendar.get(Calendar.MONTH) + 1;
+    exportTag("month", month);
+    exportTag("monthName", dateFormatSymbols.getMonths()[month - 1]);
+    exportTag("day", calendar.get(Calendar.DATE));
+    exportTag("weekOfYear", calendar.get(Calendar.WEEK_OF_YEAR));
+    exportTag("weekOfMonth", calendar.get(Calendar.WEEK_OF_MONTH));
+
+    // dayOfWeek. Starting with MONDAY=1, etc.
+    int dayOfWeek = calendar.get(Calendar.DAY_OF_WEEK);
+    exportTag("dayOfWeekName", dateFormatSymbols.getWeekdays()[dayOfWeek]);
+    exportTag("dayOfWeekNameShort",
+        dateFormatSymbols.getShortWeekdays()[dayOfWeek]);
+    dayOfWeek -= 1;
+    if (dayOfWeek == 0) {
+      // it was SUNDAY, by java used as a first day (==1)
+      dayOfWeek = 7;
+    }
+    exportTag("dayOfWeek", dayOfWeek);
+    exportTag("dayOfYear", calendar.get(Calendar.DAY_OF_YEAR));
+    exportTag("hour", calendar.get(Calendar.HOUR_OF_DAY));
+    exportTag("min", calendar.get(Calendar.MINUTE));
+
+    end("datetime");
+    end(tagName);
+  }
+
+  /**
+   * Exports attributes from given collection.
+   * <p/>
+   * It constructs a tag "attributes" with subtags "attribute" one for every
+   * attribute. Inside the "attribute" tag is "name" and "value" tags.
+   *
+   * @see net.sf.timeslottracker.data.Task#getAttributes()
+   * @see net.sf.timeslottracker.data.TimeSlot#getAttributes()
+   */
+  private void exportAttributes(Collection<Attribute> attributes)
+      throws SAXException {
+    start("attributes");
+    if (attributes != null) {
+      for (Attribute attribute : attributes) {
+        AttributeType type = attribute.getAttributeType();
+        AttributeCategory category = type.getCategory();
+        if (!type.isHiddenOnReports()) {
+          start("attribute");
+          exportTag("name", type.getName());
+          exportTag("value", category.toString(attribute.get()));
+          end("attribute");
+        }
+      }
+    }
+    end("attributes");
+  }
+
+  /**
+   * Exports strings from ReportStrings_[locale] resource bundle into
+   * <b>dictonary</b> section.
+   */
+  private void exportReportStrings() throws SAXException {
+    ResourceBundle reportStrings;
+    try {
+      reportStrings = ResourceBundle.getBundle("ReportStrings",
+          timeSlotTracker.getLocale());
+    } catch (MissingResourceException e) {
+      timeSlotTracker.errorLog(e);
+      return;
+    }
+    start("dictionary");
+    Enumeration<String> keys = reportStrings.getKeys();
+    while (keys.hasMoreElements()) {
+      String key = keys.nextElement();
+      exportTag(key, reportStrings.getString(key));
+    }
+    end("dictionary");
+  }
+
+  /**
+   * Exports a loop with day by day from starting date to stopping date.
+   * <p/>
+   * Used to make a loop day by day in xslt.
+   */
+  private void exportPeriodLoop() throws SAXException {
+    if (startPeriod == null || endPeriod == null) {
+      return;
+    }
+
+    start("dayByDayLoop");
+    calendar.setTime(startPeriod);
+    exportTag("startDayOfYear", calendar.get(Calendar.DAY_OF_YEAR));
+    calendar.setTime(endPeriod);
+    exportTag("stopDayOfYear", calendar.get(Calendar.DAY_OF_YEAR));
+
+    Calendar day = Calendar.getInstance(timeSlotTracker.getLocale());
+    day.setTime(startPeriod);
+    while (!day.getTime().after(endPeriod)) {
+      exportTagDate("day", day.getTime());
+      day.add(Calendar.DATE, 1);
+    }
+    end("dayByDayLoop");
+  }
+
+  private boolean hasProjectSummaryAttributes(Task task) {
+    boolean checkProjectNumber = false;
+    boolean checkProjectTask = false;
+    if (task != null && task.getAttributes() != null) {
+      for (Attribute a : task.getAttributes()) {
+        if ("Project number".equalsIgnoreCase(a.getAttributeType().getName()))
+          checkProjectNumber = true;
+        if ("Project task".equalsIgnoreCase(a.getAttributeType().getName()))
+          checkProjectTask = true;
+      }
+    }
+    return checkProjectNumber && checkProjectTask;
+  }
+
+  private String getAttributeValue(Task task, String pName) {
+    String value = "";
+    for (Attribute a : task.getAttributes()) {
+      if (pName.equalsIgnoreCase(a.getAttributeType().getName()))
+        value = a.get().toString();
+    }
+
+    if (value.equalsIgnoreCase("") && task.getParentTask() != null) {
+      for (Attribute a : task.getParentTask().getAttributes()) {
+        if (pName.equalsIgnoreCase(a.getAttributeType().getName()))
+          value = a.get().toString();
+      }
+    }
+    return value;
+  }
+
+  /**
+   * Collects timeslots of tasks with project attributes into
+   * {@link ProjectSummaryByDay}.
+   */
+  private void exportTasksByDayLoop(Task task) {
+    if (startPeriod == null || endPeriod == null) {
+      return;
+    }
+    TaskActivity.Activity taskActivity = activity == null ? null : activity
+        .get(task);
+    if (taskActivity != null
+        && taskActivity.isNotStarted(startPeriod.getTime(), endPeriod
+            .getTime())) {
+      // no timeslot of the subtree started in the period
+      return;
+    }
+    collectProjectTimeSlots(task);
+
+    // check children
+    Collection<Task> children = dataSource.getChildren(task);
+    if (children != null) {
+      for (Task child : children) {
+        exportTasksByDayLoop(child);
+      }
+    }
+  }
+
+  /**
+   * @return project attributes of the task, resolved once per report
+   */
+  private ProjectAttributes getProjectAttributes(Task task) {
+    ProjectAttributes attributes = projectAttributes.get(task.getId());
+    if (attributes == null) {
+      attributes = new ProjectAttributes();
+      attributes.summary = hasProjectSummaryAttributes(task);
+      projectAttributes.put(task.getId(), attributes);
+    }
+    return attributes;
+  }
+
+  /**
+   * Collects timeslots of one task (without its subtasks).
+   */
+  private void collectProjectTimeSlots(Task task) {
+    if (startPeriod == null || endPeriod == null) {
+      return;
+    }
+
+    ProjectAttributes attributes = getProjectAttributes(task);
+    Task parent = task.getParentTask();
+    if (!attributes.summary
+        && (parent == null || !getProjectAttributes(parent).summary)) {
+      return;
+    }
+    long start = startPeriod.getTime();
+    long end = endPeriod.getTime();
+    for (TimeSlot timeslot : task.getTimeslots()) {
+      Date startDate = timeslot.getStartDate();
+      if (startDate.getTime() > start && startDate.getTime() < end) {
+        if (attributes.projectNumber == null) {
+          attributes.projectNumber = getAttributeValue(task, "Project number");
+          attributes.projectTask = getAttributeValue(task, "Project task");
+        }
+        projectSummaryByDay.add(task.getId(), attributes.projectNumber,
+            attributes.projectTask, startDate, timeslot.getTime());
+      }
+    }
+  }
+
+  public ContentHandler getContentHandler() {
+    return contentHandler;
+  }
+
+  public void setContentHandler(ContentHandler handler) {
+    this.contentHandler = handler;
+  }
+
+  public DTDHandler getDTDHandler() {
+    return dtdHandler;
+  }
+
+  public void setDTDHandler(DTDHandler handler) {
+    this.dtdHandler = handler;
+  }
+
+  public EntityResolver getEntityResolver() {
+    return entityResolver;
+  }
+
+  public void setEntityResolver(EntityResolver resolver) {
+    this.entityResolver = resolver;
+  }
+
+  public ErrorHandler getErrorHandler() {
+    return errorHandler;
+  }
+
+  public void setErrorHandler(ErrorHandler handler) {
+    this.errorHandler = handler;
+  }
+
+  public boolean getFeature(String name) {
+    Boolean value = features.get(name);
+    return value != null && value.booleanValue();
+  }
+
+  public void setFeature(String name, boolean value) {
+    features.put(name, Boolean.valueOf(value));
+  }
+
+  public Object getProperty(String name) {
+    return properties.get(name);
+  }
+
+  public void setProperty(String name, Object value) {
+    properties.put(name, value);
+  }
+
+  /**
+   * Sends events to the transformer and to the xml file.
+   */
+  private static class TeeHandler implements ContentHandler {
+    private final ContentHandler first;
+    private final TransformerHandler second;
+
+    private TeeHandler(ContentHandler first, TransformerHandler second) {
+      this.first = first;
+      this.second = second;
+    }
+
+    /**
+     * Writes a comment to the xml file only.
+     */
+    private void comment(String text) throws SAXException {
+      ((LexicalHandler) second).comment(text.toCharArray(), 0, text.length());
+    }
+
+    public void setDocumentLocator(Locator locator) {
+      first.setDocumentLocator(locator);
+      second.setDocumentLocator(locator);
+    }
+
+    public void startDocument() throws SAXException {
+      first.startDocument();
+      second.startDocument();
+    }
+
+    public void endDocument() throws SAXException {
+      first.endDocument();
+      second.endDocument();
+    }
+
+    public void startPrefixMapping(String prefix, String uri)
+        throws SAXException {
+      first.startPrefixMapping(prefix, uri);
+      second.startPrefixMapping(prefix, uri);
+    }
+
+    public void endPrefixMapping(String prefix) throws SAXException {
+      first.endPrefixMapping(prefix);
+      second.endPrefixMapping(prefix);
+    }
+
+    public void startElement(String uri, String localName, String qName,
+        Attributes atts) throws SAXException {
+      first.startElement(uri, localName, qName, atts);
+      second.startElement(uri, localName, qName, atts);
+    }
+
+    public void endElement(String uri, String localName, String qName)
+        throws SAXException {
+      first.endElement(uri, localName, qName);
+      second.endElement(uri, localName, qName);
+    }
+
+    public void characters(char[] ch, int start, int length)
+        throws SAXException {
+      first.characters(ch, start, length);
+      second.characters(ch, start, length);
+    }
+
+    public void ignorableWhitespace(char[] ch, int start, int length)
+        throws SAXException {
+      first.ignorableWhitespace(ch, start, length);
+      second.ignorableWhitespace(ch, start, length);
+    }
+
+    public void processingInstruction(String target, String data)
+        throws SAXException {
+      first.processingInstruction(target, data);
+      second.processingInstruction(target, data);
+    }
+
+    public void skippedEntity(String name) throws SAXException {
+      first.skippedEntity(name);
+      second.skippedEntity(name);
+    }
+  }
+
+}
@@ -0,0 +1,156 @@
+package net.sf.timeslottracker.gui.reports;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import net.sf.timeslottracker.data.MonthGenerations;
+
+/**
+ * Report data of timeslots in closed calendar months, shared by report runs.
+ * <p>
+ * For a task and a month, it keeps the exported events of the task's
+ * timeslots started (and stopped) in that month, with the generation of the
+ * month (see {@link MonthGenerations}) they were exported in. Reports covering
+ * the whole month replay them instead of exporting the timeslots again, until
+ * timeslots of the month are changed.
+ * <p>
+ * Report data are the same for all report types, so entries are shared by
+ * them. They are identified by a context of things the data are formatted by
+ * (locale, duration format, etc.), a task id and a month.
+ * <p>
+ * Memory is bounded by the number of buffered events, a month of a busy task
+ * holds many more of them than a month of a rarely used one. The least
+ * recently used entries are forgotten when there are too many.
+ */
+public class ReportMonthCache {
+
+  /** max number of buffered events, about a hundred bytes each */
+  private static final int MAX_EVENTS = 500000;
+
+  private static final ReportMonthCache INSTANCE = new ReportMonthCache();
+
+  /**
+   * Exported timeslots of a task in a month.
+   */
+  static class Entry {
+    /** generation of the month the timeslots were exported in */
+    private final long generation;
+
+    /** number of the timeslots */
+    final int count;
+
+    /** milliseconds in the exported timeslots */
+    final long milliseconds;
+
+    /** events of the exported timeslots */
+    final SaxBuffer events;
+
+    Entry(long generation, int count, long milliseconds, SaxBuffer events) {
+      this.generation = generation;
+      this.count = count;
+      this.milliseconds = milliseconds;
+      this.events = events;
+    }
+  }
+
+  /** entries in access order, the least recently used first */
+  private final Map<String, Entry> entries = new LinkedHashMap<String, Entry>(
+      16, 0.75f, true);
+
+  private final int maxEvents;
+
+  /** number of events buffered by all entries */
+  private int events;
+
+  private int hits;
+
+  private int misses;
+
+  ReportMonthCache() {
+    this(MAX_EVENTS);
+  }
+
+  ReportMonthCache(int maxEvents) {
+    this.maxEvents = maxEvents;
+  }
+
+  public static ReportMonthCache getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * @param generation
+   *          current generation of the month
+   * @return timeslots exported in the generation, <code>null</code> if there
+   *         aren't any
+   */
+  synchronized Entry get(String context, Object taskId, int month,
+      long generation) {
+    String key = key(context, taskId, month);
+    Entry entry = entries.get(key);
+    if (entry != null && entry.generation != generation) {
+      remove(key);
+      entry = null;
+    }
+    if (entry == null) {
+      misses++;
+    } else {
+      hits++;
+    }
+    return entry;
+  }
+
+  synchronized void put(String context, Object taskId, int month, Entry entry) {
+    String key = key(context, taskId, month);
+    remove(key);
+    entries.put(key, entry);
+    events += entry.events.size();
+    Iterator<Entry> eldest = entries.values().iterator();
+    while (events > maxEvents && eldest.hasNext()) {
+      events -= eldest.next().events.size();
+      eldest.remove();
+    }
+  }
+
+  private void remove(String key) {
+    Entry removed = entries.remove(key);
+    if (removed != null) {
+      events -= removed.events.size();
+    }
+  }
+
+  /**
+   * Forgets all entries.
+   */
+  public synchronized void clear() {
+    entries.clear();
+    events = 0;
+  }
+
+  /**
+   * @return number of events buffered by all entries
+   */
+  synchronized int getEvents() {
+    return events;
+  }
+
+  /**
+   * @return number of months replayed from the cache, for diagnostics
+   */
+  public synchronized int getHits() {
+    return hits;
+  }
+
+  /**
+   * @return number of months exported as they weren't cached, for diagnostics
+   */
+  public synchronized int getMisses() {
+    return misses;
+  }
+
+  private static String key(String context, Object taskId, int month) {
+    return context + '\n' + taskId + '\n' + month;
+  }
+
+}
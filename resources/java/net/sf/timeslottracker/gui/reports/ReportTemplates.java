@@ -0,0 +1,131 @@
+package net.sf.timeslottracker.gui.reports;
+
+import java.io.File;
+import java.net.URI;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.xml.transform.Source;
+import javax.xml.transform.Templates;
+import javax.xml.transform.TransformerConfigurationException;
+import javax.xml.transform.TransformerFactory;
+
+/**
+ * Compiled report stylesheets.
+ * <p>
+ * A stylesheet is identified by system id of its source: url of a built-in
+ * stylesheet in the jar file or a file chosen for a custom report. A file is
+ * compiled again when it has been modified since. Sources without a system id
+ * are compiled every time.
+ * <p>
+ * Compiled <code>Templates</code> are thread-safe, every report run creates
+ * its own <code>Transformer</code> from them.
+ */
+public class ReportTemplates {
+
+  private static final Logger LOG = Logger
+      .getLogger("net.sf.timeslottracker.gui");
+
+  private static final ReportTemplates INSTANCE = new ReportTemplates();
+
+  private static class Entry {
+    private final long modified;
+    private final Templates templates;
+
+    private Entry(long modified, Templates templates) {
+      this.modified = modified;
+      this.templates = templates;
+    }
+  }
+
+  private final TransformerFactory transformerFactory = TransformerFactory
+      .newInstance();
+
+  private final Map<String, Entry> entries = new HashMap<String, Entry>();
+
+  private int compiled;
+
+  ReportTemplates() {
+  }
+
+  public static ReportTemplates getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * Returns compiled stylesheet, compiling it when it is not cached yet.
+   */
+  public synchronized Templates getTemplates(Source xslt)
+      throws TransformerConfigurationException {
+    String systemId = xslt.getSystemId();
+    if (systemId == null) {
+      return compile(xslt);
+    }
+    long modified = lastModified(systemId);
+    Entry entry = entries.get(systemId);
+    if (entry == null || entry.modified != modified) {
+      entry = new Entry(modified, compile(xslt));
+      entries.put(systemId, entry);
+    }
+    return entry.templates;
+  }
+
+  /**
+   * Compiles stylesheets of given reports, so the first run of a report
+   * doesn't wait for it. Reports which can't give their stylesheet yet (e.g. a
+   * custom report without a chosen file) are skipped.
+   *
+   * @param reports
+   *          reports, <code>null</code> elements are ignored
+   * @param dataDirectory
+   *          a path (with slash|backslash) of data files
+   */
+  public void warmUp(Collection<AbstractReport> reports, String dataDirectory) {
+    long start = System.currentTimeMillis();
+    for (AbstractReport report : reports) {
+      if (report == null) {
+        continue;
+      }
+      try {
+        getTemplates(report.getXsltSource(dataDirectory));
+      } catch (Exception e) {
+        LOG.log(Level.FINE, "Stylesheet of report " + report.getClass()
+            + " not compiled", e);
+      }
+    }
+    LOG.info("Report stylesheets compiled in "
+        + (System.currentTimeMillis() - start) + " ms");
+  }
+
+  /**
+   * @return number of compilations done, for diagnostics
+   */
+  public synchronized int getCompiled() {
+    return compiled;
+  }
+
+  private Templates compile(Source xslt)
+      throws TransformerConfigurationException {
+    Templates templates = transformerFactory.newTemplates(xslt);
+    compiled++;
+    return templates;
+  }
+
+  /**
+   * @return modification time of a file, 0 for other urls (in the jar file)
+   */
+  private static long lastModified(String systemId) {
+    if (!systemId.startsWith("file:")) {
+      return 0;
+    }
+    try {
+      return new File(new URI(systemId)).lastModified();
+    } catch (Exception e) {
+      return 0;
+    }
+  }
+
+}
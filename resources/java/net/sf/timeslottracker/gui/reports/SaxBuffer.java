@@ -0,0 +1,97 @@
+package net.sf.timeslottracker.gui.reports;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.Locator;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.AttributesImpl;
+
+/**
+ * Records SAX events of a document fragment to send them to another handler
+ * later.
+ * <p/>
+ * Only element and text events are recorded, a fragment has no document
+ * events nor prefix mappings.
+ */
+class SaxBuffer implements ContentHandler {
+
+  private static final int START = 0;
+
+  private static final int END = 1;
+
+  private static final int CHARACTERS = 2;
+
+  private final List<Object[]> events = new ArrayList<Object[]>();
+
+  /**
+   * Sends recorded events to the handler.
+   */
+  void replay(ContentHandler handler) throws SAXException {
+    for (Object[] event : events) {
+      switch ((Integer) event[0]) {
+      case START:
+        handler.startElement((String) event[1], (String) event[2],
+            (String) event[3], (Attributes) event[4]);
+        break;
+      case END:
+        handler.endElement((String) event[1], (String) event[2],
+            (String) event[3]);
+        break;
+      default:
+        char[] text = (char[]) event[1];
+        handler.characters(text, 0, text.length);
+      }
+    }
+  }
+
+  /**
+   * @return number of recorded events
+   */
+  int size() {
+    return events.size();
+  }
+
+  public void startElement(String uri, String localName, String qName,
+      Attributes atts) {
+    events.add(new Object[] { START, uri, localName, qName,
+        new AttributesImpl(atts) });
+  }
+
+  public void endElement(String uri, String localName, String qName) {
+    events.add(new Object[] { END, uri, localName, qName });
+  }
+
+  public void characters(char[] ch, int start, int length) {
+    char[] text = new char[length];
+    System.arraycopy(ch, start, text, 0, length);
+    events.add(new Object[] { CHARACTERS, text });
+  }
+
+  public void ignorableWhitespace(char[] ch, int start, int length) {
+  }
+
+  public void processingInstruction(String target, String data) {
+  }
+
+  public void skippedEntity(String name) {
+  }
+
+  public void setDocumentLocator(Locator locator) {
+  }
+
+  public void startDocument() {
+  }
+
+  public void endDocument() {
+  }
+
+  public void startPrefixMapping(String prefix, String uri) {
+  }
+
+  public void endPrefixMapping(String prefix) {
+  }
+
+}
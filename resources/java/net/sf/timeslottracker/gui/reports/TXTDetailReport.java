@@ -4,11 +4,12 @@ import java.util.Collection;
 import java.util.Vector;
 
 import javax.xml.transform.Source;
-import javax.xml.transform.stream.StreamSource;
 
 import net.sf.timeslottracker.gui.LayoutManager;
 import net.sf.timeslottracker.gui.reports.filters.EncodingFilter;
 import net.sf.timeslottracker.gui.reports.filters.Filter;
+import net.sf.timeslottracker.gui.reports.text.TXTDetailWriter;
+import net.sf.timeslottracker.gui.reports.text.TextReportWriter;
 
 /**
  * Detail report (by tasks) in TXT form
@@ -44,6 +45,10 @@ public class TXTDetailReport extends AbstractReport {
 
   public Source getXsltSource(String dataDirectory) {
     String filename = "/xslt/txt_detail_report.xml";
-    return new StreamSource(TXTDetailReport.class.getResourceAsStream(filename));
+    return getXsltResource(filename);
+  }
+
+  protected TextReportWriter getTextWriter() {
+    return new TXTDetailWriter();
   }
 }
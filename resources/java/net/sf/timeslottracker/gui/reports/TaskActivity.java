@@ -0,0 +1,151 @@
+package net.sf.timeslottracker.gui.reports;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import net.sf.timeslottracker.data.DataSource;
+import net.sf.timeslottracker.data.Task;
+import net.sf.timeslottracker.data.TimeSlot;
+
+/**
+ * Activity of task subtrees: when their timeslots start and stop and how much
+ * time they took.
+ * <p/>
+ * It's collected in one pass over the tree before report data are exported, so
+ * subtrees and timeslots without any activity in the report period can be
+ * skipped as a whole instead of being checked by filters one by one.
+ */
+class TaskActivity {
+
+  /**
+   * Activity of one task.
+   */
+  static class Activity {
+    /** first start of a timeslot in the subtree, MAX_VALUE if none */
+    long firstStart = Long.MAX_VALUE;
+
+    /** last start of a timeslot in the subtree, MIN_VALUE if none */
+    long lastStart = Long.MIN_VALUE;
+
+    /**
+     * last stop of a started timeslot in the subtree, MAX_VALUE if one isn't
+     * stopped yet
+     */
+    long lastStop = Long.MIN_VALUE;
+
+    /** milliseconds in all timeslots of the subtree */
+    long milliseconds;
+
+    /** milliseconds in own timeslots of the task */
+    long ownMilliseconds;
+
+    /** the longest own timeslot of the task */
+    long longest;
+
+    /** own timeslots are all started and sorted by their starts */
+    boolean sorted = true;
+
+    /**
+     * @return <code>true</code> if no timeslot of the subtree starts and
+     *         stops within given times (including them)
+     */
+    boolean isInactive(long begin, long end) {
+      return firstStart > end || lastStop < begin;
+    }
+
+    /**
+     * @return <code>true</code> if no timeslot of the subtree starts between
+     *         given times (excluding them)
+     */
+    boolean isNotStarted(long begin, long end) {
+      return firstStart >= end || lastStart <= begin;
+    }
+
+    private void add(Activity child) {
+      firstStart = Math.min(firstStart, child.firstStart);
+      lastStart = Math.max(lastStart, child.lastStart);
+      lastStop = Math.max(lastStop, child.lastStop);
+      milliseconds += child.milliseconds;
+    }
+  }
+
+  private final DataSource dataSource;
+
+  /** time the report is run, for timeslots not stopped yet */
+  private final long now;
+
+  /** running timeslot, it doesn't stop even if it has a stop date */
+  private final TimeSlot activeTimeSlot;
+
+  private final Map<Task, Activity> activities = new HashMap<Task, Activity>();
+
+  /**
+   * Collects activity of the task and its subtasks.
+   *
+   * @param now
+   *          time the report is run
+   * @param activeTimeSlot
+   *          running timeslot, <code>null</code> if there isn't any
+   */
+  TaskActivity(DataSource dataSource, Task root, long now,
+      TimeSlot activeTimeSlot) {
+    this.dataSource = dataSource;
+    this.now = now;
+    this.activeTimeSlot = activeTimeSlot;
+    collect(root);
+  }
+
+  /**
+   * @return activity of the task subtree, <code>null</code> if the task isn't
+   *         in collected tree
+   */
+  Activity get(Task task) {
+    return activities.get(task);
+  }
+
+  private Activity collect(Task task) {
+    Activity activity = new Activity();
+    Collection<TimeSlot> timeslots = task.getTimeslots();
+    if (timeslots != null) {
+      long previousStart = Long.MIN_VALUE;
+      for (TimeSlot timeslot : timeslots) {
+        Date start = timeslot.getStartDate();
+        if (start == null) {
+          activity.sorted = false;
+          continue;
+        }
+        long startTime = start.getTime();
+        Date stop = timeslot.getStopDate();
+        // the same as counted by ReportDataReader
+        long duration = Math.max(0, (stop == null ? now : stop.getTime())
+            - startTime);
+        activity.ownMilliseconds += duration;
+        activity.sorted &= previousStart <= startTime;
+        previousStart = startTime;
+
+        activity.firstStart = Math.min(activity.firstStart, startTime);
+        activity.lastStart = Math.max(activity.lastStart, startTime);
+        if (stop == null || timeslot.equals(activeTimeSlot)) {
+          activity.lastStop = Long.MAX_VALUE;
+          duration = Math.max(duration, now - startTime);
+        } else {
+          activity.lastStop = Math.max(activity.lastStop, stop.getTime());
+        }
+        activity.longest = Math.max(activity.longest, duration);
+      }
+    }
+    activity.milliseconds = activity.ownMilliseconds;
+
+    Collection<Task> children = dataSource.getChildren(task);
+    if (children != null) {
+      for (Task child : children) {
+        activity.add(collect(child));
+      }
+    }
+    activities.put(task, activity);
+    return activity;
+  }
+
+}
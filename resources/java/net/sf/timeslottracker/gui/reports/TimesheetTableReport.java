@@ -1,11 +1,9 @@
 package net.sf.timeslottracker.gui.reports;
 
-import java.io.InputStream;
 import java.util.Collection;
 import java.util.Vector;
 
 import javax.xml.transform.Source;
-import javax.xml.transform.stream.StreamSource;
 
 import net.sf.timeslottracker.gui.LayoutManager;
 import net.sf.timeslottracker.gui.reports.filters.DateColumnLookFilter;
@@ -62,8 +60,7 @@ public class TimesheetTableReport extends AbstractReport {
     if (version == Version.WITH_DESCRIPTION) {
       filename = "/xslt/timesheet_table_with_description.xml";
     }
-    InputStream stream = DetailReport.class.getResourceAsStream(filename);
-    return new StreamSource(stream);
+    return getXsltResource(filename);
   }
 
 }
@@ -0,0 +1,101 @@
+package net.sf.timeslottracker.gui.reports.text;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import net.sf.timeslottracker.gui.reports.filters.FieldSeparatorFilter;
+import net.sf.timeslottracker.gui.reports.filters.IncludeColumnNamesFilter;
+
+/**
+ * Timeslots ordered by start as a comma separated values, the same as
+ * <code>/xslt/csv_journal.xml</code>.
+ */
+public class CSVJournalWriter extends TextReportWriter {
+
+  /**
+   * Orders timeslots by start to minutes, timeslots without start first.
+   */
+  static final Comparator<ReportData.TimeSlotData> BY_START = new Comparator<ReportData.TimeSlotData>() {
+    public int compare(ReportData.TimeSlotData o1, ReportData.TimeSlotData o2) {
+      if (o1.start == null || o2.start == null) {
+        return o1.start == null ? (o2.start == null ? 0 : -1) : 1;
+      }
+      int result = Double.compare(number(o1.start.year), number(o2.start.year));
+      if (result == 0) {
+        result = Double.compare(number(o1.start.month),
+            number(o2.start.month));
+      }
+      if (result == 0) {
+        result = Double.compare(number(o1.start.day), number(o2.start.day));
+      }
+      if (result == 0) {
+        result = Double.compare(number(o1.start.hour), number(o2.start.hour));
+      }
+      if (result == 0) {
+        result = Double.compare(number(o1.start.min), number(o2.start.min));
+      }
+      return result;
+    }
+  };
+
+  protected void write(ReportData data) throws IOException {
+    String separator = getParameter(
+        FieldSeparatorFilter.PARAMETER_REPORT_COLUMN_SEPARATOR, ";");
+
+    if (getParameter(IncludeColumnNamesFilter.PARAMETER_REPORT_INCLUDE_NAMES,
+        "noName").equals("yes")) {
+      print(data.getString("column-start-date"));
+      print(separator);
+      print(data.getString("column-stop-date"));
+      print(separator);
+      print(data.getString("column-duration"));
+      print(separator);
+      print(data.getString("column-taskName"));
+      print(separator);
+      print(data.getString("column-description"));
+      newLine();
+    }
+
+    // the sort is stable, like xslt one
+    List<ReportData.TimeSlotData> timeslots = new ArrayList<ReportData.TimeSlotData>(
+        data.getTimeSlots());
+    Collections.sort(timeslots, BY_START);
+    for (ReportData.TimeSlotData timeslot : timeslots) {
+      if (timeslot.duration.equals("0:00")) {
+        continue;
+      }
+      printDateTime(timeslot.start);
+      print(separator);
+      printDateTime(timeslot.stop);
+      print(separator);
+      print(timeslot.duration);
+      print(separator);
+      print(timeslot.task.name);
+      print(separator);
+      print(timeslot.description);
+      newLine();
+    }
+  }
+
+  /**
+   * Prints date time as "yyyy-mm-dd h:mm".
+   */
+  private void printDateTime(ReportData.DateTime dateTime) throws IOException {
+    if (dateTime == null) {
+      return;
+    }
+    print(fourDigits(number(dateTime.year)));
+    print("-");
+    print(twoDigits(number(dateTime.month)));
+    print("-");
+    print(twoDigits(number(dateTime.day)));
+    print(" ");
+    print(dateTime.hour);
+    print(":");
+    print(twoDigits(number(dateTime.min)));
+  }
+
+}
@@ -0,0 +1,159 @@
+package net.sf.timeslottracker.gui.reports.text;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.sf.timeslottracker.gui.reports.filters.DateColumnLookFilter;
+import net.sf.timeslottracker.gui.reports.filters.FieldSeparatorFilter;
+import net.sf.timeslottracker.gui.reports.filters.IncludeColumnNamesFilter;
+import net.sf.timeslottracker.gui.reports.filters.TimeFormatFilter;
+
+/**
+ * Table of tasks with time spent day by day as a comma separated values, the
+ * same as <code>/xslt/csv_timesheet_table.xml</code>.
+ * <p/>
+ * Sums are counted once for all tasks and days, the stylesheet counts every
+ * cell from all timeslots again.
+ */
+public class CSVTimesheetTableWriter extends TextReportWriter {
+
+  private static final Comparator<ReportData.DateTime> BY_DATE = new Comparator<ReportData.DateTime>() {
+    public int compare(ReportData.DateTime o1, ReportData.DateTime o2) {
+      return o1.date.compareTo(o2.date);
+    }
+  };
+
+  private String separator;
+
+  private String durationFormat;
+
+  protected void write(ReportData data) throws IOException {
+    separator = getParameter(
+        FieldSeparatorFilter.PARAMETER_REPORT_COLUMN_SEPARATOR, ";");
+    durationFormat = getParameter(
+        TimeFormatFilter.PARAMETER_REPORT_TIME_FORMAT_FILTER, "decimal");
+    String dateColumnLook = getParameter(
+        DateColumnLookFilter.PARAMETER_REPORT_DATE_COLUMN_LOOK, "yyyy-MM-dd");
+    boolean includeNames = getParameter(
+        IncludeColumnNamesFilter.PARAMETER_REPORT_INCLUDE_NAMES, "noName")
+        .equals("yes");
+
+    List<ReportData.DateTime> days = new ArrayList<ReportData.DateTime>(data
+        .getDays());
+    Collections.sort(days, BY_DATE);
+
+    // seconds by task and start date, by start date and total
+    Map<ReportData.TaskData, Map<String, Long>> taskDays = new HashMap<ReportData.TaskData, Map<String, Long>>();
+    Map<ReportData.TaskData, Long> taskTotals = new HashMap<ReportData.TaskData, Long>();
+    Map<String, Long> dayTotals = new HashMap<String, Long>();
+    long total = 0;
+    for (ReportData.TimeSlotData timeslot : data.getTimeSlots()) {
+      total += timeslot.seconds;
+      add(taskTotals, timeslot.task, timeslot.seconds);
+      if (timeslot.start != null) {
+        add(dayTotals, timeslot.start.date, timeslot.seconds);
+        Map<String, Long> byDay = taskDays.get(timeslot.task);
+        if (byDay == null) {
+          byDay = new HashMap<String, Long>();
+          taskDays.put(timeslot.task, byDay);
+        }
+        add(byDay, timeslot.start.date, timeslot.seconds);
+      }
+    }
+
+    // the table is repeated for every top-level task
+    for (int i = 0; i < data.getTopTasks().size(); i++) {
+      if (includeNames) {
+        print(data.getString("column-description"));
+        print(separator);
+        for (ReportData.DateTime day : days) {
+          printHeader(day, dateColumnLook);
+          print(separator);
+        }
+        print(data.getString("sum"));
+        newLine();
+      }
+
+      for (ReportData.TaskData task : data.getTasks()) {
+        if (task.timeslots.isEmpty()) {
+          continue;
+        }
+        if (task.parent != null && task.parent.parent != null) {
+          print(task.parent.parent.name);
+          print(" >");
+        }
+        if (task.parent != null) {
+          print(task.parent.name);
+          print(" >");
+        }
+        print(task.name);
+        print(separator);
+        Map<String, Long> byDay = taskDays.get(task);
+        for (ReportData.DateTime day : data.getDays()) {
+          printTime(byDay == null ? 0 : get(byDay, day.date));
+          print(separator);
+        }
+        printTime(get(taskTotals, task));
+        newLine();
+      }
+
+      print(data.getString("sum"));
+      print(separator);
+      for (ReportData.DateTime day : days) {
+        printTime(get(dayTotals, day.date));
+        print(separator);
+      }
+      printTime(total);
+    }
+  }
+
+  private void printHeader(ReportData.DateTime day, String dateColumnLook)
+      throws IOException {
+    if (dateColumnLook.equals("yyyy-MM-dd/dayOfWeek.name")) {
+      // including the line break of the stylesheet
+      print(day.date);
+      print("-\n        ");
+      print(day.dayOfWeekName);
+    } else if (dateColumnLook.equals("dayOfWeek.name")) {
+      print(day.dayOfWeekName);
+    } else if (dateColumnLook.equals("dayOfWeek.shortname")) {
+      print(day.dayOfWeekNameShort);
+    } else if (dateColumnLook.equals("dayOfMonth")) {
+      print(day.day);
+    } else {
+      print(day.date);
+    }
+  }
+
+  /**
+   * Prints time in the selected format, nothing for zero.
+   */
+  private void printTime(long seconds) throws IOException {
+    if (seconds == 0) {
+      return;
+    }
+    if (durationFormat.equals("decimal")) {
+      print(decimalHours(seconds));
+    } else {
+      long hours = seconds / 3600;
+      print(String.valueOf(hours));
+      print(":");
+      print(twoDigits((seconds % 3600) / 60.0));
+    }
+  }
+
+  private static <K> void add(Map<K, Long> sums, K key, long seconds) {
+    sums.put(key, get(sums, key) + seconds);
+  }
+
+  private static <K> long get(Map<K, Long> sums, K key) {
+    Long sum = sums.get(key);
+    return sum == null ? 0 : sum;
+  }
+
+}
@@ -0,0 +1,48 @@
+package net.sf.timeslottracker.gui.reports.text;
+
+import java.io.IOException;
+
+import net.sf.timeslottracker.gui.reports.filters.FieldSeparatorFilter;
+import net.sf.timeslottracker.gui.reports.filters.IncludeColumnNamesFilter;
+import net.sf.timeslottracker.gui.reports.filters.TimeFormatFilter;
+
+/**
+ * Summary of tasks as a comma separated values, the same as
+ * <code>/xslt/csv.xml</code>.
+ */
+public class CSVWriter extends TextReportWriter {
+
+  protected void write(ReportData data) throws IOException {
+    String separator = getParameter(
+        FieldSeparatorFilter.PARAMETER_REPORT_COLUMN_SEPARATOR, ";");
+    String durationFormat = getParameter(
+        TimeFormatFilter.PARAMETER_REPORT_TIME_FORMAT_FILTER, "hh:mm");
+
+    if (getParameter(IncludeColumnNamesFilter.PARAMETER_REPORT_INCLUDE_NAMES,
+        "noName").equals("yes")) {
+      print(data.getString("column-taskName"));
+      print(separator);
+      print(data.getString("column-duration"));
+      print(separator);
+      print(data.getString("column-description"));
+      newLine();
+    }
+
+    for (ReportData.TaskData task : data.getTasks()) {
+      if (task.duration.equals("0:00")) {
+        continue;
+      }
+      print(task.name);
+      print(separator);
+      if (durationFormat.equals("decimal")) {
+        print(decimalHours(task.seconds));
+      } else {
+        print(task.duration);
+      }
+      print(separator);
+      print(task.description);
+      newLine();
+    }
+  }
+
+}
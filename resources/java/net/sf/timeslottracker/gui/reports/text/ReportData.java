@@ -0,0 +1,239 @@
+package net.sf.timeslottracker.gui.reports.text;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Report data needed by text reports, collected from report data events (see
+ * {@link net.sf.timeslottracker.gui.reports.ReportDataReader}).
+ * <p/>
+ * Only values used by text reports are kept: dictionary, days of the report
+ * period and tasks with their timeslots, in document order.
+ */
+public class ReportData extends DefaultHandler {
+
+  /**
+   * A date as exported in a <code>datetime</code> tag.
+   */
+  static class DateTime {
+    String date = "";
+    String year = "";
+    String month = "";
+    String day = "";
+    String hour = "";
+    String min = "";
+    String dayOfWeekName = "";
+    String dayOfWeekNameShort = "";
+  }
+
+  /**
+   * An exported task.
+   */
+  static class TaskData {
+    /** parent task, <code>null</code> for a top-level task */
+    final TaskData parent;
+    final String taskId;
+    String name = "";
+    String description = "";
+    long seconds;
+    String duration = "";
+    long secondsWithChildren;
+    final List<TimeSlotData> timeslots = new ArrayList<TimeSlotData>();
+    final List<TaskData> children = new ArrayList<TaskData>();
+
+    TaskData(TaskData parent, String taskId) {
+      this.parent = parent;
+      this.taskId = taskId;
+    }
+  }
+
+  /**
+   * An exported timeslot.
+   */
+  static class TimeSlotData {
+    final TaskData task;
+    /** start, <code>null</code> if the timeslot hasn't any */
+    DateTime start;
+    DateTime stop;
+    long seconds;
+    String duration = "";
+    String description = "";
+
+    TimeSlotData(TaskData task) {
+      this.task = task;
+    }
+  }
+
+  private final Map<String, String> dictionary = new HashMap<String, String>();
+
+  private final List<DateTime> days = new ArrayList<DateTime>();
+
+  private final List<TaskData> topTasks = new ArrayList<TaskData>();
+
+  private final List<TaskData> tasks = new ArrayList<TaskData>();
+
+  private final List<TimeSlotData> timeslots = new ArrayList<TimeSlotData>();
+
+  /** names of open elements */
+  private final List<String> path = new ArrayList<String>();
+
+  private final StringBuilder text = new StringBuilder();
+
+  private TaskData task;
+
+  private TimeSlotData timeslot;
+
+  private DateTime dateTime;
+
+  /**
+   * @return report string of the key, empty if there is none
+   */
+  String getString(String key) {
+    String value = dictionary.get(key);
+    return value == null ? "" : value;
+  }
+
+  /**
+   * @return days of the report period, empty when it isn't filtered
+   */
+  List<DateTime> getDays() {
+    return days;
+  }
+
+  /**
+   * @return tasks exported on the top level, usually only the root task
+   */
+  List<TaskData> getTopTasks() {
+    return topTasks;
+  }
+
+  /**
+   * @return all tasks in document order
+   */
+  List<TaskData> getTasks() {
+    return tasks;
+  }
+
+  /**
+   * @return all timeslots in document order
+   */
+  List<TimeSlotData> getTimeSlots() {
+    return timeslots;
+  }
+
+  @Override
+  public void startElement(String uri, String localName, String qName,
+      Attributes attributes) {
+    String parent = path.isEmpty() ? "" : path.get(path.size() - 1);
+    path.add(qName);
+    text.setLength(0);
+
+    if (qName.equals("task")) {
+      task = new TaskData(task, attributes.getValue("taskId"));
+      if (task.parent == null) {
+        topTasks.add(task);
+      } else {
+        task.parent.children.add(task);
+      }
+      tasks.add(task);
+    } else if (qName.equals("timeslot")) {
+      timeslot = new TimeSlotData(task);
+      task.timeslots.add(timeslot);
+      timeslots.add(timeslot);
+    } else if (qName.equals("datetime")) {
+      dateTime = new DateTime();
+      if (parent.equals("day")) {
+        days.add(dateTime);
+      } else if (parent.equals("startDate")) {
+        timeslot.start = dateTime;
+      } else if (parent.equals("stopDate")) {
+        timeslot.stop = dateTime;
+      }
+    }
+  }
+
+  @Override
+  public void characters(char[] ch, int start, int length) {
+    text.append(ch, start, length);
+  }
+
+  @Override
+  public void endElement(String uri, String localName, String qName) {
+    path.remove(path.size() - 1);
+    String parent = path.isEmpty() ? "" : path.get(path.size() - 1);
+    String value = text.toString();
+    text.setLength(0);
+
+    if (qName.equals("task")) {
+      task = task.parent;
+    } else if (qName.equals("timeslot")) {
+      timeslot = null;
+    } else if (qName.equals("datetime")) {
+      dateTime = null;
+    } else if (parent.equals("dictionary")) {
+      dictionary.put(qName, value);
+    } else if (parent.equals("datetime")) {
+      setDateTime(qName, value);
+    } else if (parent.equals("task")) {
+      if (qName.equals("name")) {
+        task.name = value;
+      } else if (qName.equals("description")) {
+        task.description = value;
+      }
+    } else if (parent.equals("timeslot")) {
+      if (qName.equals("description")) {
+        timeslot.description = value;
+      }
+    } else if (parent.equals("duration") && path.size() >= 2) {
+      setDuration(path.get(path.size() - 2), qName, value);
+    }
+  }
+
+  private void setDateTime(String name, String value) {
+    if (name.equals("date")) {
+      dateTime.date = value;
+    } else if (name.equals("year")) {
+      dateTime.year = value;
+    } else if (name.equals("month")) {
+      dateTime.month = value;
+    } else if (name.equals("day")) {
+      dateTime.day = value;
+    } else if (name.equals("hour")) {
+      dateTime.hour = value;
+    } else if (name.equals("min")) {
+      dateTime.min = value;
+    } else if (name.equals("dayOfWeekName")) {
+      dateTime.dayOfWeekName = value;
+    } else if (name.equals("dayOfWeekNameShort")) {
+      dateTime.dayOfWeekNameShort = value;
+    }
+  }
+
+  /**
+   * Sets a value from the <code>duration</code> tag of a task or timeslot
+   * (<code>durationAll</code> isn't used).
+   */
+  private void setDuration(String owner, String name, String value) {
+    if (owner.equals("timeslot")) {
+      if (name.equals("seconds")) {
+        timeslot.seconds = Long.parseLong(value);
+      } else if (name.equals("duration")) {
+        timeslot.duration = value;
+      }
+    } else if (owner.equals("task")) {
+      if (name.equals("seconds")) {
+        task.seconds = Long.parseLong(value);
+      } else if (name.equals("duration")) {
+        task.duration = value;
+      } else if (name.equals("secondsWithChildren")) {
+        task.secondsWithChildren = Long.parseLong(value);
+      }
+    }
+  }
+
+}
@@ -0,0 +1,99 @@
+package net.sf.timeslottracker.gui.reports.text;
+
+import java.io.IOException;
+
+import net.sf.timeslottracker.gui.reports.filters.DateFilter;
+
+/**
+ * Tree of tasks with their timeslots as a plain text, the same as
+ * <code>/xslt/txt_detail_report.xml</code>.
+ */
+public class TXTDetailWriter extends TextReportWriter {
+
+  protected void write(ReportData data) throws IOException {
+    for (ReportData.TaskData root : data.getTopTasks()) {
+      printTotal(data, root);
+      print("\n  \n");
+
+      // skipping root task
+      for (int i = 0; i < root.children.size(); i++) {
+        printTask(root.children.get(i), String.valueOf(i + 1));
+      }
+    }
+  }
+
+  /**
+   * Prints the time spent and the report period, a header of all text
+   * reports.
+   *
+   * @return <code>true</code> if the report period was printed
+   */
+  boolean printTotal(ReportData data, ReportData.TaskData root)
+      throws IOException {
+    print(data.getString("duration-spent-on-all-taks"));
+    print(" ");
+    printTime(root.secondsWithChildren);
+    newLine();
+
+    String startDate = getParameter(DateFilter.PARAMETER_REPORT_START_DATE,
+        "noDate");
+    String stopDate = getParameter(DateFilter.PARAMETER_REPORT_STOP_DATE,
+        "noDate");
+    if (startDate.equals("noDate") || stopDate.equals("noDate")) {
+      return false;
+    }
+    print(data.getString("time-period-start"));
+    print(" ");
+    print(startDate);
+    print(" ");
+    print(data.getString("time-period-end"));
+    print(" ");
+    print(stopDate);
+    return true;
+  }
+
+  /**
+   * Prints the task with its subtasks.
+   *
+   * @param number
+   *          number of the task in the tree, e.g. "2.1" (hidden tasks are
+   *          numbered too)
+   */
+  private void printTask(ReportData.TaskData task, String number)
+      throws IOException {
+    if (task.secondsWithChildren == 0) {
+      return;
+    }
+    print(number);
+    print(". ");
+    print(task.name);
+    print(" ");
+    printTime(task.secondsWithChildren);
+    newLine();
+
+    for (ReportData.TimeSlotData timeslot : task.timeslots) {
+      if (timeslot.seconds != 0) {
+        print(". ");
+        print(timeslot.description);
+        print(" ");
+        printTime(timeslot.seconds);
+        newLine();
+      }
+    }
+    newLine();
+
+    for (int i = 0; i < task.children.size(); i++) {
+      printTask(task.children.get(i), number + "." + (i + 1));
+    }
+  }
+
+  /**
+   * Prints seconds as "(HH:mm)".
+   */
+  void printTime(long seconds) throws IOException {
+    print("(");
+    print(hoursMinutes(seconds));
+    print(")");
+  }
+
+}
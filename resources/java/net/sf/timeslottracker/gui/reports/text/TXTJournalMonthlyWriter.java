@@ -0,0 +1,54 @@
+package net.sf.timeslottracker.gui.reports.text;
+
+import java.io.IOException;
+
+/**
+ * Time spent month by month as a plain text, the same as
+ * <code>/xslt/txt_journal_monthly.xml</code>.
+ */
+public class TXTJournalMonthlyWriter extends TXTDetailWriter {
+
+  protected void write(ReportData data) throws IOException {
+    for (ReportData.TaskData root : data.getTopTasks()) {
+      if (printTotal(data, root)) {
+        newLine();
+      }
+
+      // first days of months
+      ReportData.DateTime previous = null;
+      for (ReportData.DateTime day : data.getDays()) {
+        boolean firstOfMonth = previous == null
+            || !previous.year.equals(day.year)
+            || !previous.month.equals(day.month);
+        previous = day;
+        if (!firstOfMonth) {
+          continue;
+        }
+
+        long time = 0;
+        for (ReportData.TimeSlotData timeslot : data.getTimeSlots()) {
+          if (timeslot.start != null && timeslot.start.year.equals(day.year)
+              && timeslot.start.month.equals(day.month)) {
+            time += timeslot.seconds;
+          }
+        }
+        newLine();
+        print(day.year);
+        print("-");
+        print(twoDigits(number(day.month)));
+        print(" (");
+        print(hoursMinutes(time));
+        print(")");
+      }
+    }
+  }
+
+  /**
+   * Prints time as "HH:mm", without parentheses.
+   */
+  @Override
+  void printTime(long seconds) throws IOException {
+    print(hoursMinutes(seconds));
+  }
+
+}
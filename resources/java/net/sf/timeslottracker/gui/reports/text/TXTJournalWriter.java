@@ -0,0 +1,124 @@
+package net.sf.timeslottracker.gui.reports.text;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Timeslots day by day as a plain text, the same as
+ * <code>/xslt/txt_journal_report.xml</code>.
+ */
+public class TXTJournalWriter extends TXTDetailWriter {
+
+  /**
+   * Orders timeslots by start time of a day.
+   */
+  private static final Comparator<ReportData.TimeSlotData> BY_TIME = new Comparator<ReportData.TimeSlotData>() {
+    public int compare(ReportData.TimeSlotData o1, ReportData.TimeSlotData o2) {
+      int result = Double.compare(hour(o1), hour(o2));
+      if (result == 0) {
+        result = Double.compare(min(o1), min(o2));
+      }
+      return result;
+    }
+
+    private double hour(ReportData.TimeSlotData timeslot) {
+      return timeslot.start == null ? Double.NaN : number(timeslot.start.hour);
+    }
+
+    private double min(ReportData.TimeSlotData timeslot) {
+      return timeslot.start == null ? Double.NaN : number(timeslot.start.min);
+    }
+  };
+
+  protected void write(ReportData data) throws IOException {
+    List<ReportData.TimeSlotData> timeslots = new ArrayList<ReportData.TimeSlotData>(
+        data.getTimeSlots());
+    Collections.sort(timeslots, BY_TIME);
+
+    for (ReportData.TaskData root : data.getTopTasks()) {
+      printTotal(data, root);
+      newLine();
+
+      for (ReportData.DateTime day : data.getDays()) {
+        // the stylesheet checks year, month and day separately
+        if (!hasStart(data, day.year, null, null)
+            || !hasStart(data, null, day.month, null)
+            || !hasStart(data, null, null, day.day)) {
+          continue;
+        }
+
+        long dayTime = 0;
+        for (ReportData.TimeSlotData timeslot : data.getTimeSlots()) {
+          if (startsOn(timeslot, day)) {
+            dayTime += timeslot.seconds;
+          }
+        }
+        newLine();
+        print(day.date);
+        print(" ");
+        printTime(dayTime);
+        newLine();
+
+        for (ReportData.TimeSlotData timeslot : timeslots) {
+          if (startsOn(timeslot, day) && timeslot.seconds != 0) {
+            printTimeSlot(timeslot);
+          }
+        }
+      }
+    }
+  }
+
+  private void printTimeSlot(ReportData.TimeSlotData timeslot)
+      throws IOException {
+    print("    ");
+    printHourMinute(timeslot.start);
+    print("-");
+    printHourMinute(timeslot.stop);
+    print(" ");
+    printTime(timeslot.seconds);
+    print("  ");
+    print(timeslot.description);
+    // only the name of the timeslot's task
+    print(" / ");
+    print(timeslot.task.name);
+    newLine();
+  }
+
+  private void printHourMinute(ReportData.DateTime dateTime)
+      throws IOException {
+    if (dateTime == null) {
+      return;
+    }
+    print(twoDigits(number(dateTime.hour)));
+    print(":");
+    print(twoDigits(number(dateTime.min)));
+  }
+
+  /**
+   * @return <code>true</code> if any timeslot starts in the given year, month
+   *         or day (<code>null</code> values aren't checked)
+   */
+  private static boolean hasStart(ReportData data, String year, String month,
+      String day) {
+    for (ReportData.TimeSlotData timeslot : data.getTimeSlots()) {
+      ReportData.DateTime start = timeslot.start;
+      if (start != null && (year == null || year.equals(start.year))
+          && (month == null || month.equals(start.month))
+          && (day == null || day.equals(start.day))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static boolean startsOn(ReportData.TimeSlotData timeslot,
+      ReportData.DateTime day) {
+    ReportData.DateTime start = timeslot.start;
+    return start != null && start.year.equals(day.year)
+        && start.month.equals(day.month) && start.day.equals(day.day);
+  }
+
+}
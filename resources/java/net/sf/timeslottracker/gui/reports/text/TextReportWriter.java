@@ -0,0 +1,121 @@
+package net.sf.timeslottracker.gui.reports.text;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.util.Locale;
+
+import javax.xml.transform.Transformer;
+
+/**
+ * Writes a text report directly from report data, without xslt.
+ * <p/>
+ * Every writer produces exactly the same text as the stylesheet of its report,
+ * so the functions used by stylesheets are reproduced here: numbers are
+ * formatted as by xslt <code>format-number()</code> and new lines are written
+ * as the platform line separator, like the xslt text output does.
+ */
+public abstract class TextReportWriter {
+
+  private static final String LINE_SEPARATOR = System
+      .getProperty("line.separator");
+
+  /** <code>format-number()</code> uses US symbols by default */
+  private static final DecimalFormatSymbols SYMBOLS = new DecimalFormatSymbols(
+      Locale.US);
+
+  private final DecimalFormat twoDigits = new DecimalFormat("00", SYMBOLS);
+
+  private final DecimalFormat fourDigits = new DecimalFormat("0000", SYMBOLS);
+
+  private final DecimalFormat decimal = new DecimalFormat("0.00", SYMBOLS);
+
+  private Transformer parameters;
+
+  private Writer out;
+
+  /**
+   * Writes the report.
+   *
+   * @param parameters
+   *          transformer with parameters set by report filters
+   */
+  public void write(ReportData data, Transformer parameters, Writer out)
+      throws IOException {
+    this.parameters = parameters;
+    this.out = out;
+    try {
+      write(data);
+    } finally {
+      this.parameters = null;
+      this.out = null;
+    }
+  }
+
+  protected abstract void write(ReportData data) throws IOException;
+
+  /**
+   * @return parameter set by report filters or the default value of the
+   *         stylesheet
+   */
+  protected String getParameter(String name, String defaultValue) {
+    Object value = parameters.getParameter(name);
+    return value == null ? defaultValue : value.toString();
+  }
+
+  protected void print(String text) throws IOException {
+    if (text == null) {
+      return;
+    }
+    if (!LINE_SEPARATOR.equals("\n")) {
+      text = text.replace("\n", LINE_SEPARATOR);
+    }
+    out.write(text);
+  }
+
+  protected void newLine() throws IOException {
+    out.write(LINE_SEPARATOR);
+  }
+
+  /**
+   * @return value formatted by pattern "00"
+   */
+  protected String twoDigits(double value) {
+    return twoDigits.format(value);
+  }
+
+  /**
+   * @return value formatted by pattern "0000"
+   */
+  protected String fourDigits(double value) {
+    return fourDigits.format(value);
+  }
+
+  /**
+   * @return hours in seconds formatted by pattern "0.00"
+   */
+  protected String decimalHours(long seconds) {
+    return decimal.format((seconds / 60.0) / 60);
+  }
+
+  /**
+   * @return seconds as "HH:mm" (with at least two digits of hours)
+   */
+  protected String hoursMinutes(long seconds) {
+    long hours = seconds / 3600;
+    return twoDigits(hours) + ":" + twoDigits((seconds - hours * 3600) / 60.0);
+  }
+
+  /**
+   * @return xpath number of the string, <code>NaN</code> if it isn't any
+   */
+  protected static double number(String value) {
+    try {
+      return Double.parseDouble(value.trim());
+    } catch (NumberFormatException e) {
+      return Double.NaN;
+    }
+  }
+
+}
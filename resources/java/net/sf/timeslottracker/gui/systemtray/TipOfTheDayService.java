@@ -146,6 +146,12 @@ public class TipOfTheDayService {
       // noinspection UnnecessaryBoxing,UnnecessaryUnboxing
       delayMinutes = Integer.valueOf(delayMinutes.intValue() * 60);
 
+      // just change the delay of working reminder
+      if (showTips && reminderTimer != null
+          && reminderTimer.setTimeout(delayMinutes)) {
+        return;
+      }
+
       // install new reminder and show first message after 10 seconds.
       if (reminderTimer != null) {
         reminderTimer.stop();
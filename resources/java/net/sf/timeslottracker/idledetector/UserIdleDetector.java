@@ -55,6 +55,10 @@ public class UserIdleDetector implements ActionListener {
         Configuration.USER_IDLE_DETECTOR_ENABLED, false)) {
       return;
     }
+    if (timeSlotTracker.getDataSource().isReadOnly()) {
+      // timing is up to the instance writing data
+      return;
+    }
 
     TimeSlot activeTimeSlot = timeSlotTracker.getActiveTimeSlot();
     if (activeTimeSlot == null) {
@@ -30,7 +30,6 @@ import net.sf.timeslottracker.core.Action;
 import net.sf.timeslottracker.core.Configuration;
 import net.sf.timeslottracker.core.TimeSlotTracker;
 import net.sf.timeslottracker.data.Attribute;
-import net.sf.timeslottracker.data.DataLoadedListener;
 import net.sf.timeslottracker.data.Task;
 import net.sf.timeslottracker.data.TimeSlot;
 import net.sf.timeslottracker.data.TimeSlotChangedListener;
@@ -126,7 +125,8 @@ public class JiraTracker implements IssueTracker {
         Configuration.JIRA_FILTER_URL_TEMPLATE,
         "{0}/sr/jira.issueviews:searchrequest-xml/{1}/SearchRequest-{1}.xml?tempMax=1000&{2}");
 
-    this.timeSlotTracker.addActionListener((DataLoadedListener) action -> init());
+    // created by the gui on first use, when layout and data are ready
+    init();
 
     this.saxFactory = SAXParserFactory.newInstance();
   }
@@ -499,6 +499,11 @@ public class JiraTracker implements IssueTracker {
               return;
             }
 
+            // worklog is updated by the instance writing data
+            if (timeSlotTracker.getDataSource().isReadOnly()) {
+              return;
+            }
+
             if (!action.getName().equalsIgnoreCase("TimeSlotChanged")) {
               return;
             }
@@ -117,6 +117,10 @@ public class ScreenshotMonitoringTask implements ActionListener {
   }
 
   public void actionPerformed(net.sf.timeslottracker.core.Action action) {
+    if (timeSlotTracker.getDataSource().isReadOnly()) {
+      // timing is up to the instance writing data
+      return;
+    }
     BufferedImage screenshot = null;
     if (config.getBoolean(Configuration.MONITORING_GRABBER_ENABLED,
         Boolean.FALSE)) {
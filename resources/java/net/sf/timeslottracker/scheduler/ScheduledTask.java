@@ -0,0 +1,44 @@
+package net.sf.timeslottracker.scheduler;
+
+/**
+ * Handle of a task scheduled in {@link SchedulerService}.
+ */
+public interface ScheduledTask {
+
+  /**
+   * @return name the task was scheduled with
+   */
+  String getName();
+
+  /**
+   * @return period in seconds (or delay for tasks run once)
+   */
+  long getPeriod();
+
+  /**
+   * @return how many times the task has been run
+   */
+  long getRunCount();
+
+  /**
+   * @return how many runs were skipped because previous one was still running
+   */
+  long getSkipCount();
+
+  /**
+   * @return <code>true</code> if task is running right now
+   */
+  boolean isRunning();
+
+  /**
+   * @return <code>true</code> if task was cancelled or has finished all runs
+   */
+  boolean isDone();
+
+  /**
+   * Cancels this task. It does nothing if the task name was already taken by
+   * another task.
+   */
+  void cancel();
+
+}
@@ -0,0 +1,82 @@
+package net.sf.timeslottracker.scheduler;
+
+/**
+ * Application wide scheduler service.
+ * <p>
+ * All periodic jobs (title refresh, autosave, monitoring, ...) share one
+ * scheduler thread instead of having a sleeping thread each. Tasks are
+ * identified by name, so scheduling a task with the name of an already
+ * scheduled one replaces it.
+ *
+ * @see ScheduledTask
+ */
+public interface SchedulerService {
+
+  /**
+   * Runs given task once, after <code>delaySeconds</code> seconds.
+   *
+   * @param name
+   *          unique name of task, an already scheduled task with the same
+   *          name is cancelled
+   * @param task
+   *          task to run
+   * @param delaySeconds
+   *          delay in seconds before running the task
+   * @return handle of scheduled task
+   */
+  ScheduledTask scheduleOnce(String name, Runnable task, long delaySeconds);
+
+  /**
+   * Runs given task repeatedly, every <code>periodSeconds</code> seconds.
+   * <p>
+   * If the task is still running when its next run is due, that run is
+   * skipped.
+   *
+   * @param name
+   *          unique name of task, an already scheduled task with the same
+   *          name is cancelled
+   * @param task
+   *          task to run
+   * @param periodSeconds
+   *          period in seconds between runs
+   * @param count
+   *          how many times task should be run, <code>-1</code> to run it
+   *          till the end of program
+   * @param aligned
+   *          <code>true</code> to align runs to minute boundaries, so
+   *          several tasks wake up the scheduler together
+   * @return handle of scheduled task
+   */
+  ScheduledTask scheduleRepeatedly(String name, Runnable task,
+      long periodSeconds, long count, boolean aligned);
+
+  /**
+   * Changes the period of already scheduled repeated task. The task keeps
+   * its number of runs already done.
+   *
+   * @param name
+   *          name of task to reschedule
+   * @param periodSeconds
+   *          new period in seconds
+   * @return <code>false</code> if there is no task with given name
+   */
+  boolean reschedule(String name, long periodSeconds);
+
+  /**
+   * Cancels task with given name.
+   *
+   * @return <code>false</code> if there is no task with given name
+   */
+  boolean cancel(String name);
+
+  /**
+   * Returns scheduled task with given name or <code>null</code>.
+   */
+  ScheduledTask getTask(String name);
+
+  /**
+   * Cancels all tasks and stops scheduler threads.
+   */
+  void shutdown();
+
+}
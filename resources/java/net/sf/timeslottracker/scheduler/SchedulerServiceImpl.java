@@ -0,0 +1,273 @@
+package net.sf.timeslottracker.scheduler;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Scheduler service implementation based on one
+ * {@link ScheduledExecutorService} thread.
+ * <p>
+ * The scheduler thread only triggers tasks, they are run in a worker pool, so
+ * a long running task (screenshot, version check) never delays the others.
+ * <p>
+ * Repeated tasks can be aligned to minute boundaries: all tasks with a period
+ * dividing a minute (or being a multiple of a minute) fire at the same wall
+ * clock instants, so the CPU is woken up once for all of them.
+ */
+public class SchedulerServiceImpl implements SchedulerService {
+
+  private static final Logger LOG = Logger
+      .getLogger("net.sf.timeslottracker.scheduler");
+
+  private static final long MINUTE = 60 * 1000;
+
+  private final ScheduledExecutorService scheduler;
+
+  private final ExecutorService workers;
+
+  /** Scheduled tasks by name */
+  private final Map<String, Task> tasks = new HashMap<String, Task>();
+
+  public SchedulerServiceImpl() {
+    scheduler = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory(
+        "Scheduler"));
+    workers = Executors.newCachedThreadPool(new NamedThreadFactory(
+        "Scheduler worker"));
+  }
+
+  public ScheduledTask scheduleOnce(String name, Runnable task,
+      long delaySeconds) {
+    return schedule(new Task(name, task, delaySeconds * 1000, 1, false, false));
+  }
+
+  public ScheduledTask scheduleRepeatedly(String name, Runnable task,
+      long periodSeconds, long count, boolean aligned) {
+    return schedule(new Task(name, task, periodSeconds * 1000, count, aligned,
+        true));
+  }
+
+  public synchronized boolean reschedule(String name, long periodSeconds) {
+    Task task = tasks.get(name);
+    if (task == null || !task.repeated) {
+      return false;
+    }
+    long period = periodSeconds * 1000;
+    if (task.period == period) {
+      return true;
+    }
+    task.future.cancel(false);
+    task.period = period;
+    start(task);
+    LOG.fine("Task \"" + name + "\" rescheduled with period (seconds): "
+        + periodSeconds);
+    return true;
+  }
+
+  public boolean cancel(String name) {
+    ScheduledTask task = getTask(name);
+    if (task == null) {
+      return false;
+    }
+    task.cancel();
+    return true;
+  }
+
+  public synchronized ScheduledTask getTask(String name) {
+    return tasks.get(name);
+  }
+
+  public void shutdown() {
+    List<Task> toCancel;
+    synchronized (this) {
+      toCancel = new ArrayList<Task>(tasks.values());
+    }
+    for (Task task : toCancel) {
+      task.cancel();
+    }
+    scheduler.shutdownNow();
+    workers.shutdownNow();
+  }
+
+  private synchronized ScheduledTask schedule(Task task) {
+    Task previous = tasks.put(task.name, task);
+    if (previous != null) {
+      previous.done = true;
+      previous.future.cancel(false);
+    }
+    start(task);
+    return task;
+  }
+
+  private void start(Task task) {
+    long delay = task.aligned ? alignedDelay(System.currentTimeMillis(),
+        task.period) : task.period;
+    if (task.repeated) {
+      task.future = scheduler.scheduleAtFixedRate(task, delay, task.period,
+          TimeUnit.MILLISECONDS);
+    } else {
+      task.future = scheduler.schedule(task, delay, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  /**
+   * Counts delay of first run of an aligned task.
+   *
+   * @param now
+   *          current time in milliseconds
+   * @param period
+   *          period of task in milliseconds
+   * @return delay in milliseconds, never shorter than a period if the period
+   *         is a minute or longer
+   */
+  static long alignedDelay(long now, long period) {
+    if (period <= 0) {
+      return 0;
+    }
+    if (period < MINUTE && MINUTE % period == 0) {
+      return period - now % period;
+    }
+    long rest = (now + period) % MINUTE;
+    return rest == 0 ? period : period + MINUTE - rest;
+  }
+
+  private synchronized void finished(Task task) {
+    task.done = true;
+    task.future.cancel(false);
+    if (tasks.get(task.name) == task) {
+      tasks.remove(task.name);
+    }
+  }
+
+  /**
+   * Scheduled task. Its {@link #run()} is called on scheduler thread and only
+   * passes the real work to the worker pool.
+   */
+  private class Task implements ScheduledTask, Runnable {
+    private final String name;
+    private final Runnable runnable;
+    private final long count;
+    private final boolean aligned;
+    private final boolean repeated;
+    private volatile long period;
+    private volatile ScheduledFuture<?> future;
+    private volatile boolean done;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private long triggered;
+    private long lastTriggered;
+    private volatile long runCount;
+    private volatile long skipCount;
+
+    private Task(String name, Runnable runnable, long period, long count,
+        boolean aligned, boolean repeated) {
+      this.name = name;
+      this.runnable = runnable;
+      this.period = period;
+      this.count = count;
+      this.aligned = aligned;
+      this.repeated = repeated;
+    }
+
+    public void run() {
+      if (done) {
+        return;
+      }
+      long now = System.currentTimeMillis();
+      // skip runs fired one after another to catch up missed ones
+      // (e.g. after the computer was suspended)
+      boolean catchingUp = repeated && lastTriggered > 0
+          && now - lastTriggered < period / 2;
+      if (catchingUp || !running.compareAndSet(false, true)) {
+        skipCount++;
+        LOG.fine("Task \"" + name + "\" skipped");
+        return;
+      }
+      lastTriggered = now;
+      triggered++;
+      if (count != -1 && triggered >= count) {
+        finished(this);
+      }
+      try {
+        workers.execute(new Runnable() {
+          public void run() {
+            try {
+              runnable.run();
+            } catch (RuntimeException e) {
+              LOG.log(Level.SEVERE, "Task \"" + name + "\" failed", e);
+            } finally {
+              runCount++;
+              running.set(false);
+            }
+          }
+        });
+      } catch (RuntimeException e) {
+        // workers are shut down
+        running.set(false);
+      }
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public long getPeriod() {
+      return period / 1000;
+    }
+
+    public long getRunCount() {
+      return runCount;
+    }
+
+    public long getSkipCount() {
+      return skipCount;
+    }
+
+    public boolean isRunning() {
+      return running.get();
+    }
+
+    public boolean isDone() {
+      return done;
+    }
+
+    public void cancel() {
+      finished(this);
+    }
+
+    @Override
+    public String toString() {
+      return name;
+    }
+  }
+
+  /**
+   * Creates named daemon threads.
+   */
+  private static class NamedThreadFactory implements ThreadFactory {
+    private final String prefix;
+    private final AtomicInteger number = new AtomicInteger();
+
+    private NamedThreadFactory(String prefix) {
+      this.prefix = prefix;
+    }
+
+    public Thread newThread(Runnable runnable) {
+      Thread thread = new Thread(runnable, prefix + " "
+          + number.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
+
+}
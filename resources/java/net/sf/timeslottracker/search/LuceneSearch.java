@@ -1,8 +1,28 @@
 package net.sf.timeslottracker.search;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 import net.sf.timeslottracker.Starter;
 import net.sf.timeslottracker.core.Action;
@@ -10,20 +30,33 @@ import net.sf.timeslottracker.core.SearchEngine;
 import net.sf.timeslottracker.core.TimeSlotTracker;
 import net.sf.timeslottracker.core.TimeSlotTrackerException;
 import net.sf.timeslottracker.data.Attribute;
+import net.sf.timeslottracker.data.AttributeType;
+import net.sf.timeslottracker.data.DataSource;
+import net.sf.timeslottracker.data.LOVAttribute;
 import net.sf.timeslottracker.data.Task;
 import net.sf.timeslottracker.data.TimeSlot;
+import net.sf.timeslottracker.data.common.AttributeTypeManagerImpl;
+import net.sf.timeslottracker.diagnostics.Diagnostics;
+import net.sf.timeslottracker.diagnostics.LatencyHistogram;
+import net.sf.timeslottracker.utils.TaskIterator;
 
 import org.apache.commons.lang.StringUtils;
 import org.apache.lucene.analysis.standard.StandardAnalyzer;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
+import org.apache.lucene.document.FieldSelector;
+import org.apache.lucene.document.MapFieldSelector;
+import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.Term;
-import org.apache.lucene.queryParser.QueryParser;
-import org.apache.lucene.search.Hits;
+import org.apache.lucene.search.FieldCache;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TopDocCollector;
 import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.store.NativeFSLockFactory;
 import org.apache.lucene.store.RAMDirectory;
 
 /**
@@ -31,12 +64,43 @@ import org.apache.lucene.store.RAMDirectory;
  * <p/>
  * <code>http://lucene.apache.org/java/docs/index.html</code>
  * <p/>
- * Index is created in memory on every app starting (but in background)
- * 
+ * Index is stored in the data directory. Every task document holds a stamp of
+ * indexed data, so on every data load (in background) only tasks with another
+ * stamp are indexed again. Index is rebuilt from scratch only when it is
+ * missing, its format differs or it is inconsistent. A read-only instance
+ * sharing data directory keeps its index in memory.
+ * <p/>
+ * Changed tasks are queued and indexed in batches by a background indexer
+ * shortly after the change, so a bulk edit costs one commit instead of one per
+ * timeslot. The searcher is reopened only when a query arrives after a commit.
+ * Updates still queued at exit are picked up by the next catch up.
+ *
  * @author User: zgibek Date: 2008-08-30 Time: 17:27:07 $Id: LuceneSearch.java
  *         800 2009-05-16 01:53:21Z cnitsa $
  */
 public class LuceneSearch implements SearchEngine {
+
+  /** format of index documents, index with another one is rebuilt */
+  private static final String FORMAT = "4";
+
+  /** name of index directory inside the data directory */
+  private static final String INDEX_DIRECTORY = "index";
+
+  /** number of search hits loaded at once */
+  static final int PAGE_SIZE = 100;
+
+  /** fields of found documents shown in results */
+  private static final FieldSelector RESULT_FIELDS = new MapFieldSelector(
+      new String[] { "type", "task_id", "task_name", "timeslot_id",
+          "contents", SearchQuery.START_MONTH });
+
+  private static final FieldSelector TASK_NAME_FIELDS = new MapFieldSelector(
+      new String[] { "task_name" });
+
+  /** fields read when index is opened */
+  private static final FieldSelector STAMP_FIELDS = new MapFieldSelector(
+      new String[] { "type", "task_id", "task_stamp", "task_path", "format" });
+
   /**
    * stores the singleton instance of class
    */
@@ -53,15 +117,74 @@ public class LuceneSearch implements SearchEngine {
 
   private IndexSearcher indexSearcher;
 
-  private LuceneSearch() {
-    tst = Starter.getTimeSlotTracker();
-    try {
-      indexDir = new RAMDirectory();
-      indexWriter = new IndexWriter(indexDir, new StandardAnalyzer(), true);
-    } catch (IOException e) {
-      e.printStackTrace();
-      tst.errorLog(e);
+  /** stamps of indexed tasks by task id */
+  private final Map<String, String> stamps = new HashMap<String, String>();
+
+  /** paths (ids from root) of indexed tasks by task id */
+  private final Map<String, String> paths = new HashMap<String, String>();
+
+  /** name of scheduled task committing queued changes */
+  private static final String INDEXER_TASK = "search.indexer";
+
+  /** delay (in seconds) between the first queued change and its commit */
+  private static final long COMMIT_DELAY = 1;
+
+  /** minimal time (in milliseconds) between indexing progress actions */
+  private static final long PROGRESS_INTERVAL = 200;
+
+  private final AtomicLong lastProgress = new AtomicLong();
+
+  /** tasks changed and not indexed yet, guards the fields below */
+  private final Set<Task> pendingTasks = new LinkedHashSet<Task>();
+
+  /** the indexer is already scheduled to commit pending tasks */
+  private boolean indexerScheduled;
+
+  private long queuedUpdates;
+
+  private long indexedTasks;
+
+  private long unchangedTasks;
+
+  /** tasks indexed again and all tasks checked when the index was opened */
+  private long caughtUpTasks;
+
+  private long checkedTasks;
+
+  /** time spent by indexing batches */
+  private final LatencyHistogram batchLatency = new LatencyHistogram();
+
+  /** the index has been committed since the searcher was opened */
+  private boolean searcherStale;
+
+  /** number of the searcher, it advances whenever the searcher is reopened */
+  private long generation;
+
+  /** max number of cached search results */
+  private static final int QUERY_CACHE_SIZE = 32;
+
+  private final QueryCache queryCache = new QueryCache(QUERY_CACHE_SIZE);
+
+  private final Runnable indexer = new Runnable() {
+    public void run() {
+      synchronized (pendingTasks) {
+        indexerScheduled = false;
+      }
+      commitPending();
     }
+  };
+
+  private LuceneSearch() {
+    this(Starter.getTimeSlotTracker());
+  }
+
+  LuceneSearch(TimeSlotTracker tst) {
+    this.tst = tst;
+    tst.getDiagnostics().addProvider(new Diagnostics.Provider() {
+      public void appendReport(StringBuilder report) {
+        appendStatistics(report);
+      }
+    });
   }
 
   public static synchronized LuceneSearch getInstance() {
@@ -74,24 +197,26 @@ public class LuceneSearch implements SearchEngine {
   /**
    * remembers is the index is already created or not *
    */
-  private boolean indexCreated = false;
+  private volatile boolean indexCreated = false;
 
   public synchronized void createIndex(final Task root) {
-    if (indexDir == null || indexWriter == null) {
-      tst.errorLog("indexDir=" + indexDir + " ; indexWriter=" + indexWriter);
-    }
-    if (indexCreated) {
-      return;
-    }
     Runnable runnable = new Runnable() {
       public void run() {
         try {
-          indexTask(root, true);
-          indexCreated = true;
+          synchronized (LuceneSearch.this) {
+            if (indexWriter == null) {
+              openIndex();
+            }
+            catchUp(root);
+            indexWriter.flush();
+            reopenSearcher();
+            synchronized (pendingTasks) {
+              indexCreated = true;
+            }
+            commitPending();
+          }
           tst.fireAction(new Action(SearchEngine.INDEX_CREATED, this,
               Boolean.TRUE));
-          indexWriter.flush();
-          indexSearcher = new IndexSearcher(indexDir);
         } catch (Exception e) {
           indexCreated = false;
           tst.fireAction(new Action(SearchEngine.INDEX_CREATED, this,
@@ -106,21 +231,377 @@ public class LuceneSearch implements SearchEngine {
   }
 
   /**
-   * Indexes the given task (and timeslots) and calls itself for subtasks.
-   * 
+   * Opens index in the data directory, or creates a new one if the stored one
+   * can't be used.
+   */
+  private void openIndex() throws IOException {
+    DataSource dataSource = tst.getDataSource();
+    String dataDirectory = dataSource.getDataDirectory();
+    stamps.clear();
+    paths.clear();
+
+    if (dataSource.isReadOnly() || dataDirectory == null) {
+      // index in shared data directory belongs to the writing instance
+      indexDir = new RAMDirectory();
+      indexWriter = new IndexWriter(indexDir, new StandardAnalyzer(), true);
+      return;
+    }
+
+    File directory = new File(dataDirectory + INDEX_DIRECTORY);
+    if (indexDir == null) {
+      // native lock is released even when application is killed
+      indexDir = FSDirectory.getDirectory(directory, new NativeFSLockFactory(
+          directory));
+    }
+    boolean create = !readStamps();
+    if (create) {
+      tst.debugLog("Search index in " + directory + " will be rebuilt");
+      stamps.clear();
+      paths.clear();
+    }
+    indexWriter = new IndexWriter(indexDir, new StandardAnalyzer(), create);
+    if (create) {
+      Document meta = new Document();
+      meta.add(new Field("type", "meta", Field.Store.YES, Field.Index.NO));
+      meta.add(new Field("format", FORMAT, Field.Store.YES, Field.Index.NO));
+      indexWriter.addDocument(meta);
+    }
+  }
+
+  /**
+   * Reads stamps of indexed tasks.
+   *
+   * @return <code>false</code> if index doesn't exist, has another format or
+   *         is inconsistent
+   */
+  private boolean readStamps() {
+    try {
+      if (!IndexReader.indexExists(indexDir)) {
+        return false;
+      }
+      IndexReader reader = IndexReader.open(indexDir);
+      try {
+        boolean formatFound = false;
+        for (int i = 0; i < reader.maxDoc(); i++) {
+          if (reader.isDeleted(i)) {
+            continue;
+          }
+          Document doc = reader.document(i, STAMP_FIELDS);
+          String type = doc.get("type");
+          if ("meta".equals(type)) {
+            formatFound = FORMAT.equals(doc.get("format"));
+          } else if ("task".equals(type)) {
+            String stamp = doc.get("task_stamp");
+            if (stamp == null || stamps.put(doc.get("task_id"), stamp) != null) {
+              return false;
+            }
+            paths.put(doc.get("task_id"), doc.get("task_path"));
+          }
+        }
+        return formatFound;
+      } finally {
+        reader.close();
+      }
+    } catch (IOException e) {
+      tst.errorLog(e);
+      return false;
+    }
+  }
+
+  /**
+   * Indexes tasks changed since they were indexed and removes deleted ones.
+   */
+  private void catchUp(Task root) throws IOException,
+      TimeSlotTrackerException {
+    if (root == null) {
+      throw new TimeSlotTrackerException(tst, "searchEngine.error.taskIsNull");
+    }
+    if (stamps.isEmpty()) {
+      buildIndex(root);
+      return;
+    }
+    Set<String> existing = new HashSet<String>();
+    int indexed = 0;
+    Iterator<Task> tasks = new TaskIterator(root);
+    while (tasks.hasNext()) {
+      Task task = tasks.next();
+      String id = task.getId().toString();
+      existing.add(id);
+      String stamp = stamp(task);
+      if (!stamp.equals(stamps.get(id))) {
+        // also documents left by an interrupted update
+        indexWriter.deleteDocuments(new Term("task_id", id));
+        indexTask(indexWriter, task, stamp);
+        stamps.put(id, stamp);
+        paths.put(id, path(task));
+        indexed++;
+      }
+    }
+
+    Iterator<String> ids = stamps.keySet().iterator();
+    while (ids.hasNext()) {
+      String id = ids.next();
+      if (!existing.contains(id)) {
+        indexWriter.deleteDocuments(new Term("task_id", id));
+        ids.remove();
+        paths.remove(id);
+      }
+    }
+    synchronized (pendingTasks) {
+      caughtUpTasks += indexed;
+      checkedTasks += existing.size();
+    }
+    tst.debugLog("Search index: " + indexed + " of " + existing.size()
+        + " tasks indexed");
+  }
+
+  /**
+   * Indexes the whole tree into an empty index. Top level subtrees are shared
+   * out to worker threads, each of them indexes into its own memory directory,
+   * and all the directories are merged into the index at once.
+   */
+  private void buildIndex(Task root) throws IOException,
+      TimeSlotTrackerException {
+    long start = System.currentTimeMillis();
+    List<List<Task>> shards = shard(root, Runtime.getRuntime()
+        .availableProcessors());
+    ExecutorService workers = Executors.newFixedThreadPool(shards.size(),
+        new ThreadFactory() {
+          public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "Search indexer");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+          }
+        });
+    try {
+      List<Future<Segment>> segments = new ArrayList<Future<Segment>>();
+      for (final List<Task> shard : shards) {
+        segments.add(workers.submit(new Callable<Segment>() {
+          public Segment call() throws Exception {
+            return indexShard(shard);
+          }
+        }));
+      }
+      Directory[] directories = new Directory[segments.size()];
+      int tasks = 0;
+      for (int i = 0; i < directories.length; i++) {
+        Segment segment = segments.get(i).get();
+        directories[i] = segment.directory;
+        stamps.putAll(segment.stamps);
+        paths.putAll(segment.paths);
+        tasks += segment.stamps.size();
+      }
+      indexWriter.addIndexes(directories);
+      tst.debugLog("Search index: " + tasks + " tasks indexed by "
+          + shards.size() + " workers in "
+          + (System.currentTimeMillis() - start) + "ms");
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new TimeSlotTrackerException(tst, "searchEngine.indeException");
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      if (e.getCause() instanceof TimeSlotTrackerException) {
+        throw (TimeSlotTrackerException) e.getCause();
+      }
+      throw new RuntimeException(e.getCause());
+    } finally {
+      workers.shutdownNow();
+    }
+  }
+
+  /**
+   * Splits the tree into at most <code>count</code> lists of tasks of similar
+   * size. Whole top level subtrees are kept together.
+   */
+  static List<List<Task>> shard(Task root, int count) {
+    List<List<Task>> subtrees = new ArrayList<List<Task>>();
+    if (root.getChildren() != null) {
+      for (Task child : root.getChildren()) {
+        List<Task> subtree = new ArrayList<Task>();
+        Iterator<Task> tasks = new TaskIterator(child);
+        while (tasks.hasNext()) {
+          subtree.add(tasks.next());
+        }
+        subtrees.add(subtree);
+      }
+    }
+    // the biggest subtrees first, each to the smallest shard so far
+    Collections.sort(subtrees, new Comparator<List<Task>>() {
+      public int compare(List<Task> first, List<Task> second) {
+        return second.size() - first.size();
+      }
+    });
+    List<List<Task>> shards = new ArrayList<List<Task>>();
+    for (List<Task> subtree : subtrees) {
+      if (shards.size() < count) {
+        shards.add(subtree);
+      } else {
+        smallest(shards).addAll(subtree);
+      }
+    }
+    if (shards.isEmpty()) {
+      shards.add(new ArrayList<Task>());
+    }
+    smallest(shards).add(root);
+    return shards;
+  }
+
+  private static List<Task> smallest(List<List<Task>> shards) {
+    List<Task> smallest = shards.get(0);
+    for (List<Task> shard : shards) {
+      if (shard.size() < smallest.size()) {
+        smallest = shard;
+      }
+    }
+    return smallest;
+  }
+
+  /**
+   * Indexes tasks into a new memory directory.
+   */
+  private Segment indexShard(List<Task> tasks) throws IOException,
+      TimeSlotTrackerException {
+    Segment segment = new Segment();
+    IndexWriter writer = new IndexWriter(segment.directory,
+        new StandardAnalyzer(), true);
+    try {
+      for (Task task : tasks) {
+        String stamp = stamp(task);
+        indexTask(writer, task, stamp);
+        segment.stamps.put(task.getId().toString(), stamp);
+        segment.paths.put(task.getId().toString(), path(task));
+      }
+    } finally {
+      writer.close();
+    }
+    return segment;
+  }
+
+  /**
+   * Index of a part of the tree built by one worker.
+   */
+  private static class Segment {
+    private final Directory directory = new RAMDirectory();
+    private final Map<String, String> stamps = new HashMap<String, String>();
+    private final Map<String, String> paths = new HashMap<String, String>();
+  }
+
+  /**
+   * Tells the gui which task is being indexed, at most once per
+   * {@link #PROGRESS_INTERVAL} milliseconds.
+   */
+  private void reportProgress(Task task) {
+    long now = System.currentTimeMillis();
+    long last = lastProgress.get();
+    if (now - last >= PROGRESS_INTERVAL
+        && lastProgress.compareAndSet(last, now)) {
+      tst.fireAction(new Action(SearchEngine.INDEXING, this, task.getName()));
+    }
+  }
+
+  /**
+   * Closes the searcher and the index, so the index can be opened again.
+   */
+  synchronized void close() throws IOException {
+    indexCreated = false;
+    if (indexSearcher != null) {
+      indexSearcher.close();
+      indexSearcher = null;
+    }
+    if (indexWriter != null) {
+      indexWriter.close();
+      indexWriter = null;
+    }
+    if (indexDir != null) {
+      indexDir.close();
+      indexDir = null;
+    }
+  }
+
+  private void reopenSearcher() throws IOException {
+    if (indexSearcher != null) {
+      indexSearcher.close();
+    }
+    indexSearcher = new IndexSearcher(indexDir);
+    generation++;
+  }
+
+  /**
+   * @return ids of the task and all its ancestors, from the root, separated
+   *         with <code>/</code>
+   */
+  static String path(Task task) {
+    StringBuilder path = new StringBuilder();
+    for (Task ancestor = task; ancestor != null; ancestor = ancestor
+        .getParentTask()) {
+      if (path.length() > 0) {
+        path.insert(0, '/');
+      }
+      path.insert(0, ancestor.getId());
+    }
+    return path.toString();
+  }
+
+  /**
+   * Adds ids of the task and all its ancestors to the document.
+   */
+  private void addAncestors(Document doc, String path) {
+    for (String id : path.split("/")) {
+      doc.add(new Field(SearchQuery.ANCESTOR, id, Field.Store.NO,
+          Field.Index.UN_TOKENIZED));
+    }
+  }
+
+  /**
+   * Computes stamp of all indexed data of the task.
+   */
+  private String stamp(Task task) {
+    StringBuilder data = new StringBuilder();
+    data.append(path(task)).append('\n');
+    data.append(task.getName()).append('\n');
+    data.append(task.getDescription()).append('\n');
+    data.append(task.isHidden()).append('\n');
+    if (task.getAttributes() != null) {
+      for (Attribute attr : task.getAttributes()) {
+        data.append(attr.getAttributeType().getName()).append('=')
+            .append(attr.get()).append('\n');
+      }
+    }
+    for (TimeSlot slot : task.getTimeslots()) {
+      data.append(slot.getId()).append('\t').append(slot.getStartDate())
+          .append('\t').append(slot.getStopDate()).append('\t')
+          .append(slot.getDescription()).append('\n');
+      if (slot.getAttributes() != null) {
+        for (Attribute attr : slot.getAttributes()) {
+          data.append('\t').append(attr.get()).append('\n');
+        }
+      }
+    }
+    return Long.toHexString(net.sf.timeslottracker.utils.StringUtils
+        .fingerprint(data.toString()));
+  }
+
+  /**
+   * Indexes the given task (and timeslots), not its subtasks.
+   *
+   * @param writer
+   *          writer to add documents to
    * @param task
    *          task to index.
+   * @param stamp
+   *          stamp of task data
    */
-  private void indexTask(Task task, boolean includeChildren)
+  private void indexTask(IndexWriter writer, Task task, String stamp)
       throws TimeSlotTrackerException {
     if (task == null) {
       throw new TimeSlotTrackerException(tst, "searchEngine.error.taskIsNull");
     }
-    Action indexingAction = new Action(SearchEngine.INDEXING, this,
-        task.getName());
-    tst.fireAction(indexingAction);
-    Thread.yield();
+    reportProgress(task);
     tst.debugLog("Indexing task: " + task.getName());
+    String path = path(task);
 
     try {
       // first add task and it's attributes
@@ -130,11 +611,15 @@ public class LuceneSearch implements SearchEngine {
           Field.Index.UN_TOKENIZED));
       doc.add(new Field("task_name", task.getName(), Field.Store.YES,
           Field.Index.NO));
+      doc.add(new Field("task_stamp", stamp, Field.Store.YES, Field.Index.NO));
+      doc.add(new Field("task_path", path, Field.Store.YES, Field.Index.NO));
+      addAncestors(doc, path);
       addFieldText(doc, "contents", task.getName());
       addFieldText(doc, "contents", task.getDescription());
       doc.add(new Field("task.hidden", task.isHidden() ? "yes" : "no",
           Field.Store.YES, Field.Index.UN_TOKENIZED));
-      indexWriter.addDocument(doc);
+      addTaskRange(doc, task);
+      writer.addDocument(doc);
       if (task.getAttributes() != null) {
         for (Attribute attr : task.getAttributes()) {
           if (!attr.getAttributeType().getCategory().includeInIndex()) {
@@ -148,7 +633,9 @@ public class LuceneSearch implements SearchEngine {
               Field.Index.NO));
           aDoc.add(new Field("contents", attr.get() == null ? StringUtils.EMPTY
               : attr.get().toString(), Field.Store.YES, Field.Index.TOKENIZED));
-          indexWriter.addDocument(aDoc);
+          addAttributeValue(aDoc, attr);
+          addAncestors(aDoc, path);
+          writer.addDocument(aDoc);
         }
       }
 
@@ -163,22 +650,18 @@ public class LuceneSearch implements SearchEngine {
             Field.Index.NO));
         slotDoc.add(new Field("timeslot_id", String.valueOf(slot.getId()),
             Field.Store.YES, Field.Index.NO));
+        addAncestors(slotDoc, path);
         addFieldText(slotDoc, "contents", slot.getDescription());
+        addTimeSlotRange(slotDoc, slot);
         if (slot.getAttributes() != null) {
           for (Attribute attr : slot.getAttributes()) {
             if (attr.get() != null) {
               addFieldText(slotDoc, "contents", attr.get().toString());
+              addAttributeValue(slotDoc, attr);
             }
           }
         }
-        indexWriter.addDocument(slotDoc);
-      }
-
-      // and add sub tasks
-      if (includeChildren && task.getChildren() != null) {
-        for (Task child : task.getChildren()) {
-          indexTask(child, includeChildren);
-        }
+        writer.addDocument(slotDoc);
       }
     } catch (IOException e) {
       e.printStackTrace();
@@ -186,6 +669,71 @@ public class LuceneSearch implements SearchEngine {
     }
   }
 
+  /**
+   * Adds days of the first and the last timeslot of the task.
+   */
+  private void addTaskRange(Document doc, Task task) {
+    String startDay = null;
+    String stopDay = null;
+    for (TimeSlot slot : task.getTimeslots()) {
+      if (slot.getStartDate() == null) {
+        continue;
+      }
+      String slotStart = SearchQuery.day(slot.getStartDate());
+      String slotStop = slot.getStopDate() == null ? slotStart : SearchQuery
+          .day(slot.getStopDate());
+      if (startDay == null || slotStart.compareTo(startDay) < 0) {
+        startDay = slotStart;
+      }
+      if (stopDay == null || slotStop.compareTo(stopDay) > 0) {
+        stopDay = slotStop;
+      }
+    }
+    if (startDay != null) {
+      addFieldValue(doc, SearchQuery.START_DAY, startDay, Field.Store.NO);
+      addFieldValue(doc, SearchQuery.STOP_DAY, stopDay, Field.Store.NO);
+    }
+  }
+
+  /**
+   * Adds days, start time and duration of the timeslot. A running timeslot
+   * ends on its start day and has its current duration.
+   */
+  private void addTimeSlotRange(Document doc, TimeSlot slot) {
+    Date start = slot.getStartDate();
+    if (start == null) {
+      return;
+    }
+    String startDay = SearchQuery.day(start);
+    addFieldValue(doc, SearchQuery.START_DAY, startDay, Field.Store.NO);
+    addFieldValue(doc, SearchQuery.STOP_DAY, slot.getStopDate() == null
+        ? startDay : SearchQuery.day(slot.getStopDate()), Field.Store.NO);
+    addFieldValue(doc, SearchQuery.START_MONTH, SearchQuery.month(start),
+        Field.Store.YES);
+    addFieldValue(doc, SearchQuery.START_TIME, SearchQuery.time(start),
+        Field.Store.NO);
+    addFieldValue(doc, SearchQuery.DURATION,
+        SearchQuery.duration(slot.getTime()), Field.Store.NO);
+  }
+
+  /**
+   * Adds value of numeric, list of values or check box attribute to its own
+   * field, so it can be filtered and counted.
+   */
+  private void addAttributeValue(Document doc, Attribute attr) {
+    AttributeType type = attr.getAttributeType();
+    String value = SearchQuery.attributeValue(type, attr.get());
+    if (value != null) {
+      addFieldValue(doc, SearchQuery.attributeField(type), value,
+          Field.Store.NO);
+    }
+  }
+
+  private void addFieldValue(Document doc, String name, String value,
+      Field.Store store) {
+    doc.add(new Field(name, value, store, Field.Index.UN_TOKENIZED));
+  }
+
   private void addFieldText(Document doc, String name, String value) {
     if (value == null) {
       return;
@@ -193,8 +741,34 @@ public class LuceneSearch implements SearchEngine {
     doc.add(new Field(name, value, Field.Store.YES, Field.Index.TOKENIZED));
   }
 
-  public synchronized Collection<Document> doSearch(String query)
+  public SearchResult doSearch(String query) throws TimeSlotTrackerException {
+    return doSearch(query, null);
+  }
+
+  public SearchResult doSearch(String query, Task within)
       throws TimeSlotTrackerException {
+    checkSearcher();
+    SearchResult result = null;
+    try {
+      result = search(query, within, null);
+    } finally {
+      tst.fireAction(new Action(SearchEngine.SEARCHING_FINISHED, this, result));
+    }
+    return result;
+  }
+
+  public SearchResult liveSearch(String query, Task within,
+      AtomicBoolean cancelled) throws TimeSlotTrackerException {
+    checkSearcher();
+    try {
+      return search(query, within, cancelled);
+    } catch (SearchCancelled e) {
+      tst.debugLog("Search for [" + query + "]: cancelled");
+      return null;
+    }
+  }
+
+  private void checkSearcher() throws TimeSlotTrackerException {
     if (!indexCreated) {
       throw new TimeSlotTrackerException(tst,
           "searchEngine.error.indexNotCreated");
@@ -203,56 +777,303 @@ public class LuceneSearch implements SearchEngine {
       throw new TimeSlotTrackerException(tst,
           "searchEngine.error.indexSearcher.searcherNotCreated");
     }
-    ArrayList<Document> found = new ArrayList<Document>();
+  }
+
+  /**
+   * Thrown when a live search is cancelled while collecting hits.
+   */
+  private static class SearchCancelled extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+  }
+
+  private synchronized SearchResult search(String query, Task within,
+      final AtomicBoolean cancelled) {
+    SearchResult result = null;
     try {
-      QueryParser queryParser = new QueryParser("contents",
-          new StandardAnalyzer());
-      if (!query.contains(" ")) {
-        query += "*";
-      }
-      Query q = queryParser.parse(query);
-      Hits hits = indexSearcher.search(q);
-      for (int i = 0; i < hits.length(); i++) {
-        Document doc = hits.doc(i);
-        tst.debugLog("Doc[" + i + "].type=[" + doc.get("type") + "], "
-            + "task_id=" + doc.get("task_id") + ", contents=["
-            + doc.get("contents") + "]");
-        found.add(doc);
+      if (searcherStale) {
+        reopenSearcher();
+        searcherStale = false;
+      }
+      String withinId = withinId(within);
+      String key = QueryCache.key(query, withinId);
+      result = queryCache.get(key, generation);
+      if (result != null) {
+        tst.debugLog("Search for [" + query + "]: cached");
+        return result;
       }
+      Collection<AttributeType> types = AttributeTypeManagerImpl.getInstance()
+          .list();
+      SearchQuery searchQuery = parse(query, withinId);
+      result = new SearchResult(this, searchQuery.toQuery());
+      result.setSource(key, searchQuery.getText());
+
+      // facets are counted while collecting hits
+      IndexReader reader = indexSearcher.getIndexReader();
+      final String[] months = FieldCache.DEFAULT.getStrings(reader,
+          SearchQuery.START_MONTH);
+      final String[] taskIds = FieldCache.DEFAULT.getStrings(reader, "task_id");
+      final List<String> lovNames = new ArrayList<String>();
+      final List<String[]> lovValues = new ArrayList<String[]>();
+      for (AttributeType type : types) {
+        if (type.getCategory() instanceof LOVAttribute) {
+          lovNames.add(type.getName());
+          lovValues.add(FieldCache.DEFAULT.getStrings(reader, SearchQuery
+              .attributeField(type)));
+        }
+      }
+      final SearchResult counted = result;
+      TopDocCollector collector = new TopDocCollector(PAGE_SIZE) {
+        @Override
+        public void collect(int doc, float score) {
+          if (cancelled != null && cancelled.get()) {
+            throw new SearchCancelled();
+          }
+          counted.count(months[doc], taskIds[doc], doc);
+          for (int i = 0; i < lovNames.size(); i++) {
+            counted.countAttribute(lovNames.get(i), lovValues.get(i)[doc]);
+          }
+          super.collect(doc, score);
+        }
+      };
+      indexSearcher.search(result.getQuery(), collector);
+      addPage(result, collector);
+      for (Map.Entry<String, Integer> task : result.getTaskDocuments()
+          .entrySet()) {
+        result.setTaskName(task.getKey(), indexSearcher.doc(task.getValue(),
+            TASK_NAME_FIELDS).get("task_name"));
+      }
+      tst.debugLog("Search for [" + query + "]: "
+          + result.getDocuments().size() + " of " + result.getTotalHits()
+          + " documents loaded");
+      queryCache.put(key, generation, result);
+    } catch (SearchCancelled e) {
+      throw e;
     } catch (Exception e) {
       e.printStackTrace();
       tst.errorLog(e);
-    } finally {
-      tst.fireAction(new Action(SearchEngine.SEARCHING_FINISHED, this, found));
+      if (result == null) {
+        result = new SearchResult(this, null);
+      }
+      result.setTotalHits(result.getDocuments().size());
     }
-    return found;
+    return result;
   }
 
-  public synchronized void update(Task task) {
-    if (task == null) {
+  /**
+   * @return id of the task to search in, null for the root (all tasks)
+   */
+  static String withinId(Task within) {
+    if (within == null || within.getParentTask() == null) {
+      return null;
+    }
+    return within.getId().toString();
+  }
+
+  /**
+   * Parses user query with filters of all attribute types.
+   */
+  static SearchQuery parse(String query, String withinId) {
+    SearchQuery searchQuery = new SearchQuery(query, AttributeTypeManagerImpl
+        .getInstance().list());
+    if (withinId != null) {
+      searchQuery.setWithin(withinId);
+    }
+    return searchQuery;
+  }
+
+  /**
+   * Loads the first page of the result and counts all its hits.
+   */
+  synchronized void loadFirstPage(SearchResult result) {
+    if (indexSearcher == null || result.getQuery() == null) {
       return;
     }
     try {
-      indexSearcher.close();
+      TopDocCollector collector = new TopDocCollector(PAGE_SIZE);
+      indexSearcher.search(result.getQuery(), collector);
+      addPage(result, collector);
+    } catch (IOException e) {
+      tst.errorLog(e);
+    }
+  }
 
-      Term termToDelete = new Term("task_id", task.getId().toString());
-      indexWriter.deleteDocuments(termToDelete);
+  /**
+   * Reads next page of the result, the result itself is not changed. Search
+   * is repeated to collect more top hits, it's cheaper than to collect all of
+   * them at first. It's repeated by the current searcher, so the page follows
+   * loaded documents even after the index has changed.
+   *
+   * @return documents of the page, empty when there are no more of them
+   */
+  synchronized List<Document> loadPage(SearchResult result) {
+    List<Document> page = new ArrayList<Document>();
+    if (indexSearcher == null || result.getQuery() == null) {
+      return page;
+    }
+    int loaded = result.getDocuments().size();
+    try {
+      TopDocCollector collector = new TopDocCollector(loaded + PAGE_SIZE);
+      indexSearcher.search(result.getQuery(), collector);
+      ScoreDoc[] hits = collector.topDocs().scoreDocs;
+      for (int i = loaded; i < hits.length; i++) {
+        page.add(indexSearcher.doc(hits[i].doc, RESULT_FIELDS));
+      }
+    } catch (IOException e) {
+      tst.errorLog(e);
+    }
+    return page;
+  }
 
-      indexTask(task, false);
-      indexWriter.optimize();
-      indexWriter.flush();
+  private void addPage(SearchResult result, TopDocCollector collector)
+      throws IOException {
+    result.setTotalHits(collector.getTotalHits());
+    ScoreDoc[] hits = collector.topDocs().scoreDocs;
+    for (int i = result.getDocuments().size(); i < hits.length; i++) {
+      result.add(indexSearcher.doc(hits[i].doc, RESULT_FIELDS));
+    }
+  }
 
-      indexSearcher = new IndexSearcher(indexDir);
+  /**
+   * Queues the task to be indexed again. Changes are committed by the indexer
+   * {@link #COMMIT_DELAY} seconds after the first queued one, or when the
+   * index is created.
+   */
+  public void update(Task task) {
+    if (task == null) {
+      return;
+    }
+    synchronized (pendingTasks) {
+      pendingTasks.add(task);
+      queuedUpdates++;
+      if (!indexCreated || indexerScheduled) {
+        return;
+      }
+      indexerScheduled = true;
+    }
+    tst.getScheduler().scheduleOnce(INDEXER_TASK, indexer, COMMIT_DELAY);
+  }
+
+  /**
+   * Indexes all queued tasks, which data has changed, and commits them in one
+   * flush. When a task has been moved, its subtasks are indexed too (with new
+   * ancestors). Documents of a deleted task's subtree are removed.
+   */
+  synchronized void commitPending() {
+    LinkedList<Task> batch;
+    synchronized (pendingTasks) {
+      if (pendingTasks.isEmpty()) {
+        return;
+      }
+      batch = new LinkedList<Task>(pendingTasks);
+      pendingTasks.clear();
+    }
+    long start = System.nanoTime();
+    int indexed = 0;
+    int count = 0;
+    Set<Task> done = new HashSet<Task>();
+    try {
+      while (!batch.isEmpty()) {
+        Task task = batch.removeFirst();
+        if (!done.add(task)) {
+          continue;
+        }
+        count++;
+        String taskId = task.getId().toString();
+        if (task.getParentTask() == null
+            && task != tst.getDataSource().getRoot()) {
+          removeSubtree(task);
+          indexed++;
+          continue;
+        }
+        String path = path(task);
+        String indexedPath = paths.get(taskId);
+        if (indexedPath != null && !indexedPath.equals(path)
+            && task.getChildren() != null) {
+          // moved, subtasks have new ancestors
+          batch.addAll(task.getChildren());
+        }
+        String stamp = stamp(task);
+        if (stamp.equals(stamps.get(taskId))) {
+          continue;
+        }
+        indexWriter.deleteDocuments(new Term("task_id", taskId));
+        indexTask(indexWriter, task, stamp);
+        stamps.put(taskId, stamp);
+        paths.put(taskId, path);
+        indexed++;
+      }
+      if (indexed > 0) {
+        indexWriter.flush();
+        searcherStale = true;
+      }
     } catch (IOException e) {
-      e.printStackTrace();
       tst.errorLog(e);
     } catch (TimeSlotTrackerException e) {
-      e.printStackTrace();
       tst.errorLog(e);
     }
+    long time = System.nanoTime() - start;
+    batchLatency.record(time);
+    synchronized (pendingTasks) {
+      indexedTasks += indexed;
+      unchangedTasks += count - indexed;
+    }
+    tst.debugLog("Search index: " + indexed + " of " + count
+        + " tasks indexed in " + (time / 1000000) + "ms");
+  }
+
+  /**
+   * Removes documents of the deleted task and its subtasks.
+   */
+  private void removeSubtree(Task task) throws IOException {
+    String taskId = task.getId().toString();
+    if (stamps.containsKey(taskId)) {
+      indexWriter.deleteDocuments(new Term(SearchQuery.ANCESTOR, taskId));
+    }
+    Iterator<Task> tasks = new TaskIterator(task);
+    while (tasks.hasNext()) {
+      String id = tasks.next().getId().toString();
+      stamps.remove(id);
+      paths.remove(id);
+    }
+  }
+
+  private void appendStatistics(StringBuilder report) {
+    long micros = batchLatency.getTotalMicros();
+    synchronized (pendingTasks) {
+      report.append("Search index\n");
+      report.append("  queued updates: ").append(queuedUpdates)
+          .append(", indexed: ").append(indexedTasks).append(", unchanged: ")
+          .append(unchangedTasks).append(", pending: ")
+          .append(pendingTasks.size()).append('\n');
+      report.append("  catch up: ").append(caughtUpTasks).append(" of ")
+          .append(checkedTasks).append(" tasks indexed\n");
+      report.append("  batches: ").append(batchLatency).append('\n');
+      long hits = queryCache.getHits();
+      long searches = hits + queryCache.getMisses();
+      report.append("  query cache: ").append(queryCache.size())
+          .append(" results, ").append(hits).append(" of ").append(searches)
+          .append(" searches cached");
+      if (searches > 0) {
+        report.append(" (").append(hits * 100 / searches).append("%)");
+      }
+      report.append('\n');
+      if (micros > 0) {
+        report.append("  throughput: ")
+            .append(indexedTasks * 1000000 / micros).append(" tasks/s\n");
+      }
+    }
+  }
+
+  /**
+   * @return number of tasks indexed again when the index was opened
+   */
+  long getCaughtUpTasks() {
+    synchronized (pendingTasks) {
+      return caughtUpTasks;
+    }
   }
 
-  public synchronized void update(TimeSlot timeSlot) {
+  public void update(TimeSlot timeSlot) {
     update(timeSlot.getTask());
   }
 }
@@ -0,0 +1,97 @@
+package net.sf.timeslottracker.search;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The least recently used search results by normalized query.
+ * <p/>
+ * Every result is stamped with the generation of the index searcher it was
+ * found by. When the searcher is reopened (the index has changed) the
+ * generation advances and older results are not returned any more, so the
+ * cache never has to be cleared explicitly.
+ * <p/>
+ * Results load next pages of documents into themselves, so the cache keeps a
+ * copy with the first page and every caller gets its own copy of it.
+ */
+class QueryCache {
+
+  private static class Entry {
+    private final long generation;
+    private final SearchResult result;
+
+    private Entry(long generation, SearchResult result) {
+      this.generation = generation;
+      this.result = result;
+    }
+  }
+
+  private final Map<String, Entry> entries;
+
+  private long hits;
+
+  private long misses;
+
+  QueryCache(final int capacity) {
+    entries = new LinkedHashMap<String, Entry>(capacity, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+        return size() > capacity;
+      }
+    };
+  }
+
+  /**
+   * @return key of the query: words separated with a single space, prefixed
+   *         with id of the task searched in
+   */
+  static String key(String query, String within) {
+    StringBuilder key = new StringBuilder();
+    if (within != null) {
+      key.append(within);
+    }
+    key.append('|');
+    for (String word : query.trim().split("\\s+")) {
+      if (key.charAt(key.length() - 1) != '|') {
+        key.append(' ');
+      }
+      key.append(word);
+    }
+    return key.toString();
+  }
+
+  /**
+   * @return result of the query found in the generation, null when it is not
+   *         cached
+   */
+  synchronized SearchResult get(String key, long generation) {
+    Entry entry = entries.get(key);
+    if (entry != null && entry.generation != generation) {
+      entries.remove(key);
+      entry = null;
+    }
+    if (entry == null) {
+      misses++;
+      return null;
+    }
+    hits++;
+    return entry.result.copy();
+  }
+
+  synchronized void put(String key, long generation, SearchResult result) {
+    entries.put(key, new Entry(generation, result.copy()));
+  }
+
+  synchronized long getHits() {
+    return hits;
+  }
+
+  synchronized long getMisses() {
+    return misses;
+  }
+
+  synchronized int size() {
+    return entries.size();
+  }
+
+}
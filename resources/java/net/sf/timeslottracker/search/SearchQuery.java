@@ -0,0 +1,477 @@
+package net.sf.timeslottracker.search;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import net.sf.timeslottracker.data.AttributeCategory;
+import net.sf.timeslottracker.data.AttributeType;
+import net.sf.timeslottracker.data.CheckBoxAttribute;
+import net.sf.timeslottracker.data.IntegerAttribute;
+import net.sf.timeslottracker.data.LOVAttribute;
+import net.sf.timeslottracker.data.RealAttribute;
+import net.sf.timeslottracker.utils.StringUtils;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.Token;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.NumberTools;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queryParser.ParseException;
+import org.apache.lucene.queryParser.QueryParser;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.ConstantScoreRangeQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+
+/**
+ * Query entered by user split into words searched in contents and range
+ * filters.
+ * <p/>
+ * Recognized filters:
+ * <ul>
+ * <li><code>from:2010-03-01</code>, <code>to:2010-03-31</code> - days
+ * (including), a task matches when its timeslots overlap them</li>
+ * <li><code>month:2010-03</code> - the same for a whole month</li>
+ * <li><code>duration&gt;30</code>, <code>duration&lt;=2h</code> - timeslot
+ * duration in minutes (or hours with <code>h</code> suffix)</li>
+ * <li><code>time&gt;=9:00</code>, <code>time&lt;12:00</code> - timeslot start
+ * time</li>
+ * <li><code>Project number:4711</code>, <code>Estimate&gt;=2.5</code> - value
+ * of a numeric attribute</li>
+ * <li><code>Status:open</code>, <code>Status:"In progress"</code>,
+ * <code>Billable:yes</code> - value of a list of values or check box attribute
+ * </li>
+ * </ul>
+ * Other words (and filters with invalid values) are searched as text.
+ * <p/>
+ * Filtered values are indexed as fixed length strings, so their lexical order
+ * is the numeric one. This class defines both the fields and the encoding.
+ */
+public class SearchQuery {
+
+  /** first day of timeslot or task, <code>yyyyMMdd</code> */
+  static final String START_DAY = "start_day";
+
+  /** last day of timeslot or task, <code>yyyyMMdd</code> */
+  static final String STOP_DAY = "stop_day";
+
+  /** month of timeslot start, <code>yyyyMM</code> (stored) */
+  static final String START_MONTH = "start_month";
+
+  /** start time of timeslot, <code>HHmm</code> */
+  static final String START_TIME = "start_time";
+
+  /** duration of timeslot in minutes, six digits */
+  static final String DURATION = "duration";
+
+  /** ids of the task and all its ancestors */
+  static final String ANCESTOR = "ancestor_id";
+
+  /** prefix of fields with values of typed attributes */
+  static final String ATTRIBUTE = "attr.";
+
+  private static final Pattern DAY_FILTER = Pattern
+      .compile("(from|to):(\\d{4})-(\\d{1,2})-(\\d{1,2})");
+
+  private static final Pattern MONTH_FILTER = Pattern
+      .compile("month:(\\d{4})-(\\d{1,2})");
+
+  private static final Pattern DURATION_FILTER = Pattern
+      .compile("duration(<=|>=|<|>)(\\d+)([mh]?)");
+
+  private static final Pattern TIME_FILTER = Pattern
+      .compile("time(<=|>=|<|>)(\\d{1,2}):(\\d{2})");
+
+  private static final int MAX_DURATION = 999999;
+
+  private static final Pattern WORD = Pattern.compile("[\\p{L}\\p{N}]+");
+
+  private static final Analyzer ANALYZER = new StandardAnalyzer();
+
+  private final String text;
+
+  private final List<Query> filters = new ArrayList<Query>();
+
+  /**
+   * Parses user query.
+   */
+  public SearchQuery(String query) {
+    this(query, Collections.<AttributeType> emptyList());
+  }
+
+  /**
+   * Parses user query with filters of attributes.
+   *
+   * @param types
+   *          attribute types which values can be filtered
+   */
+  public SearchQuery(String query, Collection<AttributeType> types) {
+    query = parseAttributes(query, types);
+    StringBuilder words = new StringBuilder();
+    for (String token : query.trim().split("\\s+")) {
+      if (token.length() > 0 && !parseFilter(token)) {
+        if (words.length() > 0) {
+          words.append(' ');
+        }
+        words.append(token);
+      }
+    }
+    text = words.toString();
+  }
+
+  private boolean parseFilter(String token) {
+    Matcher matcher = DAY_FILTER.matcher(token);
+    if (matcher.matches()) {
+      String day = matcher.group(2) + pad(matcher.group(3), 2)
+          + pad(matcher.group(4), 2);
+      if (matcher.group(1).equals("from")) {
+        addRange(STOP_DAY, day, true, null, false);
+      } else {
+        addRange(START_DAY, null, false, day, true);
+      }
+      return true;
+    }
+    matcher = MONTH_FILTER.matcher(token);
+    if (matcher.matches()) {
+      String month = matcher.group(1) + pad(matcher.group(2), 2);
+      addRange(STOP_DAY, month + "01", true, null, false);
+      addRange(START_DAY, null, false, month + "31", true);
+      return true;
+    }
+    matcher = DURATION_FILTER.matcher(token);
+    if (matcher.matches()) {
+      long minutes = Long.parseLong(matcher.group(2));
+      if (matcher.group(3).equals("h")) {
+        minutes *= 60;
+      }
+      addComparison(DURATION, matcher.group(1), pad(
+          String.valueOf(Math.min(minutes, MAX_DURATION)), 6));
+      return true;
+    }
+    matcher = TIME_FILTER.matcher(token);
+    if (matcher.matches()) {
+      addComparison(START_TIME, matcher.group(1), pad(matcher.group(2), 2)
+          + matcher.group(3));
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Removes valid attribute filters from the query.
+   */
+  private String parseAttributes(String query, Collection<AttributeType> types) {
+    List<AttributeType> typed = new ArrayList<AttributeType>();
+    for (AttributeType type : types) {
+      if (type.getName() != null && (isNumeric(type) || isExact(type))) {
+        typed.add(type);
+      }
+    }
+    // "Project number" has to be found before "Project"
+    Collections.sort(typed, new Comparator<AttributeType>() {
+      public int compare(AttributeType first, AttributeType second) {
+        return second.getName().length() - first.getName().length();
+      }
+    });
+    for (AttributeType type : typed) {
+      Pattern filter = Pattern.compile("(?<!\\S)"
+          + Pattern.quote(type.getName().trim())
+          + "(:|<=|>=|<|>)(\"[^\"]*\"|\\S+)", Pattern.CASE_INSENSITIVE);
+      Matcher matcher = filter.matcher(query);
+      StringBuffer rest = new StringBuffer();
+      while (matcher.find()) {
+        String value = matcher.group(2);
+        if (value.startsWith("\"")) {
+          value = value.substring(1, value.length() - 1);
+        }
+        boolean valid = addAttributeFilter(type, matcher.group(1), value);
+        matcher.appendReplacement(rest, valid ? " " : Matcher
+            .quoteReplacement(matcher.group()));
+      }
+      matcher.appendTail(rest);
+      query = rest.toString();
+    }
+    return query;
+  }
+
+  private boolean addAttributeFilter(AttributeType type, String operator,
+      String value) {
+    String field = attributeField(type);
+    if (isNumeric(type)) {
+      String number;
+      try {
+        number = number(Double.parseDouble(value));
+      } catch (NumberFormatException e) {
+        return false;
+      }
+      if (operator.equals(":")) {
+        addRange(field, number, true, number, true);
+      } else {
+        addComparison(field, operator, number);
+      }
+      return true;
+    }
+    if (!operator.equals(":")) {
+      return false;
+    }
+    String term = null;
+    if (type.getCategory() instanceof CheckBoxAttribute) {
+      if (value.equalsIgnoreCase("yes") || value.equalsIgnoreCase("true")) {
+        term = Boolean.TRUE.toString();
+      } else if (value.equalsIgnoreCase("no")
+          || value.equalsIgnoreCase("false")) {
+        term = Boolean.FALSE.toString();
+      }
+    } else {
+      term = value;
+      for (Object listed : values(type)) {
+        if (value.equalsIgnoreCase(listed.toString())) {
+          term = listed.toString();
+        }
+      }
+    }
+    if (term == null) {
+      return false;
+    }
+    filters.add(new TermQuery(new Term(field, term)));
+    return true;
+  }
+
+  private void addComparison(String field, String operator, String value) {
+    boolean including = operator.length() == 2;
+    if (operator.startsWith(">")) {
+      addRange(field, value, including, null, false);
+    } else {
+      addRange(field, null, false, value, including);
+    }
+  }
+
+  private void addRange(String field, String lower, boolean includeLower,
+      String upper, boolean includeUpper) {
+    filters.add(new ConstantScoreRangeQuery(field, lower, upper, includeLower,
+        includeUpper));
+  }
+
+  /**
+   * Limits the search to the task and its subtasks.
+   */
+  public void setWithin(String taskId) {
+    filters.add(new TermQuery(new Term(ANCESTOR, taskId)));
+  }
+
+  /**
+   * @return words searched in contents, empty when there are only filters
+   */
+  public String getText() {
+    return text;
+  }
+
+  public boolean hasFilters() {
+    return !filters.isEmpty();
+  }
+
+  /**
+   * Builds lucene query: all words (a single one as a prefix) and all filters
+   * have to match.
+   */
+  public Query toQuery() throws ParseException {
+    BooleanQuery query = new BooleanQuery();
+    if (text.length() > 0) {
+      // because we accept the use of ":" not as a keyword description we
+      // have to escape it
+      String words = text.replace(":", "\\:");
+      if (!words.contains(" ")) {
+        words += "*";
+      }
+      QueryParser queryParser = new QueryParser("contents", ANALYZER);
+      query.add(queryParser.parse(words), BooleanClause.Occur.MUST);
+    }
+    for (Query filter : filters) {
+      query.add(filter, BooleanClause.Occur.MUST);
+    }
+    return query;
+  }
+
+  /**
+   * @return field with values of attributes of the type
+   */
+  static String attributeField(AttributeType type) {
+    return attributeField(type.getName());
+  }
+
+  static String attributeField(String typeName) {
+    return ATTRIBUTE + typeName.trim().toLowerCase();
+  }
+
+  /**
+   * @return <code>true</code> for integer and real attributes, which values
+   *         are indexed as numbers
+   */
+  static boolean isNumeric(AttributeType type) {
+    AttributeCategory category = type.getCategory();
+    return category instanceof IntegerAttribute
+        || category instanceof RealAttribute;
+  }
+
+  /**
+   * @return <code>true</code> for list of values and check box attributes,
+   *         which values are indexed as exact terms
+   */
+  static boolean isExact(AttributeType type) {
+    AttributeCategory category = type.getCategory();
+    return category instanceof LOVAttribute
+        || category instanceof CheckBoxAttribute;
+  }
+
+  /**
+   * @return listed values of list of values attribute
+   */
+  static Collection<?> values(AttributeType type) {
+    if (type.getDefault() == null) {
+      return Collections.emptyList();
+    }
+    return StringUtils.convertStringLOV2Collection(type.getDefault());
+  }
+
+  /**
+   * Encodes value of a typed attribute.
+   *
+   * @return indexed term, null if the value can't be filtered
+   */
+  static String attributeValue(AttributeType type, Object value) {
+    if (value == null || value.toString().trim().length() == 0) {
+      return null;
+    }
+    if (isNumeric(type)) {
+      try {
+        return number(value instanceof Number ? ((Number) value).doubleValue()
+            : Double.parseDouble(value.toString().trim()));
+      } catch (NumberFormatException e) {
+        return null;
+      }
+    }
+    if (type.getCategory() instanceof CheckBoxAttribute) {
+      return Boolean.valueOf(value.toString()).toString();
+    }
+    if (type.getCategory() instanceof LOVAttribute) {
+      return value.toString();
+    }
+    return null;
+  }
+
+  /**
+   * Encodes a number so the lexical order of encoded values is the numeric one.
+   */
+  static String number(double value) {
+    // the same term for 0.0 and -0.0
+    long bits = Double.doubleToLongBits(value + 0.0);
+    if (bits < 0) {
+      // negative numbers, the bigger absolute value, the lower term
+      bits ^= Long.MAX_VALUE;
+    }
+    return NumberTools.longToString(bits);
+  }
+
+  /**
+   * @return <code>true</code> if the text is a single word of letters and
+   *         digits, which is searched as a prefix
+   */
+  static boolean isWord(String text) {
+    return WORD.matcher(text).matches();
+  }
+
+  /**
+   * @return <code>true</code> if the document contains a word (as analyzed
+   *         in the index) starting with the lower case prefix
+   */
+  static boolean containsPrefix(Document document, String prefix) {
+    String[] values = document.getValues("contents");
+    if (values == null) {
+      return false;
+    }
+    for (String value : values) {
+      TokenStream tokens = ANALYZER.tokenStream("contents", new StringReader(
+          value));
+      try {
+        Token token = new Token();
+        for (token = tokens.next(token); token != null; token = tokens
+            .next(token)) {
+          if (startsWith(token.termBuffer(), token.termLength(), prefix)) {
+            return true;
+          }
+        }
+      } catch (IOException e) {
+        // not thrown by string reader
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @return <code>true</code> if the term in the buffer starts with the prefix
+   */
+  private static boolean startsWith(char[] term, int length, String prefix) {
+    if (length < prefix.length()) {
+      return false;
+    }
+    for (int i = 0; i < prefix.length(); i++) {
+      if (term[i] != prefix.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  static String day(Date date) {
+    Calendar calendar = Calendar.getInstance();
+    calendar.setTime(date);
+    return month(calendar) + pad(calendar.get(Calendar.DAY_OF_MONTH), 2);
+  }
+
+  static String month(Date date) {
+    Calendar calendar = Calendar.getInstance();
+    calendar.setTime(date);
+    return month(calendar);
+  }
+
+  private static String month(Calendar calendar) {
+    return pad(calendar.get(Calendar.YEAR), 4)
+        + pad(calendar.get(Calendar.MONTH) + 1, 2);
+  }
+
+  static String time(Date date) {
+    Calendar calendar = Calendar.getInstance();
+    calendar.setTime(date);
+    return pad(calendar.get(Calendar.HOUR_OF_DAY), 2)
+        + pad(calendar.get(Calendar.MINUTE), 2);
+  }
+
+  static String duration(long millis) {
+    return pad(String.valueOf(Math.min(millis / 60000, MAX_DURATION)), 6);
+  }
+
+  private static String pad(int value, int length) {
+    return pad(String.valueOf(value), length);
+  }
+
+  private static String pad(String value, int length) {
+    StringBuilder padded = new StringBuilder();
+    for (int i = value.length(); i < length; i++) {
+      padded.append('0');
+    }
+    return padded.append(value).toString();
+  }
+
+}
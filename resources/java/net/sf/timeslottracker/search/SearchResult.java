@@ -0,0 +1,356 @@
+package net.sf.timeslottracker.search;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import net.sf.timeslottracker.data.Task;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queryParser.ParseException;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+
+/**
+ * Documents found by a search with hit counts per month, per task and per value
+ * of list of values attributes (facets), counted in the same pass.
+ * <p/>
+ * Only the best hits are loaded by the search, next ones are read by pages
+ * with {@link #readMore()} outside of the event dispatch thread and added with
+ * {@link #addPage(List)}. When the index changes meanwhile, pages are read
+ * from the changed one; the total is the number of hits found by the search.
+ * <p/>
+ * Only timeslots are counted in months (in the month of their start).
+ * <p/>
+ * While user types a word, a complete result can be refined to the longer
+ * word in memory, see {@link #refine(String, Task)}.
+ */
+public class SearchResult {
+
+  private final LuceneSearch engine;
+
+  private final Query query;
+
+  /** cache key of the query */
+  private String key;
+
+  /** words of the query searched in contents */
+  private String text;
+
+  private final List<Document> documents = new ArrayList<Document>();
+
+  private int totalHits;
+
+  /** no more documents can be read, even if there are less than total */
+  private boolean complete;
+
+  private final Map<String, Integer> months;
+
+  private final Map<String, Integer> tasks;
+
+  private final Map<String, String> taskNames;
+
+  /** hit counts by attribute type name and value */
+  private final Map<String, Map<String, Integer>> attributes;
+
+  /** a found document of every counted task */
+  private final Map<String, Integer> taskDocuments;
+
+  SearchResult(LuceneSearch engine, Query query) {
+    this.engine = engine;
+    this.query = query;
+    months = new TreeMap<String, Integer>();
+    tasks = new HashMap<String, Integer>();
+    taskNames = new HashMap<String, String>();
+    attributes = new TreeMap<String, Map<String, Integer>>();
+    taskDocuments = new HashMap<String, Integer>();
+  }
+
+  /**
+   * Creates copy of the result with the same loaded documents and shared
+   * facets. Pages loaded later are added only to the copy.
+   */
+  private SearchResult(SearchResult original) {
+    this(original, original.query);
+    key = original.key;
+    text = original.text;
+    documents.addAll(original.documents);
+    totalHits = original.totalHits;
+    complete = original.complete;
+  }
+
+  /**
+   * Creates narrowed result sharing facets of the original one.
+   */
+  private SearchResult(SearchResult original, Query query) {
+    this.engine = original.engine;
+    this.query = query;
+    months = original.months;
+    tasks = original.tasks;
+    taskNames = original.taskNames;
+    attributes = original.attributes;
+    taskDocuments = original.taskDocuments;
+  }
+
+  /**
+   * @return copy of the result which can load next pages without changing
+   *         this one
+   */
+  SearchResult copy() {
+    return new SearchResult(this);
+  }
+
+  void setSource(String key, String text) {
+    this.key = key;
+    this.text = text;
+  }
+
+  void count(String month, String taskId, int doc) {
+    count(month, taskId);
+    if (taskId != null && !taskDocuments.containsKey(taskId)) {
+      taskDocuments.put(taskId, doc);
+    }
+  }
+
+  private void count(String month, String taskId) {
+    increment(months, month);
+    increment(tasks, taskId);
+  }
+
+  void countAttribute(String type, String value) {
+    if (value == null) {
+      return;
+    }
+    Map<String, Integer> values = attributes.get(type);
+    if (values == null) {
+      values = new TreeMap<String, Integer>();
+      attributes.put(type, values);
+    }
+    increment(values, value);
+  }
+
+  private static void increment(Map<String, Integer> counts, String key) {
+    if (key == null) {
+      return;
+    }
+    Integer count = counts.get(key);
+    counts.put(key, count == null ? 1 : count + 1);
+  }
+
+  void add(Document document) {
+    documents.add(document);
+  }
+
+  Map<String, Integer> getTaskDocuments() {
+    return taskDocuments;
+  }
+
+  void setTaskName(String taskId, String name) {
+    taskNames.put(taskId, name);
+  }
+
+  Query getQuery() {
+    return query;
+  }
+
+  void setTotalHits(int totalHits) {
+    this.totalHits = totalHits;
+  }
+
+  /**
+   * @return loaded documents, the best matching first
+   */
+  public List<Document> getDocuments() {
+    return documents;
+  }
+
+  /**
+   * @return number of all matching documents
+   */
+  public int getTotalHits() {
+    return totalHits;
+  }
+
+  public boolean isEmpty() {
+    return totalHits == 0;
+  }
+
+  /**
+   * @return <code>true</code> if not all matching documents are loaded
+   */
+  public boolean hasMore() {
+    return !complete && documents.size() < totalHits;
+  }
+
+  /**
+   * Reads next page of documents, this result is not changed. It searches the
+   * index, so it should be called outside of the event dispatch thread.
+   *
+   * @return documents of the page, empty when there are no more of them
+   */
+  public List<Document> readMore() {
+    if (!hasMore()) {
+      return Collections.emptyList();
+    }
+    return engine.loadPage(this);
+  }
+
+  /**
+   * Adds page read by {@link #readMore()}. An empty page completes the result,
+   * less documents than found may match the changed index.
+   */
+  public void addPage(List<Document> page) {
+    if (page.isEmpty()) {
+      complete = true;
+    }
+    documents.addAll(page);
+  }
+
+  /**
+   * Creates result containing only documents of this one from given month and
+   * task. Its first page is loaded.
+   *
+   * @param month
+   *          month (<code>yyyyMM</code>) or null for all of them
+   * @param taskId
+   *          task id or null for all tasks
+   */
+  public SearchResult narrow(String month, String taskId) {
+    return narrow(month, taskId, null, null);
+  }
+
+  /**
+   * Creates result containing only documents of this one from given month and
+   * task and with given attribute value. Its first page is loaded, so it
+   * should be called outside of the event dispatch thread.
+   *
+   * @param type
+   *          name of attribute type or null for all values
+   * @param value
+   *          value of the attribute, one counted in
+   *          {@link #getAttributeCounts()}
+   */
+  public SearchResult narrow(String month, String taskId, String type,
+      String value) {
+    if (month == null && taskId == null && type == null) {
+      return this;
+    }
+    BooleanQuery narrowed = new BooleanQuery();
+    narrowed.add(query, BooleanClause.Occur.MUST);
+    if (month != null) {
+      narrowed.add(new TermQuery(new Term(SearchQuery.START_MONTH, month)),
+          BooleanClause.Occur.MUST);
+    }
+    if (taskId != null) {
+      narrowed.add(new TermQuery(new Term("task_id", taskId)),
+          BooleanClause.Occur.MUST);
+    }
+    if (type != null) {
+      narrowed.add(new TermQuery(new Term(SearchQuery.attributeField(type),
+          value)), BooleanClause.Occur.MUST);
+    }
+    SearchResult result = new SearchResult(this, narrowed);
+    engine.loadFirstPage(result);
+    return result;
+  }
+
+  /**
+   * Refines this result to a query, which only extends the word of this one,
+   * without searching the index again. Only loaded documents are filtered, so
+   * it is possible only when all matching documents are loaded. Attribute
+   * values are not counted in the refined result.
+   *
+   * @param query
+   *          query entered by user
+   * @param within
+   *          task searched in, the same as of this result
+   * @return refined result or <code>null</code> when the index has to be
+   *         searched
+   */
+  public SearchResult refine(String query, Task within) {
+    String withinId = LuceneSearch.withinId(within);
+    String refinedKey = QueryCache.key(query, withinId);
+    if (key == null || hasMore() || text.length() == 0
+        || !key.endsWith(text) || !refinedKey.startsWith(key)) {
+      return null;
+    }
+    if (refinedKey.equals(key)) {
+      return this;
+    }
+    SearchQuery refinedQuery = LuceneSearch.parse(query, withinId);
+    String word = refinedQuery.getText();
+    if (!word.equals(text + refinedKey.substring(key.length()))
+        || !SearchQuery.isWord(word)) {
+      return null;
+    }
+    SearchResult refined;
+    try {
+      refined = new SearchResult(engine, refinedQuery.toQuery());
+    } catch (ParseException e) {
+      return null;
+    }
+    refined.setSource(refinedKey, word);
+    refined.taskNames.putAll(taskNames);
+    String prefix = word.toLowerCase();
+    for (Document document : documents) {
+      if (SearchQuery.containsPrefix(document, prefix)) {
+        refined.add(document);
+        refined.count(document.get(SearchQuery.START_MONTH), document
+            .get("task_id"));
+      }
+    }
+    refined.setTotalHits(refined.documents.size());
+    return refined;
+  }
+
+  /**
+   * @return number of found timeslots by month (<code>yyyyMM</code>) in
+   *         chronological order
+   */
+  public Map<String, Integer> getMonthCounts() {
+    return Collections.unmodifiableMap(months);
+  }
+
+  /**
+   * @return number of found documents by task id, the most frequent first
+   */
+  public Map<String, Integer> getTaskCounts() {
+    List<Map.Entry<String, Integer>> entries = new ArrayList<Map.Entry<String, Integer>>(
+        tasks.entrySet());
+    Collections.sort(entries, new Comparator<Map.Entry<String, Integer>>() {
+      public int compare(Map.Entry<String, Integer> first,
+          Map.Entry<String, Integer> second) {
+        return second.getValue().compareTo(first.getValue());
+      }
+    });
+    Map<String, Integer> sorted = new LinkedHashMap<String, Integer>();
+    for (Map.Entry<String, Integer> entry : entries) {
+      sorted.put(entry.getKey(), entry.getValue());
+    }
+    return sorted;
+  }
+
+  /**
+   * @return number of found documents by list of values attribute type name
+   *         and value, in alphabetical order
+   */
+  public Map<String, Map<String, Integer>> getAttributeCounts() {
+    return Collections.unmodifiableMap(attributes);
+  }
+
+  /**
+   * @return name of a task counted in facets
+   */
+  public String getTaskName(String taskId) {
+    return taskNames.get(taskId);
+  }
+
+}
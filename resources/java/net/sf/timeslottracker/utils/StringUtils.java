@@ -74,6 +74,19 @@ public final class StringUtils {
     }
   }
 
+  /**
+   * Computes 64-bit FNV-1a hash of given text. It is used to detect changed
+   * data, so it is enough that it is very unlikely to collide.
+   */
+  public static long fingerprint(String text) {
+    long hash = 0xcbf29ce484222325L;
+    for (int i = 0; i < text.length(); i++) {
+      hash ^= text.charAt(i);
+      hash *= 0x100000001b3L;
+    }
+    return hash;
+  }
+
   /**
    * @return charset for it's name, or UTF-8 if unknown
    */
@@ -255,8 +255,14 @@ public class TimeUtils {
     if (date == null) {
       return null;
     }
-    long millis = date.getTime();
+    return new Date(roundTime(date.getTime()));
+  }
 
+  /**
+   * Rounds given time in milliseconds to full minutes, the same as
+   * {@link #roundDate(Date)}.
+   */
+  public static long roundTime(long millis) {
     // cut any milliseconds, leave full seconds
     millis /= 1000;
     millis *= 1000;
@@ -269,7 +275,7 @@ public class TimeUtils {
     } else {
       millis -= secs * 1000;
     }
-    return new Date(millis);
+    return millis;
   }
 
   /**
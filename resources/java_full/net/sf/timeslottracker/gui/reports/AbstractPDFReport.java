@@ -0,0 +1,86 @@
+package net.sf.timeslottracker.gui.reports;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import javax.xml.transform.Result;
+import javax.xml.transform.Source;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.sax.SAXResult;
+
+import org.apache.avalon.framework.configuration.Configuration;
+import org.apache.avalon.framework.configuration.DefaultConfigurationBuilder;
+import org.apache.fop.apps.FOUserAgent;
+import org.apache.fop.apps.Fop;
+import org.apache.fop.apps.FopFactory;
+import org.apache.fop.apps.FopFactoryBuilder;
+import org.apache.fop.apps.MimeConstants;
+
+import net.sf.timeslottracker.gui.LayoutManager;
+
+/**
+ * A report rendered to PDF by FOP from the XSL-FO output of its stylesheet.
+ * <p>
+ * All PDF reports share one <code>FopFactory</code>, configured by
+ * <code>/xslt/fop_conf.xml</code> when the first one is run, so fonts are
+ * detected only once. Their stylesheets are compiled once by
+ * {@link ReportTemplates}.
+ */
+public abstract class AbstractPDFReport extends AbstractReport {
+
+  private static FopFactory fopFactory;
+
+  public AbstractPDFReport(LayoutManager layoutManager) {
+    super(layoutManager);
+  }
+
+  public ReportType getType() {
+    return ReportType.PDF;
+  }
+
+  /**
+   * @return title of the PDF document, e.g. "PDF detail report"
+   */
+  protected abstract String getDocumentTitle();
+
+  /**
+   * @return factory shared by all PDF reports, built at the first call
+   */
+  static synchronized FopFactory getFopFactory() throws Exception {
+    if (fopFactory == null) {
+      InputStream configFile = AbstractPDFReport.class
+          .getResourceAsStream("/xslt/fop_conf.xml");
+      try {
+        Configuration cfg = new DefaultConfigurationBuilder()
+            .build(configFile);
+        fopFactory = new FopFactoryBuilder(new File(".").toURI())
+            .setConfiguration(cfg).build();
+      } finally {
+        configFile.close();
+      }
+    }
+    return fopFactory;
+  }
+
+  @Override
+  public void transform(File resultFile, Source xmlSource, Transformer trans) throws Exception {
+    FopFactory factory = getFopFactory();
+    FOUserAgent foUserAgent = factory.newFOUserAgent();
+    foUserAgent.setAuthor("TimeSlotTracker");
+    foUserAgent.setTitle(getDocumentTitle());
+
+    OutputStream out = new BufferedOutputStream(new FileOutputStream(
+        resultFile));
+    try {
+      Fop fop = factory.newFop(MimeConstants.MIME_PDF, foUserAgent, out);
+      Result res = new SAXResult(fop.getDefaultHandler());
+      trans.transform(xmlSource, res);
+    } finally {
+      out.close();
+    }
+  }
+
+}
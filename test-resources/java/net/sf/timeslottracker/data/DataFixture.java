@@ -0,0 +1,171 @@
+package net.sf.timeslottracker.data;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.ResourceBundle;
+
+import net.sf.timeslottracker.core.TimeSlotTracker;
+
+/**
+ * Data of tests: tasks, timeslots, data source and application are proxies
+ * returning given values by method name.
+ */
+public class DataFixture {
+
+  /** tasks by parent */
+  private final Map<Task, List<Task>> children = new HashMap<Task, List<Task>>();
+
+  private int taskTimeCalls;
+
+  public static TimeSlot slot(Date start, Date stop) {
+    return slot(start, stop, null);
+  }
+
+  public static TimeSlot slot(Date start, Date stop, String description) {
+    return slot(null, start, stop, description);
+  }
+
+  public static TimeSlot slot(Object id, Date start, Date stop,
+      String description) {
+    Map<String, Object> values = new HashMap<String, Object>();
+    values.put("getId", id);
+    values.put("getStartDate", start);
+    values.put("getStopDate", stop);
+    values.put("getDescription", description);
+    return proxy(TimeSlot.class, values, null);
+  }
+
+  /**
+   * Creates a task with its name as id and without description.
+   */
+  public Task task(String name, Task parent, TimeSlot... timeslots) {
+    return task(name, name, null, parent, timeslots);
+  }
+
+  public Task task(Object id, String name, String description, Task parent,
+      TimeSlot... timeslots) {
+    Map<String, Object> values = new HashMap<String, Object>();
+    values.put("getId", id);
+    values.put("getName", name);
+    values.put("getDescription", description);
+    values.put("getParentTask", parent);
+    values.put("getTimeslots", new ArrayList<TimeSlot>());
+    List<Task> taskChildren = new ArrayList<Task>();
+    values.put("getChildren", taskChildren);
+    Task task = proxy(Task.class, values, this);
+    addSlots(task, timeslots);
+    children.put(task, taskChildren);
+    if (parent != null) {
+      children.get(parent).add(task);
+    }
+    return task;
+  }
+
+  public static void addSlots(Task task, TimeSlot... timeslots) {
+    Collections.addAll(task.getTimeslots(), timeslots);
+  }
+
+  public List<Task> getChildren(Task parent) {
+    return children.get(parent);
+  }
+
+  /**
+   * @return how many times a task was asked for its time
+   */
+  public int getTaskTimeCalls() {
+    return taskTimeCalls;
+  }
+
+  public DataSource dataSource(final Task root) {
+    return (DataSource) Proxy.newProxyInstance(DataSource.class
+        .getClassLoader(), new Class[] { DataSource.class },
+        new InvocationHandler() {
+          public Object invoke(Object proxy, Method method, Object[] args) {
+            if (method.getName().equals("getRoot")) {
+              return root;
+            }
+            if (method.getName().equals("getChildren")) {
+              return children.get(args[0]);
+            }
+            return null;
+          }
+        });
+  }
+
+  /**
+   * @return application with english locale and empty strings
+   */
+  public static TimeSlotTracker timeSlotTracker() {
+    Map<String, Object> values = new HashMap<String, Object>();
+    values.put("getLocale", Locale.ENGLISH);
+    values.put("getString", "");
+    return proxy(TimeSlotTracker.class, values, null);
+  }
+
+  /**
+   * @return application with english locale and strings (of durations)
+   */
+  public static TimeSlotTracker localizedTimeSlotTracker() {
+    final ResourceBundle strings = ResourceBundle.getBundle(
+        "TimeSlotTracker", Locale.ENGLISH);
+    return (TimeSlotTracker) Proxy.newProxyInstance(TimeSlotTracker.class
+        .getClassLoader(), new Class[] { TimeSlotTracker.class },
+        new InvocationHandler() {
+          public Object invoke(Object proxy, Method method, Object[] args) {
+            if (method.getName().equals("getLocale")) {
+              return Locale.ENGLISH;
+            }
+            if (method.getName().equals("getString")) {
+              String string = strings.getString((String) args[0]);
+              if (args.length == 1) {
+                return string;
+              }
+              return MessageFormat.format(string, (Object[]) args[1]);
+            }
+            return null;
+          }
+        });
+  }
+
+  /**
+   * @param fixture
+   *          fixture counting time calls of a task proxy
+   * @return proxy returning given values by method name
+   */
+  private static <T> T proxy(Class<T> type, final Map<String, Object> values,
+      final DataFixture fixture) {
+    return type.cast(Proxy.newProxyInstance(type.getClassLoader(),
+        new Class[] { type }, new InvocationHandler() {
+          public Object invoke(Object proxy, Method method, Object[] args) {
+            String name = method.getName();
+            if (name.equals("hashCode")) {
+              return System.identityHashCode(proxy);
+            }
+            if (name.equals("equals")) {
+              return proxy == args[0];
+            }
+            if (name.equals("getTime") && fixture != null) {
+              fixture.taskTimeCalls++;
+              return 0L;
+            }
+            if (name.equals("getAttributes")) {
+              return Collections.emptyList();
+            }
+            if (method.getReturnType() == Boolean.TYPE) {
+              return false;
+            }
+            return values.get(name);
+          }
+        }));
+  }
+
+}
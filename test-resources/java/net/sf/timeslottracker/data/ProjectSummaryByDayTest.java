@@ -0,0 +1,108 @@
+package net.sf.timeslottracker.data;
+
+import static org.junit.Assert.*;
+
+import java.io.StringWriter;
+import java.util.Calendar;
+import java.util.Date;
+
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.sax.SAXTransformerFactory;
+import javax.xml.transform.sax.TransformerHandler;
+import javax.xml.transform.stream.StreamResult;
+
+import org.junit.Test;
+
+public class ProjectSummaryByDayTest {
+
+  private static final long HOUR = 60 * 60 * 1000;
+
+  @Test
+  public void testSameTaskByDaySummed() throws Exception {
+    ProjectSummaryByDay summary = new ProjectSummaryByDay();
+    summary.setStartDate("2010-03-01");
+    summary.setStopDate("2010-03-31");
+    summary.add(new ProjectSummaryTimeSlot(2, "P2", "T", "2010-03-02", HOUR));
+    summary.add(new ProjectSummaryTimeSlot(1, "P1", "T", "2010-03-01", HOUR));
+    summary.add(new ProjectSummaryTimeSlot(1, "P1", "T", "2010-03-01",
+        HOUR / 2));
+
+    String xml = toXml(summary);
+    assertTrue(xml, xml.contains("<ProjectSummaryByDay startDate=\"2010-03-01\""
+        + " stopDate=\"2010-03-31\" totalHours=\"2.50\">"));
+    assertTrue(xml, xml.contains("<SummaryTimeSlot taskId=\"_1\""
+        + " projectNumber=\"P1\" projectTask=\"T\" date=\"2010-03-01\""
+        + " duration=\"1.50\"/>"));
+    assertEquals(2, count(xml, "<SummaryTask "));
+    assertEquals(2, count(xml, "<SummaryTimeSlot "));
+  }
+
+  @Test
+  public void testTimeSlotsSummedByDay() throws Exception {
+    ProjectSummaryByDay summary = new ProjectSummaryByDay();
+    summary.add(3, "P1", "T", date(2, 9), HOUR);
+    summary.add(1, "p1", "t", date(1, 22), HOUR);
+    summary.add(2, "P1", "T", date(1, 8), 2 * HOUR);
+    ProjectSummaryByDay other = new ProjectSummaryByDay();
+    other.add(4, "P1", "T", date(2, 23), HOUR / 2);
+    other.add(5, "P0", "X", date(3, 0), HOUR);
+    summary.merge(other);
+
+    String xml = toXml(summary);
+    assertTrue(xml, xml.contains("totalHours=\"5.50\""));
+    // names and task of the first added timeslot of the day
+    assertTrue(xml, xml.contains("<SummaryTimeSlot taskId=\"_1\""
+        + " projectNumber=\"p1\" projectTask=\"t\" date=\"2010-03-01\""
+        + " duration=\"3.0\"/>"));
+    assertTrue(xml, xml.contains("<SummaryTimeSlot taskId=\"_3\""
+        + " projectNumber=\"P1\" projectTask=\"T\" date=\"2010-03-02\""
+        + " duration=\"1.50\"/>"));
+    // sorted by project number, project task and day
+    assertTrue(xml, xml.indexOf("_5") < xml.indexOf("_1"));
+    assertTrue(xml, xml.lastIndexOf("_1") < xml.lastIndexOf("_3"));
+    assertEquals(2, count(xml, "<SummaryTask "));
+    assertEquals(3, count(xml, "<SummaryTimeSlot "));
+  }
+
+  @Test
+  public void testValuesEscaped() throws Exception {
+    ProjectSummaryByDay summary = new ProjectSummaryByDay();
+    summary.add(new ProjectSummaryTimeSlot(1, "R&D", "\"x\" < y",
+        "2010-03-01", HOUR));
+
+    String xml = toXml(summary);
+    assertTrue(xml, xml.contains("projectNumber=\"R&amp;D\""));
+    assertTrue(xml, xml.contains("projectTask=\"&quot;x&quot; &lt; y\""));
+  }
+
+  /**
+   * @return local time of a day in March 2010
+   */
+  private static Date date(int day, int hour) {
+    Calendar calendar = Calendar.getInstance();
+    calendar.clear();
+    calendar.set(2010, Calendar.MARCH, day, hour, 0);
+    return calendar.getTime();
+  }
+
+  private static String toXml(ProjectSummaryByDay summary) throws Exception {
+    SAXTransformerFactory factory = (SAXTransformerFactory) TransformerFactory
+        .newInstance();
+    TransformerHandler handler = factory.newTransformerHandler();
+    StringWriter writer = new StringWriter();
+    handler.setResult(new StreamResult(writer));
+    handler.startDocument();
+    summary.toXml(handler);
+    handler.endDocument();
+    return writer.toString();
+  }
+
+  private static int count(String text, String part) {
+    int count = 0;
+    for (int i = text.indexOf(part); i >= 0; i = text.indexOf(part, i + 1)) {
+      count++;
+    }
+    return count;
+  }
+
+}
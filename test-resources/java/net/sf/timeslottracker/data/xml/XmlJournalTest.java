@@ -0,0 +1,224 @@
+package net.sf.timeslottracker.data.xml;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import net.sf.timeslottracker.HeadlessTimeSlotTracker;
+import net.sf.timeslottracker.core.Configuration;
+import net.sf.timeslottracker.data.DataSource;
+import net.sf.timeslottracker.data.Task;
+import net.sf.timeslottracker.data.TimeSlot;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class XmlJournalTest {
+
+  private File directory;
+
+  private String dataDirectory;
+
+  private final List<XmlDataSource> opened = new ArrayList<XmlDataSource>();
+
+  @Before
+  public void setUp() throws Exception {
+    directory = File.createTempFile("tstJournal", "");
+    directory.delete();
+    directory.mkdir();
+    dataDirectory = System.getProperty(DataSource.TIMESLOTTRACKER_DIRECTORY);
+    System.setProperty(DataSource.TIMESLOTTRACKER_DIRECTORY,
+        directory.getPath());
+  }
+
+  @After
+  public void tearDown() {
+    for (XmlDataSource dataSource : opened) {
+      dataSource.releaseLock();
+    }
+    if (dataDirectory == null) {
+      System.clearProperty(DataSource.TIMESLOTTRACKER_DIRECTORY);
+    } else {
+      System.setProperty(DataSource.TIMESLOTTRACKER_DIRECTORY, dataDirectory);
+    }
+    delete(directory);
+  }
+
+  @Test
+  public void testFieldsRoundTrip() {
+    StringBuilder record = new StringBuilder("task");
+    XmlJournal.field(record, 12);
+    XmlJournal.field(record, null);
+    XmlJournal.field(record, "name\twith\ttabs");
+    XmlJournal.field(record, "two\nlines\r\n and \\ backslash");
+
+    assertEquals(-1, record.indexOf("\n"));
+    String[] fields = XmlJournal.split(record.toString());
+    assertArrayEquals(new String[] { "task", "12", "", "name\twith\ttabs",
+        "two\nlines\r\n and \\ backslash" }, fields);
+  }
+
+  @Test
+  public void testTrailingEmptyField() {
+    StringBuilder record = new StringBuilder("active");
+    XmlJournal.field(record, null);
+    assertArrayEquals(new String[] { "active", "" },
+        XmlJournal.split(record.toString()));
+  }
+
+  @Test
+  public void testAppendedChangesFollowed() {
+    XmlDataSource writer = open();
+    XmlDataSource reader = open();
+    assertFalse(writer.isReadOnly());
+    assertTrue(reader.isReadOnly());
+    Task readerRoot = reader.getRoot();
+    assertNull(reader.followChanges());
+
+    Task task = writer.createTask(writer.getRoot(), null, "journal\ttask",
+        "first", false);
+    TimeSlot written = writer.createTimeSlot(task, new Date(60000),
+        new Date(300000), "slot");
+    assertTrue(writer.saveAll());
+
+    follow(reader);
+    Task followed = reader.getTask(task.getId());
+    assertNotNull(followed);
+    assertEquals("journal\ttask", followed.getName());
+    assertEquals(1, followed.getTimeslots().size());
+    TimeSlot timeslot = followed.getTimeslots().iterator().next();
+    assertEquals(written.getStopDate(), timeslot.getStopDate());
+    assertEquals("slot", timeslot.getDescription());
+    // applied in place, not reloaded
+    assertSame(readerRoot, reader.getRoot());
+
+    task.setDescription("second");
+    writer.moveTask(task, null);
+    assertTrue(writer.saveAll());
+
+    follow(reader);
+    assertNull(followed.getParentTask());
+    assertNull(reader.followChanges());
+  }
+
+  @Test
+  public void testFlushedChangesFollowedBeforeSave() {
+    XmlDataSource writer = open();
+    XmlDataSource reader = open();
+
+    Task task = writer.createTask(writer.getRoot(), null, "flushed", null,
+        false);
+    writer.flushChanges();
+    follow(reader);
+    assertEquals("flushed", reader.getTask(task.getId()).getName());
+
+    // xml file doesn't contain the task yet, it's applied from the journal
+    XmlDataSource late = open();
+    assertNull(late.getTask(task.getId()));
+    follow(late);
+    assertEquals("flushed", late.getTask(task.getId()).getName());
+
+    // nothing more is written by the save, only the batches are marked saved
+    assertTrue(writer.saveAll());
+    assertNull(reader.followChanges());
+    XmlDataSource afterSave = open();
+    assertEquals("flushed", afterSave.getTask(task.getId()).getName());
+    assertNull(afterSave.followChanges());
+  }
+
+  @Test
+  public void testNewGenerationReloaded() {
+    XmlDataSource writer = open();
+    XmlDataSource reader = open();
+    Task readerRoot = reader.getRoot();
+
+    Task task = writer.createTask(writer.getRoot(), null, "reloaded", null,
+        false);
+    assertTrue(writer.saveAll());
+    assertTrue(writer.reloadData());
+
+    follow(reader);
+    assertNotSame(readerRoot, reader.getRoot());
+    assertEquals("reloaded", reader.getTask(task.getId()).getName());
+    assertTrue(reader.isReadOnly());
+    assertNull(reader.followChanges());
+  }
+
+  @Test
+  public void testTakeOverWhenWriterReleasesLock() {
+    XmlDataSource writer = open();
+    XmlDataSource reader = open();
+
+    Task task = writer.createTask(writer.getRoot(), null, "saved", null,
+        false);
+    assertTrue(writer.saveAll());
+    assertNull(reader.getTask(task.getId()));
+    writer.releaseLock();
+
+    Runnable takeOver = reader.followChanges();
+    assertNotNull(takeOver);
+    // nothing changes until the work is done in event dispatch thread
+    assertTrue(reader.isReadOnly());
+    takeOver.run();
+    assertFalse(reader.isReadOnly());
+    assertEquals("saved", reader.getTask(task.getId()).getName());
+    assertTrue(reader.saveAll());
+  }
+
+  private static void follow(XmlDataSource reader) {
+    Runnable changes = reader.followChanges();
+    assertNotNull(changes);
+    changes.run();
+  }
+
+  /**
+   * Opens data source in shared data directory like a starting instance.
+   */
+  private XmlDataSource open() {
+    Instance instance = new Instance();
+    Configuration configuration = instance.getConfiguration();
+    configuration.set(Configuration.DATASOURCE_SHARED, true);
+    configuration.set(Configuration.BACKUP_ON_STARTUP, false);
+    configuration.set(Configuration.BACKUP_ON_SHUTDOWN, false);
+    instance.dataSource.setTimeSlotTracker(instance);
+    opened.add(instance.dataSource);
+    assertTrue(instance.dataSource.reloadData());
+    return instance.dataSource;
+  }
+
+  /**
+   * Application instance without gui.
+   */
+  private static class Instance extends HeadlessTimeSlotTracker {
+    private final XmlDataSource dataSource = new XmlDataSource();
+
+    private TimeSlot activeTimeSlot;
+
+    public DataSource getDataSource() {
+      return dataSource;
+    }
+
+    public void setActiveTimeSlot(TimeSlot timeslot) {
+      activeTimeSlot = timeslot;
+    }
+
+    public TimeSlot getActiveTimeSlot() {
+      return activeTimeSlot;
+    }
+  }
+
+  private static void delete(File file) {
+    File[] files = file.listFiles();
+    if (files != null) {
+      for (File child : files) {
+        delete(child);
+      }
+    }
+    file.delete();
+  }
+
+}
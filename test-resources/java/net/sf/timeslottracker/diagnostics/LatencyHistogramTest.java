@@ -0,0 +1,45 @@
+package net.sf.timeslottracker.diagnostics;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+  private static final long MICRO = 1000;
+
+  @Test
+  public void testEmpty() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    assertEquals(0, histogram.getCount());
+    assertEquals(0, histogram.getMeanMicros());
+    assertEquals(0, histogram.getPercentileMicros(99));
+  }
+
+  @Test
+  public void testStatistics() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (int i = 0; i < 99; i++) {
+      histogram.record(100 * MICRO);
+    }
+    histogram.record(50000 * MICRO);
+
+    assertEquals(100, histogram.getCount());
+    assertEquals(99 * 100 + 50000, histogram.getTotalMicros());
+    assertEquals(599, histogram.getMeanMicros());
+    assertEquals(50000, histogram.getMaxMicros());
+
+    // 100us falls in bucket 64-128us
+    assertEquals(128, histogram.getPercentileMicros(50));
+    assertEquals(128, histogram.getPercentileMicros(99));
+    assertEquals(50000, histogram.getPercentileMicros(100));
+  }
+
+  @Test
+  public void testFormat() {
+    assertEquals("0.0ms", LatencyHistogram.format(0));
+    assertEquals("1.2ms", LatencyHistogram.format(1250));
+    assertEquals("150.0ms", LatencyHistogram.format(150000));
+  }
+
+}
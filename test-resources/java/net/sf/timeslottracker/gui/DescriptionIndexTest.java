@@ -0,0 +1,108 @@
+package net.sf.timeslottracker.gui;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import net.sf.timeslottracker.data.DataFixture;
+import net.sf.timeslottracker.data.Task;
+import net.sf.timeslottracker.data.TimeSlot;
+
+import org.junit.Test;
+
+public class DescriptionIndexTest {
+
+  private static final long NOW = 1000L * 1000 * 1000 * 1000;
+
+  private static final long DAY = 24 * 60 * 60 * 1000;
+
+  private final DataFixture fixture = new DataFixture();
+
+  @Test
+  public void testFrequencyAndRecency() {
+    DescriptionIndex index = new DescriptionIndex(10, NOW);
+    index.add("Standup", NOW - 90 * DAY);
+    index.add("Standup", NOW - 90 * DAY);
+    index.add("Standup", NOW - 90 * DAY);
+    index.add("Status report", NOW - DAY);
+    index.add("Stand by", NOW - 10 * DAY);
+    index.add("Stand by", NOW - 11 * DAY);
+    index.add("Review", NOW);
+
+    // two uses ten days ago weight more than one use yesterday, but three
+    // uses three months ago weight less
+    assertEquals(Arrays.asList("Stand by", "Status report", "Standup"), index
+        .complete("st", 10));
+    assertEquals(Arrays.asList("Stand by", "Standup"), index.complete("STAND",
+        10));
+    assertEquals(Arrays.asList("Stand by"), index.complete("st", 1));
+    assertTrue(index.complete("x", 10).isEmpty());
+  }
+
+  @Test
+  public void testRemove() {
+    DescriptionIndex index = new DescriptionIndex(1, NOW);
+    index.add("Standup", NOW - 90 * DAY);
+    index.add("Status report", NOW);
+    assertEquals(Arrays.asList("Status report"), index.complete("st", 10));
+
+    // only the best entry is cached, the other one has to be found again
+    index.remove("Status report", NOW);
+    assertEquals(Arrays.asList("Standup"), index.complete("st", 10));
+    index.remove("Standup", NOW - 90 * DAY);
+    assertTrue(index.complete("st", 10).isEmpty());
+  }
+
+  @Test
+  public void testTaskChanges() {
+    DescriptionIndex index = new DescriptionIndex(10, NOW);
+    Task task = task(1, timeSlot(1, "Design", NOW - 2 * DAY), timeSlot(2,
+        "Debugging", NOW - DAY), timeSlot(3, "Design", NOW));
+    Task other = task(2, timeSlot(1, "Deployment", NOW));
+    index.setTask(task);
+    index.setTask(other);
+
+    assertEquals(Arrays.asList("Design", "Debugging"), index.getTaskHistory(
+        task, 10));
+    // task's own descriptions first
+    assertEquals(Arrays.asList("Design", "Debugging", "Deployment"), index
+        .suggest("de", task, 10));
+    assertEquals(Arrays.asList("Deployment", "Design", "Debugging"), index
+        .suggest("de", other, 10));
+
+    List<TimeSlot> slots = (List<TimeSlot>) task.getTimeslots();
+    slots.set(1, timeSlot(2, "Documentation", NOW - DAY));
+    slots.remove(2);
+    index.setTask(task);
+    assertEquals(Arrays.asList("Documentation", "Design"), index
+        .getTaskHistory(task, 10));
+    assertEquals(Arrays.asList("Deployment", "Design"), index.complete("de",
+        10));
+  }
+
+  @Test
+  public void testBuildAgain() {
+    DescriptionIndex index = new DescriptionIndex(10, NOW);
+    Task task = task(1, timeSlot(1, "Design", NOW));
+    Task other = task(2, timeSlot(1, "Deployment", NOW));
+    index.build(task);
+    index.build(task);
+    assertEquals(Arrays.asList("Design"), index.complete("de", 10));
+
+    // task not in the tree anymore
+    index.build(other);
+    assertTrue(index.getTaskHistory(task, 10).isEmpty());
+    assertEquals(Arrays.asList("Deployment"), index.complete("de", 10));
+  }
+
+  private Task task(Object id, TimeSlot... timeslots) {
+    return fixture.task(id, null, null, null, timeslots);
+  }
+
+  private static TimeSlot timeSlot(Object id, String description, long start) {
+    return DataFixture.slot(id, new Date(start), null, description);
+  }
+
+}
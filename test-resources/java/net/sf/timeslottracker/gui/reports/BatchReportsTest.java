@@ -0,0 +1,62 @@
+package net.sf.timeslottracker.gui.reports;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.junit.Test;
+
+public class BatchReportsTest {
+
+  @Test
+  public void testNamedJobsInheritDefaults() {
+    Properties properties = new Properties();
+    properties.setProperty("report", "DetailReport");
+    properties.setProperty("from", "2010-03-01");
+    properties.setProperty("param.company", "ACME");
+    properties.setProperty("mary.root", "15");
+    properties.setProperty("mary.output", "mary.html");
+    properties.setProperty("john.output", "john.csv");
+    properties.setProperty("john.report", "CSVReport");
+    properties.setProperty("john.param.company", "ACME Ltd.");
+
+    List<BatchReports.Job> jobs = BatchReports.readJobs(properties);
+    assertEquals(2, jobs.size());
+
+    BatchReports.Job john = jobs.get(0);
+    assertEquals("john", john.getName());
+    assertEquals("CSVReport", john.get(BatchReports.REPORT));
+    assertEquals("2010-03-01", john.get(BatchReports.FROM));
+    assertNull(john.get(BatchReports.ROOT));
+    assertEquals("ACME Ltd.", john.getParameters().get("company"));
+
+    BatchReports.Job mary = jobs.get(1);
+    assertEquals("mary", mary.getName());
+    assertEquals("DetailReport", mary.get(BatchReports.REPORT));
+    assertEquals("15", mary.get(BatchReports.ROOT));
+    assertEquals("mary.html", mary.get(BatchReports.OUTPUT));
+    assertEquals("ACME", mary.getParameters().get("company"));
+  }
+
+  @Test
+  public void testSingleJob() {
+    Properties properties = new Properties();
+    properties.setProperty("report", "/reports/my.xsl");
+    properties.setProperty("output", "out.txt");
+    properties.setProperty("title", " ");
+    properties.setProperty("param.a.b", "c");
+
+    List<BatchReports.Job> jobs = BatchReports.readJobs(properties);
+    assertEquals(1, jobs.size());
+    BatchReports.Job job = jobs.get(0);
+    assertEquals("/reports/my.xsl", job.get(BatchReports.REPORT));
+    // blank values are not set
+    assertNull(job.get(BatchReports.TITLE));
+    Map<String, String> parameters = job.getParameters();
+    assertEquals(1, parameters.size());
+    assertEquals("c", parameters.get("a.b"));
+  }
+
+}
@@ -0,0 +1,72 @@
+package net.sf.timeslottracker.gui.reports;
+
+import java.util.Collections;
+import java.util.Date;
+
+import net.sf.timeslottracker.data.DataFixture;
+import net.sf.timeslottracker.data.DataSource;
+import net.sf.timeslottracker.data.Task;
+import net.sf.timeslottracker.data.TimeSlot;
+import net.sf.timeslottracker.gui.reports.filters.Filter;
+
+import org.xml.sax.InputSource;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Measures reading report data of a synthetic tree, where every task has one
+ * subtask and two timeslots. Durations of all the subtrees are summed in one
+ * pass, so the time grows linearly with the depth.
+ * <p>
+ * It is run by hand, not as a test, the depth can be given as an argument:
+ * <code>java net.sf.timeslottracker.gui.reports.ReportDataReaderBenchmark
+ * 1000</code>
+ */
+public class ReportDataReaderBenchmark {
+
+  private static final int DEFAULT_DEPTH = 1000;
+
+  private static final int WARM_RUNS = 5;
+
+  private static final long HOUR = 60 * 60 * 1000;
+
+  private static final long START = 1267430400000L; // 2010-03-01 08:00 UTC
+
+  public static void main(String[] args) throws Exception {
+    int depth = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_DEPTH;
+    DataFixture fixture = new DataFixture();
+    Task root = fixture.task("0", null);
+    Task parent = root;
+    for (int i = 1; i < depth; i++) {
+      parent = fixture.task(String.valueOf(i), parent, slot(0, 1), slot(2, 3));
+    }
+
+    DataSource dataSource = fixture.dataSource(root);
+    long cold = run(dataSource);
+    long warm = Long.MAX_VALUE;
+    for (int i = 0; i < WARM_RUNS; i++) {
+      warm = Math.min(warm, run(dataSource));
+    }
+    System.out.println("Report data of a tree " + depth + " tasks deep: cold "
+        + cold + " ms, warm " + warm + " ms, task times computed: "
+        + fixture.getTaskTimeCalls());
+  }
+
+  /**
+   * @return milliseconds reading the data took
+   */
+  private static long run(DataSource dataSource) throws Exception {
+    long started = System.nanoTime();
+    ReportDataReader reader = new ReportDataReader(DataFixture
+        .timeSlotTracker(), dataSource, Collections.<Filter> emptyList(), null,
+        null);
+    reader.setContentHandler(new DefaultHandler());
+    reader.parse(new InputSource());
+    return (System.nanoTime() - started) / 1000000;
+  }
+
+  private static TimeSlot slot(long startHour, long stopHour) {
+    return DataFixture.slot(new Date(START + startHour * HOUR), new Date(
+        START + stopHour * HOUR));
+  }
+
+}
@@ -0,0 +1,333 @@
+package net.sf.timeslottracker.gui.reports;
+
+import static net.sf.timeslottracker.data.DataFixture.addSlots;
+import static net.sf.timeslottracker.data.DataFixture.timeSlotTracker;
+import static org.junit.Assert.*;
+
+import java.io.StringWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMResult;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.sax.SAXSource;
+import javax.xml.transform.stream.StreamResult;
+import javax.xml.xpath.XPath;
+import javax.xml.xpath.XPathFactory;
+
+import net.sf.timeslottracker.data.DataFixture;
+import net.sf.timeslottracker.data.MonthGenerations;
+import net.sf.timeslottracker.data.Task;
+import net.sf.timeslottracker.data.TimeSlot;
+import net.sf.timeslottracker.gui.reports.filters.Filter;
+
+import org.junit.Test;
+import org.w3c.dom.Node;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.helpers.DefaultHandler;
+
+public class ReportDataReaderTest {
+
+  private static final long HOUR = 60 * 60 * 1000;
+
+  private static final long START = 1267430400000L; // 2010-03-01 08:00 UTC
+
+  private final DataFixture fixture = new DataFixture();
+
+  /** generations of cached months, not shared with other tests */
+  private final MonthGenerations monthGenerations = new MonthGenerations();
+
+  @Test
+  public void testDurations() throws Exception {
+    Task root = task("root", null);
+    Task child = task("child", root, slot(0, 1), slot(2, 4));
+    task("grandchild", child, slot(5, 6));
+    addSlots(root, slot(10, 11));
+
+    Node report = report(root);
+    assertEquals("18000", xpath(report,
+        "//task[name='root']/duration/secondsWithChildren"));
+    assertEquals("3600", xpath(report,
+        "//task[name='root']/durationAll/seconds"));
+    assertEquals("10800", xpath(report,
+        "//task[name='child']/durationAll/seconds"));
+    assertEquals("14400", xpath(report,
+        "//task[name='child']/durationAll/secondsWithChildren"));
+    assertEquals("3600", xpath(report,
+        "//task[name='grandchild']/timeslot/duration/seconds"));
+  }
+
+  @Test
+  public void testSubtreesExportedInTreeOrder() throws Exception {
+    Task root = task("root", null, slot(0, 1));
+    for (int i = 0; i < 20; i++) {
+      Task child = task("child" + i, root, slot(i, i + 1));
+      task("grandchild" + i, child, slot(i, i + 2));
+    }
+
+    Node report = report(root);
+    for (int i = 0; i < 20; i++) {
+      assertEquals("child" + i, xpath(report,
+          "/TimeSlotTracker_Report/task/task[" + (i + 1) + "]/name"));
+      assertEquals("grandchild" + i, xpath(report,
+          "/TimeSlotTracker_Report/task/task[" + (i + 1) + "]/task/name"));
+    }
+    // 1 + 20 * (1 + 2) hours
+    assertEquals(String.valueOf(61 * 3600), xpath(report,
+        "/TimeSlotTracker_Report/task/duration/secondsWithChildren"));
+    assertEquals(String.valueOf(61 * 3600), xpath(report,
+        "/TimeSlotTracker_Report/task/durationAll/secondsWithChildren"));
+  }
+
+  /**
+   * Exports a deep tree; the time of a task subtree must not be counted again
+   * at every level.
+   */
+  @Test
+  public void testDeepTreeDurationsSummedWithoutTaskTimes() throws Exception {
+    final int depth = 1000;
+    Task root = task("0", null);
+    Task parent = root;
+    for (int i = 1; i < depth; i++) {
+      parent = task(String.valueOf(i), parent, slot(0, 1), slot(2, 3));
+    }
+
+    ReportDataReader reader = new ReportDataReader(timeSlotTracker(),
+        fixture.dataSource(root), Collections.<Filter> emptyList(), null, null);
+    LastDurationHandler handler = new LastDurationHandler();
+    reader.setContentHandler(handler);
+    reader.parse(new InputSource());
+
+    assertEquals(0, fixture.getTaskTimeCalls());
+    // root task is closed last
+    assertEquals(String.valueOf(2 * (depth - 1) * 3600), handler.seconds);
+  }
+
+  /**
+   * Subtrees without activity in the period are skipped without checking
+   * filters, the data are the same as when they are checked.
+   */
+  @Test
+  public void testInactiveSubtreesSkipped() throws Exception {
+    Task root = task("root", null, slot(0, 1));
+    Task old = task("old", root, slot(-2000, -1999));
+    for (int i = 0; i < 10; i++) {
+      task("old" + i, old, slot(-1000 - i, -999 - i));
+    }
+    Task current = task("current", root, slot(-1, 1), slot(2, 3), slot(100,
+        101));
+    task("current0", current, slot(-5000, -4999), slot(1, 30));
+    task("unsorted", current, slot(200, 201), slot(-2000, -1999), slot(5, 6));
+    task("empty", current);
+
+    // from 2010-03-01 to 2010-03-02
+    Date startPeriod = new Date(START - 8 * HOUR);
+    Date endPeriod = new Date(START + 40 * HOUR - 1);
+    PeriodFilter checked = new PeriodFilter(startPeriod, endPeriod);
+    String expected = xml(report(root, checked, startPeriod, endPeriod, false));
+    PeriodFilter skipped = new PeriodFilter(startPeriod, endPeriod);
+    String xml = xml(report(root, skipped, startPeriod, endPeriod, true));
+
+    assertEquals(expected, xml);
+    assertTrue(checked.checked.contains("old0"));
+    assertFalse(skipped.checked.contains("old"));
+    assertFalse(skipped.checked.contains("old0"));
+    assertTrue(skipped.checked.contains("current0"));
+    // root, current (2), current0 and unsorted
+    assertEquals(5, skipped.timeslots);
+    assertTrue(xml.contains("<name>current0</name>"));
+    assertFalse(xml.contains("<name>old</name>"));
+    assertFalse(xml.contains("<name>empty</name>"));
+  }
+
+  @Test
+  public void testClosedMonthsReplayedFromCache() throws Exception {
+    Task root = task("root", null, slot(-1000, -999), slot(-500, -499), slot(
+        10, 11));
+    Task child = task("child", root, slot(-20, -1), slot(-1001, -1000));
+    task("grandchild", child, slot(-700, -699));
+
+    // from 2010-01-01 to 2010-03-31, all the months are closed
+    Calendar calendar = Calendar.getInstance();
+    calendar.clear();
+    calendar.set(2010, Calendar.JANUARY, 1);
+    Date startPeriod = calendar.getTime();
+    calendar.set(2010, Calendar.APRIL, 1);
+    Date endPeriod = new Date(calendar.getTimeInMillis() - 1);
+    ReportMonthCache cache = new ReportMonthCache();
+
+    String expected = xml(report(root, new PeriodFilter(startPeriod,
+        endPeriod), startPeriod, endPeriod, null));
+    String xml = xml(report(root, new PeriodFilter(startPeriod, endPeriod),
+        startPeriod, endPeriod, cache));
+    assertEquals(expected, xml);
+    assertEquals(0, cache.getHits());
+    int misses = cache.getMisses();
+    assertTrue(misses > 0);
+
+    xml = xml(report(root, new PeriodFilter(startPeriod, endPeriod),
+        startPeriod, endPeriod, cache));
+    assertEquals(expected, xml);
+    int hits = cache.getHits();
+    assertTrue(hits > 0);
+    // months which can't be cached are missed every time
+    int uncached = cache.getMisses() - misses;
+
+    // changed timeslot of a cached month is exported again
+    List<TimeSlot> timeslots = (List<TimeSlot>) root.getTimeslots();
+    Date changed = timeslots.get(0).getStartDate();
+    timeslots.set(0, slot(-1000, -998));
+    monthGenerations.changed(changed);
+    expected = xml(report(root, new PeriodFilter(startPeriod, endPeriod),
+        startPeriod, endPeriod, null));
+    misses = cache.getMisses();
+    xml = xml(report(root, new PeriodFilter(startPeriod, endPeriod),
+        startPeriod, endPeriod, cache));
+    assertEquals(expected, xml);
+    assertTrue(cache.getMisses() - misses > uncached);
+    assertTrue(cache.getHits() - hits < hits);
+  }
+
+  /**
+   * Filter hiding tasks and timeslots without activity in a period, as
+   * DateFilter does. It remembers checked tasks and counts checked timeslots.
+   */
+  private class PeriodFilter implements InvocationHandler {
+    private final long start;
+    private final long end;
+    private final List<String> checked = new ArrayList<String>();
+    private int timeslots;
+
+    private PeriodFilter(Date start, Date end) {
+      this.start = start.getTime();
+      this.end = end.getTime();
+    }
+
+    public Object invoke(Object proxy, Method method, Object[] args) {
+      if (!method.getName().equals("matches")) {
+        return null;
+      }
+      if (args[0] instanceof TimeSlot) {
+        timeslots++;
+        return matches((TimeSlot) args[0]);
+      }
+      Task task = (Task) args[0];
+      checked.add(task.getName());
+      return matches(task);
+    }
+
+    private boolean matches(Task task) {
+      for (TimeSlot timeslot : task.getTimeslots()) {
+        if (matches(timeslot)) {
+          return true;
+        }
+      }
+      for (Task child : fixture.getChildren(task)) {
+        if (matches(child)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    private boolean matches(TimeSlot timeslot) {
+      return timeslot.getStartDate().getTime() < end
+          && timeslot.getStopDate().getTime() > start;
+    }
+  }
+
+  /**
+   * Remembers the last "durationAll/secondsWithChildren" value.
+   */
+  private static class LastDurationHandler extends DefaultHandler {
+    private final StringBuilder text = new StringBuilder();
+    private boolean durationAll;
+    private String seconds;
+
+    @Override
+    public void startElement(String uri, String localName, String qName,
+        Attributes attributes) {
+      durationAll |= qName.equals("durationAll");
+      text.setLength(0);
+    }
+
+    @Override
+    public void characters(char[] ch, int start, int length) {
+      text.append(ch, start, length);
+    }
+
+    @Override
+    public void endElement(String uri, String localName, String qName) {
+      if (durationAll && qName.equals("secondsWithChildren")) {
+        seconds = text.toString();
+      }
+      durationAll &= !qName.equals("durationAll");
+    }
+  }
+
+  private Node report(Task root) throws Exception {
+    ReportDataReader reader = new ReportDataReader(timeSlotTracker(),
+        fixture.dataSource(root), Collections.<Filter> emptyList(), null, null);
+    DOMResult result = new DOMResult();
+    TransformerFactory.newInstance().newTransformer().transform(
+        new SAXSource(reader, new InputSource()), result);
+    return result.getNode();
+  }
+
+  private Node report(Task root, PeriodFilter filter, Date startPeriod,
+      Date endPeriod, boolean filteredByPeriod) throws Exception {
+    return report(root, filter, startPeriod, endPeriod, filteredByPeriod, null);
+  }
+
+  private Node report(Task root, PeriodFilter filter, Date startPeriod,
+      Date endPeriod, ReportMonthCache monthCache) throws Exception {
+    return report(root, filter, startPeriod, endPeriod, true, monthCache);
+  }
+
+  private Node report(Task root, PeriodFilter filter, Date startPeriod,
+      Date endPeriod, boolean filteredByPeriod, ReportMonthCache monthCache)
+      throws Exception {
+    Filter proxy = (Filter) Proxy.newProxyInstance(Filter.class
+        .getClassLoader(), new Class[] { Filter.class }, filter);
+    ReportDataReader reader = new ReportDataReader(timeSlotTracker(),
+        fixture.dataSource(root), Collections.singletonList(proxy), startPeriod,
+        endPeriod);
+    reader.setFilteredByPeriod(filteredByPeriod);
+    reader.setMonthCache(monthCache);
+    reader.setMonthGenerations(monthGenerations);
+    DOMResult result = new DOMResult();
+    TransformerFactory.newInstance().newTransformer().transform(
+        new SAXSource(reader, new InputSource()), result);
+    return result.getNode();
+  }
+
+  private static String xml(Node node) throws Exception {
+    StringWriter xml = new StringWriter();
+    TransformerFactory.newInstance().newTransformer().transform(
+        new DOMSource(node), new StreamResult(xml));
+    return xml.toString();
+  }
+
+  private static String xpath(Node node, String expression) throws Exception {
+    XPath xpath = XPathFactory.newInstance().newXPath();
+    return xpath.evaluate(expression, node);
+  }
+
+  private Task task(String name, Task parent, TimeSlot... timeslots) {
+    return fixture.task(name, parent, timeslots);
+  }
+
+  private static TimeSlot slot(long startHour, long stopHour) {
+    return DataFixture.slot(new Date(START + startHour * HOUR), new Date(
+        START + stopHour * HOUR));
+  }
+
+}
@@ -0,0 +1,43 @@
+package net.sf.timeslottracker.gui.reports;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class ReportMonthCacheTest {
+
+  @Test
+  public void testBoundedByBufferedEvents() {
+    ReportMonthCache cache = new ReportMonthCache(10);
+    cache.put("context", 1, 0, entry(4));
+    cache.put("context", 2, 0, entry(4));
+    assertNotNull(cache.get("context", 1, 0, 0));
+
+    // the least recently used entry is forgotten
+    cache.put("context", 3, 0, entry(4));
+    assertNull(cache.get("context", 2, 0, 0));
+    assertNotNull(cache.get("context", 1, 0, 0));
+    assertNotNull(cache.get("context", 3, 0, 0));
+    assertEquals(8, cache.getEvents());
+
+    // entry of another generation is forgotten with its events
+    assertNull(cache.get("context", 1, 0, 1));
+    assertEquals(4, cache.getEvents());
+    cache.put("context", 3, 0, entry(2));
+    assertEquals(2, cache.getEvents());
+
+    // entry bigger than the whole cache isn't kept
+    cache.put("context", 4, 0, entry(11));
+    assertNull(cache.get("context", 4, 0, 0));
+    assertEquals(0, cache.getEvents());
+  }
+
+  private static ReportMonthCache.Entry entry(int events) {
+    SaxBuffer buffer = new SaxBuffer();
+    for (int i = 0; i < events; i++) {
+      buffer.endElement("", "timeslot", "timeslot");
+    }
+    return new ReportMonthCache.Entry(0, 0, 0, buffer);
+  }
+
+}
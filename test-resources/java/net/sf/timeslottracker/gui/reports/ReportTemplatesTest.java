@@ -0,0 +1,69 @@
+package net.sf.timeslottracker.gui.reports;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import javax.xml.transform.Templates;
+import javax.xml.transform.stream.StreamResult;
+import javax.xml.transform.stream.StreamSource;
+
+import org.junit.Test;
+
+public class ReportTemplatesTest {
+
+  @Test
+  public void testFileCompiledOnce() throws Exception {
+    File file = File.createTempFile("tstReport", ".xsl");
+    try {
+      write(file, "one");
+      ReportTemplates cache = new ReportTemplates();
+      Templates templates = cache.getTemplates(new StreamSource(file));
+      assertSame(templates, cache.getTemplates(new StreamSource(file)));
+      assertEquals(1, cache.getCompiled());
+      assertEquals("one", transform(templates));
+
+      // modified stylesheet is compiled again
+      write(file, "two");
+      file.setLastModified(file.lastModified() + 2000);
+      templates = cache.getTemplates(new StreamSource(file));
+      assertEquals(2, cache.getCompiled());
+      assertEquals("two", transform(templates));
+    } finally {
+      file.delete();
+    }
+  }
+
+  @Test
+  public void testWithoutSystemIdNotCached() throws Exception {
+    ReportTemplates cache = new ReportTemplates();
+    cache.getTemplates(new StreamSource(new StringReader(stylesheet("x"))));
+    cache.getTemplates(new StreamSource(new StringReader(stylesheet("x"))));
+    assertEquals(2, cache.getCompiled());
+  }
+
+  private static void write(File file, String text) throws Exception {
+    FileWriter writer = new FileWriter(file);
+    writer.write(stylesheet(text));
+    writer.close();
+  }
+
+  private static String stylesheet(String text) {
+    return "<xsl:stylesheet version=\"1.0\""
+        + " xmlns:xsl=\"http://www.w3.org/1999/XSL/Transform\">"
+        + "<xsl:output method=\"text\"/>"
+        + "<xsl:template match=\"/\">" + text + "</xsl:template>"
+        + "</xsl:stylesheet>";
+  }
+
+  private static String transform(Templates templates) throws Exception {
+    StringWriter writer = new StringWriter();
+    templates.newTransformer().transform(
+        new StreamSource(new StringReader("<a/>")), new StreamResult(writer));
+    return writer.toString();
+  }
+
+}
@@ -0,0 +1,219 @@
+package net.sf.timeslottracker.gui.reports.text;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+
+import javax.xml.transform.Templates;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.sax.SAXSource;
+import javax.xml.transform.stream.StreamResult;
+import javax.xml.transform.stream.StreamSource;
+
+import net.sf.timeslottracker.data.DataFixture;
+import net.sf.timeslottracker.data.Task;
+import net.sf.timeslottracker.data.TimeSlot;
+import net.sf.timeslottracker.gui.reports.ReportDataReader;
+import net.sf.timeslottracker.gui.reports.filters.Filter;
+
+import org.junit.Test;
+import org.xml.sax.InputSource;
+
+/**
+ * Compares text writers with stylesheets of their reports and with expected
+ * outputs in golden files (<code>golden/*.txt</code>).
+ */
+public class TextReportWriterTest {
+
+  private static final String LINE_SEPARATOR = System
+      .getProperty("line.separator");
+
+  private final DataFixture fixture = new DataFixture();
+
+  private final Task root;
+
+  public TextReportWriterTest() {
+    root = task("Root", null);
+    Task development = task("Development", root, slot(29, 9, 0, 29, 10, 30,
+        "coding"), slot(30, 14, 15, 30, 15, 0, "review"));
+    task("Reports", development, slot(29, 11, 0, 29, 11, 20, "xslt\nline"),
+        slot(31, 8, 5, 31, 8, 5, "nothing"), slot(33, 7, 59, 33, 9, 1,
+            "in april"));
+    task("Empty", development);
+    Task meetings = task("Meetings", root, slot(30, 16, 0, 30, 17, 0,
+        "standup; weekly"), slot(25, 10, 0, 25, 11, 0, "before period"));
+    task("Ünïcode & <xml>", meetings, slot(31, 13, 0, 31, 13, 30, "a, b"));
+    // a half of minute
+    task("Seconds", root, DataFixture.slot(date(32, 12, 0), new Date(date(
+        32, 12, 1).getTime() + 30000), "half"));
+  }
+
+  @Test
+  public void testCSV() throws Exception {
+    check("csv.xml", new CSVWriter(), "csv", false);
+    check("csv.xml", new CSVWriter(), "csv_names_decimal", false,
+        "includeColumnNames", "yes", "columnSeparator", ",", "durationFormat",
+        "decimal");
+    check("csv.xml", new CSVWriter(), "csv_hidden_root", true,
+        "includeColumnNames", "yes");
+  }
+
+  @Test
+  public void testCSVJournal() throws Exception {
+    check("csv_journal.xml", new CSVJournalWriter(), "csv_journal", false);
+    check("csv_journal.xml", new CSVJournalWriter(), "csv_journal_names",
+        false, "includeColumnNames", "yes", "columnSeparator", "|");
+  }
+
+  @Test
+  public void testCSVTimesheetTable() throws Exception {
+    check("csv_timesheet_table.xml", new CSVTimesheetTableWriter(),
+        "csv_timesheet_table", false);
+    check("csv_timesheet_table.xml", new CSVTimesheetTableWriter(),
+        "csv_timesheet_table_names", false, "includeColumnNames", "yes",
+        "durationFormat", "hh:mm", "dateColumnLook",
+        "yyyy-MM-dd/dayOfWeek.name");
+    check("csv_timesheet_table.xml", new CSVTimesheetTableWriter(),
+        "csv_timesheet_table_hidden_root", true, "includeColumnNames", "yes",
+        "dateColumnLook", "dayOfWeek.shortname");
+  }
+
+  @Test
+  public void testTXTDetail() throws Exception {
+    check("txt_detail_report.xml", new TXTDetailWriter(), "txt_detail",
+        false);
+    check("txt_detail_report.xml", new TXTDetailWriter(),
+        "txt_detail_period", false, "startDate", "2010-03-29", "stopDate",
+        "2010-04-02");
+    check("txt_detail_report.xml", new TXTDetailWriter(),
+        "txt_detail_hidden_root", true);
+  }
+
+  @Test
+  public void testTXTJournal() throws Exception {
+    check("txt_journal_report.xml", new TXTJournalWriter(), "txt_journal",
+        false, "startDate", "2010-03-29", "stopDate", "2010-04-02");
+  }
+
+  @Test
+  public void testTXTJournalMonthly() throws Exception {
+    check("txt_journal_monthly.xml", new TXTJournalMonthlyWriter(),
+        "txt_journal_monthly", false, "startDate", "2010-03-29", "stopDate",
+        "2010-04-02");
+    check("txt_journal_monthly.xml", new TXTJournalMonthlyWriter(),
+        "txt_journal_monthly_hidden_root", true);
+  }
+
+  /**
+   * Checks output of the stylesheet and of the writer are the same as the
+   * golden file.
+   *
+   * @param parameters
+   *          names and values of parameters
+   */
+  private void check(String stylesheet, TextReportWriter writer,
+      String golden, boolean hideRoot, String... parameters) throws Exception {
+    String source = TextReportWriterTest.class.getResource(
+        "/xslt/" + stylesheet).toExternalForm();
+    Templates templates = TransformerFactory.newInstance().newTemplates(
+        new StreamSource(source));
+    Transformer transformer = templates.newTransformer();
+    for (int i = 0; i < parameters.length; i += 2) {
+      transformer.setParameter(parameters[i], parameters[i + 1]);
+    }
+
+    StringWriter xslt = new StringWriter();
+    transformer.transform(new SAXSource(reader(hideRoot), new InputSource()),
+        new StreamResult(xslt));
+
+    ReportData data = new ReportData();
+    ReportDataReader reader = reader(hideRoot);
+    reader.setContentHandler(data);
+    reader.parse(new InputSource());
+    StringWriter text = new StringWriter();
+    writer.write(data, transformer, text);
+
+    String expected = golden(golden);
+    assertEquals(golden + " (xslt)", expected, xslt.toString());
+    assertEquals(golden, expected, text.toString());
+  }
+
+  private static String golden(String name) throws Exception {
+    InputStream input = TextReportWriterTest.class
+        .getResourceAsStream("golden/" + name + ".txt");
+    assertNotNull("Missing golden file " + name, input);
+    try {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      byte[] buffer = new byte[4096];
+      int read;
+      while ((read = input.read(buffer)) > 0) {
+        bytes.write(buffer, 0, read);
+      }
+      return bytes.toString("UTF-8").replace("\n", LINE_SEPARATOR);
+    } finally {
+      input.close();
+    }
+  }
+
+  /**
+   * @return reader of report data from 2010-03-29 to 2010-04-02
+   */
+  private ReportDataReader reader(boolean hideRoot) {
+    Collection<Filter> filters = Collections.emptyList();
+    if (hideRoot) {
+      filters = Collections.singletonList(filterOut(root));
+    }
+    Date start = date(29, 0, 0);
+    Date end = new Date(date(34, 0, 0).getTime() - 1);
+    return new ReportDataReader(DataFixture.localizedTimeSlotTracker(),
+        fixture.dataSource(root), filters, start, end);
+  }
+
+  /**
+   * @return filter matching everything but given object
+   */
+  private static Filter filterOut(final Object hidden) {
+    return (Filter) Proxy.newProxyInstance(Filter.class.getClassLoader(),
+        new Class[] { Filter.class }, new InvocationHandler() {
+          public Object invoke(Object proxy, Method method, Object[] args) {
+            if (method.getName().equals("matches")) {
+              return args[0] != hidden;
+            }
+            return null;
+          }
+        });
+  }
+
+  /**
+   * @return date in March 2010 (days after 31 are in April)
+   */
+  private static Date date(int day, int hour, int minute) {
+    Calendar calendar = Calendar.getInstance();
+    calendar.clear();
+    calendar.set(2010, Calendar.MARCH, 1, hour, minute);
+    calendar.add(Calendar.DATE, day - 1);
+    return calendar.getTime();
+  }
+
+  private static TimeSlot slot(int startDay, int startHour, int startMinute,
+      int stopDay, int stopHour, int stopMinute, String description) {
+    return DataFixture.slot(date(startDay, startHour, startMinute), date(
+        stopDay, stopHour, stopMinute), description);
+  }
+
+  private Task task(String name, Task parent, TimeSlot... timeslots) {
+    return fixture.task(name.substring(0, 3), name, "about " + name, parent,
+        timeslots);
+  }
+
+}
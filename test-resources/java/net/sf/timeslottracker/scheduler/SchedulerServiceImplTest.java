@@ -0,0 +1,88 @@
+package net.sf.timeslottracker.scheduler;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class SchedulerServiceImplTest {
+
+  private static final long MINUTE = 60 * 1000;
+
+  private final SchedulerServiceImpl scheduler = new SchedulerServiceImpl();
+
+  @After
+  public void tearDown() {
+    scheduler.shutdown();
+  }
+
+  @Test
+  public void testAlignedDelayShortPeriod() {
+    // 30 seconds period fires on :00 and :30
+    assertEquals(20 * 1000, SchedulerServiceImpl.alignedDelay(
+        10 * MINUTE + 10 * 1000, 30 * 1000));
+    assertEquals(30 * 1000, SchedulerServiceImpl.alignedDelay(10 * MINUTE,
+        30 * 1000));
+  }
+
+  @Test
+  public void testAlignedDelayLongPeriod() {
+    // never shorter than period and ends on a minute boundary
+    long now = 10 * MINUTE + 10 * 1000;
+    long delay = SchedulerServiceImpl.alignedDelay(now, 5 * MINUTE);
+    assertEquals(5 * MINUTE + 50 * 1000, delay);
+    assertEquals(0, (now + delay) % MINUTE);
+
+    delay = SchedulerServiceImpl.alignedDelay(now, 90 * 1000);
+    assertTrue(delay >= 90 * 1000);
+    assertEquals(0, (now + delay) % MINUTE);
+  }
+
+  @Test
+  public void testScheduleOnce() throws InterruptedException {
+    final CountDownLatch latch = new CountDownLatch(1);
+    ScheduledTask task = scheduler.scheduleOnce("once", new Runnable() {
+      public void run() {
+        latch.countDown();
+      }
+    }, 0);
+    assertTrue(latch.await(5, TimeUnit.SECONDS));
+    assertTrue(task.isDone());
+    assertNull(scheduler.getTask("once"));
+  }
+
+  @Test
+  public void testSameNameReplacesTask() {
+    ScheduledTask first = scheduler.scheduleOnce("task", new Runnable() {
+      public void run() {
+      }
+    }, 100);
+    ScheduledTask second = scheduler.scheduleOnce("task", new Runnable() {
+      public void run() {
+      }
+    }, 100);
+    assertTrue(first.isDone());
+    assertSame(second, scheduler.getTask("task"));
+
+    // cancelling the replaced one does not touch the new one
+    first.cancel();
+    assertSame(second, scheduler.getTask("task"));
+    assertTrue(scheduler.cancel("task"));
+    assertFalse(scheduler.cancel("task"));
+  }
+
+  @Test
+  public void testReschedule() {
+    scheduler.scheduleRepeatedly("repeated", new Runnable() {
+      public void run() {
+      }
+    }, 100, -1, true);
+    assertTrue(scheduler.reschedule("repeated", 200));
+    assertEquals(200, scheduler.getTask("repeated").getPeriod());
+    assertFalse(scheduler.reschedule("unknown", 200));
+  }
+
+}
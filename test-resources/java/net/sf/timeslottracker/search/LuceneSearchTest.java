@@ -0,0 +1,285 @@
+package net.sf.timeslottracker.search;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import net.sf.timeslottracker.HeadlessTimeSlotTracker;
+import net.sf.timeslottracker.core.Action;
+import net.sf.timeslottracker.core.Configuration;
+import net.sf.timeslottracker.core.SearchEngine;
+import net.sf.timeslottracker.data.DataFixture;
+import net.sf.timeslottracker.data.DataSource;
+import net.sf.timeslottracker.data.Task;
+import net.sf.timeslottracker.data.TimeSlot;
+import net.sf.timeslottracker.data.xml.XmlDataSource;
+import net.sf.timeslottracker.scheduler.SchedulerService;
+
+import org.apache.lucene.document.Document;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class LuceneSearchTest {
+
+  private File directory;
+
+  private String dataDirectory;
+
+  private Instance instance;
+
+  private LuceneSearch search;
+
+  private final DataFixture fixture = new DataFixture();
+
+  @Before
+  public void setUp() throws Exception {
+    directory = File.createTempFile("tstSearch", "");
+    directory.delete();
+    directory.mkdir();
+    dataDirectory = System.getProperty(DataSource.TIMESLOTTRACKER_DIRECTORY);
+    System.setProperty(DataSource.TIMESLOTTRACKER_DIRECTORY,
+        directory.getPath());
+    instance = new Instance();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    if (search != null) {
+      search.close();
+    }
+    if (dataDirectory == null) {
+      System.clearProperty(DataSource.TIMESLOTTRACKER_DIRECTORY);
+    } else {
+      System.setProperty(DataSource.TIMESLOTTRACKER_DIRECTORY, dataDirectory);
+    }
+    delete(directory);
+  }
+
+  @Test
+  public void testPagesReadAfterSearcherReopened() throws Exception {
+    DataSource data = instance.dataSource;
+    Task sprint = data.createTask(data.getRoot(), null, "sprint", null,
+        false);
+    for (int i = 0; i < LuceneSearch.PAGE_SIZE * 2 + 10; i++) {
+      data.createTimeSlot(sprint, new Date(i * 60000L), new Date(
+          (i + 1) * 60000L), "weekly retrospective");
+    }
+    Task other = data.createTask(data.getRoot(), null, "other", null, false);
+    createIndex();
+
+    SearchResult result = search.doSearch("retrospective");
+    assertEquals(LuceneSearch.PAGE_SIZE * 2 + 10, result.getTotalHits());
+    assertEquals(LuceneSearch.PAGE_SIZE, result.getDocuments().size());
+
+    // index changes and the next search reopens the searcher
+    data.createTimeSlot(other, new Date(0), new Date(60000),
+        "retrospective notes");
+    search.update(other);
+    search.commitPending();
+    assertEquals(1, search.doSearch("notes").getTotalHits());
+
+    List<Document> page = result.readMore();
+    assertEquals(LuceneSearch.PAGE_SIZE, page.size());
+    result.addPage(page);
+    assertEquals(LuceneSearch.PAGE_SIZE * 2 + 10, result.getTotalHits());
+    assertTrue(result.hasMore());
+    result.addPage(result.readMore());
+    assertFalse(result.hasMore());
+    assertTrue(result.readMore().isEmpty());
+  }
+
+  @Test
+  public void testReopenedIndexCatchesUpChangedTasks() throws Exception {
+    DataSource data = instance.dataSource;
+    Task changed = data.createTask(data.getRoot(), null, "changed", null,
+        false);
+    TimeSlot timeslot = data.createTimeSlot(changed, new Date(0), new Date(
+        60000), "first draft");
+    Task unchanged = data.createTask(data.getRoot(), null, "unchanged", null,
+        false);
+    data.createTimeSlot(unchanged, new Date(0), new Date(60000),
+        "code review");
+    Task deleted = data.createTask(data.getRoot(), null, "deleted", null,
+        false);
+    data.createTimeSlot(deleted, new Date(0), new Date(60000),
+        "obsolete meeting");
+    createIndex();
+    assertEquals(0, search.getCaughtUpTasks());
+    assertEquals(1, search.doSearch("draft").getTotalHits());
+    search.close();
+
+    timeslot.setDescription("final version");
+    data.moveTask(deleted, null);
+    createIndex();
+
+    // only the changed task is indexed again
+    assertEquals(1, search.getCaughtUpTasks());
+    assertEquals(0, search.doSearch("draft").getTotalHits());
+    assertEquals(1, search.doSearch("final").getTotalHits());
+    assertEquals(1, search.doSearch("review").getTotalHits());
+    assertEquals(0, search.doSearch("obsolete").getTotalHits());
+  }
+
+  @Test
+  public void testQueuedChangesSearchableAfterCommit() throws Exception {
+    DataSource data = instance.dataSource;
+    Task task = data.createTask(data.getRoot(), null, "task", null, false);
+    TimeSlot timeslot = data.createTimeSlot(task, new Date(0), new Date(
+        60000), "first draft");
+    createIndex();
+
+    // the scheduler never runs the indexer, changes stay queued
+    timeslot.setDescription("final version");
+    search.update(timeslot);
+    search.update(task);
+    assertEquals(1, search.doSearch("draft").getTotalHits());
+    assertEquals(0, search.doSearch("final").getTotalHits());
+
+    search.commitPending();
+    assertEquals(0, search.doSearch("draft").getTotalHits());
+    assertEquals(1, search.doSearch("final").getTotalHits());
+  }
+
+  @Test
+  public void testMovedTaskSubtreeSearchedInNewParent() throws Exception {
+    DataSource data = instance.dataSource;
+    Task oldParent = data.createTask(data.getRoot(), null, "old", null, false);
+    Task newParent = data.createTask(data.getRoot(), null, "new", null, false);
+    Task moved = data.createTask(oldParent, null, "moved", null, false);
+    for (int i = 0; i < 2; i++) {
+      Task child = data.createTask(moved, null, "child" + i, null, false);
+      data.createTimeSlot(child, new Date(0), new Date(60000),
+          "sprint planning");
+    }
+    createIndex();
+    assertEquals(2, search.doSearch("planning", oldParent).getTotalHits());
+    assertEquals(0, search.doSearch("planning", newParent).getTotalHits());
+
+    // only the moved task is queued, its subtasks have new ancestors too
+    data.moveTask(moved, newParent);
+    search.update(moved);
+    search.commitPending();
+    assertEquals(0, search.doSearch("planning", oldParent).getTotalHits());
+    assertEquals(2, search.doSearch("planning", newParent).getTotalHits());
+    assertEquals(2, search.doSearch("planning").getTotalHits());
+  }
+
+  @Test
+  public void testShardKeepsSubtreesTogether() {
+    Task root = fixture.task("root", null);
+    Task small1 = fixture.task("small1", root);
+    Task big = fixture.task("big", root);
+    fixture.task("big.1", big);
+    fixture.task("big.2", big);
+    fixture.task("big.3", big);
+    Task medium = fixture.task("medium", root);
+    Task medium1 = fixture.task("medium.1", medium);
+    Task small2 = fixture.task("small2", root);
+
+    List<List<Task>> shards = LuceneSearch.shard(root, 3);
+
+    assertEquals(3, shards.size());
+    assertEquals(4, shards.get(0).size());
+    // small subtrees share a shard, root goes to the smallest one
+    assertEquals(Arrays.asList(medium, medium1, root), shards.get(1));
+    assertEquals(Arrays.asList(small1, small2), shards.get(2));
+
+    Set<Task> all = new HashSet<Task>();
+    for (List<Task> shard : shards) {
+      all.addAll(shard);
+    }
+    assertEquals(9, all.size());
+  }
+
+  @Test
+  public void testShardLeafRoot() {
+    Task root = fixture.task("root", null);
+    List<List<Task>> shards = LuceneSearch.shard(root, 4);
+    assertEquals(1, shards.size());
+    assertEquals(Arrays.asList(root), shards.get(0));
+  }
+
+  @Test
+  public void testPath() {
+    Task root = fixture.task("1", null);
+    Task leaf = fixture.task("3", fixture.task("2", root));
+    assertEquals("1", LuceneSearch.path(root));
+    assertEquals("1/2/3", LuceneSearch.path(leaf));
+  }
+
+  /**
+   * Opens index of the data in the temporary directory, the index is created
+   * or caught up with the data.
+   */
+  private void createIndex() throws Exception {
+    instance.indexCreated = new CountDownLatch(1);
+    search = new LuceneSearch(instance);
+    search.createIndex(instance.dataSource.getRoot());
+    assertTrue(instance.indexCreated.await(30, TimeUnit.SECONDS));
+    assertEquals(Boolean.TRUE, instance.indexAction.getParam());
+  }
+
+  /**
+   * Application instance without gui, which scheduler never runs anything.
+   * Tests commit queued changes themselves.
+   */
+  private static class Instance extends HeadlessTimeSlotTracker {
+    private final XmlDataSource dataSource = new XmlDataSource();
+
+    private volatile CountDownLatch indexCreated;
+
+    private volatile Action indexAction;
+
+    private Instance() {
+      Configuration configuration = getConfiguration();
+      configuration.set(Configuration.DATASOURCE_SHARED, false);
+      configuration.set(Configuration.BACKUP_ON_STARTUP, false);
+      configuration.set(Configuration.BACKUP_ON_SHUTDOWN, false);
+      dataSource.setTimeSlotTracker(this);
+      assertTrue(dataSource.reloadData());
+    }
+
+    public DataSource getDataSource() {
+      return dataSource;
+    }
+
+    public void fireAction(Action action) {
+      if (action.getName().equals(SearchEngine.INDEX_CREATED)) {
+        indexAction = action;
+        indexCreated.countDown();
+      }
+    }
+
+    public SchedulerService getScheduler() {
+      return (SchedulerService) Proxy.newProxyInstance(
+          SchedulerService.class.getClassLoader(),
+          new Class[] { SchedulerService.class }, new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args) {
+              return null;
+            }
+          });
+    }
+  }
+
+  private static void delete(File file) {
+    File[] files = file.listFiles();
+    if (files != null) {
+      for (File child : files) {
+        delete(child);
+      }
+    }
+    file.delete();
+  }
+
+}
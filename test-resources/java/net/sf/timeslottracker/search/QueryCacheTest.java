@@ -0,0 +1,64 @@
+package net.sf.timeslottracker.search;
+
+import static org.junit.Assert.*;
+
+import org.apache.lucene.document.Document;
+import org.junit.Test;
+
+public class QueryCacheTest {
+
+  @Test
+  public void testKey() {
+    assertEquals("|issue 42", QueryCache.key("  issue \t 42 ", null));
+    assertEquals("7|month:2010-03", QueryCache.key("month:2010-03", "7"));
+    assertFalse(QueryCache.key("a", null).equals(QueryCache.key("a", "1")));
+  }
+
+  @Test
+  public void testGeneration() {
+    QueryCache cache = new QueryCache(2);
+    SearchResult result = new SearchResult(null, null);
+    cache.put("|a", 1, result);
+
+    assertNotNull(cache.get("|a", 1));
+    // index has changed meanwhile
+    assertNull(cache.get("|a", 2));
+    assertEquals(0, cache.size());
+    assertEquals(1, cache.getHits());
+    assertEquals(1, cache.getMisses());
+  }
+
+  @Test
+  public void testCachedResultNotShared() {
+    QueryCache cache = new QueryCache(2);
+    SearchResult result = new SearchResult(null, null);
+    result.add(new Document());
+    result.setTotalHits(3);
+    cache.put("|a", 1, result);
+    // the found result loads its next page
+    result.add(new Document());
+
+    SearchResult cached = cache.get("|a", 1);
+    assertNotSame(result, cached);
+    assertEquals(1, cached.getDocuments().size());
+    assertEquals(3, cached.getTotalHits());
+    cached.add(new Document());
+    assertEquals(1, cache.get("|a", 1).getDocuments().size());
+  }
+
+  @Test
+  public void testLeastRecentlyUsedEvicted() {
+    QueryCache cache = new QueryCache(2);
+    SearchResult a = new SearchResult(null, null);
+    SearchResult b = new SearchResult(null, null);
+    cache.put("|a", 1, a);
+    cache.put("|b", 1, b);
+    cache.get("|a", 1);
+    cache.put("|c", 1, new SearchResult(null, null));
+
+    assertEquals(2, cache.size());
+    assertNotNull(cache.get("|a", 1));
+    assertNull(cache.get("|b", 1));
+  }
+
+}
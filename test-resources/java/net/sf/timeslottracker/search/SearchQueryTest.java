@@ -0,0 +1,107 @@
+package net.sf.timeslottracker.search;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.List;
+
+import net.sf.timeslottracker.data.AttributeCategory;
+import net.sf.timeslottracker.data.AttributeType;
+import net.sf.timeslottracker.data.CheckBoxAttribute;
+import net.sf.timeslottracker.data.IntegerAttribute;
+import net.sf.timeslottracker.data.LOVAttribute;
+
+import org.junit.Test;
+
+public class SearchQueryTest {
+
+  @Test
+  public void testTextOnly() throws Exception {
+    SearchQuery query = new SearchQuery("  standup ");
+    assertEquals("standup", query.getText());
+    assertFalse(query.hasFilters());
+    assertEquals("+contents:standup*", query.toQuery().toString());
+  }
+
+  @Test
+  public void testFilters() throws Exception {
+    SearchQuery query = new SearchQuery(
+        "standup month:2010-3 duration>30 time<=9:05");
+    assertEquals("standup", query.getText());
+    assertEquals("+contents:standup* +stop_day:[20100301 TO *]"
+        + " +start_day:[* TO 20100331] +duration:{000030 TO *]"
+        + " +start_time:[* TO 0905]", query.toQuery().toString());
+  }
+
+  @Test
+  public void testDaysAndHours() throws Exception {
+    SearchQuery query = new SearchQuery(
+        "from:2010-03-01 to:2010-03-31 duration<2h");
+    assertEquals("", query.getText());
+    assertEquals("+stop_day:[20100301 TO *] +start_day:[* TO 20100331]"
+        + " +duration:[* TO 000120}", query.toQuery().toString());
+  }
+
+  @Test
+  public void testInvalidFilterIsText() throws Exception {
+    SearchQuery query = new SearchQuery("from:yesterday");
+    assertEquals("from:yesterday", query.getText());
+    assertFalse(query.hasFilters());
+  }
+
+  @Test
+  public void testAttributeFilters() throws Exception {
+    AttributeType status = type("Status", new LOVAttribute());
+    status.setDefault("Open;In progress;Closed");
+    List<AttributeType> types = Arrays.asList(type("Project",
+        new LOVAttribute()), type("Project number", new IntegerAttribute()),
+        status, type("Billable", new CheckBoxAttribute()));
+    String number = SearchQuery.number(4711);
+
+    SearchQuery query = new SearchQuery(
+        "review project number:4711 status:\"in progress\" Billable:yes",
+        types);
+    assertEquals("review", query.getText());
+    assertEquals("+contents:review* +attr.project number:[" + number + " TO "
+        + number + "] +attr.billable:true +attr.status:In progress", query
+        .toQuery().toString());
+
+    query = new SearchQuery("Project number:x Billable:maybe", types);
+    assertEquals("Project number:x Billable:maybe", query.getText());
+    assertFalse(query.hasFilters());
+  }
+
+  @Test
+  public void testNumberEncoding() {
+    double[] numbers = { -1e10, -2.5, -1, -0.5, 0, 0.25, 1, 3, 4711, 1e10 };
+    for (int i = 1; i < numbers.length; i++) {
+      assertTrue(SearchQuery.number(numbers[i - 1]).compareTo(
+          SearchQuery.number(numbers[i])) < 0);
+    }
+    assertEquals(SearchQuery.number(0), SearchQuery.number(-0.0));
+    AttributeType type = type("Estimate", new IntegerAttribute());
+    assertEquals(SearchQuery.number(12), SearchQuery.attributeValue(type,
+        Integer.valueOf(12)));
+    assertEquals(SearchQuery.number(12), SearchQuery.attributeValue(type,
+        " 12"));
+    assertNull(SearchQuery.attributeValue(type, "twelve"));
+  }
+
+  private static AttributeType type(String name, AttributeCategory category) {
+    AttributeType type = new AttributeType(category);
+    type.setName(name);
+    return type;
+  }
+
+  @Test
+  public void testEncoding() {
+    Calendar calendar = new GregorianCalendar(2010, Calendar.MARCH, 7, 9, 5);
+    assertEquals("20100307", SearchQuery.day(calendar.getTime()));
+    assertEquals("201003", SearchQuery.month(calendar.getTime()));
+    assertEquals("0905", SearchQuery.time(calendar.getTime()));
+    assertEquals("000090", SearchQuery.duration(90 * 60000 + 59999));
+  }
+
+}
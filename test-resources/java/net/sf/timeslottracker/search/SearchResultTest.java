@@ -0,0 +1,64 @@
+package net.sf.timeslottracker.search;
+
+import static org.junit.Assert.*;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.junit.Test;
+
+public class SearchResultTest {
+
+  @Test
+  public void testRefineWord() throws Exception {
+    SearchResult result = result("sta", document("1", "Standup meeting"),
+        document("2", "Status report"), document("2", "Code review, stash"));
+
+    SearchResult refined = result.refine("stan", null);
+    assertNotNull(refined);
+    assertEquals(1, refined.getTotalHits());
+    assertEquals("Standup meeting", refined.getDocuments().get(0).get(
+        "contents"));
+    assertEquals(Integer.valueOf(1), refined.getTaskCounts().get("1"));
+    assertFalse(refined.hasMore());
+
+    // refined result is refined again
+    assertEquals(0, refined.refine("stanx", null).getTotalHits());
+    // words are matched as analyzed in the index
+    assertEquals(1, result.refine("stas", null).getTotalHits());
+  }
+
+  @Test
+  public void testRefineNeedsSearch() throws Exception {
+    SearchResult result = result("sta", document("1", "Standup"));
+    // another word, shorter word, a filter
+    assertNull(result.refine("sta meeting", null));
+    assertNull(result.refine("st", null));
+    assertNull(result.refine("stan month:2010-03", null));
+
+    // not all documents are loaded
+    result.setTotalHits(2);
+    assertNull(result.refine("stan", null));
+  }
+
+  private static SearchResult result(String query, Document... documents)
+      throws Exception {
+    SearchQuery searchQuery = new SearchQuery(query);
+    SearchResult result = new SearchResult(null, searchQuery.toQuery());
+    result.setSource(QueryCache.key(query, null), searchQuery.getText());
+    for (Document document : documents) {
+      result.add(document);
+    }
+    result.setTotalHits(documents.length);
+    return result;
+  }
+
+  private static Document document(String taskId, String contents) {
+    Document document = new Document();
+    document.add(new Field("task_id", taskId, Field.Store.YES,
+        Field.Index.UN_TOKENIZED));
+    document.add(new Field("contents", contents, Field.Store.YES,
+        Field.Index.TOKENIZED));
+    return document;
+  }
+
+}
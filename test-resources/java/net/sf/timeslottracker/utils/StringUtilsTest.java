@@ -0,0 +1,19 @@
+package net.sf.timeslottracker.utils;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class StringUtilsTest {
+
+  @Test
+  public void testFingerprint() {
+    assertEquals(StringUtils.fingerprint("slot\t1\t2"),
+        StringUtils.fingerprint("slot\t1\t2"));
+    assertTrue(StringUtils.fingerprint("slot\t1\t2") != StringUtils
+        .fingerprint("slot\t1\t3"));
+    // FNV-1a offset basis
+    assertEquals(0xcbf29ce484222325L, StringUtils.fingerprint(""));
+  }
+
+}
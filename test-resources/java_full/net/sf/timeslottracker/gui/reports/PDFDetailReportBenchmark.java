@@ -0,0 +1,75 @@
+package net.sf.timeslottracker.gui.reports;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+
+import net.sf.timeslottracker.data.DataFixture;
+import net.sf.timeslottracker.data.DataSource;
+import net.sf.timeslottracker.data.Task;
+
+/**
+ * Measures detail report of a year with a timeslot of every task every working
+ * day. The first (cold) run builds the FOP factory and compiles the
+ * stylesheet, the next (warm) ones reuse them.
+ * <p>
+ * It is run by hand, not as a test:
+ * <code>java net.sf.timeslottracker.gui.reports.PDFDetailReportBenchmark</code>
+ */
+public class PDFDetailReportBenchmark {
+
+  private static final int WARM_RUNS = 3;
+
+  public static void main(String[] args) throws Exception {
+    DataFixture fixture = new DataFixture();
+    Task root = fixture.task("root", null);
+    List<Task> tasks = new ArrayList<Task>();
+    for (int i = 0; i < 5; i++) {
+      tasks.add(fixture.task("task" + i, root));
+    }
+    Calendar day = Calendar.getInstance();
+    day.clear();
+    day.set(2018, Calendar.JANUARY, 1, 8, 0);
+    while (day.get(Calendar.YEAR) == 2018) {
+      int dayOfWeek = day.get(Calendar.DAY_OF_WEEK);
+      if (dayOfWeek != Calendar.SATURDAY && dayOfWeek != Calendar.SUNDAY) {
+        for (int i = 0; i < tasks.size(); i++) {
+          Date start = new Date(day.getTimeInMillis() + i * 3600000L);
+          DataFixture.addSlots(tasks.get(i), DataFixture.slot(start,
+              new Date(start.getTime() + 3000000L)));
+        }
+      }
+      day.add(Calendar.DAY_OF_MONTH, 1);
+    }
+
+    DataSource dataSource = fixture.dataSource(root);
+    PDFDetailReport report = new PDFDetailReport(null);
+    File resultFile = File.createTempFile("detail", ".pdf");
+    try {
+      long cold = run(report, dataSource, resultFile);
+      PDFDetailReportTest.assertPdf(resultFile);
+      long warm = Long.MAX_VALUE;
+      for (int i = 0; i < WARM_RUNS; i++) {
+        warm = Math.min(warm, run(report, dataSource, resultFile));
+      }
+      PDFDetailReportTest.assertPdf(resultFile);
+      System.out.println("PDF detail report of a year: cold " + cold
+          + " ms, warm " + warm + " ms");
+    } finally {
+      resultFile.delete();
+    }
+  }
+
+  /**
+   * @return milliseconds the report took
+   */
+  private static long run(AbstractReport report, DataSource dataSource,
+      File resultFile) throws Exception {
+    long started = System.nanoTime();
+    PDFDetailReportTest.render(report, dataSource, resultFile);
+    return (System.nanoTime() - started) / 1000000;
+  }
+
+}
@@ -0,0 +1,86 @@
+package net.sf.timeslottracker.gui.reports;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Date;
+
+import javax.xml.transform.Transformer;
+import javax.xml.transform.sax.SAXSource;
+
+import net.sf.timeslottracker.data.DataFixture;
+import net.sf.timeslottracker.data.DataSource;
+import net.sf.timeslottracker.data.Task;
+import net.sf.timeslottracker.data.TimeSlot;
+import net.sf.timeslottracker.gui.reports.filters.Filter;
+
+import org.junit.Test;
+import org.xml.sax.InputSource;
+
+public class PDFDetailReportTest {
+
+  @Test
+  public void testDetailReport() throws Exception {
+    DataFixture fixture = new DataFixture();
+    Task root = fixture.task("root", null);
+    Task development = fixture.task("development", root, slot(1, 8, 10),
+        slot(2, 9, 12));
+    fixture.task("reports", development, slot(2, 13, 14));
+    fixture.task("meetings", root, slot(3, 10, 11));
+
+    File resultFile = File.createTempFile("detail", ".pdf");
+    try {
+      render(new PDFDetailReport(null), fixture.dataSource(root), resultFile);
+      assertPdf(resultFile);
+    } finally {
+      resultFile.delete();
+    }
+  }
+
+  /**
+   * Writes a report of all the data to the file.
+   */
+  static void render(AbstractReport report, DataSource dataSource,
+      File resultFile) throws Exception {
+    ReportDataReader reader = new ReportDataReader(DataFixture
+        .timeSlotTracker(), dataSource, Collections.<Filter> emptyList(),
+        null, null);
+    Transformer trans = ReportTemplates.getInstance().getTemplates(
+        report.getXsltSource(null)).newTransformer();
+    report.transform(resultFile, new SAXSource(reader, new InputSource()),
+        trans);
+  }
+
+  /**
+   * Checks the file is a whole PDF document.
+   */
+  static void assertPdf(File file) throws Exception {
+    byte[] content = new byte[(int) file.length()];
+    InputStream in = new FileInputStream(file);
+    try {
+      assertEquals(content.length, in.read(content));
+    } finally {
+      in.close();
+    }
+    String text = new String(content, "ISO-8859-1");
+    assertTrue(text.startsWith("%PDF-"));
+    assertTrue(text.trim().endsWith("%%EOF"));
+  }
+
+  /**
+   * @return timeslot in the first week of March 2010
+   */
+  private static TimeSlot slot(int day, int startHour, int stopHour) {
+    Calendar calendar = Calendar.getInstance();
+    calendar.clear();
+    calendar.set(2010, Calendar.MARCH, day, startHour, 0);
+    Date start = calendar.getTime();
+    calendar.set(Calendar.HOUR_OF_DAY, stopHour);
+    return DataFixture.slot(start, calendar.getTime());
+  }
+
+}